@@ -0,0 +1,125 @@
+package io.github.auditlistener.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.service.ArgsRenderer;
+import io.github.auditlistener.service.PayloadLimiter;
+import io.github.auditlistener.service.SchemaValidator;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.github.auditlistener.service.impl.SchemaValidatorImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Генератор событий аудита, похожих на реальные: JSON тела запросов/ответов
+ * и аргументы методов заданного размера
+ */
+public final class AuditPayloads {
+
+    private static final String[] WORDS = {
+            "contractor", "id", "name", "inn", "ogrn", "country", "industry", "orgForm",
+            "active", "createDate", "modifyDate", "userId", "RUS", "12345", "true", "null"
+    };
+
+    private AuditPayloads() {
+    }
+
+    public static ObjectMapper objectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return mapper;
+    }
+
+    /**
+     * Лимиты размера тел по умолчанию (audit.listener.payload.*), без хранилища полных значений
+     */
+    public static PayloadLimiter payloadLimiter() {
+        ListenerConfig config = new ListenerConfig();
+        AuditMetrics metrics = new AuditMetrics(new SimpleMeterRegistry());
+        return new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics);
+    }
+
+    /**
+     * Аргументы в формате по умолчанию (audit.listener.args.*)
+     */
+    public static ArgsRenderer argsRenderer() {
+        return new ArgsRendererImpl(new ListenerConfig());
+    }
+
+    /**
+     * Правила валидации по умолчанию (audit.listener.validation.*)
+     */
+    public static SchemaValidator schemaValidator() {
+        return new SchemaValidatorImpl(new ListenerConfig());
+    }
+
+    public static String methodEvent(PayloadSize size) {
+        Random random = new Random(size.ordinal());
+
+        Map<String, Object> argument = new LinkedHashMap<>();
+        argument.put("id", UUID.randomUUID().toString());
+        argument.put("payload", body(random, size.getBodyBytes() / 2));
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("correlationId", UUID.randomUUID().toString());
+        event.put("timestamp", LocalDateTime.of(2026, 10, 17, 12, 30, 45).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        event.put("eventType", "END");
+        event.put("logLevel", "INFO");
+        event.put("methodName", "ContractorService.saveContractor");
+        event.put("arguments", List.of("contractor-42", 17, argument));
+        event.put("result", body(random, size.getBodyBytes() / 2));
+        return write(event);
+    }
+
+    public static String httpEvent(PayloadSize size) {
+        Random random = new Random(size.ordinal());
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("timestamp", LocalDateTime.of(2026, 10, 17, 12, 30, 45).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        event.put("direction", "Incoming");
+        event.put("method", "PUT");
+        event.put("uri", "/contractor/save");
+        event.put("statusCode", 200);
+        event.put("requestBody", body(random, size.getBodyBytes() / 2));
+        event.put("responseBody", body(random, size.getBodyBytes() / 2));
+        return write(event);
+    }
+
+    /**
+     * JSON тело (как строка) примерно заданного размера
+     */
+    private static String body(Random random, int bytes) {
+        StringBuilder body = new StringBuilder(bytes + 64).append('{');
+        while (body.length() < bytes) {
+            if (body.length() > 1) {
+                body.append(',');
+            }
+            body.append('"').append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(1000)).append("\":\"")
+                    .append(WORDS[random.nextInt(WORDS.length)]).append('"');
+        }
+        return body.append('}').toString();
+    }
+
+    private static String write(Map<String, Object> event) {
+        try {
+            return objectMapper().writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
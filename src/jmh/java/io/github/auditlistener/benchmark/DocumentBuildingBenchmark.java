@@ -0,0 +1,106 @@
+package io.github.auditlistener.benchmark;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.service.ArgsRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение MethodDocument из разобранного дерева, включая преобразование аргументов
+ * Arrays.toString(objectMapper.convertValue(..., Object[].class)), в сравнении с записью
+ * аргументов из потока токенов (ArgsRenderer)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentBuildingBenchmark {
+
+    @Param({"SMALL", "KB_10", "MB_1"})
+    private PayloadSize size;
+
+    private ObjectMapper objectMapper;
+    private JsonNode event;
+    private String arguments;
+    private ArgsRenderer argsRenderer;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = AuditPayloads.objectMapper();
+        event = objectMapper.readTree(AuditPayloads.methodEvent(size));
+        arguments = event.get("arguments").toString();
+        argsRenderer = AuditPayloads.argsRenderer();
+    }
+
+    @Benchmark
+    public MethodDocument buildMethodDocument() {
+        return MethodDocument.builder()
+                .id(UUID.randomUUID().toString())
+                .correlationId(event.get("correlationId").asText())
+                .timestamp(LocalDateTime.parse(event.get("timestamp").asText()).toInstant(ZoneOffset.UTC))
+                .eventType(event.get("eventType").asText())
+                .level(event.get("logLevel").asText())
+                .method(event.get("methodName").asText())
+                .args(event.hasNonNull("arguments")
+                        ? Arrays.toString(objectMapper.convertValue(event.get("arguments"), Object[].class))
+                        : null)
+                .result(event.hasNonNull("result")
+                        ? event.get("result").asText()
+                        : null)
+                .errorMessage(event.hasNonNull("errorMessage")
+                        ? event.get("errorMessage").asText()
+                        : null)
+                .build();
+    }
+
+    @Benchmark
+    public String convertArguments() {
+        return Arrays.toString(objectMapper.convertValue(event.get("arguments"), Object[].class));
+    }
+
+    /**
+     * Разбор аргументов из строки и запись в формате TO_STRING без промежуточных объектов
+     */
+    @Benchmark
+    public String renderArguments() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(arguments)) {
+            parser.nextToken();
+            return argsRenderer.render(parser).text();
+        }
+    }
+
+    /**
+     * Тот же разбор из строки через Object[] для сравнения с renderArguments
+     */
+    @Benchmark
+    public String readArguments() throws IOException {
+        return Arrays.toString(objectMapper.readValue(arguments, Object[].class));
+    }
+
+    @Benchmark
+    public String randomDocumentId() {
+        return UUID.randomUUID().toString();
+    }
+
+}
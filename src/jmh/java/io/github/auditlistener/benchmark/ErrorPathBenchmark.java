@@ -0,0 +1,75 @@
+package io.github.auditlistener.benchmark;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.service.impl.KafkaServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь ошибки: построение ErrorDocument и передача в буфер отправки; сериализация и отправка
+ * выполняются потоком отправки (MockProducer, без сети). При заполненном буфере измеряется
+ * пропускная способность отправки
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    @Param({"SMALL", "KB_10", "MB_1"})
+    private PayloadSize size;
+
+    private MockProducer<String, byte[]> producer;
+    private KafkaServiceImpl kafkaService;
+    private String message;
+
+    @Setup
+    public void setUp() {
+        producer = new MockProducer<>(true, null, new StringSerializer(), new ByteArraySerializer()) {
+            @Override
+            public void close(Duration timeout) {
+                // KafkaTemplate закрывает producer, полученный от фабрики, после каждой отправки
+            }
+        };
+        KafkaTemplate<String, byte[]> kafkaTemplate = new KafkaTemplate<>(new MockProducerFactory<>(() -> producer));
+
+        kafkaService = new KafkaServiceImpl(kafkaTemplate, new ListenerConfig(), AuditPayloads.objectMapper(),
+                AuditPayloads.payloadLimiter(), new AuditMetrics(new SimpleMeterRegistry()));
+        kafkaService.start();
+        message = AuditPayloads.httpEvent(size);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        kafkaService.stop();
+    }
+
+    @Benchmark
+    public void sendErrorMessage() {
+        kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index HTTP document", "audit.requests", "key-1", message);
+        producer.clear();
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.github.auditlistener.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.elastic.RawHttpDocument;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
+import io.github.auditlistener.utils.EventValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор JSON и валидация: прежний путь readTree + EventValidator против потокового парсера
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventParsingBenchmark {
+
+    @Param({"SMALL", "KB_10", "MB_1"})
+    private PayloadSize size;
+
+    private ObjectMapper objectMapper;
+    private EventDocumentParserImpl eventParser;
+
+    private String methodMessage;
+    private String httpMessage;
+    private byte[] methodBytes;
+    private byte[] httpBytes;
+
+    @Setup
+    public void setUp() {
+        objectMapper = AuditPayloads.objectMapper();
+        eventParser = new EventDocumentParserImpl(objectMapper, AuditPayloads.payloadLimiter(),
+                AuditPayloads.argsRenderer(), AuditPayloads.schemaValidator());
+
+        methodMessage = AuditPayloads.methodEvent(size);
+        httpMessage = AuditPayloads.httpEvent(size);
+        methodBytes = methodMessage.getBytes(StandardCharsets.UTF_8);
+        httpBytes = httpMessage.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public boolean methodTreeParseAndValidate() throws Exception {
+        JsonNode event = objectMapper.readTree(methodMessage);
+        return EventValidator.validateMethodEvent(event);
+    }
+
+    @Benchmark
+    public MethodDocument methodStreamingParse() {
+        return eventParser.parseMethodEvent(methodMessage);
+    }
+
+    @Benchmark
+    public MethodDocument methodStreamingParseBytes() {
+        return eventParser.parseMethodEvent(methodBytes);
+    }
+
+    @Benchmark
+    public boolean httpTreeParseAndValidate() throws Exception {
+        JsonNode event = objectMapper.readTree(httpMessage);
+        return EventValidator.validateHttpEvent(event);
+    }
+
+    @Benchmark
+    public HttpDocument httpStreamingParse() {
+        return eventParser.parseHttpEvent(httpMessage, "correlation-1");
+    }
+
+    @Benchmark
+    public HttpDocument httpStreamingParseBytes() {
+        return eventParser.parseHttpEvent(httpBytes, "correlation-1");
+    }
+
+    @Benchmark
+    public RawHttpDocument httpRawRewrite() {
+        return eventParser.rewriteHttpEvent(httpBytes, "correlation-1");
+    }
+
+}
@@ -0,0 +1,193 @@
+package io.github.auditlistener.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.enums.ContentEncoding;
+import io.github.auditlistener.model.enums.PayloadFormat;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
+import io.github.auditlistener.service.impl.PayloadDecoderImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Разбор HTTP события из JSON байтов против декодирования того же события из Avro
+ * (PayloadDecoder, схема из кэша) и разбора токенов в HttpDocument. Сжатые записи: потоковая
+ * распаковка PayloadDecoder (gzip, zstd, lz4) против GZIPInputStream с промежуточной строкой
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadFormatBenchmark {
+
+    private static final int SCHEMA_ID = 1;
+
+    private static final String HTTP_SCHEMA = """
+            {"type": "record", "name": "HttpEvent", "fields": [
+              {"name": "timestamp", "type": "string"},
+              {"name": "direction", "type": "string"},
+              {"name": "method", "type": "string"},
+              {"name": "uri", "type": "string"},
+              {"name": "statusCode", "type": "int"},
+              {"name": "requestBody", "type": ["null", "string"]},
+              {"name": "responseBody", "type": ["null", "string"]}
+            ]}
+            """;
+
+    @Param({"SMALL", "KB_10", "MB_1"})
+    private PayloadSize size;
+
+    private EventDocumentParserImpl eventParser;
+    private PayloadDecoderImpl payloadDecoder;
+
+    private byte[] jsonBytes;
+    private byte[] gzipBytes;
+    private ConsumerRecord<String, Object> avroRecord;
+    private ConsumerRecord<String, Object> gzipRecord;
+    private ConsumerRecord<String, Object> zstdRecord;
+    private ConsumerRecord<String, Object> lz4Record;
+
+    @Setup
+    public void setUp() throws Exception {
+        Path schemas = Files.createTempDirectory("audit-schemas");
+        Files.writeString(schemas.resolve(SCHEMA_ID + ".avsc"), HTTP_SCHEMA);
+        schemas.toFile().deleteOnExit();
+        schemas.resolve(SCHEMA_ID + ".avsc").toFile().deleteOnExit();
+
+        ListenerConfig config = new ListenerConfig();
+        config.getSchemaRegistry().setDirectory(schemas.toString());
+        config.getListeners().getHttp().setFormat(PayloadFormat.AVRO);
+
+        ObjectMapper objectMapper = AuditPayloads.objectMapper();
+        eventParser = new EventDocumentParserImpl(objectMapper, AuditPayloads.payloadLimiter(),
+                AuditPayloads.argsRenderer(), AuditPayloads.schemaValidator());
+        payloadDecoder = new PayloadDecoderImpl(config, objectMapper, new AuditMetrics(new SimpleMeterRegistry()));
+
+        String message = AuditPayloads.httpEvent(size);
+        jsonBytes = message.getBytes(StandardCharsets.UTF_8);
+        avroRecord = new ConsumerRecord<>(config.getKafka().getHttpTopic(), 0, 0L, "correlation-1",
+                toAvro(objectMapper.readTree(message)));
+
+        config.getListeners().getHttp().setFormat(PayloadFormat.JSON);
+        gzipBytes = compress(new ByteArrayOutputStream(), GZIPOutputStream::new);
+        gzipRecord = compressedRecord(config, ContentEncoding.GZIP, gzipBytes);
+        zstdRecord = compressedRecord(config, ContentEncoding.ZSTD, compress(new ByteArrayOutputStream(), ZstdOutputStream::new));
+        lz4Record = compressedRecord(config, ContentEncoding.LZ4, compress(new ByteArrayOutputStream(),
+                out -> new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB)));
+    }
+
+    @Benchmark
+    public HttpDocument httpJsonParse() {
+        return eventParser.parseHttpEvent(jsonBytes, "correlation-1");
+    }
+
+    @Benchmark
+    public HttpDocument httpAvroDecodeAndParse() {
+        return eventParser.parseHttpEvent((TokenBuffer) payloadDecoder.decode(avroRecord).value(), "correlation-1");
+    }
+
+    @Benchmark
+    public HttpDocument httpGzipDecodeAndParse() {
+        return eventParser.parseHttpEvent((TokenBuffer) payloadDecoder.decode(gzipRecord).value(), "correlation-1");
+    }
+
+    /**
+     * Распаковка без пула: новый GZIPInputStream (Inflater) на запись и строка сообщения
+     */
+    @Benchmark
+    public HttpDocument httpGzipStringParse() throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipBytes))) {
+            return eventParser.parseHttpEvent(new String(in.readAllBytes(), StandardCharsets.UTF_8), "correlation-1");
+        }
+    }
+
+    @Benchmark
+    public HttpDocument httpZstdDecodeAndParse() {
+        return eventParser.parseHttpEvent((TokenBuffer) payloadDecoder.decode(zstdRecord).value(), "correlation-1");
+    }
+
+    @Benchmark
+    public HttpDocument httpLz4DecodeAndParse() {
+        return eventParser.parseHttpEvent((TokenBuffer) payloadDecoder.decode(lz4Record).value(), "correlation-1");
+    }
+
+    private byte[] compress(ByteArrayOutputStream out, Compressor compressor) throws IOException {
+        try (OutputStream compressed = compressor.wrap(out)) {
+            compressed.write(jsonBytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static ConsumerRecord<String, Object> compressedRecord(ListenerConfig config, ContentEncoding encoding, byte[] value) {
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>(config.getKafka().getHttpTopic(), 0, 0L, "correlation-1", value);
+        record.headers().add(config.getKafka().getContentEncodingHeader(), encoding.getHeaderValue().getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+
+    private interface Compressor {
+
+        OutputStream wrap(OutputStream out) throws IOException;
+
+    }
+
+    private static byte[] toAvro(JsonNode event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{0, 0, 0, 0, SCHEMA_ID});
+        writeString(out, event.get("timestamp").asText());
+        writeString(out, event.get("direction").asText());
+        writeString(out, event.get("method").asText());
+        writeString(out, event.get("uri").asText());
+        writeLong(out, event.get("statusCode").asInt());
+        writeLong(out, 1);
+        writeString(out, event.get("requestBody").asText());
+        writeLong(out, 1);
+        writeString(out, event.get("responseBody").asText());
+        return out.toByteArray();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+    }
+
+}
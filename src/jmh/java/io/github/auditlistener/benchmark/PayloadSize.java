@@ -0,0 +1,22 @@
+package io.github.auditlistener.benchmark;
+
+/**
+ * Размер тел (аргументов, результата, requestBody/responseBody) в генерируемых событиях
+ */
+public enum PayloadSize {
+
+    SMALL(64),
+    KB_10(10 * 1024),
+    MB_1(1024 * 1024);
+
+    private final int bodyBytes;
+
+    PayloadSize(int bodyBytes) {
+        this.bodyBytes = bodyBytes;
+    }
+
+    public int getBodyBytes() {
+        return bodyBytes;
+    }
+
+}
@@ -0,0 +1,128 @@
+package io.github.auditlistener.benchmark;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
+import jakarta.json.stream.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация запросов к ElasticSearch через JacksonJsonpMapper (как в ElasticsearchConfig):
+ * отдельный документ и _bulk тело из документов либо исходных байтов (raw-http-passthrough)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestSerializationBenchmark {
+
+    private static final int BULK_SIZE = 100;
+
+    @Param({"SMALL", "KB_10", "MB_1"})
+    private PayloadSize size;
+
+    private JacksonJsonpMapper jsonpMapper;
+    private MethodDocument methodDocument;
+    private HttpDocument httpDocument;
+    private BulkRequest bulkRequest;
+    private BulkRequest rawBulkRequest;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = AuditPayloads.objectMapper();
+        EventDocumentParserImpl eventParser = new EventDocumentParserImpl(objectMapper, AuditPayloads.payloadLimiter(),
+                AuditPayloads.argsRenderer(), AuditPayloads.schemaValidator());
+        jsonpMapper = new JacksonJsonpMapper(objectMapper);
+
+        methodDocument = eventParser.parseMethodEvent(AuditPayloads.methodEvent(size));
+        httpDocument = eventParser.parseHttpEvent(AuditPayloads.httpEvent(size), "correlation-1");
+        byte[] rawHttpDocument = eventParser.rewriteHttpEvent(
+                AuditPayloads.httpEvent(size).getBytes(StandardCharsets.UTF_8), "correlation-1").getSource();
+
+        int bulkSize = size == PayloadSize.MB_1 ? 4 : BULK_SIZE;
+        BulkRequest.Builder bulk = new BulkRequest.Builder();
+        BulkRequest.Builder rawBulk = new BulkRequest.Builder();
+        for (int i = 0; i < bulkSize; i++) {
+            bulk.operations(op -> op.index(idx -> idx.index("audit-requests").id(httpDocument.getId()).document(httpDocument)));
+            rawBulk.operations(op -> op.index(idx -> idx.index("audit-requests").id(httpDocument.getId())
+                    .document(BinaryData.of(rawHttpDocument, ContentType.APPLICATION_JSON))));
+        }
+        bulkRequest = bulk.build();
+        rawBulkRequest = rawBulk.build();
+
+        out = new ByteArrayOutputStream(size.getBodyBytes() * 2);
+    }
+
+    @Benchmark
+    public int serializeMethodDocument() {
+        out.reset();
+        serialize(methodDocument);
+        return out.size();
+    }
+
+    @Benchmark
+    public int serializeHttpDocument() {
+        out.reset();
+        serialize(httpDocument);
+        return out.size();
+    }
+
+    @Benchmark
+    public int serializeBulkRequest() throws IOException {
+        return serializeNdJson(bulkRequest);
+    }
+
+    @Benchmark
+    public int serializeRawBulkRequest() throws IOException {
+        return serializeNdJson(rawBulkRequest);
+    }
+
+    /**
+     * Тело _bulk в формате NDJSON, так же как его пишет транспорт клиента
+     */
+    private int serializeNdJson(BulkRequest request) throws IOException {
+        out.reset();
+        Iterator<?> items = request._serializables();
+        while (items.hasNext()) {
+            Object item = items.next();
+            if (item instanceof BinaryData data) {
+                data.writeTo(out);
+            } else {
+                serialize(item);
+            }
+            out.write('\n');
+        }
+        return out.size();
+    }
+
+    private void serialize(Object value) {
+        try (JsonGenerator generator = jsonpMapper.jsonProvider().createGenerator(out)) {
+            jsonpMapper.serialize(value, generator);
+        }
+    }
+
+}
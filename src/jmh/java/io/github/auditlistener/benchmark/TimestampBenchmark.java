@@ -0,0 +1,96 @@
+package io.github.auditlistener.benchmark;
+
+import io.github.auditlistener.utils.Timestamps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор времени события: LocalDateTime.parse (DateTimeFormatter) в сравнении с {@link Timestamps#parse}
+ * для событий одной секунды (попадание в кэш) и разных секунд, и запись времени в документ
+ * строкой ISO-8601 в сравнении с epoch millis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimestampBenchmark {
+
+    /**
+     * Число различных секунд среди разбираемых значений
+     */
+    @Param({"1", "4096"})
+    private int seconds;
+
+    private String[] timestamps;
+    private String[] offsetTimestamps;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        timestamps = new String[4096];
+        offsetTimestamps = new String[timestamps.length];
+        LocalDateTime start = LocalDateTime.of(2026, 10, 17, 12, 30, 45);
+        for (int i = 0; i < timestamps.length; i++) {
+            LocalDateTime time = start.plusSeconds(i % seconds).plusNanos(i * 1_000_000L % 1_000_000_000L);
+            timestamps[i] = time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            offsetTimestamps[i] = time.atOffset(ZoneOffset.ofHours(3)).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        }
+    }
+
+    @Benchmark
+    public Instant parseLocalDateTime() {
+        return LocalDateTime.parse(next(timestamps)).toInstant(ZoneOffset.UTC);
+    }
+
+    @Benchmark
+    public Instant parseTimestamp() {
+        return Timestamps.parse(next(timestamps));
+    }
+
+    @Benchmark
+    public Instant parseOffsetDateTime() {
+        return OffsetDateTime.parse(next(offsetTimestamps)).toInstant();
+    }
+
+    @Benchmark
+    public Instant parseOffsetTimestamp() {
+        return Timestamps.parse(next(offsetTimestamps));
+    }
+
+    /**
+     * Прежняя запись времени в документ: разбор и форматирование ISO_LOCAL_DATE_TIME
+     */
+    @Benchmark
+    public String formatIso() {
+        return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.parse(next(timestamps)));
+    }
+
+    @Benchmark
+    public String formatEpochMillis() {
+        return Long.toString(Timestamps.parse(next(timestamps)).toEpochMilli());
+    }
+
+    private String next(String[] values) {
+        index = (index + 1) & (values.length - 1);
+        return values[index];
+    }
+
+}
@@ -0,0 +1,131 @@
+package io.github.auditlistener.benchmark;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.service.SchemaValidator;
+import io.github.auditlistener.utils.EventValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Валидация события: прежний путь readTree + EventValidator против прохода парсера по сообщению
+ * с правилами SchemaValidator. Проверки EventValidator по готовому дереву и проход парсера без правил
+ * показывают стоимость самих проверок
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({"SMALL", "KB_10", "MB_1"})
+    private PayloadSize size;
+
+    private ObjectMapper objectMapper;
+    private SchemaValidator schemaValidator;
+
+    private String methodMessage;
+    private String httpMessage;
+    private JsonNode methodTree;
+    private JsonNode httpTree;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = AuditPayloads.objectMapper();
+        schemaValidator = AuditPayloads.schemaValidator();
+
+        methodMessage = AuditPayloads.methodEvent(size);
+        httpMessage = AuditPayloads.httpEvent(size);
+        methodTree = objectMapper.readTree(methodMessage);
+        httpTree = objectMapper.readTree(httpMessage);
+    }
+
+    @Benchmark
+    public boolean methodEventValidator() {
+        return EventValidator.validateMethodEvent(methodTree);
+    }
+
+    @Benchmark
+    public boolean methodTreeParseAndValidate() throws IOException {
+        return EventValidator.validateMethodEvent(objectMapper.readTree(methodMessage));
+    }
+
+    @Benchmark
+    public boolean methodStreamingValidate() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(methodMessage)) {
+            return scan(parser, schemaValidator.methodEvent());
+        }
+    }
+
+    /**
+     * Тот же проход без правил: разница с methodStreamingValidate - стоимость проверок
+     */
+    @Benchmark
+    public boolean methodStreamingScan() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(methodMessage)) {
+            return scan(parser, null);
+        }
+    }
+
+    @Benchmark
+    public boolean httpEventValidator() {
+        return EventValidator.validateHttpEvent(httpTree);
+    }
+
+    @Benchmark
+    public boolean httpTreeParseAndValidate() throws IOException {
+        return EventValidator.validateHttpEvent(objectMapper.readTree(httpMessage));
+    }
+
+    @Benchmark
+    public boolean httpStreamingValidate() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(httpMessage)) {
+            return scan(parser, schemaValidator.httpEvent());
+        }
+    }
+
+    @Benchmark
+    public boolean httpStreamingScan() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(httpMessage)) {
+            return scan(parser, null);
+        }
+    }
+
+    /**
+     * Проход по полям верхнего уровня, как в EventDocumentParserImpl, без построения документа
+     */
+    private boolean scan(JsonParser parser, SchemaValidator.Validation validation) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (validation != null) {
+                validation.value(field, parser);
+            }
+            parser.skipChildren();
+        }
+        if (validation != null) {
+            validation.finish();
+        }
+        return true;
+    }
+
+}
@@ -2,8 +2,10 @@ package io.github.auditlistener;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class AuditListenerApplication {
 
     public static void main(String[] args) {
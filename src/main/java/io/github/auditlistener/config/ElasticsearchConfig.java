@@ -1,5 +1,6 @@
 package io.github.auditlistener.config;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
@@ -12,7 +13,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 /**
- * ElasticSearch конфигурация (только для добавления ObjectMapper для работы с датами)
+ * ElasticSearch конфигурация (ObjectMapper для работы с датами и асинхронный клиент)
  */
 @Configuration
 public class ElasticsearchConfig {
@@ -29,4 +30,12 @@ public class ElasticsearchConfig {
         );
     }
 
+    /**
+     * Асинхронный клиент, использующий транспорт (и ObjectMapper) синхронного клиента
+     */
+    @Bean
+    public ElasticsearchAsyncClient elasticsearchAsyncClient(ElasticsearchClient elasticsearchClient) {
+        return new ElasticsearchAsyncClient(elasticsearchClient._transport(), elasticsearchClient._transportOptions());
+    }
+
 }
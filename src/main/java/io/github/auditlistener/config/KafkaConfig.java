@@ -1,40 +1,233 @@
 package io.github.auditlistener.config;
 
+import io.github.auditlistener.model.enums.ProcessingMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.TopicDescription;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Конфигурация kafka consumer
+ * Конфигурация kafka consumer и producer error топика
  */
 @Configuration
 @EnableConfigurationProperties(ListenerConfig.class)
 public class KafkaConfig {
 
+    private final Logger log = LogManager.getLogger(KafkaConfig.class);
+
     private final ListenerConfig config;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
 
-    public KafkaConfig(ListenerConfig config) {
+    public KafkaConfig(ListenerConfig config, ObjectProvider<MeterRegistry> meterRegistry) {
         this.config = config;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Значения записей читаются как String либо, при kafka.byte-array-values = true,
+     * как byte[] без декодирования в UTF-16 (разбор JSON выполняется напрямую из байтов)
+     */
+    @Bean
+    public ConsumerFactory<String, Object> consumerFactory() {
+        return withMetrics(new DefaultKafkaConsumerFactory<>(consumerProperties()));
+    }
+
+    /**
+     * Consumer для пакетного режима: размер пачки ограничивается max.poll.records,
+     * а ожидание накопления данных брокером - fetch.min.bytes / fetch.max.wait.ms
+     */
+    @Bean
+    public ConsumerFactory<String, Object> batchConsumerFactory() {
+
+        Map<String, Object> configProps = consumerProperties();
+
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, config.getBatch().getSize());
+        configProps.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, config.getBatch().getMaxBytes());
+        configProps.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, config.getBatch().getMaxLingerMs());
+
+        return withMetrics(new DefaultKafkaConsumerFactory<>(configProps));
     }
 
+    /**
+     * Consumer для обработки по ключам: за один poll на виртуальные потоки передается
+     * до keyed.max-poll-records записей
+     */
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, Object> keyedConsumerFactory() {
+
+        Map<String, Object> configProps = consumerProperties();
+
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, config.getKeyed().getMaxPollRecords());
+
+        return withMetrics(new DefaultKafkaConsumerFactory<>(configProps));
+    }
+
+    /**
+     * Фабрика контейнеров для обработки по одной записи. Контейнеры топиков событий
+     * запускаются только в режиме RECORD, error топик включает автозапуск явно
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setContainerCustomizer(listenerContainerCustomizer());
+        factory.setAutoStartup(config.getProcessingMode() == ProcessingMode.RECORD);
+
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().setSyncCommits(true);
+
+        return factory;
+    }
+
+    /**
+     * Фабрика контейнеров пакетного режима, запускается только в режимах BATCH и PIPELINED
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory());
+        factory.setContainerCustomizer(listenerContainerCustomizer());
+        factory.setBatchListener(true);
+        factory.setAutoStartup(config.getProcessingMode() == ProcessingMode.BATCH
+                || config.getProcessingMode() == ProcessingMode.PIPELINED);
+
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().setSyncCommits(true);
+
+        return factory;
+    }
+
+    /**
+     * Фабрика контейнеров режима KEYED. Записи подтверждаются асинхронно и не по порядку (async acks):
+     * контейнер коммитит offset партиции только до первой неподтвержденной записи
+     * и не выполняет следующий poll, пока не подтверждены все записи предыдущего
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> keyedKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(keyedConsumerFactory());
+        factory.setContainerCustomizer(listenerContainerCustomizer());
+        factory.setAutoStartup(config.getProcessingMode() == ProcessingMode.KEYED);
+
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.getContainerProperties().setSyncCommits(true);
+
+        return factory;
+    }
+
+    /**
+     * Producer error топика: идемпотентная отправка (acks=all) со сжатием и группировкой
+     * сообщений в пачки. Значения - JSON в UTF-8, сериализуемый сразу в байты
+     */
+    @Bean
+    public ProducerFactory<String, byte[]> errorProducerFactory() {
+
+        Map<String, Object> configProps = new HashMap<>();
+        ListenerConfig.ErrorProducer producer = config.getErrorProducer();
+
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getKafka().getBootstrapServers());
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, producer.getLingerMs());
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, producer.getBatchSize());
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producer.getCompressionType());
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, producer.isIdempotence());
+        configProps.put(ProducerConfig.ACKS_CONFIG, producer.isIdempotence() ? "all" : "1");
+
+        DefaultKafkaProducerFactory<String, byte[]> factory = new DefaultKafkaProducerFactory<>(configProps);
+        meterRegistry.ifAvailable(registry -> factory.addListener(new MicrometerProducerListener<>(registry)));
+        return factory;
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> errorKafkaTemplate() {
+        return new KafkaTemplate<>(errorProducerFactory());
+    }
+
+    /**
+     * Concurrency и параметры consumer'а контейнеров по топикам (audit.listener.listeners.*),
+     * число партиций топиков запрашивается у брокера при создании контейнеров
+     */
+    @Bean
+    public ListenerContainerCustomizer listenerContainerCustomizer() {
+        return new ListenerContainerCustomizer(config, this::partitionCount);
+    }
+
+    /**
+     * Регистрирует метрики kafka клиента каждого consumer, в том числе лаг по партициям
+     * (kafka.consumer.fetch.manager.records.lag с тегами topic и partition)
+     */
+    private ConsumerFactory<String, Object> withMetrics(DefaultKafkaConsumerFactory<String, Object> factory) {
+        meterRegistry.ifAvailable(registry -> factory.addListener(new MicrometerConsumerListener<>(registry)));
+        return factory;
+    }
+
+    private int partitionCount(String topic) {
+        int timeoutMs = config.getKafka().getPartitionLookupTimeoutMs();
+        Map<String, Object> adminProps = Map.of(
+                AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, config.getKafka().getBootstrapServers(),
+                AdminClientConfig.DEFAULT_API_TIMEOUT_MS_CONFIG, timeoutMs,
+                AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, timeoutMs);
+
+        AdminClient adminClient = AdminClient.create(adminProps);
+        try {
+            TopicDescription description = adminClient.describeTopics(List.of(topic))
+                    .allTopicNames()
+                    .get(timeoutMs, TimeUnit.MILLISECONDS)
+                    .get(topic);
+            return description.partitions().size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to get partition count of topic {}, using concurrency 1: {}", topic, e.toString());
+        } finally {
+            // не ждать завершения незавершенных запросов, если брокер недоступен
+            adminClient.close(Duration.ZERO);
+        }
+        return 0;
+    }
+
+    private Map<String, Object> consumerProperties() {
 
         Map<String, Object> configProps = new HashMap<>();
 
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getKafka().getBootstrapServers());
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, config.getKafka().getGroupId());
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, config.getKafka().isByteArrayValues()
+                ? ByteArrayDeserializer.class
+                : StringDeserializer.class);
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, config.getKafka().getAutoOffsetReset());
         configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, config.getKafka().isEnableAutoCommit());
         configProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, config.getKafka().getIsolationLevel());
@@ -43,19 +236,7 @@ public class KafkaConfig {
         configProps.put(ConsumerConfig.HEARTBEAT_INTERVAL_MS_CONFIG, config.getKafka().getHeartbeatIntervalMs());
         configProps.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, config.getKafka().getMaxPollIntervalMs());
 
-        return new DefaultKafkaConsumerFactory<>(configProps);
-    }
-
-    @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory =
-                new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
-
-        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
-        factory.getContainerProperties().setSyncCommits(true);
-
-        return factory;
+        return configProps;
     }
 
 }
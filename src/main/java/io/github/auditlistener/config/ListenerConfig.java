@@ -1,8 +1,24 @@
 package io.github.auditlistener.config;
 
+import io.github.auditlistener.model.enums.ArgsFormat;
+import io.github.auditlistener.model.enums.ArgsMapping;
+import io.github.auditlistener.model.enums.BodyMapping;
+import io.github.auditlistener.model.enums.EventType;
+import io.github.auditlistener.model.enums.PayloadFormat;
+import io.github.auditlistener.model.enums.ProcessingMode;
+import io.github.auditlistener.model.enums.TraceSource;
+import io.github.auditlistener.model.enums.ValueType;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Конфигурационные свойства для Kafka
  */
@@ -10,8 +26,54 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @Data
 public class ListenerConfig {
 
+    private ProcessingMode processingMode = ProcessingMode.RECORD;
+
     private Kafka kafka = new Kafka();
 
+    private Batch batch = new Batch();
+
+    private Keyed keyed = new Keyed();
+
+    private Listeners listeners = new Listeners();
+
+    private ErrorProducer errorProducer = new ErrorProducer();
+
+    private Persistence persistence = new Persistence();
+
+    private Trace trace = new Trace();
+
+    private Indices indices = new Indices();
+
+    private Retry retry = new Retry();
+
+    private Replay replay = new Replay();
+
+    private Payload payload = new Payload();
+
+    private Args args = new Args();
+
+    private Validation validation = new Validation();
+
+    private SchemaRegistry schemaRegistry = new SchemaRegistry();
+
+    /**
+     * Параметры слушателя топика по его имени
+     *
+     * @return параметры или null, если топик не относится к слушателям сервиса
+     */
+    public TopicListener topicListener(String topic) {
+        if (kafka.getMethodTopic().equals(topic)) {
+            return listeners.getMethod();
+        }
+        if (kafka.getHttpTopic().equals(topic)) {
+            return listeners.getHttp();
+        }
+        if (kafka.getErrorTopic().equals(topic)) {
+            return listeners.getError();
+        }
+        return null;
+    }
+
     @Data
     public static class Kafka {
         private String bootstrapServers = "localhost:9092";
@@ -26,6 +88,305 @@ public class ListenerConfig {
         private int sessionTimeoutMs = 30000;
         private int heartbeatIntervalMs = 10000;
         private int maxPollIntervalMs = 300000;
+        private boolean byteArrayValues = false;
+        private String formatHeader = "audit-format";
+        private String contentEncodingHeader = "content-encoding";
+        private int maxDecompressedBytes = 64 * 1024 * 1024;
+        private int partitionLookupTimeoutMs = 5000;
+    }
+
+    /**
+     * Параметры пакетной обработки (processing-mode = BATCH, PIPELINED)
+     */
+    @Data
+    public static class Batch {
+        private int size = 500;
+        private int maxBytes = 5 * 1024 * 1024;
+        private int maxLingerMs = 100;
+        private int maxInFlight = 4;
+        private boolean rawHttpPassthrough = false;
+        private Adaptive adaptive = new Adaptive();
+    }
+
+    /**
+     * Адаптивные лимиты пакетной обработки. Размер части _bulk (size, max-bytes) и число пачек в обработке
+     * (max-in-flight) - верхние границы: при отказах ElasticSearch (429) лимиты уменьшаются вдвое, при задержке
+     * _bulk больше target-latency-ms - на 20%, а без перегрузки постепенно возвращаются к границам (быстрее,
+     * пока отставание consumer'ов больше lag-threshold). Отклоненные (429) документы повторяются до
+     * max-reject-retries раз с экспоненциальной задержкой, а не отправляются сразу в error топик
+     */
+    @Data
+    public static class Adaptive {
+        private boolean enabled = true;
+        private int minSize = 50;
+        private int minBytes = 256 * 1024;
+        private int minInFlight = 1;
+        private long targetLatencyMs = 2000;
+        private long lagThreshold = 10000;
+        private int maxRejectRetries = 3;
+        private long rejectBackoffMs = 500;
+        private long maxRejectBackoffMs = 10000;
+    }
+
+    /**
+     * Параметры обработки по ключам на виртуальных потоках (processing-mode = KEYED)
+     */
+    @Data
+    public static class Keyed {
+        private int maxPollRecords = 500;
+    }
+
+    /**
+     * Хранение событий в PostgreSQL (включается явно). События записываются из тех же пачек, что передаются
+     * в _bulk, поэтому только в режимах BATCH и PIPELINED. При enabled = false сервис запускается без
+     * DataSource, JPA и Liquibase (см. PersistenceEnvironmentPostProcessor)
+     */
+    @Data
+    public static class Persistence {
+        private boolean enabled = false;
+        private Partitions partitions = new Partitions();
+    }
+
+    /**
+     * Обслуживание дневных секций таблицы events: секции на precreate-days вперед создаются заранее,
+     * секции старше retention-days удаляются (drop-expired = true) или только отсоединяются от таблицы.
+     * При retention-days <= 0 секции не удаляются
+     */
+    @Data
+    public static class Partitions {
+        private boolean enabled = true;
+        private int precreateDays = 7;
+        private int retentionDays = 30;
+        private boolean dropExpired = true;
+        private String cron = "0 0 * * * *";
+    }
+
+    /**
+     * Индексы ElasticSearch. Шаблоны индексов (маппинги строятся по аннотациям @Field документов), ILM политика
+     * и ingest pipeline устанавливаются при старте приложения. При data-streams = true audit-methods,
+     * audit-requests и audit-errors - data stream'ы с rollover по rollover-max-age/rollover-max-primary-shard-size
+     * и удалением индексов старше retention (пустое значение - без удаления). Документы в data stream создаются
+     * с op_type = create, и повторная доставка отклоняется как дубликат только в пределах текущего backing
+     * индекса: после rollover повтор создаст второй документ. При data-streams = false используются обычные
+     * индексы с op_type = index, и повтор перезаписывает документ с тем же идентификатором независимо от времени
+     */
+    @Data
+    public static class Indices {
+        private boolean installTemplates = true;
+        private boolean dataStreams = true;
+        private int shards = 1;
+        private int replicas = 0;
+        private String rolloverMaxAge = "1d";
+        private String rolloverMaxPrimaryShardSize = "30gb";
+        private String retention = "30d";
+        private BodyMapping bodyMapping = BodyMapping.TEXT;
+        private int bodyMaxChars = 32768;
+        private CatchUp catchUp = new CatchUp();
+    }
+
+    /**
+     * Режим догоняющей загрузки: пока отставание consumer'ов (records-lag-max) больше lag-threshold,
+     * у индексов отключается refresh и реплики; после снижения отставания ниже resume-lag-threshold
+     * восстанавливаются refresh-interval и indices.replicas. Экземпляры приложения в режиме догоняющей загрузки
+     * держат аренду (документ в lease-index, продлевается при каждой проверке на lease-ttl-ms): настройки
+     * восстанавливает последний экземпляр, освободивший аренду, или любой экземпляр после истечения всех аренд
+     */
+    @Data
+    public static class CatchUp {
+        private boolean enabled = false;
+        private long lagThreshold = 100000;
+        private long resumeLagThreshold = 10000;
+        private long checkIntervalMs = 10000;
+        private String refreshInterval = "1s";
+        private String leaseIndex = "audit-catchup-leases";
+        private long leaseTtlMs = 60000;
+    }
+
+    /**
+     * Повтор индексации после временных ошибок ElasticSearch (таймауты, обрывы соединения, 429, 502-504).
+     * Запись повторяется до max-attempts раз с экспоненциальной задержкой от initial-backoff-ms до max-backoff-ms
+     * со случайным разбросом jitter (доля задержки). При переполнении очереди queue-capacity или после исчерпания
+     * попыток записи сохраняются в spill-журнал (spill-directory, сегменты по spill-segment-bytes, не больше
+     * spill-max-segments) и индексируются повторно, когда ElasticSearch восстановится (проверка раз в replay-interval-ms).
+     * Записи очереди хранятся в журнале spill-directory/queue с теми же размерами сегментов
+     */
+    @Data
+    public static class Retry {
+        private boolean enabled = true;
+        private int maxAttempts = 5;
+        private long initialBackoffMs = 200;
+        private long maxBackoffMs = 30000;
+        private double jitter = 0.5;
+        private int queueCapacity = 10000;
+        private String spillDirectory = "spill";
+        private int spillSegmentBytes = 64 * 1024 * 1024;
+        private int spillMaxSegments = 16;
+        private long replayIntervalMs = 5000;
+    }
+
+    /**
+     * Повторная загрузка событий из error топика (actuator endpoint errorreplay): исходные сообщения
+     * разбираются заново и индексируются _bulk запросами по bulk-size событий не быстрее records-per-second
+     */
+    @Data
+    public static class Replay {
+        private int recordsPerSecond = 1000;
+        private int bulkSize = 500;
+        private long pollTimeoutMs = 1000;
+        private long progressLogIntervalMs = 10000;
+    }
+
+    /**
+     * Лимиты размера тел в символах: значение длиннее лимита обрезается и дополняется маркером с исходной длиной.
+     * Лимит 0 - без ограничения. Лимит original-message действует на сообщения, отправляемые в error топик
+     */
+    @Data
+    public static class Payload {
+        private boolean enabled = true;
+        private int argsMaxChars = 256 * 1024;
+        private int resultMaxChars = 256 * 1024;
+        private int requestBodyMaxChars = 256 * 1024;
+        private int responseBodyMaxChars = 256 * 1024;
+        private int originalMessageMaxChars = 1024 * 1024;
+        private Store store = new Store();
+    }
+
+    /**
+     * Аргументы методов: формат поля args (TO_STRING - как Arrays.toString, JSON - компактный JSON), лимит длины
+     * одного аргумента max-arg-chars (0 - без ограничения; длинный аргумент обрезается и дополняется "...")
+     * и структурированное поле argsFields (mapping: NONE, FLATTENED, OBJECT)
+     */
+    @Data
+    public static class Args {
+        private ArgsFormat format = ArgsFormat.TO_STRING;
+        private int maxArgChars = 16384;
+        private ArgsMapping mapping = ArgsMapping.NONE;
+    }
+
+    /**
+     * Правила валидации сообщений топиков method-topic и http-topic по именам полей верхнего уровня.
+     * По умолчанию - обязательные поля событий, допустимые значения eventType (EventType) и длины строк
+     * по размерам колонок таблицы events (uri - по target_name VARCHAR(500), куда он тоже пишется).
+     * Правило поля в свойствах задается целиком и заменяет правило по умолчанию
+     */
+    @Data
+    public static class Validation {
+        private Map<String, FieldRule> method = defaultMethodRules();
+        private Map<String, FieldRule> http = defaultHttpRules();
+
+        private static Map<String, FieldRule> defaultMethodRules() {
+            Map<String, FieldRule> rules = new LinkedHashMap<>();
+            rules.put("correlationId", new FieldRule(true, null, new ArrayList<>(), 36));
+            rules.put("timestamp", new FieldRule(true, null, new ArrayList<>(), 0));
+            rules.put("eventType", new FieldRule(true, null,
+                    new ArrayList<>(Arrays.stream(EventType.values()).map(Enum::name).toList()), 50));
+            rules.put("logLevel", new FieldRule(true, null, new ArrayList<>(), 10));
+            rules.put("methodName", new FieldRule(true, null, new ArrayList<>(), 500));
+            rules.put("arguments", new FieldRule(false, ValueType.ARRAY, new ArrayList<>(), 0));
+            return rules;
+        }
+
+        private static Map<String, FieldRule> defaultHttpRules() {
+            Map<String, FieldRule> rules = new LinkedHashMap<>();
+            rules.put("timestamp", new FieldRule(true, null, new ArrayList<>(), 0));
+            rules.put("direction", new FieldRule(true, null, new ArrayList<>(), 20));
+            rules.put("method", new FieldRule(true, null, new ArrayList<>(), 10));
+            rules.put("uri", new FieldRule(true, null, new ArrayList<>(), 500));
+            rules.put("statusCode", new FieldRule(true, null, new ArrayList<>(), 0));
+            return rules;
+        }
+    }
+
+    /**
+     * Правило поля: required - поле есть и не равно null, type - тип JSON значения (не задан - любой),
+     * values - допустимые строковые значения без учета регистра, max-length - длина строки (0 - без ограничения)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FieldRule {
+        private boolean required;
+        private ValueType type;
+        private List<String> values = new ArrayList<>();
+        private int maxLength;
+    }
+
+    /**
+     * Локальный реестр схем Avro: схема с идентификатором id читается из файла directory/{id}.avsc
+     * при первой записи с этим идентификатором и компилируется в декодер, который кэшируется
+     */
+    @Data
+    public static class SchemaRegistry {
+        private String directory = "schemas";
+    }
+
+    /**
+     * Хранилище полных значений обрезанных тел: значение сжимается gzip и сохраняется в файл directory
+     * с именем по SHA-256 содержимого, маркер обрезки содержит ссылку sha256:{hash}. Раз в cleanup-interval-ms
+     * удаляются файлы, на которые не ссылались дольше retention-days (<= 0 - без удаления по возрасту), и самые
+     * старые файлы, пока объем хранилища больше max-size-bytes (0 - без ограничения)
+     */
+    @Data
+    public static class Store {
+        private boolean enabled = false;
+        private String directory = "payloads";
+        private int retentionDays = 30;
+        private long maxSizeBytes = 10L * 1024 * 1024 * 1024;
+        private long cleanupIntervalMs = 3_600_000;
+    }
+
+    /**
+     * Поиск трассы по correlationId (GET /api/traces/{correlationId}). Найденные трассы кэшируются
+     * на cache-ttl-ms (не больше cache-max-size трасс) и вытесняются из кэша при индексации новых событий
+     */
+    @Data
+    public static class Trace {
+        private TraceSource source = TraceSource.ELASTICSEARCH;
+        private int maxEvents = 10000;
+        private long cacheTtlMs = 30000;
+        private long cacheMaxSize = 10000;
+    }
+
+    /**
+     * Producer error топика: сообщения накапливаются в локальном буфере и отправляются
+     * отдельным потоком, producer группирует их в сжатые пачки (linger-ms, batch-size).
+     * Место в заполненном буфере ожидается не дольше buffer-offer-timeout-ms, после чего
+     * исходная запись не подтверждается и читается повторно
+     */
+    @Data
+    public static class ErrorProducer {
+        private int lingerMs = 20;
+        private int batchSize = 256 * 1024;
+        private String compressionType = "lz4";
+        private boolean idempotence = true;
+        private int bufferCapacity = 10000;
+        private int bufferOfferTimeoutMs = 1000;
+    }
+
+    /**
+     * Параметры слушателей топиков method-topic, http-topic и error-topic
+     */
+    @Data
+    public static class Listeners {
+        private TopicListener method = new TopicListener();
+        private TopicListener http = new TopicListener();
+        private TopicListener error = new TopicListener();
+    }
+
+    /**
+     * Параметры слушателя топика. Не заданные параметры consumer берутся из kafka.*,
+     * concurrency = 0 - по числу партиций топика при старте (не больше max-concurrency).
+     * format - формат значений записей (для error-topic не применяется), заголовок kafka.format-header
+     * записи задает формат вместо него
+     */
+    @Data
+    public static class TopicListener {
+        private PayloadFormat format = PayloadFormat.JSON;
+        private int concurrency = 0;
+        private int maxConcurrency = 64;
+        private Integer maxPollRecords;
+        private Integer fetchMinBytes;
+        private Integer fetchMaxWaitMs;
     }
 
 }
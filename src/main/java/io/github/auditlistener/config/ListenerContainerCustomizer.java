@@ -0,0 +1,116 @@
+package io.github.auditlistener.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Настройка контейнеров слушателей по параметрам их топиков (audit.listener.listeners.*):
+ * concurrency и, для контейнеров одного топика, параметры poll/fetch consumer'а. Контейнеры нескольких
+ * топиков (BATCH/PIPELINED/KEYED) берут poll/fetch из batch.* и keyed.*: заданные для их топиков параметры
+ * не применяются, о чем пишется предупреждение. Контейнеры, не запускаемые в текущем режиме обработки,
+ * не запрашивают число партиций
+ */
+public class ListenerContainerCustomizer
+        implements ContainerCustomizer<String, Object, ConcurrentMessageListenerContainer<String, Object>> {
+
+    private final Logger log = LogManager.getLogger(ListenerContainerCustomizer.class);
+
+    private static final ListenerConfig.TopicListener DEFAULT_LISTENER = new ListenerConfig.TopicListener();
+
+    private final ListenerConfig config;
+    private final ToIntFunction<String> partitionCounter;
+
+    private final Map<String, Integer> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * @param partitionCounter число партиций топика, 0 - если определить не удалось
+     */
+    public ListenerContainerCustomizer(ListenerConfig config, ToIntFunction<String> partitionCounter) {
+        this.config = config;
+        this.partitionCounter = partitionCounter;
+    }
+
+    @Override
+    public void configure(ConcurrentMessageListenerContainer<String, Object> container) {
+        String[] topics = container.getContainerProperties().getTopics();
+        if (topics == null || topics.length == 0) {
+            return;
+        }
+
+        if (!container.isAutoStartup()) {
+            log.debug("Listener container {} for topics {} is not started in this processing mode",
+                    container.getListenerId(), topics);
+            return;
+        }
+
+        int concurrency = 1;
+        for (String topic : topics) {
+            concurrency = Math.max(concurrency, concurrency(topic, listener(topic)));
+        }
+        container.setConcurrency(concurrency);
+
+        if (topics.length == 1) {
+            applyConsumerProperties(container, listener(topics[0]));
+        } else {
+            warnIgnoredConsumerProperties(container, topics);
+        }
+
+        log.info("Listener container {} for topics {} configured with concurrency {}",
+                container.getListenerId(), topics, concurrency);
+    }
+
+    /**
+     * Контейнер с несколькими топиками получает наибольшую concurrency из них: партиции каждого
+     * топика распределяются между consumer'ами независимо
+     */
+    private int concurrency(String topic, ListenerConfig.TopicListener listener) {
+        if (listener.getConcurrency() > 0) {
+            return listener.getConcurrency();
+        }
+
+        int count = partitions.computeIfAbsent(topic, partitionCounter::applyAsInt);
+        return count > 0 ? Math.min(count, listener.getMaxConcurrency()) : 1;
+    }
+
+    private void applyConsumerProperties(ConcurrentMessageListenerContainer<String, Object> container,
+                                         ListenerConfig.TopicListener listener) {
+        Properties properties = container.getContainerProperties().getKafkaConsumerProperties();
+
+        if (listener.getMaxPollRecords() != null) {
+            properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, listener.getMaxPollRecords().toString());
+        }
+        if (listener.getFetchMinBytes() != null) {
+            properties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, listener.getFetchMinBytes().toString());
+        }
+        if (listener.getFetchMaxWaitMs() != null) {
+            properties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, listener.getFetchMaxWaitMs().toString());
+        }
+    }
+
+    private void warnIgnoredConsumerProperties(ConcurrentMessageListenerContainer<String, Object> container,
+                                               String[] topics) {
+        for (String topic : topics) {
+            ListenerConfig.TopicListener listener = listener(topic);
+            if (listener.getMaxPollRecords() != null || listener.getFetchMinBytes() != null
+                    || listener.getFetchMaxWaitMs() != null) {
+                log.warn("Poll/fetch settings of topic {} are ignored by listener container {} reading topics {}: "
+                                + "use audit.listener.batch.* or audit.listener.keyed.* for this processing mode",
+                        topic, container.getListenerId(), topics);
+            }
+        }
+    }
+
+    private ListenerConfig.TopicListener listener(String topic) {
+        ListenerConfig.TopicListener listener = config.topicListener(topic);
+        return listener != null ? listener : DEFAULT_LISTENER;
+    }
+
+}
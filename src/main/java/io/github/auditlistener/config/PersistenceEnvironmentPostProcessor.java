@@ -0,0 +1,50 @@
+package io.github.auditlistener.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Режим без PostgreSQL (audit.listener.persistence.enabled = false, по умолчанию): исключает автоконфигурацию
+ * DataSource, JPA и Liquibase, сервис работает только с Kafka и ElasticSearch
+ */
+public class PersistenceEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    public static final String PERSISTENCE_ENABLED = "audit.listener.persistence.enabled";
+
+    private static final String EXCLUDE = "spring.autoconfigure.exclude";
+
+    private static final List<String> PERSISTENCE_AUTO_CONFIGURATIONS = List.of(
+            DataSourceAutoConfiguration.class.getName(),
+            DataSourceTransactionManagerAutoConfiguration.class.getName(),
+            HibernateJpaAutoConfiguration.class.getName(),
+            JpaRepositoriesAutoConfiguration.class.getName(),
+            LiquibaseAutoConfiguration.class.getName()
+    );
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (environment.getProperty(PERSISTENCE_ENABLED, Boolean.class, false)) {
+            return;
+        }
+
+        List<String> excludes = new ArrayList<>(
+                StringUtils.commaDelimitedListToSet(environment.getProperty(EXCLUDE, "")));
+        excludes.addAll(PERSISTENCE_AUTO_CONFIGURATIONS);
+
+        environment.getPropertySources().addFirst(new MapPropertySource("auditPersistenceDisabled",
+                Map.of(EXCLUDE, String.join(",", excludes))));
+    }
+
+}
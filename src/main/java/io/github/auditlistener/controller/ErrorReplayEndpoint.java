@@ -0,0 +1,59 @@
+package io.github.auditlistener.controller;
+
+import io.github.auditlistener.model.replay.ReplayProgress;
+import io.github.auditlistener.model.replay.ReplayRequest;
+import io.github.auditlistener.service.ErrorReplayService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Повторная загрузка событий из error топика (/actuator/errorreplay): POST запускает загрузку,
+ * GET возвращает ход загрузки, DELETE останавливает ее
+ */
+@Component
+@Endpoint(id = "errorreplay")
+@RequiredArgsConstructor
+public class ErrorReplayEndpoint {
+
+    private final ErrorReplayService errorReplayService;
+
+    @ReadOperation
+    public ReplayProgress progress() {
+        return errorReplayService.progress();
+    }
+
+    /**
+     * @param errorType        тип ошибки (ErrorType), не задан - все типы
+     * @param from             время записи в error топик (ISO-8601), с которого начинается загрузка
+     * @param to               время записи, до которого выполняется загрузка
+     * @param fromOffset       начальный offset в каждой партиции
+     * @param toOffset         конечный offset в каждой партиции (не включительно)
+     * @param recordsPerSecond ограничение скорости загрузки
+     */
+    @WriteOperation
+    public ReplayProgress start(@Nullable String errorType, @Nullable Instant from, @Nullable Instant to,
+                                @Nullable Long fromOffset, @Nullable Long toOffset,
+                                @Nullable Integer recordsPerSecond) {
+        return errorReplayService.start(ReplayRequest.builder()
+                .errorType(errorType)
+                .from(from)
+                .to(to)
+                .fromOffset(fromOffset)
+                .toOffset(toOffset)
+                .recordsPerSecond(recordsPerSecond)
+                .build());
+    }
+
+    @DeleteOperation
+    public ReplayProgress cancel() {
+        return errorReplayService.cancel();
+    }
+
+}
@@ -0,0 +1,53 @@
+package io.github.auditlistener.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.service.TraceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+/**
+ * Поиск трассы (событий методов и HTTP) по correlationId
+ */
+@RestController
+@RequestMapping("/api/traces")
+@RequiredArgsConstructor
+public class TraceController {
+
+    private final TraceService traceService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * События трассы в порядке timestamp. Массив событий пишется в ответ потоково, по одному событию
+     *
+     * @return 200 с JSON массивом событий или 404, если события не найдены
+     */
+    @GetMapping("/{correlationId}")
+    public ResponseEntity<StreamingResponseBody> getTrace(@PathVariable String correlationId) {
+        List<Event> trace = traceService.findTrace(correlationId);
+        if (trace.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                for (Event event : trace) {
+                    objectMapper.writeValue(generator, event);
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+}
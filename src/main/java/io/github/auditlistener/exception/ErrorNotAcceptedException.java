@@ -0,0 +1,17 @@
+package io.github.auditlistener.exception;
+
+/**
+ * Сообщение об ошибке не принято в буфер error топика (буфер заполнен дольше buffer-offer-timeout-ms,
+ * отправка остановлена или поток прерван). Исходную запись нельзя подтверждать: она читается повторно
+ */
+public class ErrorNotAcceptedException extends IllegalStateException {
+
+    public ErrorNotAcceptedException(String message) {
+        super(message);
+    }
+
+    public ErrorNotAcceptedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,46 @@
+package io.github.auditlistener.exception;
+
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.model.validation.FieldViolation;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Ошибка разбора или валидации события с указанием типа ошибки для error топика
+ */
+@Getter
+public class EventProcessingException extends RuntimeException {
+
+    private final ErrorType errorType;
+
+    /**
+     * Нарушенные правила валидации по полям, пустой список для остальных ошибок
+     */
+    private final List<FieldViolation> violations;
+
+    public EventProcessingException(ErrorType errorType, String message) {
+        super(message);
+        this.errorType = errorType;
+        this.violations = List.of();
+    }
+
+    public EventProcessingException(ErrorType errorType, String message, Throwable cause) {
+        super(message, cause);
+        this.errorType = errorType;
+        this.violations = List.of();
+    }
+
+    /**
+     * Ошибка валидации: сообщение перечисляет поля и нарушенные правила
+     */
+    public EventProcessingException(List<FieldViolation> violations) {
+        super(violations.stream()
+                .map(violation -> violation.getField() + ": " + violation.getMessage())
+                .collect(Collectors.joining("; ", "Validation failed: ", "")));
+        this.errorType = ErrorType.VALIDATION_ERROR;
+        this.violations = List.copyOf(violations);
+    }
+
+}
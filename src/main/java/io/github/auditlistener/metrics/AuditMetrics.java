@@ -0,0 +1,470 @@
+package io.github.auditlistener.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.github.auditlistener.model.enums.ContentEncoding;
+import io.github.auditlistener.model.enums.PayloadField;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Метрики обработки событий: вычитка, разбор, индексация и отправка в error топик.
+ * Метры с тегами создаются один раз на значение тега и кэшируются, поэтому запись
+ * метрики на горячем пути не создает ни тегов, ни Timer.Sample
+ */
+@Component
+public class AuditMetrics {
+
+    public static final String RECORDS_CONSUMED = "audit.listener.records.consumed";
+    public static final String PARSE_TIME = "audit.listener.parse";
+    public static final String BATCH_RECORDS = "audit.listener.batch.records";
+    public static final String INDEX_TIME = "audit.elasticsearch.index";
+    public static final String INDEX_FAILURES = "audit.elasticsearch.index.failures";
+    public static final String BULK_TIME = "audit.elasticsearch.bulk";
+    public static final String BULK_DOCUMENTS = "audit.elasticsearch.bulk.documents";
+    public static final String BULK_ITEM_FAILURES = "audit.elasticsearch.bulk.item.failures";
+    public static final String DUPLICATES = "audit.elasticsearch.duplicates";
+    public static final String COPY_TIME = "audit.postgres.copy";
+    public static final String COPY_ROWS = "audit.postgres.copy.rows";
+    public static final String COPY_FAILURES = "audit.postgres.copy.failures";
+    public static final String COPY_DUPLICATES = "audit.postgres.copy.duplicates";
+    public static final String ERRORS_SENT = "audit.errors.sent";
+    public static final String ERRORS_SEND_FAILURES = "audit.errors.send.failures";
+    public static final String ERRORS_STALLED = "audit.errors.stalled";
+    public static final String ERRORS_BUFFERED = "audit.errors.buffered";
+    public static final String ERRORS_REPLAYED = "audit.errors.replayed";
+    public static final String CATCH_UP_ACTIVE = "audit.elasticsearch.catchup.active";
+    public static final String ADAPTIVE_BULK_BYTES = "audit.listener.adaptive.bulk.bytes";
+    public static final String ADAPTIVE_BULK_DOCUMENTS = "audit.listener.adaptive.bulk.documents";
+    public static final String ADAPTIVE_IN_FLIGHT = "audit.listener.adaptive.in.flight";
+    public static final String RETRY_SCHEDULED = "audit.retry.scheduled";
+    public static final String RETRY_SUCCEEDED = "audit.retry.succeeded";
+    public static final String RETRY_QUEUED = "audit.retry.queued";
+    public static final String RETRY_SPILLED = "audit.retry.spilled";
+    public static final String RETRY_SPILL_REPLAYED = "audit.retry.spill.replayed";
+    public static final String RETRY_SPILL_BYTES = "audit.retry.spill.bytes";
+    public static final String PAYLOAD_SIZE = "audit.payload.size";
+    public static final String PAYLOAD_TRUNCATED = "audit.payload.truncated";
+    public static final String PAYLOAD_STORED = "audit.payload.stored";
+    public static final String PAYLOAD_STORE_BYTES = "audit.payload.store.bytes";
+    public static final String PAYLOAD_STORE_EVICTED = "audit.payload.store.evicted";
+    public static final String PAYLOAD_COMPRESSION_RATIO = "audit.payload.compression.ratio";
+    public static final String PAYLOAD_COMPRESSED_BYTES = "audit.payload.compressed.bytes";
+    public static final String PAYLOAD_DECOMPRESSED_BYTES = "audit.payload.decompressed.bytes";
+
+    /**
+     * Максимальное отставание consumer'а по партициям (публикуется MicrometerConsumerListener)
+     */
+    static final String CONSUMER_LAG_MAX = "kafka.consumer.fetch.manager.records.lag.max";
+
+    private static final String TAG_TOPIC = "topic";
+    private static final String TAG_INDEX = "index";
+    private static final String TAG_ERROR_TYPE = "errorType";
+    private static final String TAG_FIELD = "field";
+    private static final String TAG_ENCODING = "encoding";
+
+    /**
+     * Границы гистограммы размеров тел в символах: 1K, 16K, 64K, 256K, 1M, 4M, 16M
+     */
+    private static final double[] PAYLOAD_SIZE_BUCKETS = {1024, 16384, 65536, 262144, 1048576, 4194304, 16777216};
+    /**
+     * Границы гистограммы коэффициентов сжатия
+     */
+    private static final double[] COMPRESSION_RATIO_BUCKETS = {1, 1.5, 2, 3, 5, 10, 20};
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Counter> consumedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> parseTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> indexTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> indexFailureCounters = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Counter>> errorCounters = new ConcurrentHashMap<>();
+    private final Map<PayloadField, DistributionSummary> payloadSizes = new EnumMap<>(PayloadField.class);
+    private final Map<PayloadField, Counter> payloadTruncated = new EnumMap<>(PayloadField.class);
+    private final Map<PayloadField, Counter> payloadStored = new EnumMap<>(PayloadField.class);
+    private final Map<ContentEncoding, Map<String, Compression>> compressions = new EnumMap<>(ContentEncoding.class);
+
+    private final DistributionSummary batchRecords;
+    private final Timer bulkTimer;
+    private final DistributionSummary bulkDocuments;
+    private final Counter bulkItemFailures;
+    private final Counter duplicates;
+    private final Timer copyTimer;
+    private final DistributionSummary copyRows;
+    private final Counter copyFailures;
+    private final Counter copyDuplicates;
+    private final Counter errorSendFailures;
+    private final Counter errorsStalled;
+    private final Counter errorsReplayed;
+    private final Counter retryScheduled;
+    private final Counter retrySucceeded;
+    private final Counter retrySpilled;
+    private final Counter retrySpillReplayed;
+    private final Counter payloadStoreEvicted;
+
+    public AuditMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.batchRecords = DistributionSummary.builder(BATCH_RECORDS)
+                .description("Количество записей в пачке, полученной из Kafka")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.bulkTimer = Timer.builder(BULK_TIME)
+                .description("Время выполнения _bulk запроса")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.bulkDocuments = DistributionSummary.builder(BULK_DOCUMENTS)
+                .description("Количество документов в _bulk запросе")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.bulkItemFailures = Counter.builder(BULK_ITEM_FAILURES)
+                .description("Документы, отклоненные Elasticsearch в ответе _bulk")
+                .register(registry);
+        this.duplicates = Counter.builder(DUPLICATES)
+                .description("Повторно доставленные события, документы которых уже проиндексированы")
+                .register(registry);
+        this.copyTimer = Timer.builder(COPY_TIME)
+                .description("Время записи пачки событий в PostgreSQL (COPY)")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.copyRows = DistributionSummary.builder(COPY_ROWS)
+                .description("Количество строк в COPY")
+                .register(registry);
+        this.copyFailures = Counter.builder(COPY_FAILURES)
+                .description("Ошибки записи пачки событий в PostgreSQL")
+                .register(registry);
+        this.copyDuplicates = Counter.builder(COPY_DUPLICATES)
+                .description("Повторно доставленные события, строки которых уже записаны в PostgreSQL")
+                .register(registry);
+        this.errorSendFailures = Counter.builder(ERRORS_SEND_FAILURES)
+                .description("Ошибки отправки сообщений в error топик")
+                .register(registry);
+        this.errorsStalled = Counter.builder(ERRORS_STALLED)
+                .description("Ошибки, не принятые в буфер error топика за buffer-offer-timeout-ms")
+                .register(registry);
+        this.errorsReplayed = Counter.builder(ERRORS_REPLAYED)
+                .description("События, повторно проиндексированные из error топика")
+                .register(registry);
+        this.retryScheduled = Counter.builder(RETRY_SCHEDULED)
+                .description("Записи, принятые на повторную индексацию после временной ошибки")
+                .register(registry);
+        this.retrySucceeded = Counter.builder(RETRY_SUCCEEDED)
+                .description("Записи, проиндексированные при повторе из очереди")
+                .register(registry);
+        this.retrySpilled = Counter.builder(RETRY_SPILLED)
+                .description("Записи, сохраненные в spill-журнал")
+                .register(registry);
+        this.retrySpillReplayed = Counter.builder(RETRY_SPILL_REPLAYED)
+                .description("Записи, проиндексированные из spill-журнала")
+                .register(registry);
+        this.payloadStoreEvicted = Counter.builder(PAYLOAD_STORE_EVICTED)
+                .description("Файлы хранилища полных тел, удаленные по retention-days или max-size-bytes")
+                .register(registry);
+        for (PayloadField field : PayloadField.values()) {
+            payloadSizes.put(field, DistributionSummary.builder(PAYLOAD_SIZE)
+                    .description("Размер тела в символах до применения лимита")
+                    .baseUnit("chars")
+                    .tag(TAG_FIELD, field.getFieldName())
+                    .serviceLevelObjectives(PAYLOAD_SIZE_BUCKETS)
+                    .register(registry));
+            payloadTruncated.put(field, Counter.builder(PAYLOAD_TRUNCATED)
+                    .description("Тела, обрезанные по лимиту размера")
+                    .tag(TAG_FIELD, field.getFieldName())
+                    .register(registry));
+            payloadStored.put(field, Counter.builder(PAYLOAD_STORED)
+                    .description("Полные значения обрезанных тел, сохраненные в хранилище")
+                    .tag(TAG_FIELD, field.getFieldName())
+                    .register(registry));
+        }
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            compressions.put(encoding, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Запись получена из топика
+     */
+    public void recordConsumed(String topic) {
+        Counter counter = consumedCounters.get(topic);
+        if (counter == null) {
+            counter = consumedCounters.computeIfAbsent(topic, t -> Counter.builder(RECORDS_CONSUMED)
+                    .description("Записи, полученные из Kafka")
+                    .tag(TAG_TOPIC, t)
+                    .register(registry));
+        }
+        counter.increment();
+    }
+
+    /**
+     * Разбор и валидация записи топика (выполняются за один проход)
+     */
+    public void recordParse(String topic, long nanos) {
+        Timer timer = parseTimers.get(topic);
+        if (timer == null) {
+            timer = parseTimers.computeIfAbsent(topic, t -> Timer.builder(PARSE_TIME)
+                    .description("Время разбора и валидации события")
+                    .tag(TAG_TOPIC, t)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatch(int records) {
+        batchRecords.record(records);
+    }
+
+    /**
+     * Индексация одного документа
+     */
+    public void recordIndex(String index, long nanos, boolean success) {
+        Timer timer = indexTimers.get(index);
+        if (timer == null) {
+            timer = indexTimers.computeIfAbsent(index, i -> Timer.builder(INDEX_TIME)
+                    .description("Время индексации документа")
+                    .tag(TAG_INDEX, i)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+
+        if (!success) {
+            Counter counter = indexFailureCounters.get(index);
+            if (counter == null) {
+                counter = indexFailureCounters.computeIfAbsent(index, i -> Counter.builder(INDEX_FAILURES)
+                        .description("Ошибки индексации документа")
+                        .tag(TAG_INDEX, i)
+                        .register(registry));
+            }
+            counter.increment();
+        }
+    }
+
+    /**
+     * Выполненный _bulk запрос
+     *
+     * @param failures количество документов с ошибкой в ответе
+     */
+    public void recordBulk(int documents, int failures, long nanos) {
+        bulkTimer.record(nanos, TimeUnit.NANOSECONDS);
+        bulkDocuments.record(documents);
+        if (failures > 0) {
+            bulkItemFailures.increment(failures);
+        }
+    }
+
+    /**
+     * Документы, не созданные повторно: документ с тем же идентификатором уже есть в индексе
+     */
+    public void recordDuplicates(int documents) {
+        duplicates.increment(documents);
+    }
+
+    /**
+     * Запись пачки событий в PostgreSQL
+     */
+    public void recordCopy(int rows, long nanos, boolean success) {
+        copyTimer.record(nanos, TimeUnit.NANOSECONDS);
+        copyRows.record(rows);
+        if (!success) {
+            copyFailures.increment();
+        }
+    }
+
+    /**
+     * Строки, не записанные повторно: событие с тем же идентификатором документа уже есть в таблице
+     */
+    public void recordCopyDuplicates(int rows) {
+        copyDuplicates.increment(rows);
+    }
+
+    /**
+     * Сообщение отправлено в error топик
+     */
+    public void recordErrorSent(String errorType, String topic) {
+        String topicKey = topic != null ? topic : "unknown";
+        Map<String, Counter> byTopic = errorCounters.get(errorType);
+        if (byTopic == null) {
+            byTopic = errorCounters.computeIfAbsent(errorType, type -> new ConcurrentHashMap<>());
+        }
+        Counter counter = byTopic.get(topicKey);
+        if (counter == null) {
+            counter = byTopic.computeIfAbsent(topicKey, t -> Counter.builder(ERRORS_SENT)
+                    .description("Сообщения, отправленные в error топик")
+                    .tag(TAG_ERROR_TYPE, errorType)
+                    .tag(TAG_TOPIC, t)
+                    .register(registry));
+        }
+        counter.increment();
+    }
+
+    public void recordErrorSendFailure() {
+        errorSendFailures.increment();
+    }
+
+    public void recordErrorStalled() {
+        errorsStalled.increment();
+    }
+
+    /**
+     * Размер буфера сообщений, ожидающих отправки в error топик
+     */
+    public void registerErrorBuffer(Collection<?> buffer) {
+        Gauge.builder(ERRORS_BUFFERED, buffer, Collection::size)
+                .description("Сообщения в буфере отправки в error топик")
+                .register(registry);
+    }
+
+    public void recordErrorsReplayed(int events) {
+        errorsReplayed.increment(events);
+    }
+
+    public void recordRetryScheduled() {
+        retryScheduled.increment();
+    }
+
+    public void recordRetrySucceeded() {
+        retrySucceeded.increment();
+    }
+
+    public void recordRetrySpilled() {
+        retrySpilled.increment();
+    }
+
+    public void recordRetrySpillReplayed() {
+        retrySpillReplayed.increment();
+    }
+
+    /**
+     * Размер тела до применения лимита
+     */
+    public void recordPayloadSize(PayloadField field, int chars) {
+        payloadSizes.get(field).record(chars);
+    }
+
+    public void recordPayloadTruncated(PayloadField field) {
+        payloadTruncated.get(field).increment();
+    }
+
+    public void recordPayloadStored(PayloadField field) {
+        payloadStored.get(field).increment();
+    }
+
+    /**
+     * Объем файлов хранилища полных тел
+     */
+    public void registerPayloadStore(LongSupplier storeBytes) {
+        Gauge.builder(PAYLOAD_STORE_BYTES, storeBytes::getAsLong)
+                .description("Объем файлов хранилища полных тел")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public void recordPayloadStoreEvicted(int files) {
+        payloadStoreEvicted.increment(files);
+    }
+
+    /**
+     * Сжатая запись: размер значения и распакованный размер. Коэффициент - распакованный размер к сжатому,
+     * общий коэффициент топика - отношение счетчиков decompressed.bytes и compressed.bytes
+     */
+    public void recordCompression(String topic, ContentEncoding encoding, long compressedBytes, long decompressedBytes) {
+        Map<String, Compression> byTopic = compressions.get(encoding);
+        Compression compression = byTopic.get(topic);
+        if (compression == null) {
+            compression = byTopic.computeIfAbsent(topic, t -> new Compression(
+                    DistributionSummary.builder(PAYLOAD_COMPRESSION_RATIO)
+                            .description("Коэффициент сжатия записи (распакованный размер к сжатому)")
+                            .tags(TAG_TOPIC, t, TAG_ENCODING, encoding.getHeaderValue())
+                            .serviceLevelObjectives(COMPRESSION_RATIO_BUCKETS)
+                            .register(registry),
+                    Counter.builder(PAYLOAD_COMPRESSED_BYTES)
+                            .description("Сжатые значения записей")
+                            .baseUnit("bytes")
+                            .tags(TAG_TOPIC, t, TAG_ENCODING, encoding.getHeaderValue())
+                            .register(registry),
+                    Counter.builder(PAYLOAD_DECOMPRESSED_BYTES)
+                            .description("Значения сжатых записей после распаковки")
+                            .baseUnit("bytes")
+                            .tags(TAG_TOPIC, t, TAG_ENCODING, encoding.getHeaderValue())
+                            .register(registry)));
+        }
+        compression.ratio().record(compressedBytes > 0 ? (double) decompressedBytes / compressedBytes : 0);
+        compression.compressedBytes().increment(compressedBytes);
+        compression.decompressedBytes().increment(decompressedBytes);
+    }
+
+    /**
+     * Очередь повторов и объем непрочитанных записей spill-журнала
+     */
+    public void registerRetryQueue(Collection<?> queue, LongSupplier spillBytes) {
+        Gauge.builder(RETRY_QUEUED, queue, Collection::size)
+                .description("Записи в очереди повторной индексации")
+                .register(registry);
+        Gauge.builder(RETRY_SPILL_BYTES, spillBytes::getAsLong)
+                .description("Объем записей spill-журнала, ожидающих повторной индексации")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Текущие адаптивные лимиты пакетной обработки
+     */
+    public void registerAdaptiveLimits(IntSupplier bulkBytes, IntSupplier bulkDocuments, IntSupplier inFlight) {
+        Gauge.builder(ADAPTIVE_BULK_BYTES, bulkBytes::getAsInt)
+                .description("Текущий лимит размера части _bulk в байтах")
+                .register(registry);
+        Gauge.builder(ADAPTIVE_BULK_DOCUMENTS, bulkDocuments::getAsInt)
+                .description("Текущий лимит числа документов в части _bulk")
+                .register(registry);
+        Gauge.builder(ADAPTIVE_IN_FLIGHT, inFlight::getAsInt)
+                .description("Текущий лимит числа пачек в асинхронной обработке")
+                .register(registry);
+    }
+
+    /**
+     * Признак режима догоняющей загрузки (1 - refresh и реплики индексов отключены)
+     */
+    public void registerCatchUp(AtomicBoolean active) {
+        Gauge.builder(CATCH_UP_ACTIVE, active, state -> state.get() ? 1 : 0)
+                .description("Режим догоняющей загрузки индексов")
+                .register(registry);
+    }
+
+    /**
+     * Наибольшее отставание по всем consumer'ам сервиса (0, если партиции не назначены)
+     */
+    public double maxConsumerLag() {
+        double lag = 0;
+        for (Gauge gauge : registry.find(CONSUMER_LAG_MAX).gauges()) {
+            double value = gauge.value();
+            if (!Double.isNaN(value) && value > lag) {
+                lag = value;
+            }
+        }
+        return lag;
+    }
+
+    /**
+     * Метрики кэша (cache.gets, cache.evictions и т.д. с тегом cache = name)
+     */
+    public void monitorCache(String name, Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    private record Compression(DistributionSummary ratio, Counter compressedBytes, Counter decompressedBytes) {
+    }
+
+}
@@ -0,0 +1,28 @@
+package io.github.auditlistener.model.elastic;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Операция индексации документа в составе _bulk запроса
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDocument {
+
+    private String index;
+
+    private String id;
+
+    private Object document;
+
+    /**
+     * Готовый JSON документа (передается в _bulk без сериализации), используется вместо document
+     */
+    private byte[] source;
+
+}
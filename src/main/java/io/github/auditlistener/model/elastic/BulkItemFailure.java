@@ -0,0 +1,28 @@
+package io.github.auditlistener.model.elastic;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ошибка индексации отдельного документа _bulk запроса
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkItemFailure {
+
+    /**
+     * Позиция документа в исходном списке операций
+     */
+    private int position;
+
+    private int status;
+
+    private String type;
+
+    private String reason;
+
+}
@@ -0,0 +1,25 @@
+package io.github.auditlistener.model.elastic;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Аренда режима догоняющей загрузки экземпляром приложения. Настройки индексов восстанавливаются,
+ * только когда не остается действующих аренд
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatchUpLease {
+
+    private String instance;
+
+    /**
+     * Окончание аренды, epoch millis: аренда остановленного без восстановления экземпляра истекает сама
+     */
+    private long expiresAt;
+
+}
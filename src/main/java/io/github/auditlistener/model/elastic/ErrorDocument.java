@@ -1,12 +1,23 @@
 package io.github.auditlistener.model.elastic;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.github.auditlistener.model.validation.FieldViolation;
+import io.github.auditlistener.utils.EpochMillisSerializer;
+import io.github.auditlistener.utils.TimestampDeserializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Dynamic;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.WriteTypeHint;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.util.List;
 
 /**
  * Документ ошибки
@@ -15,21 +26,67 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "audit-errors")
+@Document(indexName = "audit-errors", createIndex = false, writeTypeHint = WriteTypeHint.FALSE, dynamic = Dynamic.FALSE)
 public class ErrorDocument {
 
+    @Field(type = FieldType.Keyword)
     private String id;
 
-    private LocalDateTime timestamp;
+    @Field(type = FieldType.Date, format = {DateFormat.epoch_millis, DateFormat.date_optional_time})
+    @JsonSerialize(using = EpochMillisSerializer.class)
+    @JsonDeserialize(using = TimestampDeserializer.class)
+    private Instant timestamp;
 
+    @Field(type = FieldType.Keyword)
     private String errorType;
 
+    @Field(type = FieldType.Text, analyzer = "audit_analyzer")
     private String errorMessage;
 
+    /**
+     * Нарушенные правила валидации по полям (VALIDATION_ERROR), для остальных ошибок не заполняется
+     */
+    @Field(type = FieldType.Nested)
+    private List<FieldViolation> violations;
+
+    @Field(type = FieldType.Keyword)
     private String originalTopic;
 
+    /**
+     * Ключ исходной записи: при повторной обработке HTTP события из него берется correlationId
+     */
+    @Field(type = FieldType.Keyword)
+    private String originalKey;
+
+    @LargeText
     private String originalMessage;
 
+    /**
+     * Исходное значение в байтах (base64 в JSON), если это значение бинарного формата или сжатое значение:
+     * текстом оно не передается, так как не является UTF-8. Заполняется вместо originalMessage
+     */
+    @Field(type = FieldType.Binary)
+    private byte[] originalPayload;
+
+    /**
+     * Формат originalPayload (заголовок kafka.format-header записи или формат топика)
+     */
+    @Field(type = FieldType.Keyword)
+    private String originalFormat;
+
+    /**
+     * Идентификатор схемы Avro значения originalPayload
+     */
+    @Field(type = FieldType.Integer)
+    private Integer originalSchemaId;
+
+    /**
+     * Сжатие originalPayload (заголовок kafka.content-encoding-header записи)
+     */
+    @Field(type = FieldType.Keyword)
+    private String originalContentEncoding;
+
+    @Field(type = FieldType.Keyword)
     private String processingStage;
 
 }
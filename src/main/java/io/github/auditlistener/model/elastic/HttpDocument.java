@@ -1,12 +1,21 @@
 package io.github.auditlistener.model.elastic;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.github.auditlistener.utils.EpochMillisSerializer;
+import io.github.auditlistener.utils.TimestampDeserializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.Data;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Dynamic;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.WriteTypeHint;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
 
 /**
  * Документ запроса
@@ -15,25 +24,36 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "audit-requests")
+@Document(indexName = "audit-requests", createIndex = false, writeTypeHint = WriteTypeHint.FALSE, dynamic = Dynamic.FALSE)
 public class HttpDocument {
 
+    @Field(type = FieldType.Keyword)
     private String id;
 
+    @Field(type = FieldType.Keyword)
     private String correlationId;
 
-    private LocalDateTime timestamp;
+    @Field(type = FieldType.Date, format = {DateFormat.epoch_millis, DateFormat.date_optional_time})
+    @JsonSerialize(using = EpochMillisSerializer.class)
+    @JsonDeserialize(using = TimestampDeserializer.class)
+    private Instant timestamp;
 
+    @Field(type = FieldType.Keyword)
     private String direction;
 
+    @Field(type = FieldType.Keyword)
     private String method;
 
+    @Field(type = FieldType.Keyword)
     private String uri;
 
+    @Field(type = FieldType.Integer)
     private Integer statusCode;
 
+    @LargeText
     private String requestBody;
 
+    @LargeText
     private String responseBody;
 
 }
@@ -0,0 +1,15 @@
+package io.github.auditlistener.model.elastic;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Поле документа с телом произвольного размера (аргументы, результат, тела запросов).
+ * Маппинг такого поля задается audit.listener.indices.body-mapping вместо аннотации @Field
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LargeText {
+}
@@ -1,12 +1,23 @@
 package io.github.auditlistener.model.elastic;
 
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.github.auditlistener.utils.EpochMillisSerializer;
+import io.github.auditlistener.utils.RawJsonDeserializer;
+import io.github.auditlistener.utils.TimestampDeserializer;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Dynamic;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.WriteTypeHint;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
 
 /**
  * Документ метода
@@ -15,25 +26,45 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "audit-methods")
+@Document(indexName = "audit-methods", createIndex = false, writeTypeHint = WriteTypeHint.FALSE, dynamic = Dynamic.FALSE)
 public class MethodDocument {
 
+    @Field(type = FieldType.Keyword)
     private String id;
 
+    @Field(type = FieldType.Keyword)
     private String correlationId;
 
-    private LocalDateTime timestamp;
+    @Field(type = FieldType.Date, format = {DateFormat.epoch_millis, DateFormat.date_optional_time})
+    @JsonSerialize(using = EpochMillisSerializer.class)
+    @JsonDeserialize(using = TimestampDeserializer.class)
+    private Instant timestamp;
 
+    @Field(type = FieldType.Keyword)
     private String eventType;
 
+    @Field(type = FieldType.Keyword)
     private String level;
 
+    @Field(type = FieldType.Keyword)
     private String method;
 
+    @LargeText
     private String args;
 
+    /**
+     * Аргументы JSON объектом {"0": arg0, "1": arg1, ...}; заполняется при audit.listener.args.mapping,
+     * отличном от NONE
+     */
+    @StructuredArgs
+    @JsonRawValue
+    @JsonDeserialize(using = RawJsonDeserializer.class)
+    private String argsFields;
+
+    @LargeText
     private String result;
 
+    @Field(type = FieldType.Text, analyzer = "audit_analyzer")
     private String errorMessage;
 
 }
@@ -0,0 +1,20 @@
+package io.github.auditlistener.model.elastic;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * HTTP документ, сформированный из исходных байтов сообщения (batch.raw-http-passthrough)
+ */
+@Data
+@AllArgsConstructor
+public class RawHttpDocument {
+
+    private String id;
+
+    /**
+     * Готовый JSON документа
+     */
+    private byte[] source;
+
+}
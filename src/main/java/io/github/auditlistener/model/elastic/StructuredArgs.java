@@ -0,0 +1,15 @@
+package io.github.auditlistener.model.elastic;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Поле документа с аргументами метода в виде JSON объекта.
+ * Маппинг такого поля задается audit.listener.args.mapping вместо аннотации @Field
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StructuredArgs {
+}
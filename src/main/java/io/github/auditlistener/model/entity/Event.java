@@ -37,6 +37,12 @@ public class Event {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /**
+     * Идентификатор документа ElasticSearch: повторная запись того же события пропускается
+     */
+    @Column(name = "document_id")
+    private String documentId;
+
     @Column(name = "correlation_id")
     @NotNull
     @NotBlank
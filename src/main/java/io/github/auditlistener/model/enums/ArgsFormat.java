@@ -0,0 +1,18 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Формат текстового поля args документа метода
+ */
+public enum ArgsFormat {
+
+    /**
+     * Формат Arrays.toString: [arg1, 2, {key=value}, [1, 2], null]
+     */
+    TO_STRING,
+
+    /**
+     * Компактный JSON массив: ["arg1",2,{"key":"value"},[1,2],null]
+     */
+    JSON
+
+}
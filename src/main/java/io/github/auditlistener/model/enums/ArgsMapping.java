@@ -0,0 +1,24 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Структурированное представление аргументов (поле argsFields: {"0": arg0, "1": arg1, ...}) в ElasticSearch
+ */
+public enum ArgsMapping {
+
+    /**
+     * Только текстовое поле args
+     */
+    NONE,
+
+    /**
+     * Тип flattened: все значения индексируются как keyword без расширения маппинга
+     */
+    FLATTENED,
+
+    /**
+     * Объект с динамическим маппингом. Подходит только для аргументов с постоянными типами:
+     * аргумент, меняющий тип между событиями, приводит к ошибке индексации документа
+     */
+    OBJECT
+
+}
@@ -0,0 +1,23 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Маппинг полей с телами произвольного размера (@LargeText) в ElasticSearch
+ */
+public enum BodyMapping {
+
+    /**
+     * Полнотекстовый поиск (text с audit_analyzer)
+     */
+    TEXT,
+
+    /**
+     * Только хранение в _source, без индексации (text с index = false)
+     */
+    NOT_INDEXED,
+
+    /**
+     * Полнотекстовый поиск по началу тела: ingest pipeline обрезает значение до body-max-chars символов
+     */
+    TRUNCATED
+
+}
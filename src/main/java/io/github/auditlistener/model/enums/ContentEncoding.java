@@ -0,0 +1,46 @@
+package io.github.auditlistener.model.enums;
+
+import java.util.Locale;
+
+/**
+ * Сжатие значения отдельной записи (заголовок kafka.content-encoding-header)
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip"),
+    ZSTD("zstd"),
+    LZ4("lz4");
+
+    private final String headerValue;
+
+    ContentEncoding(String headerValue) {
+        this.headerValue = headerValue;
+    }
+
+    /**
+     * Значение заголовка и тега encoding метрик
+     */
+    public String getHeaderValue() {
+        return headerValue;
+    }
+
+    /**
+     * Сжатие по значению заголовка без учета регистра
+     *
+     * @return сжатие или null для identity и пустого значения
+     * @throws IllegalArgumentException неизвестное сжатие
+     */
+    public static ContentEncoding of(String headerValue) {
+        String value = headerValue.trim().toLowerCase(Locale.ROOT);
+        if (value.isEmpty() || "identity".equals(value)) {
+            return null;
+        }
+        for (ContentEncoding encoding : values()) {
+            if (encoding.headerValue.equals(value)) {
+                return encoding;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported content encoding: " + headerValue.trim());
+    }
+
+}
@@ -0,0 +1,14 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Тип ошибки обработки события
+ */
+public enum ErrorType {
+
+    PARSING_ERROR,
+    VALIDATION_ERROR,
+    INDEXING_ERROR,
+    PROCESSING_ERROR,
+    PERSISTENCE_ERROR
+
+}
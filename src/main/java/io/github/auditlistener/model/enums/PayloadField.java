@@ -0,0 +1,27 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Поля документов с телами произвольного размера, для которых действуют лимиты audit.listener.payload.*
+ */
+public enum PayloadField {
+
+    ARGS("args"),
+    RESULT("result"),
+    REQUEST_BODY("requestBody"),
+    RESPONSE_BODY("responseBody"),
+    ORIGINAL_MESSAGE("originalMessage");
+
+    private final String fieldName;
+
+    PayloadField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    /**
+     * Имя поля в документе и значение тега field метрик
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+}
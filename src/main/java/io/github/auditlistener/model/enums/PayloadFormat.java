@@ -0,0 +1,19 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Формат значения записи топиков method-topic и http-topic
+ */
+public enum PayloadFormat {
+
+    /**
+     * JSON сообщение (String или byte[] в UTF-8)
+     */
+    JSON,
+
+    /**
+     * Avro binary в формате Confluent: байт 0, идентификатор схемы (4 байта big-endian) и данные записи.
+     * Схема {id}.avsc берется из каталога schema-registry.directory
+     */
+    AVRO
+
+}
@@ -0,0 +1,30 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Режим обработки событий из Kafka
+ */
+public enum ProcessingMode {
+
+    /**
+     * Обработка по одной записи с синхронной индексацией
+     */
+    RECORD,
+
+    /**
+     * Обработка пачками записей одного poll с индексацией через _bulk
+     */
+    BATCH,
+
+    /**
+     * Пакетная обработка с асинхронной индексацией: несколько _bulk запросов одновременно
+     * в обработке, offset'ы подтверждаются строго по порядку пачек
+     */
+    PIPELINED,
+
+    /**
+     * Записи одного poll обрабатываются на виртуальных потоках: параллельно для разных ключей
+     * и последовательно внутри ключа, offset партиции коммитится по наименьшей необработанной записи
+     */
+    KEYED
+
+}
@@ -0,0 +1,14 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Состояние повторной загрузки событий из error топика
+ */
+public enum ReplayState {
+
+    IDLE,
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED
+
+}
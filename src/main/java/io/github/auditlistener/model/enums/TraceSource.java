@@ -0,0 +1,18 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Источник событий для поиска трассы по correlationId
+ */
+public enum TraceSource {
+
+    /**
+     * Индексы audit-methods и audit-requests (запрашиваются параллельно)
+     */
+    ELASTICSEARCH,
+
+    /**
+     * Таблица events (при audit.listener.persistence.enabled=true)
+     */
+    POSTGRES
+
+}
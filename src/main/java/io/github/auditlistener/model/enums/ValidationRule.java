@@ -0,0 +1,25 @@
+package io.github.auditlistener.model.enums;
+
+/**
+ * Правило валидации поля события, которое нарушено значением
+ */
+public enum ValidationRule {
+
+    /**
+     * Обязательное поле отсутствует или равно null
+     */
+    REQUIRED,
+    /**
+     * Тип JSON значения не совпадает с ValueType правила
+     */
+    TYPE,
+    /**
+     * Значение не входит в список допустимых
+     */
+    VALUES,
+    /**
+     * Строка длиннее max-length
+     */
+    MAX_LENGTH
+
+}
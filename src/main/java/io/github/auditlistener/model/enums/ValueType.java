@@ -0,0 +1,46 @@
+package io.github.auditlistener.model.enums;
+
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Тип JSON значения поля события в правилах валидации (audit.listener.validation.*)
+ */
+public enum ValueType {
+
+    STRING,
+    INTEGER,
+    /**
+     * Целое или дробное число
+     */
+    NUMBER,
+    BOOLEAN,
+    ARRAY,
+    OBJECT;
+
+    public boolean matches(JsonToken token) {
+        return switch (this) {
+            case STRING -> token == JsonToken.VALUE_STRING;
+            case INTEGER -> token == JsonToken.VALUE_NUMBER_INT;
+            case NUMBER -> token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT;
+            case BOOLEAN -> token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE;
+            case ARRAY -> token == JsonToken.START_ARRAY;
+            case OBJECT -> token == JsonToken.START_OBJECT;
+        };
+    }
+
+    /**
+     * Тип значения, которое начинается токеном (для JSON null - null)
+     */
+    public static ValueType of(JsonToken token) {
+        return switch (token) {
+            case VALUE_STRING -> STRING;
+            case VALUE_NUMBER_INT -> INTEGER;
+            case VALUE_NUMBER_FLOAT -> NUMBER;
+            case VALUE_TRUE, VALUE_FALSE -> BOOLEAN;
+            case START_ARRAY -> ARRAY;
+            case START_OBJECT -> OBJECT;
+            default -> null;
+        };
+    }
+
+}
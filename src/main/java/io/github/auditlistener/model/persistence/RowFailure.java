@@ -0,0 +1,24 @@
+package io.github.auditlistener.model.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ошибка записи отдельного события пачки в PostgreSQL
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RowFailure {
+
+    /**
+     * Позиция события в исходном списке
+     */
+    private int position;
+
+    private String reason;
+
+}
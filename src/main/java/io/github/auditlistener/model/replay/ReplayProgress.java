@@ -0,0 +1,60 @@
+package io.github.auditlistener.model.replay;
+
+import io.github.auditlistener.model.enums.ReplayState;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Ход повторной загрузки событий из error топика
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplayProgress {
+
+    private ReplayState state;
+
+    private ReplayRequest request;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    /**
+     * Записей error топика в диапазоне загрузки
+     */
+    private long total;
+
+    /**
+     * Прочитано записей error топика
+     */
+    private long scanned;
+
+    /**
+     * Записи, подходящие под фильтр
+     */
+    private long matched;
+
+    /**
+     * Проиндексировано событий
+     */
+    private long replayed;
+
+    /**
+     * События с ошибкой разбора или индексации
+     */
+    private long failed;
+
+    /**
+     * Средняя скорость индексации, событий в секунду
+     */
+    private double throughput;
+
+    private String lastError;
+
+}
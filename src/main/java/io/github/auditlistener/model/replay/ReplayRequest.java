@@ -0,0 +1,50 @@
+package io.github.auditlistener.model.replay;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Диапазон error топика и фильтр для повторной загрузки событий. Не заданные границы -
+ * начало и текущий конец партиций
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplayRequest {
+
+    /**
+     * Тип ошибки (ErrorType), null - все типы
+     */
+    private String errorType;
+
+    /**
+     * Время записи в error топик, с которого начинается загрузка
+     */
+    private Instant from;
+
+    /**
+     * Время записи в error топик, до которого выполняется загрузка (не включительно)
+     */
+    private Instant to;
+
+    /**
+     * Начальный offset в каждой партиции (применяется вместе с from - берется больший)
+     */
+    private Long fromOffset;
+
+    /**
+     * Конечный offset в каждой партиции, не включительно (вместе с to - берется меньший)
+     */
+    private Long toOffset;
+
+    /**
+     * Ограничение скорости загрузки, null - replay.records-per-second
+     */
+    private Integer recordsPerSecond;
+
+}
@@ -0,0 +1,32 @@
+package io.github.auditlistener.model.validation;
+
+import io.github.auditlistener.model.enums.ValidationRule;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+/**
+ * Нарушение правила валидации отдельным полем события
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FieldViolation {
+
+    /**
+     * Имя поля верхнего уровня сообщения
+     */
+    @Field(type = FieldType.Keyword)
+    private String field;
+
+    @Field(type = FieldType.Keyword)
+    private ValidationRule rule;
+
+    @Field(type = FieldType.Text)
+    private String message;
+
+}
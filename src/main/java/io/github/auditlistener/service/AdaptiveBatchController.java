@@ -0,0 +1,42 @@
+package io.github.auditlistener.service;
+
+public interface AdaptiveBatchController {
+
+    /**
+     * Текущий лимит размера части _bulk в байтах
+     */
+    int bulkMaxBytes();
+
+    /**
+     * Текущий лимит числа документов в части _bulk
+     */
+    int bulkMaxDocuments();
+
+    /**
+     * Текущий лимит числа пачек в асинхронной обработке (processing-mode = PIPELINED)
+     */
+    int maxInFlight();
+
+    /**
+     * Результат выполненного _bulk запроса
+     *
+     * @param documents количество документов в запросе
+     * @param nanos     время выполнения запроса
+     * @param rejected  количество документов, отклоненных с кодом 429
+     */
+    void onBulkCompleted(int documents, long nanos, int rejected);
+
+    /**
+     * _bulk запрос отклонен целиком (429)
+     */
+    void onBulkRejected();
+
+    /**
+     * Задержка перед повтором отклоненных документов
+     *
+     * @param attempt номер повтора, начиная с 0
+     * @return задержка в мс или -1, если повторы исчерпаны (или отключены)
+     */
+    long rejectBackoffMs(int attempt);
+
+}
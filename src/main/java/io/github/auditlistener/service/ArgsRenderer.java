@@ -0,0 +1,25 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+public interface ArgsRenderer {
+
+    /**
+     * Строит представления аргументов метода за один проход по токенам, без промежуточных объектов.
+     * Текущий токен парсера - значение поля arguments; после вызова - последний токен значения
+     *
+     * @return аргументы или null для JSON null
+     * @throws IllegalArgumentException Значение не является массивом
+     */
+    Rendered render(JsonParser parser) throws IOException;
+
+    /**
+     * @param text   поле args в формате args.format
+     * @param fields JSON объект {"0": arg0, ...} для поля argsFields или null при args.mapping = NONE
+     */
+    record Rendered(String text, String fields) {
+    }
+
+}
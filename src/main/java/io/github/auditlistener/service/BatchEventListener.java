@@ -0,0 +1,17 @@
+package io.github.auditlistener.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+
+public interface BatchEventListener {
+
+    /**
+     * Пакетная обработка событий методов и HTTP-запросов, полученных за один poll.
+     * Значения записей - String или byte[] (см. audit.listener.kafka.byte-array-values)
+     */
+    void handleEventBatch(List<ConsumerRecord<String, Object>> records,
+                          Acknowledgment acknowledgment);
+
+}
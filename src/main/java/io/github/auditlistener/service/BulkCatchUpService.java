@@ -0,0 +1,15 @@
+package io.github.auditlistener.service;
+
+public interface BulkCatchUpService {
+
+    /**
+     * Проверяет отставание consumer'ов и включает или выключает режим догоняющей загрузки
+     */
+    void checkLag();
+
+    /**
+     * @return true, если refresh и реплики индексов сейчас отключены
+     */
+    boolean isActive();
+
+}
@@ -1,9 +1,14 @@
 package io.github.auditlistener.service;
 
+import io.github.auditlistener.model.elastic.BulkDocument;
+import io.github.auditlistener.model.elastic.BulkItemFailure;
 import io.github.auditlistener.model.elastic.ErrorDocument;
 import io.github.auditlistener.model.elastic.HttpDocument;
 import io.github.auditlistener.model.elastic.MethodDocument;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface ElasticSearchService {
 
     /**
@@ -29,5 +34,22 @@ public interface ElasticSearchService {
      */
     void indexErrorDocument(ErrorDocument document);
 
+    /**
+     * Индексирует пачку документов одним _bulk запросом
+     *
+     * @param documents документы для индексации (могут относиться к разным индексам)
+     * @return ошибки отдельных документов с позициями в исходном списке
+     * @throws RuntimeException Ошибка выполнения _bulk запроса целиком
+     */
+    List<BulkItemFailure> indexBulk(List<BulkDocument> documents);
+
+    /**
+     * Асинхронно индексирует пачку документов одним _bulk запросом
+     *
+     * @param documents документы для индексации (могут относиться к разным индексам)
+     * @return ошибки отдельных документов; завершается исключением при ошибке _bulk запроса целиком
+     */
+    CompletableFuture<List<BulkItemFailure>> indexBulkAsync(List<BulkDocument> documents);
+
 }
 
@@ -0,0 +1,30 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.model.replay.ReplayProgress;
+import io.github.auditlistener.model.replay.ReplayRequest;
+
+public interface ErrorReplayService {
+
+    /**
+     * Запускает повторную загрузку событий из error топика: исходные сообщения подходящих записей
+     * разбираются и индексируются заново. Загрузка выполняется отдельным потоком
+     *
+     * @param request диапазон error топика и фильтр по типу ошибки
+     * @return ход загрузки на момент запуска
+     * @throws IllegalStateException загрузка уже выполняется
+     */
+    ReplayProgress start(ReplayRequest request);
+
+    /**
+     * Ход текущей или последней загрузки
+     */
+    ReplayProgress progress();
+
+    /**
+     * Останавливает текущую загрузку после индексации уже прочитанных событий
+     *
+     * @return ход загрузки на момент остановки
+     */
+    ReplayProgress cancel();
+
+}
@@ -0,0 +1,80 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.elastic.RawHttpDocument;
+
+public interface EventDocumentParser {
+
+    /**
+     * Разбирает и валидирует событие метода
+     *
+     * @param message исходное сообщение
+     * @return документ метода для индексации
+     * @throws io.github.auditlistener.exception.EventProcessingException Ошибка разбора или валидации
+     */
+    MethodDocument parseMethodEvent(String message);
+
+    /**
+     * Разбирает и валидирует событие метода, полученное в виде байтов UTF-8
+     *
+     * @param message исходное сообщение
+     * @return документ метода для индексации
+     * @throws io.github.auditlistener.exception.EventProcessingException Ошибка разбора или валидации
+     */
+    MethodDocument parseMethodEvent(byte[] message);
+
+    /**
+     * Разбирает и валидирует событие метода, декодированное из бинарного формата ({@link PayloadDecoder})
+     *
+     * @param event токены события
+     * @return документ метода для индексации
+     * @throws io.github.auditlistener.exception.EventProcessingException Ошибка разбора или валидации
+     */
+    MethodDocument parseMethodEvent(TokenBuffer event);
+
+    /**
+     * Разбирает и валидирует HTTP событие
+     *
+     * @param message исходное сообщение
+     * @param key ключ сообщения (используется как correlationId)
+     * @return HTTP документ для индексации
+     * @throws io.github.auditlistener.exception.EventProcessingException Ошибка разбора или валидации
+     */
+    HttpDocument parseHttpEvent(String message, String key);
+
+    /**
+     * Разбирает и валидирует HTTP событие, полученное в виде байтов UTF-8
+     *
+     * @param message исходное сообщение
+     * @param key ключ сообщения (используется как correlationId)
+     * @return HTTP документ для индексации
+     * @throws io.github.auditlistener.exception.EventProcessingException Ошибка разбора или валидации
+     */
+    HttpDocument parseHttpEvent(byte[] message, String key);
+
+    /**
+     * Разбирает и валидирует HTTP событие, декодированное из бинарного формата ({@link PayloadDecoder})
+     *
+     * @param event токены события
+     * @param key ключ сообщения (используется как correlationId)
+     * @return HTTP документ для индексации
+     * @throws io.github.auditlistener.exception.EventProcessingException Ошибка разбора или валидации
+     */
+    HttpDocument parseHttpEvent(TokenBuffer event, String key);
+
+    /**
+     * Проверяет HTTP событие сканированием без построения документа и формирует JSON документа
+     * из исходных байтов: добавляются id, correlationId и timestamp в epoch millis, остальные
+     * поля HttpDocument копируются без повторной сериализации
+     *
+     * @param message исходное сообщение в байтах UTF-8
+     * @param key ключ сообщения (используется как correlationId)
+     * @return идентификатор и JSON документа или null, если поля нельзя скопировать без приведения типов
+     * (например, тело запроса - объект), и событие нужно разобрать в HttpDocument
+     * @throws io.github.auditlistener.exception.EventProcessingException Ошибка разбора или валидации
+     */
+    RawHttpDocument rewriteHttpEvent(byte[] message, String key);
+
+}
@@ -0,0 +1,10 @@
+package io.github.auditlistener.service;
+
+public interface EventPartitionManager {
+
+    /**
+     * Создает недостающие секции таблицы events на ближайшие дни и удаляет (отсоединяет) просроченные
+     */
+    void maintainPartitions();
+
+}
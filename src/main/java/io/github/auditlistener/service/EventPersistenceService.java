@@ -0,0 +1,26 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.persistence.RowFailure;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface EventPersistenceService {
+
+    /**
+     * Записывает пачку событий в таблицу events одной командой COPY. Если команду отклоняют данные
+     * отдельных строк, пачка делится на части, и остальные события записываются
+     *
+     * @param events события; id назначается базой данных
+     * @return события, которые не удалось записать, или пустой список
+     * @throws RuntimeException пачку не удалось записать целиком (нет соединения, ошибка базы данных)
+     */
+    List<RowFailure> persist(List<Event> events);
+
+    /**
+     * Асинхронная запись пачки событий (на виртуальном потоке), см. {@link #persist(List)}
+     */
+    CompletableFuture<List<RowFailure>> persistAsync(List<Event> events);
+
+}
@@ -0,0 +1,13 @@
+package io.github.auditlistener.service;
+
+public interface IndexTemplateService {
+
+    /**
+     * Устанавливает (обновляет) ingest pipeline, ILM политику и шаблоны индексов audit-methods,
+     * audit-requests и audit-errors
+     *
+     * @return true, если все компоненты установлены
+     */
+    boolean installTemplates();
+
+}
@@ -0,0 +1,29 @@
+package io.github.auditlistener.service;
+
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface IndexingPipeline {
+
+    /**
+     * Регистрирует пачку, индексация которой выполняется асинхронно. Пачки подтверждаются
+     * строго в порядке регистрации, после завершения всех предыдущих пачек. При заполнении
+     * окна обработки контейнер слушателя приостанавливается. Пачка, индексация которой завершилась
+     * исключением, и все последующие не подтверждаются, контейнер перезапускается для их повторного чтения
+     *
+     * @param listenerId идентификатор слушателя (контейнера) Kafka
+     * @param indexing завершение индексации пачки; исключение - записи пачки не обработаны
+     *                 (не проиндексированы и не переданы на повтор или в error топик)
+     * @param acknowledgment подтверждение пачки
+     */
+    void submit(String listenerId, CompletableFuture<Void> indexing, Acknowledgment acknowledgment);
+
+    /**
+     * Количество пачек слушателя, находящихся в обработке (включая ожидающие подтверждения)
+     *
+     * @param listenerId идентификатор слушателя (контейнера) Kafka
+     */
+    int inFlight(String listenerId);
+
+}
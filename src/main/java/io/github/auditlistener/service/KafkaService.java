@@ -1,17 +1,55 @@
 package io.github.auditlistener.service;
 
+import io.github.auditlistener.exception.EventProcessingException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
 public interface KafkaService {
 
     /**
-     * Отправляет сообщение об ошибке в Kafka (error топик)
+     * Отправляет сообщение об ошибке в Kafka (error топик). Сообщение не отбрасывается: вызов ждет
+     * места в буфере отправки не дольше таймаута, после приема исходную запись можно подтвердить.
+     * Если сообщение не принято, выбрасывается ErrorNotAcceptedException и исходная запись не подтверждается
      *
      * @param errorType тип ошибки
      * @param errorMessage сообщение об ошибке
      * @param originalTopic исходный topic, где произошла ошибка
+     * @param originalKey ключ исходной записи, нужен для повторной обработки (correlationId HTTP события)
      * @param originalMessage исходное сообщение
      */
-    void sendErrorMessage(String errorType, String errorMessage, String originalTopic,
+    void sendErrorMessage(String errorType, String errorMessage, String originalTopic, String originalKey,
                           String originalMessage);
 
+    /**
+     * Отправляет сообщение об ошибке разбора или валидации события. Тип ошибки, сообщение и нарушенные
+     * правила по полям берутся из исключения, нарушения передаются списком, а не только текстом сообщения
+     *
+     * @param error ошибка разбора или валидации
+     * @param originalTopic исходный topic, где произошла ошибка
+     * @param originalKey ключ исходной записи
+     * @param originalMessage исходное сообщение
+     */
+    void sendErrorMessage(EventProcessingException error, String originalTopic, String originalKey,
+                          String originalMessage);
+
+    /**
+     * Отправляет сообщение об ошибке обработки записи. Значение бинарного формата (Avro) или сжатое значение
+     * в байтах передается как есть (originalPayload) с форматом, сжатием и идентификатором схемы, чтобы его можно
+     * было декодировать при повторной обработке; остальные значения передаются текстом (originalMessage)
+     *
+     * @param errorType тип ошибки
+     * @param errorMessage сообщение об ошибке
+     * @param record исходная запись, значение которой не декодировано, или декодированная копия записи
+     */
+    void sendErrorMessage(String errorType, String errorMessage, ConsumerRecord<String, Object> record);
+
+    /**
+     * Отправляет сообщение об ошибке разбора, декодирования или валидации записи, см.
+     * {@link #sendErrorMessage(String, String, ConsumerRecord)}
+     *
+     * @param error ошибка разбора, декодирования или валидации
+     * @param record исходная запись, значение которой не декодировано, или декодированная копия записи
+     */
+    void sendErrorMessage(EventProcessingException error, ConsumerRecord<String, Object> record);
+
 }
 
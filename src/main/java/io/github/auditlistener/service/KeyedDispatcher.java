@@ -0,0 +1,19 @@
+package io.github.auditlistener.service;
+
+public interface KeyedDispatcher {
+
+    /**
+     * Выполняет задачу на виртуальном потоке. Задачи с одинаковым ключом выполняются
+     * строго последовательно в порядке передачи, задачи разных ключей - параллельно
+     *
+     * @param key ключ упорядочивания
+     * @param task задача; исключения задачи логируются и не прерывают следующие задачи ключа
+     */
+    void dispatch(String key, Runnable task);
+
+    /**
+     * Количество ключей, по которым есть незавершенные задачи
+     */
+    int activeKeys();
+
+}
@@ -0,0 +1,14 @@
+package io.github.auditlistener.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.Acknowledgment;
+
+public interface KeyedEventListener {
+
+    /**
+     * Передает событие метода или HTTP-запроса на обработку в порядке его ключа.
+     * Запись подтверждается после индексации (или отправки в error топик), не дожидаясь предыдущих записей
+     */
+    void handleEvent(ConsumerRecord<String, Object> record, Acknowledgment acknowledgment);
+
+}
@@ -0,0 +1,20 @@
+package io.github.auditlistener.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+public interface PayloadDecoder {
+
+    /**
+     * Декодирует значение записи топика method-topic или http-topic, если оно не в JSON или сжато. Формат задается
+     * заголовком kafka.format-header записи, без заголовка - параметром listeners.{method|http}.format,
+     * сжатие (gzip, zstd, lz4) - заголовком kafka.content-encoding-header
+     *
+     * @param record исходная запись
+     * @return исходная запись для несжатого JSON или копия записи, значение которой - токены события
+     * ({@link com.fasterxml.jackson.databind.util.TokenBuffer}) для разбора {@link EventDocumentParser}
+     * @throws io.github.auditlistener.exception.EventProcessingException PARSING_ERROR: неизвестный формат,
+     * схема или сжатие, значение не в байтах, ошибка распаковки или декодирования
+     */
+    ConsumerRecord<String, Object> decode(ConsumerRecord<String, Object> record);
+
+}
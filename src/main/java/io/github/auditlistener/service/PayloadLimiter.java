@@ -0,0 +1,40 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.model.enums.PayloadField;
+
+import java.io.IOException;
+
+public interface PayloadLimiter {
+
+    /**
+     * Ограничивает размер тела лимитом поля. Значение длиннее лимита обрезается и дополняется маркером
+     * "...[truncated {длина} chars]" (", stored as sha256:{hash}" - если полное значение сохранено
+     * в хранилище). Размер значения учитывается в метрике audit.payload.size
+     *
+     * @param field поле документа
+     * @param value значение поля (null не учитывается)
+     * @return исходное или обрезанное значение
+     */
+    String limit(PayloadField field, String value);
+
+    /**
+     * Лимит поля в символах, 0 - без ограничения
+     */
+    int maxChars(PayloadField field);
+
+    /**
+     * Учитывает размер значения, которое копируется в документ без разбора (raw passthrough)
+     *
+     * @param chars длина значения в символах, как у значений, проходящих через {@link #limit}
+     */
+    void recordSize(PayloadField field, int chars);
+
+    /**
+     * Восстанавливает полное значение обрезанного тела из хранилища по ссылке в маркере
+     *
+     * @return полное значение или исходное значение, если оно не обрезано или не сохранено
+     * @throws IOException Значение не найдено в хранилище
+     */
+    String restore(String value) throws IOException;
+
+}
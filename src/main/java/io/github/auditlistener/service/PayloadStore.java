@@ -0,0 +1,24 @@
+package io.github.auditlistener.service;
+
+import java.io.IOException;
+
+public interface PayloadStore {
+
+    /**
+     * Сохраняет значение, если значения с тем же содержимым еще нет в хранилище
+     *
+     * @param value полное значение тела
+     * @return ссылка на значение (sha256:{hash})
+     * @throws IOException Ошибка записи в хранилище
+     */
+    String store(String value) throws IOException;
+
+    /**
+     * Значение по ссылке, полученной из {@link #store(String)}
+     *
+     * @throws IllegalArgumentException Ссылка имеет неверный формат
+     * @throws IOException              Значение не найдено или не читается
+     */
+    String load(String reference) throws IOException;
+
+}
@@ -0,0 +1,26 @@
+package io.github.auditlistener.service;
+
+public interface RetryService {
+
+    /**
+     * Принимает запись на повторную индексацию, если ошибка временная. Повтор выполняется
+     * отдельным потоком, вызывающий поток не блокируется
+     *
+     * @param topic   топик исходной записи
+     * @param key     ключ исходной записи
+     * @param message исходное сообщение
+     * @param error   ошибка индексации
+     * @return false, если ошибка постоянная, повтор отключен или очередь и spill-журнал заполнены -
+     * запись следует отправить в error топик
+     */
+    boolean retry(String topic, String key, String message, Throwable error);
+
+    /**
+     * Принимает запись на повторную индексацию, если статус документа в ответе _bulk временный
+     *
+     * @param status HTTP статус документа в ответе _bulk
+     * @return false, если запись следует отправить в error топик
+     */
+    boolean retry(String topic, String key, String message, int status);
+
+}
@@ -0,0 +1,39 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+public interface SchemaValidator {
+
+    /**
+     * Проверка сообщения топика method-topic по правилам validation.method
+     */
+    Validation methodEvent();
+
+    /**
+     * Проверка сообщения топика http-topic по правилам validation.http
+     */
+    Validation httpEvent();
+
+    /**
+     * Проверка одного сообщения за проход парсера по его полям верхнего уровня
+     */
+    interface Validation {
+
+        /**
+         * Проверяет значение поля. Текущий токен парсера - первый токен значения, парсер не сдвигается.
+         * Повторное поле заменяет результат проверки предыдущего значения
+         */
+        void value(String field, JsonParser parser) throws IOException;
+
+        /**
+         * Завершает проверку после последнего поля сообщения
+         *
+         * @throws io.github.auditlistener.exception.EventProcessingException VALIDATION_ERROR с нарушениями по полям
+         */
+        void finish();
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.model.entity.Event;
+
+import java.util.List;
+
+public interface TraceService {
+
+    /**
+     * Все события методов и HTTP с указанным correlationId в порядке timestamp
+     *
+     * @param correlationId идентификатор трассы
+     * @return события трассы (пустой список, если трасса не найдена)
+     * @throws RuntimeException Ошибка запроса к источнику событий
+     */
+    List<Event> findTrace(String correlationId);
+
+    /**
+     * Удаляет трассу из кэша (при поступлении новых событий с этим correlationId)
+     */
+    void invalidate(String correlationId);
+
+}
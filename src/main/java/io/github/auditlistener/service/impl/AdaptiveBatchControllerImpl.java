@@ -0,0 +1,111 @@
+package io.github.auditlistener.service.impl;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.service.AdaptiveBatchController;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Адаптивные лимиты пакетной обработки (AIMD): мультипликативное уменьшение при отказах
+ * и задержках ElasticSearch, аддитивное увеличение без перегрузки до границ из audit.listener.batch
+ */
+@Service
+public class AdaptiveBatchControllerImpl implements AdaptiveBatchController {
+
+    private static final double REJECT_DECREASE = 0.5;
+    private static final double LATENCY_DECREASE = 0.8;
+    /**
+     * Доля верхней границы, на которую лимит увеличивается после успешного _bulk
+     */
+    private static final double INCREASE_STEP = 0.1;
+
+    private final Logger log = LogManager.getLogger(AdaptiveBatchControllerImpl.class);
+
+    private final ListenerConfig.Batch batch;
+    private final ListenerConfig.Adaptive config;
+    private final AuditMetrics metrics;
+
+    private volatile int bulkMaxBytes;
+    private volatile int bulkMaxDocuments;
+    private volatile int maxInFlight;
+
+    public AdaptiveBatchControllerImpl(ListenerConfig listenerConfig, AuditMetrics metrics) {
+        this.batch = listenerConfig.getBatch();
+        this.config = batch.getAdaptive();
+        this.metrics = metrics;
+        this.bulkMaxBytes = batch.getMaxBytes();
+        this.bulkMaxDocuments = batch.getSize();
+        this.maxInFlight = batch.getMaxInFlight();
+        metrics.registerAdaptiveLimits(this::bulkMaxBytes, this::bulkMaxDocuments, this::maxInFlight);
+    }
+
+    public int bulkMaxBytes() {
+        return bulkMaxBytes;
+    }
+
+    public int bulkMaxDocuments() {
+        return bulkMaxDocuments;
+    }
+
+    public int maxInFlight() {
+        return maxInFlight;
+    }
+
+    public synchronized void onBulkCompleted(int documents, long nanos, int rejected) {
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        if (rejected > 0) {
+            decrease(REJECT_DECREASE);
+            log.warn("{} of {} documents rejected by Elasticsearch, bulk limits decreased to {} documents, {} bytes, {} in flight",
+                    rejected, documents, bulkMaxDocuments, bulkMaxBytes, maxInFlight);
+        } else if (TimeUnit.NANOSECONDS.toMillis(nanos) > config.getTargetLatencyMs()) {
+            decrease(LATENCY_DECREASE);
+            log.debug("Bulk latency {} ms exceeds target, bulk limits decreased to {} documents, {} bytes, {} in flight",
+                    TimeUnit.NANOSECONDS.toMillis(nanos), bulkMaxDocuments, bulkMaxBytes, maxInFlight);
+        } else {
+            increase(metrics.maxConsumerLag() > config.getLagThreshold() ? 2 : 1);
+        }
+    }
+
+    public synchronized void onBulkRejected() {
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        decrease(REJECT_DECREASE);
+        log.warn("Bulk request rejected by Elasticsearch, bulk limits decreased to {} documents, {} bytes, {} in flight",
+                bulkMaxDocuments, bulkMaxBytes, maxInFlight);
+    }
+
+    public long rejectBackoffMs(int attempt) {
+        if (!config.isEnabled() || attempt >= config.getMaxRejectRetries()) {
+            return -1;
+        }
+        long backoff = config.getRejectBackoffMs() << Math.min(attempt, 20);
+        return Math.min(backoff, config.getMaxRejectBackoffMs());
+    }
+
+    private void decrease(double factor) {
+        bulkMaxBytes = Math.max(Math.min(config.getMinBytes(), batch.getMaxBytes()), (int) (bulkMaxBytes * factor));
+        bulkMaxDocuments = Math.max(Math.min(config.getMinSize(), batch.getSize()), (int) (bulkMaxDocuments * factor));
+        maxInFlight = Math.max(Math.min(config.getMinInFlight(), batch.getMaxInFlight()), (int) (maxInFlight * factor));
+    }
+
+    /**
+     * @param steps число шагов увеличения (несколько шагов - при большом отставании consumer'ов)
+     */
+    private void increase(int steps) {
+        bulkMaxBytes = Math.min(batch.getMaxBytes(),
+                bulkMaxBytes + (int) Math.max(1, batch.getMaxBytes() * INCREASE_STEP) * steps);
+        bulkMaxDocuments = Math.min(batch.getSize(),
+                bulkMaxDocuments + (int) Math.max(1, batch.getSize() * INCREASE_STEP) * steps);
+        maxInFlight = Math.min(batch.getMaxInFlight(), maxInFlight + 1);
+    }
+
+}
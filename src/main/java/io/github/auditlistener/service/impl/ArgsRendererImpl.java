@@ -0,0 +1,272 @@
+package io.github.auditlistener.service.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.model.enums.ArgsFormat;
+import io.github.auditlistener.model.enums.ArgsMapping;
+import io.github.auditlistener.service.ArgsRenderer;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Аргументы метода пишутся из потока токенов в буферы потока (StringBuilder, переиспользуются между
+ * вызовами), без построения Object[]/Map/List. Формат TO_STRING совпадает с прежним
+ * Arrays.toString(objectMapper.readValue(..., Object[].class)): строки без кавычек, объекты
+ * как {key=value}, дробные числа как Double.toString. Аргумент длиннее args.max-arg-chars
+ * обрезается, оставшиеся токены аргумента пропускаются без записи
+ */
+@Service
+public class ArgsRendererImpl implements ArgsRenderer {
+
+    private static final String TRUNCATED = "...";
+
+    private static final int INITIAL_CHARS = 1024;
+    /**
+     * Буфер, выросший больше этого размера, не сохраняется за потоком
+     */
+    private static final int MAX_RETAINED_CHARS = 64 * 1024;
+
+    private final boolean json;
+    private final boolean structured;
+    private final int maxArgChars;
+
+    private final JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    public ArgsRendererImpl(ListenerConfig config) {
+        this.json = config.getArgs().getFormat() == ArgsFormat.JSON;
+        this.structured = config.getArgs().getMapping() != ArgsMapping.NONE;
+        this.maxArgChars = config.getArgs().getMaxArgChars();
+    }
+
+    public Rendered render(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            throw new IllegalArgumentException("Cannot deserialize value of type `java.lang.Object[]` from " + token);
+        }
+
+        Buffers buffer = buffers.get();
+        StringBuilder text = buffer.text;
+        StringBuilder fields = structured ? buffer.fields : null;
+        try {
+            text.append('[');
+            if (fields != null) {
+                fields.append('{');
+            }
+
+            int index = 0;
+            while (next(parser) != JsonToken.END_ARRAY) {
+                if (index > 0) {
+                    separator(text, fields);
+                }
+                if (fields != null) {
+                    fields.append('"').append(index).append('"').append(':');
+                }
+                renderArgument(parser, text, fields);
+                index++;
+            }
+
+            text.append(']');
+            if (fields != null) {
+                fields.append('}');
+            }
+            return new Rendered(text.toString(), fields != null ? fields.toString() : null);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Один аргумент: обход токенов значения со счетчиком вложенности. Разделитель пишется перед
+     * элементом массива или именем поля, если перед ними уже записано значение
+     */
+    private void renderArgument(JsonParser parser, StringBuilder text, StringBuilder fields) throws IOException {
+        int textStart = text.length();
+        int fieldsStart = fields != null ? fields.length() : 0;
+        int depth = 0;
+        boolean separate = false;
+
+        while (true) {
+            JsonToken token = parser.currentToken();
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    if (separate) {
+                        separator(text, fields);
+                    }
+                    char open = token == JsonToken.START_OBJECT ? '{' : '[';
+                    text.append(open);
+                    if (fields != null) {
+                        fields.append(open);
+                    }
+                    depth++;
+                    separate = false;
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    char close = token == JsonToken.END_OBJECT ? '}' : ']';
+                    text.append(close);
+                    if (fields != null) {
+                        fields.append(close);
+                    }
+                    depth--;
+                    separate = true;
+                }
+                case FIELD_NAME -> {
+                    if (separate) {
+                        separator(text, fields);
+                    }
+                    String name = parser.currentName();
+                    if (json) {
+                        quote(text, name).append(':');
+                    } else {
+                        text.append(name).append('=');
+                    }
+                    if (fields != null) {
+                        quote(fields, name).append(':');
+                    }
+                    separate = false;
+                }
+                default -> {
+                    if (separate) {
+                        separator(text, fields);
+                    }
+                    scalar(parser, token, text, json);
+                    if (fields != null) {
+                        scalar(parser, token, fields, true);
+                    }
+                    separate = true;
+                }
+            }
+
+            if (maxArgChars > 0 && text.length() - textStart > maxArgChars) {
+                skip(parser, depth);
+                truncate(text, textStart, json);
+                if (fields != null) {
+                    truncate(fields, fieldsStart, true);
+                }
+                return;
+            }
+            if (depth == 0) {
+                return;
+            }
+            next(parser);
+        }
+    }
+
+    private void scalar(JsonParser parser, JsonToken token, StringBuilder out, boolean quoted) throws IOException {
+        switch (token) {
+            case VALUE_STRING -> {
+                if (quoted) {
+                    quote(out, parser.getText());
+                } else {
+                    out.append(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                }
+            }
+            case VALUE_NUMBER_INT -> {
+                if (quoted) {
+                    out.append(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                } else {
+                    switch (parser.getNumberType()) {
+                        case INT -> out.append(parser.getIntValue());
+                        case LONG -> out.append(parser.getLongValue());
+                        default -> out.append(parser.getBigIntegerValue());
+                    }
+                }
+            }
+            case VALUE_NUMBER_FLOAT -> {
+                if (quoted) {
+                    out.append(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                } else {
+                    out.append(parser.getDoubleValue());
+                }
+            }
+            default -> out.append(parser.getText());
+        }
+    }
+
+    /**
+     * Обрезает аргумент до max-arg-chars символов. В JSON обрезанный аргумент записывается строкой,
+     * чтобы результат оставался корректным JSON
+     */
+    private void truncate(StringBuilder out, int start, boolean quoted) {
+        int end = Math.min(out.length(), start + maxArgChars);
+        if (Character.isHighSurrogate(out.charAt(end - 1))) {
+            end--;
+        }
+        if (!quoted) {
+            out.setLength(end);
+            out.append(TRUNCATED);
+            return;
+        }
+        String prefix = out.substring(start, end);
+        out.setLength(start);
+        quote(out, prefix + TRUNCATED);
+    }
+
+    private void separator(StringBuilder text, StringBuilder fields) {
+        if (json) {
+            text.append(',');
+        } else {
+            text.append(',').append(' ');
+        }
+        if (fields != null) {
+            fields.append(',');
+        }
+    }
+
+    private StringBuilder quote(StringBuilder out, String value) {
+        out.append('"');
+        encoder.quoteAsString(value, out);
+        return out.append('"');
+    }
+
+    /**
+     * Пропускает оставшиеся токены аргумента на глубине depth
+     */
+    private static void skip(JsonParser parser, int depth) throws IOException {
+        while (depth > 0) {
+            JsonToken token = next(parser);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+        }
+    }
+
+    private static JsonToken next(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new JsonEOFException(parser, null, "Unexpected end of arguments");
+        }
+        return token;
+    }
+
+    private static final class Buffers {
+
+        private StringBuilder text = new StringBuilder(INITIAL_CHARS);
+        private StringBuilder fields = new StringBuilder(INITIAL_CHARS);
+
+        private void release() {
+            text = reuse(text);
+            fields = reuse(fields);
+        }
+
+        private static StringBuilder reuse(StringBuilder buffer) {
+            if (buffer.capacity() > MAX_RETAINED_CHARS) {
+                return new StringBuilder(INITIAL_CHARS);
+            }
+            buffer.setLength(0);
+            return buffer;
+        }
+
+    }
+
+}
@@ -0,0 +1,330 @@
+package io.github.auditlistener.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Декодер Avro binary по схеме записи. Схема компилируется один раз в дерево узлов, узел читает значение
+ * своего типа и пишет его токенами так, как значение выглядело бы в JSON сообщении: union - значением
+ * выбранной ветки без обертки, enum - строкой символа, bytes и fixed - строкой UTF-8, map - объектом.
+ * Логические типы декодируются по базовому типу (timestamp-millis - число epoch millis)
+ */
+final class AvroDecoder {
+
+    private final Node root;
+
+    private AvroDecoder(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @param schema схема в JSON (содержимое .avsc)
+     * @throws IllegalArgumentException неизвестный тип или некорректная схема
+     */
+    static AvroDecoder compile(JsonNode schema) {
+        return new AvroDecoder(new Compiler().compile(schema, ""));
+    }
+
+    /**
+     * Декодирует значение, занимающее данные от offset до конца массива
+     *
+     * @throws IOException данные обрываются или содержат лишние байты, индекс union/enum вне схемы
+     */
+    void decode(byte[] data, int offset, JsonGenerator out) throws IOException {
+        Reader in = new Reader(data, offset);
+        root.decode(in, out);
+        if (in.position != data.length) {
+            throw new IOException((data.length - in.position) + " unexpected bytes after Avro datum");
+        }
+    }
+
+    private interface Node {
+
+        void decode(Reader in, JsonGenerator out) throws IOException;
+
+    }
+
+    private static final Node NULL = (in, out) -> out.writeNull();
+    private static final Node BOOLEAN = (in, out) -> out.writeBoolean(in.next() != 0);
+    private static final Node INT = (in, out) -> out.writeNumber((int) in.readLong());
+    private static final Node LONG = (in, out) -> out.writeNumber(in.readLong());
+    private static final Node FLOAT = (in, out) -> out.writeNumber(Float.intBitsToFloat((int) in.readLittleEndian(Integer.BYTES)));
+    private static final Node DOUBLE = (in, out) -> out.writeNumber(Double.longBitsToDouble(in.readLittleEndian(Long.BYTES)));
+    private static final Node STRING = (in, out) -> out.writeString(in.readString(in.readLength()));
+
+    private static final class Record implements Node {
+
+        private String[] names;
+        private Node[] types;
+
+        @Override
+        public void decode(Reader in, JsonGenerator out) throws IOException {
+            out.writeStartObject();
+            for (int i = 0; i < names.length; i++) {
+                out.writeFieldName(names[i]);
+                types[i].decode(in, out);
+            }
+            out.writeEndObject();
+        }
+
+    }
+
+    private record Union(Node[] branches) implements Node {
+
+        @Override
+        public void decode(Reader in, JsonGenerator out) throws IOException {
+            branches[in.readIndex(branches.length, "union")].decode(in, out);
+        }
+
+    }
+
+    private record Enum(String[] symbols) implements Node {
+
+        @Override
+        public void decode(Reader in, JsonGenerator out) throws IOException {
+            out.writeString(symbols[in.readIndex(symbols.length, "enum")]);
+        }
+
+    }
+
+    private record Fixed(int size) implements Node {
+
+        @Override
+        public void decode(Reader in, JsonGenerator out) throws IOException {
+            out.writeString(in.readString(size));
+        }
+
+    }
+
+    /**
+     * Массив и map кодируются блоками: число элементов (отрицательное - за ним размер блока в байтах),
+     * блок с нулем элементов завершает значение
+     */
+    private record Collection(Node items, boolean map) implements Node {
+
+        @Override
+        public void decode(Reader in, JsonGenerator out) throws IOException {
+            if (map) {
+                out.writeStartObject();
+            } else {
+                out.writeStartArray();
+            }
+            for (long count = in.readBlockCount(); count != 0; count = in.readBlockCount()) {
+                for (long i = 0; i < count; i++) {
+                    if (map) {
+                        out.writeFieldName(in.readString(in.readLength()));
+                    }
+                    items.decode(in, out);
+                }
+            }
+            if (map) {
+                out.writeEndObject();
+            } else {
+                out.writeEndArray();
+            }
+        }
+
+    }
+
+    /**
+     * Компиляция схемы. Именованные типы (record, enum, fixed) регистрируются по полному имени до разбора
+     * полей, поэтому поля могут ссылаться на тип по имени, в том числе рекурсивно
+     */
+    private static final class Compiler {
+
+        private final Map<String, Node> named = new HashMap<>();
+
+        private Node compile(JsonNode schema, String namespace) {
+            if (schema.isTextual()) {
+                return primitive(schema.asText(), namespace);
+            }
+            if (schema.isArray()) {
+                Node[] branches = new Node[schema.size()];
+                for (int i = 0; i < branches.length; i++) {
+                    branches[i] = compile(schema.get(i), namespace);
+                }
+                return new Union(branches);
+            }
+            if (!schema.isObject() || !schema.hasNonNull("type")) {
+                throw new IllegalArgumentException("Invalid Avro schema: " + schema);
+            }
+
+            JsonNode type = schema.get("type");
+            if (!type.isTextual()) {
+                return compile(type, namespace);
+            }
+            return switch (type.asText()) {
+                case "record", "error" -> record(schema, namespace);
+                case "enum" -> named(schema, namespace, new Enum(symbols(schema)));
+                case "fixed" -> named(schema, namespace, new Fixed(schema.path("size").asInt()));
+                case "array" -> new Collection(compile(required(schema, "items"), namespace), false);
+                case "map" -> new Collection(compile(required(schema, "values"), namespace), true);
+                default -> primitive(type.asText(), namespace);
+            };
+        }
+
+        private Node record(JsonNode schema, String namespace) {
+            Record record = new Record();
+            String fullName = register(schema, namespace, record);
+            String recordNamespace = fullName.contains(".") ? fullName.substring(0, fullName.lastIndexOf('.')) : "";
+
+            JsonNode fields = required(schema, "fields");
+            record.names = new String[fields.size()];
+            record.types = new Node[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                JsonNode field = fields.get(i);
+                record.names[i] = required(field, "name").asText();
+                record.types[i] = compile(required(field, "type"), recordNamespace);
+            }
+            return record;
+        }
+
+        private Node named(JsonNode schema, String namespace, Node node) {
+            register(schema, namespace, node);
+            return node;
+        }
+
+        /**
+         * @return полное имя типа
+         */
+        private String register(JsonNode schema, String namespace, Node node) {
+            String fullName = fullName(required(schema, "name").asText(), schema.path("namespace").asText(namespace));
+            named.put(fullName, node);
+            return fullName;
+        }
+
+        private Node primitive(String type, String namespace) {
+            return switch (type) {
+                case "null" -> NULL;
+                case "boolean" -> BOOLEAN;
+                case "int" -> INT;
+                case "long" -> LONG;
+                case "float" -> FLOAT;
+                case "double" -> DOUBLE;
+                case "string", "bytes" -> STRING;
+                default -> {
+                    Node node = named.getOrDefault(fullName(type, namespace), named.get(type));
+                    if (node == null) {
+                        throw new IllegalArgumentException("Unknown Avro type: " + type);
+                    }
+                    yield node;
+                }
+            };
+        }
+
+        private static String[] symbols(JsonNode schema) {
+            JsonNode symbols = required(schema, "symbols");
+            String[] result = new String[symbols.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = symbols.get(i).asText();
+            }
+            return result;
+        }
+
+        private static String fullName(String name, String namespace) {
+            return name.contains(".") || namespace.isEmpty() ? name : namespace + "." + name;
+        }
+
+        private static JsonNode required(JsonNode schema, String property) {
+            JsonNode value = schema.get(property);
+            if (value == null || value.isNull()) {
+                throw new IllegalArgumentException("Avro schema has no '" + property + "': " + schema);
+            }
+            return value;
+        }
+
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        private byte next() throws EOFException {
+            if (position >= data.length) {
+                throw new EOFException("Truncated Avro datum");
+            }
+            return data[position++];
+        }
+
+        /**
+         * int и long: zigzag varint
+         */
+        private long readLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                byte b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return (value >>> 1) ^ -(value & 1);
+                }
+            }
+            throw new IOException("Invalid Avro varint");
+        }
+
+        private long readLittleEndian(int bytes) throws IOException {
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value |= (long) (next() & 0xFF) << (8 * i);
+            }
+            return value;
+        }
+
+        private int readLength() throws IOException {
+            long length = readLong();
+            if (length < 0) {
+                throw new IOException("Invalid Avro length " + length);
+            }
+            if (length > data.length - position) {
+                throw new EOFException("Truncated Avro datum");
+            }
+            return (int) length;
+        }
+
+        private int readIndex(int size, String type) throws IOException {
+            long index = readLong();
+            if (index < 0 || index >= size) {
+                throw new IOException("Avro " + type + " index " + index + " out of range");
+            }
+            return (int) index;
+        }
+
+        /**
+         * Число элементов блока не больше оставшихся байтов (элемент, кроме null, занимает не меньше байта),
+         * поэтому искаженный счетчик не приводит к долгому циклу
+         */
+        private long readBlockCount() throws IOException {
+            long count = readLong();
+            if (count < 0) {
+                count = -count;
+                readLong();
+            }
+            if (count > data.length - position) {
+                throw new EOFException("Invalid Avro block count " + count);
+            }
+            return count;
+        }
+
+        private String readString(int length) throws EOFException {
+            if (length > data.length - position) {
+                throw new EOFException("Truncated Avro datum");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+    }
+
+}
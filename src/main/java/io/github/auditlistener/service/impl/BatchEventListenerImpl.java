@@ -0,0 +1,438 @@
+package io.github.auditlistener.service.impl;
+
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.ErrorNotAcceptedException;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.BulkDocument;
+import io.github.auditlistener.model.elastic.BulkItemFailure;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.elastic.RawHttpDocument;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.model.enums.ProcessingMode;
+import io.github.auditlistener.model.persistence.RowFailure;
+import io.github.auditlistener.service.AdaptiveBatchController;
+import io.github.auditlistener.service.BatchEventListener;
+import io.github.auditlistener.service.EventDocumentParser;
+import io.github.auditlistener.service.EventPersistenceService;
+import io.github.auditlistener.service.IndexingPipeline;
+import io.github.auditlistener.service.PayloadDecoder;
+import io.github.auditlistener.service.RetryService;
+import io.github.auditlistener.utils.ElasticsearchErrors;
+import io.github.auditlistener.utils.EventMapper;
+import io.github.auditlistener.utils.Payloads;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Сервис пакетной "вычитки" сообщений из Kafka с индексацией через _bulk
+ */
+@Service
+public class BatchEventListenerImpl implements BatchEventListener {
+
+    public static final String LISTENER_ID = "auditBatchListener";
+
+    private static final String METHOD_INDEX = "audit-methods";
+    private static final String HTTP_INDEX = "audit-requests";
+    private static final Duration NACK_SLEEP = Duration.ofSeconds(1);
+
+    private final Logger log = LogManager.getLogger(BatchEventListenerImpl.class);
+
+    private final ListenerConfig config;
+    private final EventDocumentParser eventParser;
+    private final PayloadDecoder payloadDecoder;
+    private final KafkaServiceImpl kafkaService;
+    private final ElasticSearchServiceImpl elasticsearchService;
+    private final IndexingPipeline indexingPipeline;
+    private final EventPersistenceService eventPersistence;
+    private final AdaptiveBatchController batchController;
+    private final RetryService retryService;
+    private final AuditMetrics metrics;
+
+    public BatchEventListenerImpl(ListenerConfig config, EventDocumentParser eventParser, PayloadDecoder payloadDecoder,
+                                  KafkaServiceImpl kafkaService, ElasticSearchServiceImpl elasticsearchService,
+                                  IndexingPipeline indexingPipeline, Optional<EventPersistenceService> eventPersistence,
+                                  AdaptiveBatchController batchController, RetryService retryService,
+                                  AuditMetrics metrics) {
+        this.config = config;
+        this.eventParser = eventParser;
+        this.payloadDecoder = payloadDecoder;
+        this.kafkaService = kafkaService;
+        this.elasticsearchService = elasticsearchService;
+        this.indexingPipeline = indexingPipeline;
+        this.eventPersistence = eventPersistence.orElse(null);
+        this.batchController = batchController;
+        this.retryService = retryService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Обработка пачки событий методов и HTTP. Пачка подтверждается только после
+     * обработки ответа _bulk, записи в PostgreSQL (при persistence.enabled) и передачи
+     * ошибочных записей в буфер error топика (в режиме PIPELINED - асинхронно, по порядку пачек).
+     * Если ошибку не удалось передать в буфер (ErrorNotAcceptedException), пачка не подтверждается
+     * и будет прочитана повторно: в режиме BATCH через nack, в режиме PIPELINED - перезапуском контейнера
+     */
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = {"${audit.listener.kafka.method-topic:audit.methods}",
+            "${audit.listener.kafka.http-topic:audit.requests}"},
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void handleEventBatch(List<ConsumerRecord<String, Object>> records,
+                                 Acknowledgment acknowledgment) {
+
+        log.debug("Received batch of {} audit messages", records.size());
+        metrics.recordBatch(records.size());
+
+        List<BulkChunk> chunks;
+        try {
+            chunks = toChunks(records);
+        } catch (ErrorNotAcceptedException e) {
+            notAccepted(e, acknowledgment);
+            return;
+        }
+
+        if (config.getProcessingMode() == ProcessingMode.PIPELINED) {
+            CompletableFuture<?>[] indexing = chunks.stream()
+                    .flatMap(chunk -> eventPersistence != null
+                            ? Stream.of(indexChunkAsync(chunk, 0), persistChunkAsync(chunk))
+                            : Stream.of(indexChunkAsync(chunk, 0)))
+                    .toArray(CompletableFuture[]::new);
+            indexingPipeline.submit(LISTENER_ID, CompletableFuture.allOf(indexing), acknowledgment);
+            return;
+        }
+
+        try {
+            for (BulkChunk chunk : chunks) {
+                indexChunk(chunk);
+                if (eventPersistence != null) {
+                    persistChunk(chunk);
+                }
+            }
+        } catch (ErrorNotAcceptedException e) {
+            notAccepted(e, acknowledgment);
+            return;
+        }
+        acknowledgment.acknowledge();
+    }
+
+    /**
+     * Ошибка записи пачки не принята в буфер error топика. В режиме PIPELINED предыдущие пачки могут быть
+     * еще не подтверждены, поэтому пачка передается конвейеру как завершившаяся с ошибкой (без подтверждения
+     * последующих пачек), в режиме BATCH вся пачка читается повторно через NACK_SLEEP
+     */
+    private void notAccepted(ErrorNotAcceptedException e, Acknowledgment acknowledgment) {
+        log.warn("Error message for a batch record not accepted, the batch will be read again: {}", e.getMessage());
+        if (config.getProcessingMode() == ProcessingMode.PIPELINED) {
+            indexingPipeline.submit(LISTENER_ID, CompletableFuture.failedFuture(e), acknowledgment);
+        } else {
+            acknowledgment.nack(0, NACK_SLEEP);
+        }
+    }
+
+    /**
+     * Разбирает записи и делит операции _bulk на части по текущим лимитам AdaptiveBatchController
+     */
+    private List<BulkChunk> toChunks(List<ConsumerRecord<String, Object>> records) {
+        List<BulkChunk> chunks = new ArrayList<>();
+        BulkChunk chunk = new BulkChunk(records.size());
+        int maxBytes = batchController.bulkMaxBytes();
+        int maxDocuments = batchController.bulkMaxDocuments();
+
+        for (ConsumerRecord<String, Object> record : records) {
+            BulkDocument document = toBulkDocument(record);
+            if (document == null) {
+                continue;
+            }
+
+            int recordBytes = Payloads.size(record.value());
+            if (!chunk.documents.isEmpty() && (chunk.bytes + recordBytes > maxBytes || chunk.documents.size() >= maxDocuments)) {
+                chunks.add(chunk);
+                chunk = new BulkChunk(records.size());
+            }
+
+            chunk.documents.add(document);
+            chunk.sources.add(record);
+            if (eventPersistence != null) {
+                Event event = toEvent(record, document);
+                if (event != null) {
+                    chunk.events.add(event);
+                    chunk.eventSources.add(record);
+                }
+            }
+            chunk.bytes += recordBytes;
+        }
+
+        if (!chunk.documents.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Разбирает запись в операцию _bulk, ошибочные записи отправляются в error топик.
+     * Значение бинарного формата декодируется PayloadDecoder и разбирается по токенам
+     *
+     * @return операция индексации или null, если запись не прошла декодирование/разбор/валидацию
+     */
+    private BulkDocument toBulkDocument(ConsumerRecord<String, Object> record) {
+        metrics.recordConsumed(record.topic());
+        long parseStart = System.nanoTime();
+        ConsumerRecord<String, Object> event = record;
+        try {
+            event = payloadDecoder.decode(record);
+            if (config.getKafka().getMethodTopic().equals(event.topic())) {
+                MethodDocument document = event.value() instanceof TokenBuffer events
+                        ? eventParser.parseMethodEvent(events)
+                        : event.value() instanceof byte[] bytes
+                        ? eventParser.parseMethodEvent(bytes)
+                        : eventParser.parseMethodEvent((String) event.value());
+                return BulkDocument.builder().index(METHOD_INDEX).id(document.getId()).document(document).build();
+            }
+
+            if (config.getBatch().isRawHttpPassthrough() && eventPersistence == null && !(event.value() instanceof TokenBuffer)) {
+                BulkDocument rawDocument = toRawHttpDocument(event);
+                if (rawDocument != null) {
+                    return rawDocument;
+                }
+            }
+
+            HttpDocument document = event.value() instanceof TokenBuffer events
+                    ? eventParser.parseHttpEvent(events, event.key())
+                    : event.value() instanceof byte[] bytes
+                    ? eventParser.parseHttpEvent(bytes, event.key())
+                    : eventParser.parseHttpEvent((String) event.value(), event.key());
+            return BulkDocument.builder().index(HTTP_INDEX).id(document.getId()).document(document).build();
+
+        } catch (EventProcessingException e) {
+            kafkaService.sendErrorMessage(e, event);
+        } catch (Exception e) {
+            log.error("Unexpected error processing audit message {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+            kafkaService.sendErrorMessage(ErrorType.PROCESSING_ERROR.name(), e.getMessage(), event);
+        } finally {
+            metrics.recordParse(record.topic(), System.nanoTime() - parseStart);
+        }
+        return null;
+    }
+
+    /**
+     * HTTP событие, передаваемое в _bulk исходными байтами (batch.raw-http-passthrough)
+     *
+     * @return операция индексации или null, если событие нужно разобрать в HttpDocument
+     */
+    private BulkDocument toRawHttpDocument(ConsumerRecord<String, Object> record) {
+        byte[] message = record.value() instanceof byte[] bytes
+                ? bytes
+                : ((String) record.value()).getBytes(StandardCharsets.UTF_8);
+
+        RawHttpDocument document = eventParser.rewriteHttpEvent(message, record.key());
+        return document == null
+                ? null
+                : BulkDocument.builder().index(HTTP_INDEX).id(document.getId()).source(document.getSource()).build();
+    }
+
+    /**
+     * Строка таблицы events. При включенной записи в PostgreSQL raw-http-passthrough не применяется,
+     * поэтому документ всегда построен парсером. Запись, для которой строку построить не удалось,
+     * отправляется в error топик и не записывается, документ индексируется
+     *
+     * @return строка или null
+     */
+    private Event toEvent(ConsumerRecord<String, Object> record, BulkDocument document) {
+        try {
+            return document.getDocument() instanceof MethodDocument methodDocument
+                    ? EventMapper.fromMethodDocument(methodDocument)
+                    : EventMapper.fromHttpDocument((HttpDocument) document.getDocument());
+        } catch (Exception e) {
+            log.error("Failed to map audit message {}-{}@{} to event", record.topic(), record.partition(), record.offset(), e);
+            kafkaService.sendErrorMessage(ErrorType.PERSISTENCE_ERROR.name(), e.getMessage(), record);
+            return null;
+        }
+    }
+
+    private void persistChunk(BulkChunk chunk) {
+        List<RowFailure> failures;
+        try {
+            failures = eventPersistence.persist(chunk.events);
+        } catch (Exception e) {
+            reportPersistenceFailure(chunk, e);
+            return;
+        }
+        reportRowFailures(chunk, failures);
+    }
+
+    private CompletableFuture<Void> persistChunkAsync(BulkChunk chunk) {
+        return eventPersistence.persistAsync(chunk.events)
+                .handle((failures, e) -> {
+                    if (e != null) {
+                        reportPersistenceFailure(chunk,
+                                e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    } else {
+                        reportRowFailures(chunk, failures);
+                    }
+                    return null;
+                });
+    }
+
+    private void reportPersistenceFailure(BulkChunk chunk, Throwable e) {
+        for (ConsumerRecord<String, Object> source : chunk.eventSources) {
+            kafkaService.sendErrorMessage(ErrorType.PERSISTENCE_ERROR.name(), e.getMessage(), source);
+        }
+    }
+
+    /**
+     * Строки, которые отклонила база данных: в error топик передаются только их записи
+     */
+    private void reportRowFailures(BulkChunk chunk, List<RowFailure> failures) {
+        for (RowFailure failure : failures) {
+            kafkaService.sendErrorMessage(ErrorType.PERSISTENCE_ERROR.name(), failure.getReason(),
+                    chunk.eventSources.get(failure.getPosition()));
+        }
+    }
+
+    /**
+     * Индексирует часть пачки; документы, отклоненные ElasticSearch (429), повторяются
+     * с задержкой AdaptiveBatchController в потоке consumer'а
+     */
+    private void indexChunk(BulkChunk chunk) {
+        BulkChunk pending = chunk;
+        for (int attempt = 0; pending != null; attempt++) {
+            List<BulkItemFailure> failures = null;
+            Exception error = null;
+            try {
+                failures = elasticsearchService.indexBulk(pending.documents);
+            } catch (Exception e) {
+                error = e;
+            }
+
+            BulkChunk rejected = handleBulkResult(pending, failures, error, attempt);
+            if (rejected != null && !sleep(batchController.rejectBackoffMs(attempt))) {
+                reportChunkFailure(rejected, new InterruptedException("Retry of rejected documents interrupted"));
+                return;
+            }
+            pending = rejected;
+        }
+    }
+
+    private CompletableFuture<Void> indexChunkAsync(BulkChunk chunk, int attempt) {
+        CompletableFuture<List<BulkItemFailure>> indexing;
+        try {
+            indexing = elasticsearchService.indexBulkAsync(chunk.documents);
+        } catch (Exception e) {
+            indexing = CompletableFuture.failedFuture(e);
+        }
+
+        return indexing
+                .handle((failures, e) -> handleBulkResult(chunk, failures,
+                        e instanceof CompletionException && e.getCause() != null ? e.getCause() : e, attempt))
+                .thenCompose(rejected -> rejected == null
+                        ? CompletableFuture.completedFuture(null)
+                        : CompletableFuture.runAsync(() -> { },
+                                        CompletableFuture.delayedExecutor(batchController.rejectBackoffMs(attempt), TimeUnit.MILLISECONDS))
+                                .thenCompose(ignored -> indexChunkAsync(rejected, attempt + 1)));
+    }
+
+    /**
+     * Отправляет ошибки индексации в error топик, кроме отклонений (429), которые еще можно повторить
+     *
+     * @return часть с документами для повтора или null
+     */
+    private BulkChunk handleBulkResult(BulkChunk chunk, List<BulkItemFailure> failures, Throwable error, int attempt) {
+        boolean retry = batchController.rejectBackoffMs(attempt) >= 0;
+
+        if (error != null) {
+            if (retry && ElasticsearchErrors.isRejected(error)) {
+                log.warn("Bulk request of {} documents rejected, retry {}", chunk.documents.size(), attempt + 1);
+                return chunk;
+            }
+            reportChunkFailure(chunk, error);
+            return null;
+        }
+
+        BulkChunk rejected = new BulkChunk(0);
+        for (BulkItemFailure failure : failures) {
+            ConsumerRecord<String, Object> source = chunk.sources.get(failure.getPosition());
+            if (retry && failure.getStatus() == ElasticsearchErrors.TOO_MANY_REQUESTS) {
+                rejected.documents.add(chunk.documents.get(failure.getPosition()));
+                rejected.sources.add(source);
+                continue;
+            }
+            if (!retryService.retry(source.topic(), source.key(), message(source), failure.getStatus())) {
+                kafkaService.sendErrorMessage(ErrorType.INDEXING_ERROR.name(), failure.getReason(), source);
+            }
+        }
+
+        log.debug("Indexed batch of {} documents, failed: {}, rejected: {}",
+                chunk.documents.size(), failures.size() - rejected.documents.size(), rejected.documents.size());
+        return rejected.documents.isEmpty() ? null : rejected;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Записи части с временной ошибкой передаются на повтор, остальные - в error топик
+     */
+    private void reportChunkFailure(BulkChunk chunk, Throwable e) {
+        for (ConsumerRecord<String, Object> source : chunk.sources) {
+            if (!retryService.retry(source.topic(), source.key(), message(source), e)) {
+                kafkaService.sendErrorMessage(ErrorType.INDEXING_ERROR.name(), e.getMessage(), source);
+            }
+        }
+    }
+
+    /**
+     * Сообщение записи для повтора: значение бинарного формата или сжатое значение повторно декодируется
+     * и передается в JSON, так как части хранят исходные записи. В error топик передается исходная запись,
+     * такое значение сохраняется в исходных байтах
+     */
+    private String message(ConsumerRecord<String, Object> source) {
+        return Payloads.asString(payloadDecoder.decode(source).value());
+    }
+
+    /**
+     * Часть пачки, индексируемая одним _bulk запросом, с исходными записями для сопоставления ошибок
+     */
+    private static final class BulkChunk {
+
+        private final List<BulkDocument> documents;
+        private final List<ConsumerRecord<String, Object>> sources;
+        private final List<Event> events;
+        /**
+         * Исходные записи строк events (по позициям строк)
+         */
+        private final List<ConsumerRecord<String, Object>> eventSources;
+        private int bytes;
+
+        private BulkChunk(int capacity) {
+            this.documents = new ArrayList<>(capacity);
+            this.sources = new ArrayList<>(capacity);
+            this.events = new ArrayList<>();
+            this.eventSources = new ArrayList<>();
+        }
+
+    }
+
+}
@@ -0,0 +1,208 @@
+package io.github.auditlistener.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.CatchUpLease;
+import io.github.auditlistener.service.BulkCatchUpService;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Догоняющая загрузка: при большом отставании consumer'ов у индексов отключаются refresh
+ * (refresh_interval = -1) и реплики, после снижения отставания настройки восстанавливаются.
+ * Настройки индексов общие для всех экземпляров приложения, поэтому экземпляр в режиме догоняющей загрузки
+ * держит аренду (документ CatchUpLease в lease-index): настройки восстанавливает последний экземпляр,
+ * освободивший аренду, а аренды остановленных экземпляров истекают через lease-ttl-ms
+ */
+@Service
+@ConditionalOnProperty(prefix = "audit.listener.indices.catch-up", name = "enabled", havingValue = "true")
+public class BulkCatchUpServiceImpl implements BulkCatchUpService {
+
+    private static final String DISABLED_REFRESH = "-1";
+    private static final int MAX_LEASES = 1000;
+
+    private final Logger log = LogManager.getLogger(BulkCatchUpServiceImpl.class);
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ListenerConfig.Indices config;
+    private final AuditMetrics metrics;
+
+    private final String instance = UUID.randomUUID().toString();
+    private final AtomicBoolean active = new AtomicBoolean();
+
+    public BulkCatchUpServiceImpl(ElasticsearchClient elasticsearchClient, ListenerConfig listenerConfig,
+                                  AuditMetrics metrics) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.config = listenerConfig.getIndices();
+        this.metrics = metrics;
+        metrics.registerCatchUp(active);
+    }
+
+    @Scheduled(fixedDelayString = "${audit.listener.indices.catch-up.check-interval-ms:10000}")
+    public void checkLag() {
+        double lag = metrics.maxConsumerLag();
+
+        if (!active.get() && lag > config.getCatchUp().getLagThreshold()) {
+            // аренда берется до изменения настроек: экземпляр, восстанавливающий их одновременно, ее увидит
+            if (renewLease() && updateSettings(DISABLED_REFRESH, 0)) {
+                active.set(true);
+                log.info("Consumer lag {} exceeds {}, index refresh and replicas disabled",
+                        (long) lag, config.getCatchUp().getLagThreshold());
+            }
+        } else if (active.get() && lag < config.getCatchUp().getResumeLagThreshold()) {
+            restore();
+        } else if (active.get()) {
+            renewLease();
+        } else {
+            restoreAbandoned();
+        }
+    }
+
+    public boolean isActive() {
+        return active.get();
+    }
+
+    /**
+     * Освобождает аренду и восстанавливает настройки индексов, если других действующих аренд нет.
+     * Выполняется и при остановке приложения в режиме догоняющей загрузки
+     */
+    @PreDestroy
+    public void restore() {
+        if (!active.get() || !releaseLease()) {
+            return;
+        }
+
+        List<CatchUpLease> leases = leases();
+        if (leases == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long others = leases.stream().filter(lease -> lease.getExpiresAt() > now).count();
+        if (others > 0) {
+            active.set(false);
+            log.info("Consumer lag is below {}, index settings are kept for {} other instances catching up",
+                    config.getCatchUp().getResumeLagThreshold(), others);
+            return;
+        }
+
+        if (updateSettings(config.getCatchUp().getRefreshInterval(), config.getReplicas())) {
+            active.set(false);
+            log.info("Index refresh interval {} and {} replicas restored",
+                    config.getCatchUp().getRefreshInterval(), config.getReplicas());
+            leases.forEach(lease -> deleteLease(lease.getInstance()));
+        }
+    }
+
+    /**
+     * Восстанавливает настройки, если остались только истекшие аренды: экземпляр, отключивший refresh,
+     * остановился без восстановления
+     */
+    private void restoreAbandoned() {
+        List<CatchUpLease> leases = leases();
+        if (leases == null || leases.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (leases.stream().allMatch(lease -> lease.getExpiresAt() <= now)
+                && updateSettings(config.getCatchUp().getRefreshInterval(), config.getReplicas())) {
+            log.info("Catch-up leases of {} expired, index refresh interval {} and {} replicas restored",
+                    leases.stream().map(CatchUpLease::getInstance).toList(),
+                    config.getCatchUp().getRefreshInterval(), config.getReplicas());
+            leases.forEach(lease -> deleteLease(lease.getInstance()));
+        }
+    }
+
+    private boolean renewLease() {
+        CatchUpLease lease = new CatchUpLease(instance, System.currentTimeMillis() + config.getCatchUp().getLeaseTtlMs());
+        try {
+            elasticsearchClient.index(r -> r
+                    .index(config.getCatchUp().getLeaseIndex())
+                    .id(instance)
+                    .document(lease)
+                    .refresh(Refresh.True));
+            return true;
+
+        } catch (Exception e) {
+            log.error("Failed to renew catch-up lease of instance {}", instance, e);
+            return false;
+        }
+    }
+
+    private boolean releaseLease() {
+        return deleteLease(instance);
+    }
+
+    private boolean deleteLease(String leaseInstance) {
+        try {
+            elasticsearchClient.delete(r -> r
+                    .index(config.getCatchUp().getLeaseIndex())
+                    .id(leaseInstance)
+                    .refresh(Refresh.True));
+            return true;
+
+        } catch (ElasticsearchException e) {
+            if (e.status() == 404) {
+                return true;
+            }
+            log.error("Failed to release catch-up lease of instance {}", leaseInstance, e);
+            return false;
+        } catch (Exception e) {
+            log.error("Failed to release catch-up lease of instance {}", leaseInstance, e);
+            return false;
+        }
+    }
+
+    /**
+     * @return аренды всех экземпляров или null, если их не удалось прочитать
+     */
+    private List<CatchUpLease> leases() {
+        try {
+            return elasticsearchClient.search(r -> r
+                                    .index(config.getCatchUp().getLeaseIndex())
+                                    .ignoreUnavailable(true)
+                                    .size(MAX_LEASES),
+                            CatchUpLease.class)
+                    .hits().hits().stream()
+                    .map(Hit::source)
+                    .filter(Objects::nonNull)
+                    .toList();
+
+        } catch (Exception e) {
+            log.warn("Failed to read catch-up leases from {}: {}", config.getCatchUp().getLeaseIndex(), e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean updateSettings(String refreshInterval, int replicas) {
+        try {
+            elasticsearchClient.indices().putSettings(r -> r
+                    .index(IndexTemplateServiceImpl.INDICES)
+                    .ignoreUnavailable(true)
+                    .allowNoIndices(true)
+                    .settings(s -> s
+                            .refreshInterval(Time.of(t -> t.time(refreshInterval)))
+                            .numberOfReplicas(String.valueOf(replicas)))
+            );
+            return true;
+
+        } catch (Exception e) {
+            log.error("Failed to update settings of indices {}", IndexTemplateServiceImpl.INDICES, e);
+            return false;
+        }
+    }
+
+}
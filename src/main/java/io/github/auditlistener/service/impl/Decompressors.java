@@ -0,0 +1,221 @@
+package io.github.auditlistener.service.impl;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import io.github.auditlistener.model.enums.ContentEncoding;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Потоковая распаковка значений записей. Состояние декодеров переиспользуется между записями:
+ * Inflater (gzip) берется из пула и возвращается при закрытии потока, буферы zstd - из RecyclingBufferPool,
+ * распаковщик блоков и хэш LZ4 frame общие для всех потоков
+ */
+final class Decompressors {
+
+    private static final int GZIP_MAGIC = 0x8B1F;
+    private static final int GZIP_HEADER_BYTES = 10;
+    private static final int GZIP_TRAILER_BYTES = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int BUFFER_BYTES = 8192;
+
+    private static final LZ4SafeDecompressor LZ4_DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+    private static final XXHash32 LZ4_CHECKSUM = XXHashFactory.fastestInstance().hash32();
+
+    private final BlockingQueue<Inflater> inflaters;
+
+    Decompressors(int poolSize) {
+        this.inflaters = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * Поток распакованных байтов значения
+     *
+     * @param maxBytes предел распакованного размера: чтение сверх него - IOException
+     */
+    DecompressedInputStream open(ContentEncoding encoding, byte[] data, long maxBytes) throws IOException {
+        InputStream in = switch (encoding) {
+            case GZIP -> gzip(data);
+            case ZSTD -> new ZstdInputStreamNoFinalizer(new ByteArrayInputStream(data), RecyclingBufferPool.INSTANCE);
+            case LZ4 -> new LZ4FrameInputStream(new ByteArrayInputStream(data), LZ4_DECOMPRESSOR, LZ4_CHECKSUM);
+        };
+        return new DecompressedInputStream(in, maxBytes);
+    }
+
+    /**
+     * Заголовок gzip (RFC 1952) разбирается по массиву, данные deflate распаковываются Inflater из пула.
+     * Поддерживается один член gzip, как пишет GZIPOutputStream и большинство библиотек
+     */
+    private InputStream gzip(byte[] data) throws IOException {
+        if (data.length < GZIP_HEADER_BYTES + GZIP_TRAILER_BYTES
+                || ((data[0] & 0xFF) | (data[1] & 0xFF) << 8) != GZIP_MAGIC || data[2] != Deflater.DEFLATED) {
+            throw new ZipException("Not in GZIP format");
+        }
+
+        int flags = data[3] & 0xFF;
+        int position = GZIP_HEADER_BYTES;
+        if ((flags & FEXTRA) != 0) {
+            position += 2 + ((data[position] & 0xFF) | (data[position + 1] & 0xFF) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            position = skipZeroTerminated(data, position);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            position = skipZeroTerminated(data, position);
+        }
+        if ((flags & FHCRC) != 0) {
+            position += 2;
+        }
+        if (position > data.length - GZIP_TRAILER_BYTES) {
+            throw new EOFException("Truncated GZIP header");
+        }
+
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        return new GzipInputStream(data, position, inflater);
+    }
+
+    private static int skipZeroTerminated(byte[] data, int position) throws EOFException {
+        while (position < data.length && data[position] != 0) {
+            position++;
+        }
+        if (position >= data.length) {
+            throw new EOFException("Truncated GZIP header");
+        }
+        return position + 1;
+    }
+
+    /**
+     * Данные deflate с проверкой CRC32 и размера по трейлеру gzip в конце массива.
+     * При закрытии Inflater сбрасывается и возвращается в пул
+     */
+    private final class GzipInputStream extends InflaterInputStream {
+
+        private final byte[] data;
+        private final CRC32 crc = new CRC32();
+        private long size;
+        private boolean closed;
+
+        private GzipInputStream(byte[] data, int offset, Inflater inflater) {
+            super(new ByteArrayInputStream(data, offset, data.length - GZIP_TRAILER_BYTES - offset), inflater, BUFFER_BYTES);
+            this.data = data;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                crc.update(buffer, offset, read);
+                size += read;
+            } else if (read < 0) {
+                checkTrailer();
+            }
+            return read;
+        }
+
+        private void checkTrailer() throws ZipException {
+            int trailer = data.length - GZIP_TRAILER_BYTES;
+            if (littleEndianInt(trailer) != (int) crc.getValue() || littleEndianInt(trailer + Integer.BYTES) != (int) size) {
+                throw new ZipException("Corrupt GZIP trailer");
+            }
+        }
+
+        private int littleEndianInt(int position) {
+            return (data[position] & 0xFF) | (data[position + 1] & 0xFF) << 8
+                    | (data[position + 2] & 0xFF) << 16 | (data[position + 3] & 0xFF) << 24;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            super.close();
+            inf.reset();
+            if (!inflaters.offer(inf)) {
+                inf.end();
+            }
+        }
+
+    }
+
+    /**
+     * Распакованные байты с их подсчетом и ограничением размера, чтобы маленькая запись
+     * не распаковывалась в гигабайты. Повторное закрытие (парсер закрывает источник сам) игнорируется
+     */
+    static final class DecompressedInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long read;
+        private boolean closed;
+
+        private DecompressedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Прочитано распакованных байтов
+         */
+        long bytesRead() {
+            return read;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                super.close();
+            }
+        }
+
+        private void count(int bytes) throws IOException {
+            read += bytes;
+            if (read > maxBytes) {
+                throw new IOException("Decompressed payload exceeds " + maxBytes + " bytes");
+            }
+        }
+
+    }
+
+}
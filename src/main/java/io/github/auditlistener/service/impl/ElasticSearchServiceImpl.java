@@ -1,17 +1,35 @@
 package io.github.auditlistener.service.impl;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.OpType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.BulkDocument;
+import io.github.auditlistener.model.elastic.BulkItemFailure;
 import io.github.auditlistener.model.elastic.ErrorDocument;
 import io.github.auditlistener.model.elastic.HttpDocument;
 import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.service.AdaptiveBatchController;
 import io.github.auditlistener.service.ElasticSearchService;
+import io.github.auditlistener.service.TraceService;
+import io.github.auditlistener.utils.ElasticsearchErrors;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Сервис для работы с ElasticSearch (индексации документов)
  */
@@ -20,6 +38,11 @@ import org.springframework.stereotype.Service;
 public class ElasticSearchServiceImpl implements ElasticSearchService {
 
     private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+    private final AuditMetrics metrics;
+    private final TraceService traceService;
+    private final ListenerConfig config;
+    private final AdaptiveBatchController batchController;
 
     private static final String METHOD_INDEX = "audit-methods";
     private static final String HTTP_INDEX = "audit-requests";
@@ -28,58 +51,238 @@ public class ElasticSearchServiceImpl implements ElasticSearchService {
     private final Logger log = LogManager.getLogger(ElasticSearchServiceImpl.class);
 
     public void indexMethodDocument(MethodDocument document) {
+        long start = System.nanoTime();
+        boolean indexed = false;
         try {
 
             IndexRequest<MethodDocument> request = IndexRequest.of(i -> i
                     .index(METHOD_INDEX)
                     .id(document.getId())
+                    .opType(opType())
                     .document(document)
             );
 
             IndexResponse response = elasticsearchClient.index(request);
+            indexed = true;
+            traceService.invalidate(document.getCorrelationId());
             log.debug("Method document indexed successfully: {} with result: {}",
                     document.getId(), response.result());
 
         } catch (Exception e) {
+            if (isDuplicate(e)) {
+                indexed = true;
+                log.debug("Method document already indexed: {}", document.getId());
+                return;
+            }
             log.error("Failed to index method document: {}", document, e);
             throw new RuntimeException("Failed to index method document", e);
+        } finally {
+            metrics.recordIndex(METHOD_INDEX, System.nanoTime() - start, indexed);
         }
     }
 
     public void indexHttpDocument(HttpDocument document) {
+        long start = System.nanoTime();
+        boolean indexed = false;
         try {
             IndexRequest<HttpDocument> request = IndexRequest.of(i -> i
                     .index(HTTP_INDEX)
                     .id(document.getId())
+                    .opType(opType())
                     .document(document)
             );
 
             IndexResponse response = elasticsearchClient.index(request);
+            indexed = true;
+            traceService.invalidate(document.getCorrelationId());
             log.debug("HTTP document indexed successfully: {} with result: {}",
                     document.getId(), response.result());
 
         } catch (Exception e) {
+            if (isDuplicate(e)) {
+                indexed = true;
+                log.debug("HTTP document already indexed: {}", document.getId());
+                return;
+            }
             log.error("Failed to index HTTP document: {}", document, e);
             throw new RuntimeException("Failed to index HTTP document", e);
+        } finally {
+            metrics.recordIndex(HTTP_INDEX, System.nanoTime() - start, indexed);
         }
     }
 
     public void indexErrorDocument(ErrorDocument document) {
+        long start = System.nanoTime();
+        boolean indexed = false;
         try {
 
             IndexRequest<ErrorDocument> request = IndexRequest.of(i -> i
                     .index(ERROR_INDEX)
                     .id(document.getId())
+                    .opType(opType())
                     .document(document)
             );
 
             IndexResponse response = elasticsearchClient.index(request);
+            indexed = true;
             log.debug("Error document indexed successfully: {} with result: {}",
                     document.getId(), response.result());
 
         } catch (Exception e) {
+            if (isDuplicate(e)) {
+                indexed = true;
+                log.debug("Error document already indexed: {}", document.getId());
+                return;
+            }
             log.error("Failed to index error document: {}", document, e);
+        } finally {
+            metrics.recordIndex(ERROR_INDEX, System.nanoTime() - start, indexed);
+        }
+    }
+
+    public List<BulkItemFailure> indexBulk(List<BulkDocument> documents) {
+        if (documents.isEmpty()) {
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        BulkResponse response;
+        try {
+            response = elasticsearchClient.bulk(buildBulkRequest(documents));
+        } catch (Exception e) {
+            metrics.recordBulk(documents.size(), documents.size(), System.nanoTime() - start);
+            if (ElasticsearchErrors.isRejected(e)) {
+                batchController.onBulkRejected();
+            }
+            log.error("Failed to execute bulk request of {} documents", documents.size(), e);
+            throw new RuntimeException("Failed to execute bulk request", e);
+        }
+
+        return collectFailures(documents, response, start);
+    }
+
+    public CompletableFuture<List<BulkItemFailure>> indexBulkAsync(List<BulkDocument> documents) {
+        if (documents.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        long start = System.nanoTime();
+        return elasticsearchAsyncClient.bulk(buildBulkRequest(documents))
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        metrics.recordBulk(documents.size(), documents.size(), System.nanoTime() - start);
+                        if (ElasticsearchErrors.isRejected(e)) {
+                            batchController.onBulkRejected();
+                        }
+                    }
+                })
+                .thenApply(response -> collectFailures(documents, response, start));
+    }
+
+    private BulkRequest buildBulkRequest(List<BulkDocument> documents) {
+        BulkRequest.Builder builder = new BulkRequest.Builder();
+        for (BulkDocument document : documents) {
+            Object source = document.getSource() != null
+                    ? BinaryData.of(document.getSource(), ContentType.APPLICATION_JSON)
+                    : document.getDocument();
+            if (config.getIndices().isDataStreams()) {
+                builder.operations(op -> op.create(c -> c
+                        .index(document.getIndex())
+                        .id(document.getId())
+                        .document(source)
+                ));
+            } else {
+                builder.operations(op -> op.index(i -> i
+                        .index(document.getIndex())
+                        .id(document.getId())
+                        .document(source)
+                ));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Документ с тем же идентификатором уже создан: при op_type = create повторно доставленное
+     * событие не перезаписывает документ, а отклоняется с 409
+     */
+    private boolean isDuplicate(Exception e) {
+        if (config.getIndices().isDataStreams() && ElasticsearchErrors.isConflict(e)) {
+            metrics.recordDuplicates(1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * В data stream допускается только создание документов (op_type = create). Идентификаторы
+     * событий детерминированы, поэтому повторная доставка не создает дубликат: в обычный индекс
+     * документ записывается заново с тем же идентификатором, в data stream - отклоняется с 409.
+     * Уникальность идентификатора в data stream проверяется только в текущем backing индексе:
+     * повторная доставка после rollover создает второй документ. Если дубликаты недопустимы,
+     * используются обычные индексы (data-streams = false) с op_type = index
+     */
+    private OpType opType() {
+        return config.getIndices().isDataStreams() ? OpType.Create : OpType.Index;
+    }
+
+    /**
+     * Вытесняет из кэша трассы проиндексированных документов. Для документов, переданных исходными
+     * байтами (raw-http-passthrough), correlationId неизвестен - их трассы обновятся по TTL кэша
+     */
+    private void invalidateTraces(List<BulkDocument> documents) {
+        for (BulkDocument document : documents) {
+            if (document.getDocument() instanceof MethodDocument methodDocument) {
+                traceService.invalidate(methodDocument.getCorrelationId());
+            } else if (document.getDocument() instanceof HttpDocument httpDocument) {
+                traceService.invalidate(httpDocument.getCorrelationId());
+            }
+        }
+    }
+
+    /**
+     * @param start System.nanoTime() перед отправкой запроса, для метрики времени _bulk
+     */
+    private List<BulkItemFailure> collectFailures(List<BulkDocument> documents, BulkResponse response, long start) {
+        log.debug("Bulk request of {} documents executed in {} ms, errors: {}",
+                documents.size(), response.took(), response.errors());
+        invalidateTraces(documents);
+
+        if (!response.errors()) {
+            long nanos = System.nanoTime() - start;
+            metrics.recordBulk(documents.size(), 0, nanos);
+            batchController.onBulkCompleted(documents.size(), nanos, 0);
+            return List.of();
+        }
+
+        List<BulkItemFailure> failures = new ArrayList<>();
+        int rejected = 0;
+        int duplicates = 0;
+        List<BulkResponseItem> items = response.items();
+        for (int i = 0; i < items.size(); i++) {
+            BulkResponseItem item = items.get(i);
+            if (item.error() != null && item.status() == ElasticsearchErrors.CONFLICT && config.getIndices().isDataStreams()) {
+                duplicates++;
+            } else if (item.error() != null) {
+                failures.add(BulkItemFailure.builder()
+                        .position(i)
+                        .status(item.status())
+                        .type(item.error().type())
+                        .reason(item.error().reason())
+                        .build());
+                if (item.status() == ElasticsearchErrors.TOO_MANY_REQUESTS) {
+                    rejected++;
+                }
+            }
+        }
+
+        if (duplicates > 0) {
+            metrics.recordDuplicates(duplicates);
         }
+        long nanos = System.nanoTime() - start;
+        metrics.recordBulk(documents.size(), failures.size(), nanos);
+        batchController.onBulkCompleted(documents.size(), nanos, rejected);
+        return failures;
     }
 
 }
@@ -0,0 +1,440 @@
+package io.github.auditlistener.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.BulkDocument;
+import io.github.auditlistener.model.elastic.BulkItemFailure;
+import io.github.auditlistener.model.elastic.ErrorDocument;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.model.enums.ReplayState;
+import io.github.auditlistener.model.persistence.RowFailure;
+import io.github.auditlistener.model.replay.ReplayProgress;
+import io.github.auditlistener.model.replay.ReplayRequest;
+import io.github.auditlistener.service.ErrorReplayService;
+import io.github.auditlistener.service.EventDocumentParser;
+import io.github.auditlistener.service.EventPersistenceService;
+import io.github.auditlistener.service.PayloadDecoder;
+import io.github.auditlistener.service.PayloadLimiter;
+import io.github.auditlistener.utils.EventMapper;
+import io.github.auditlistener.utils.Payloads;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Повторная загрузка событий из error топика. Диапазон читается отдельным consumer'ом группы
+ * {group-id}-replay: партиции назначаются assign, без участия в ребалансировке, и позиция задается seek
+ * по границам диапазона, а не по закоммиченным offset'ам группы, поэтому загрузка не влияет на слушателя
+ * error топика. Исходные сообщения разбираются заново и индексируются _bulk запросами с ограничением скорости.
+ * События PERSISTENCE_ERROR уже проиндексированы: они не индексируются, а записываются в таблицу events
+ * (при выключенной записи в PostgreSQL пропускаются). Значения бинарного формата (originalPayload)
+ * перед разбором декодируются PayloadDecoder
+ */
+@Service
+public class ErrorReplayServiceImpl implements ErrorReplayService {
+
+    private static final String METHOD_INDEX = "audit-methods";
+    private static final String HTTP_INDEX = "audit-requests";
+    private static final String CLIENT_ID = "audit-error-replay";
+
+    private final Logger log = LogManager.getLogger(ErrorReplayServiceImpl.class);
+
+    private final ListenerConfig config;
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final ObjectMapper objectMapper;
+    private final EventDocumentParser eventParser;
+    private final PayloadDecoder payloadDecoder;
+    private final PayloadLimiter payloadLimiter;
+    private final ElasticSearchServiceImpl elasticsearchService;
+    private final EventPersistenceService eventPersistence;
+    private final AuditMetrics metrics;
+
+    private volatile Job job;
+
+    public ErrorReplayServiceImpl(ListenerConfig config,
+                                  @Qualifier("consumerFactory") ConsumerFactory<String, Object> consumerFactory,
+                                  ObjectMapper objectMapper, EventDocumentParser eventParser, PayloadDecoder payloadDecoder,
+                                  PayloadLimiter payloadLimiter, ElasticSearchServiceImpl elasticsearchService,
+                                  Optional<EventPersistenceService> eventPersistence, AuditMetrics metrics) {
+        this.config = config;
+        this.consumerFactory = consumerFactory;
+        this.objectMapper = objectMapper;
+        this.eventParser = eventParser;
+        this.payloadDecoder = payloadDecoder;
+        this.payloadLimiter = payloadLimiter;
+        this.elasticsearchService = elasticsearchService;
+        this.eventPersistence = eventPersistence.orElse(null);
+        this.metrics = metrics;
+    }
+
+    public synchronized ReplayProgress start(ReplayRequest request) {
+        if (job != null && job.state == ReplayState.RUNNING) {
+            throw new IllegalStateException("Replay of the error topic is already running");
+        }
+
+        Job started = new Job(request);
+        job = started;
+        Thread.ofPlatform().name(CLIENT_ID).daemon().start(() -> run(started));
+        return started.progress();
+    }
+
+    public ReplayProgress progress() {
+        Job current = job;
+        return current != null
+                ? current.progress()
+                : ReplayProgress.builder().state(ReplayState.IDLE).build();
+    }
+
+    public ReplayProgress cancel() {
+        Job current = job;
+        if (current != null) {
+            current.cancelled = true;
+        }
+        return progress();
+    }
+
+    private void run(Job job) {
+        String topic = config.getKafka().getErrorTopic();
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer(
+                config.getKafka().getGroupId() + "-replay", CLIENT_ID, null)) {
+
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                    .map(partition -> new TopicPartition(topic, partition.partition()))
+                    .toList();
+            Map<TopicPartition, Long> startOffsets = startOffsets(consumer, partitions, job.request);
+            Map<TopicPartition, Long> endOffsets = endOffsets(consumer, partitions, job.request);
+
+            List<TopicPartition> remaining = new ArrayList<>();
+            for (TopicPartition partition : partitions) {
+                long start = startOffsets.get(partition);
+                long end = endOffsets.get(partition);
+                if (start < end) {
+                    remaining.add(partition);
+                    job.total += end - start;
+                }
+            }
+            log.info("Replaying {} records of topic {} (errorType: {})",
+                    job.total, topic, job.request.getErrorType() != null ? job.request.getErrorType() : "any");
+
+            consumer.assign(remaining);
+            remaining.forEach(partition -> consumer.seek(partition, startOffsets.get(partition)));
+
+            long logAt = System.currentTimeMillis() + config.getReplay().getProgressLogIntervalMs();
+            while (!remaining.isEmpty() && !job.cancelled) {
+                for (ConsumerRecord<String, Object> record
+                        : consumer.poll(Duration.ofMillis(config.getReplay().getPollTimeoutMs()))) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (record.offset() < endOffsets.get(partition)) {
+                        replay(job, record);
+                    }
+                }
+
+                List<TopicPartition> finished = remaining.stream()
+                        .filter(partition -> consumer.position(partition) >= endOffsets.get(partition))
+                        .toList();
+                if (!finished.isEmpty()) {
+                    consumer.pause(finished);
+                    remaining.removeAll(finished);
+                }
+
+                if (System.currentTimeMillis() >= logAt) {
+                    logProgress(job);
+                    logAt = System.currentTimeMillis() + config.getReplay().getProgressLogIntervalMs();
+                }
+            }
+
+            flush(job);
+            job.state = job.cancelled ? ReplayState.CANCELLED : ReplayState.COMPLETED;
+
+        } catch (Exception e) {
+            log.error("Replay of topic {} failed", topic, e);
+            job.lastError = e.getMessage();
+            job.state = ReplayState.FAILED;
+        } finally {
+            job.finishedAt = Instant.now();
+            logProgress(job);
+        }
+    }
+
+    /**
+     * Начало диапазона в каждой партиции: первая запись не раньше from и не меньше fromOffset
+     */
+    private static Map<TopicPartition, Long> startOffsets(Consumer<String, Object> consumer,
+                                                          List<TopicPartition> partitions, ReplayRequest request) {
+        Map<TopicPartition, Long> offsets = new HashMap<>(consumer.beginningOffsets(partitions));
+        if (request.getFrom() != null) {
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            Map<TopicPartition, OffsetAndTimestamp> fromOffsets = consumer.offsetsForTimes(
+                    timestamps(partitions, request.getFrom()));
+            partitions.forEach(partition -> offsets.merge(partition,
+                    offset(fromOffsets.get(partition), endOffsets.get(partition)), Math::max));
+        }
+        if (request.getFromOffset() != null) {
+            partitions.forEach(partition -> offsets.merge(partition, request.getFromOffset(), Math::max));
+        }
+        return offsets;
+    }
+
+    /**
+     * Конец диапазона в каждой партиции (не включительно): текущий конец партиции, ограниченный to и toOffset
+     */
+    private static Map<TopicPartition, Long> endOffsets(Consumer<String, Object> consumer,
+                                                        List<TopicPartition> partitions, ReplayRequest request) {
+        Map<TopicPartition, Long> offsets = new HashMap<>(consumer.endOffsets(partitions));
+        if (request.getTo() != null) {
+            Map<TopicPartition, OffsetAndTimestamp> toOffsets = consumer.offsetsForTimes(
+                    timestamps(partitions, request.getTo()));
+            partitions.forEach(partition -> offsets.merge(partition,
+                    offset(toOffsets.get(partition), offsets.get(partition)), Math::min));
+        }
+        if (request.getToOffset() != null) {
+            partitions.forEach(partition -> offsets.merge(partition, request.getToOffset(), Math::min));
+        }
+        return offsets;
+    }
+
+    private static Map<TopicPartition, Long> timestamps(List<TopicPartition> partitions, Instant time) {
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        partitions.forEach(partition -> timestamps.put(partition, time.toEpochMilli()));
+        return timestamps;
+    }
+
+    /**
+     * @param endOffset offset, если в партиции нет записей после заданного времени
+     */
+    private static long offset(OffsetAndTimestamp offsetAndTimestamp, long endOffset) {
+        return offsetAndTimestamp != null ? offsetAndTimestamp.offset() : endOffset;
+    }
+
+    private void replay(Job job, ConsumerRecord<String, Object> record) {
+        job.scanned++;
+
+        ErrorDocument errorDocument;
+        try {
+            errorDocument = objectMapper.readValue(Payloads.asString(record.value()), ErrorDocument.class);
+        } catch (Exception e) {
+            log.warn("Failed to read error record {}-{}@{}: {}", record.topic(), record.partition(), record.offset(),
+                    e.getMessage());
+            return;
+        }
+
+        String errorType = job.request.getErrorType();
+        if (errorType != null && !errorType.equals(errorDocument.getErrorType())) {
+            return;
+        }
+        boolean methodEvent = config.getKafka().getMethodTopic().equals(errorDocument.getOriginalTopic());
+        boolean persistenceError = ErrorType.PERSISTENCE_ERROR.name().equals(errorDocument.getErrorType());
+        if (errorDocument.getOriginalMessage() == null && errorDocument.getOriginalPayload() == null
+                || !methodEvent && !config.getKafka().getHttpTopic().equals(errorDocument.getOriginalTopic())
+                || persistenceError && eventPersistence == null) {
+            return;
+        }
+        job.matched++;
+
+        try {
+            Object message = errorDocument.getOriginalPayload() != null
+                    ? decode(errorDocument)
+                    : payloadLimiter.restore(errorDocument.getOriginalMessage());
+            if (methodEvent) {
+                MethodDocument document = message instanceof TokenBuffer events
+                        ? eventParser.parseMethodEvent(events)
+                        : message instanceof byte[] bytes
+                        ? eventParser.parseMethodEvent(bytes)
+                        : eventParser.parseMethodEvent((String) message);
+                if (persistenceError) {
+                    job.events.add(EventMapper.fromMethodDocument(document));
+                } else {
+                    job.chunk.add(BulkDocument.builder().index(METHOD_INDEX).id(document.getId()).document(document).build());
+                }
+            } else {
+                HttpDocument document = message instanceof TokenBuffer events
+                        ? eventParser.parseHttpEvent(events, errorDocument.getOriginalKey())
+                        : message instanceof byte[] bytes
+                        ? eventParser.parseHttpEvent(bytes, errorDocument.getOriginalKey())
+                        : eventParser.parseHttpEvent((String) message, errorDocument.getOriginalKey());
+                if (persistenceError) {
+                    job.events.add(EventMapper.fromHttpDocument(document));
+                } else {
+                    job.chunk.add(BulkDocument.builder().index(HTTP_INDEX).id(document.getId()).document(document).build());
+                }
+            }
+        } catch (Exception e) {
+            job.failed++;
+            job.lastError = e.getMessage();
+            return;
+        }
+
+        if (job.chunk.size() >= config.getReplay().getBulkSize() || job.events.size() >= config.getReplay().getBulkSize()) {
+            flush(job);
+        }
+    }
+
+    /**
+     * Декодирует исходное значение бинарного формата или сжатое значение: запись восстанавливается
+     * с заголовками формата и сжатия, с которыми значение было получено
+     */
+    private Object decode(ErrorDocument errorDocument) {
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>(errorDocument.getOriginalTopic(), 0, 0L,
+                errorDocument.getOriginalKey(), errorDocument.getOriginalPayload());
+        if (errorDocument.getOriginalFormat() != null) {
+            record.headers().add(config.getKafka().getFormatHeader(),
+                    errorDocument.getOriginalFormat().getBytes(StandardCharsets.UTF_8));
+        }
+        if (errorDocument.getOriginalContentEncoding() != null) {
+            record.headers().add(config.getKafka().getContentEncodingHeader(),
+                    errorDocument.getOriginalContentEncoding().getBytes(StandardCharsets.UTF_8));
+        }
+        return payloadDecoder.decode(record).value();
+    }
+
+    private void flush(Job job) {
+        flushDocuments(job);
+        flushEvents(job);
+    }
+
+    private void flushDocuments(Job job) {
+        if (job.chunk.isEmpty()) {
+            return;
+        }
+
+        List<BulkDocument> documents = job.chunk;
+        job.chunk = new ArrayList<>();
+        pace(job, documents.size());
+        try {
+            List<BulkItemFailure> failures = elasticsearchService.indexBulk(documents);
+            job.replayed += documents.size() - failures.size();
+            job.failed += failures.size();
+            metrics.recordErrorsReplayed(documents.size() - failures.size());
+            if (!failures.isEmpty()) {
+                job.lastError = failures.getFirst().getReason();
+            }
+        } catch (Exception e) {
+            job.failed += documents.size();
+            job.lastError = e.getMessage();
+        }
+    }
+
+    /**
+     * Записывает события PERSISTENCE_ERROR в таблицу events. Строки, уже записанные до ошибки,
+     * пропускаются по document_id (ON CONFLICT DO NOTHING)
+     */
+    private void flushEvents(Job job) {
+        if (job.events.isEmpty()) {
+            return;
+        }
+
+        List<Event> events = job.events;
+        job.events = new ArrayList<>();
+        pace(job, events.size());
+        try {
+            List<RowFailure> failures = eventPersistence.persist(events);
+            job.replayed += events.size() - failures.size();
+            job.failed += failures.size();
+            metrics.recordErrorsReplayed(events.size() - failures.size());
+            if (!failures.isEmpty()) {
+                job.lastError = failures.getFirst().getReason();
+            }
+        } catch (Exception e) {
+            job.failed += events.size();
+            job.lastError = e.getMessage();
+        }
+    }
+
+    /**
+     * Ожидает, пока индексация следующих events событий не превысит ограничение скорости загрузки
+     */
+    private void pace(Job job, int events) {
+        int rate = job.request.getRecordsPerSecond() != null
+                ? job.request.getRecordsPerSecond()
+                : config.getReplay().getRecordsPerSecond();
+        if (rate <= 0) {
+            return;
+        }
+
+        long dueNanos = job.startNanos + TimeUnit.SECONDS.toNanos(job.replayed + job.failed + events) / rate;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.cancelled = true;
+            }
+        }
+    }
+
+    private void logProgress(Job job) {
+        ReplayProgress progress = job.progress();
+        log.info("Replay {}: scanned {} of {}, matched {}, replayed {}, failed {}, {} events/s",
+                progress.getState(), progress.getScanned(), progress.getTotal(), progress.getMatched(),
+                progress.getReplayed(), progress.getFailed(), String.format("%.1f", progress.getThroughput()));
+    }
+
+    /**
+     * Загрузка: счетчики изменяет только ее поток, progress() читает их из других потоков
+     */
+    private static final class Job {
+
+        private final ReplayRequest request;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private List<BulkDocument> chunk = new ArrayList<>();
+        private List<Event> events = new ArrayList<>();
+
+        private volatile ReplayState state = ReplayState.RUNNING;
+        private volatile boolean cancelled;
+        private volatile Instant finishedAt;
+        private volatile long total;
+        private volatile long scanned;
+        private volatile long matched;
+        private volatile long replayed;
+        private volatile long failed;
+        private volatile String lastError;
+
+        private Job(ReplayRequest request) {
+            this.request = request;
+        }
+
+        private ReplayProgress progress() {
+            long elapsedNanos = (finishedAt != null
+                    ? TimeUnit.MILLISECONDS.toNanos(finishedAt.toEpochMilli() - startedAt.toEpochMilli())
+                    : System.nanoTime() - startNanos);
+            return ReplayProgress.builder()
+                    .state(state)
+                    .request(request)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .total(total)
+                    .scanned(scanned)
+                    .matched(matched)
+                    .replayed(replayed)
+                    .failed(failed)
+                    .throughput(elapsedNanos > 0 ? replayed * 1e9 / elapsedNanos : 0)
+                    .lastError(lastError)
+                    .build();
+        }
+
+    }
+
+}
@@ -0,0 +1,484 @@
+package io.github.auditlistener.service.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.elastic.RawHttpDocument;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.model.enums.PayloadField;
+import io.github.auditlistener.model.enums.ValidationRule;
+import io.github.auditlistener.model.validation.FieldViolation;
+import io.github.auditlistener.service.ArgsRenderer;
+import io.github.auditlistener.service.EventDocumentParser;
+import io.github.auditlistener.service.PayloadLimiter;
+import io.github.auditlistener.service.SchemaValidator;
+import io.github.auditlistener.utils.DocumentIds;
+import io.github.auditlistener.utils.Timestamps;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Сервис разбора сообщений Kafka в документы ElasticSearch.
+ * Сообщение читается потоково (JsonParser) за один проход без построения JsonNode дерева,
+ * в том же проходе поля проверяются правилами {@link SchemaValidator}.
+ * Идентификатор документа вычисляется по полям, определяющим событие ({@link DocumentIds#of}),
+ * поэтому одно и то же событие при повторной обработке получает тот же идентификатор.
+ * Тела (args, result, requestBody, responseBody) ограничиваются лимитами {@link PayloadLimiter},
+ * аргументы методов строятся по токенам {@link ArgsRenderer}, время события разбирается
+ * {@link Timestamps#parse} и сохраняется в epoch millis. Событие бинарного формата разбирается тем же
+ * проходом по токенам, декодированным {@link io.github.auditlistener.service.PayloadDecoder}
+ */
+@Service
+public class EventDocumentParserImpl implements EventDocumentParser {
+
+    /**
+     * Поля HttpDocument, которые копируются из исходного сообщения без изменений
+     */
+    private static final String[] RAW_HTTP_FIELDS = {"direction", "method", "uri", "statusCode", "requestBody", "responseBody"};
+    /**
+     * Поля идентификатора среди копируемых: direction, method, uri, statusCode (тела входят в идентификатор хэшем)
+     */
+    private static final int RAW_ID_FIELDS = 4;
+    /**
+     * Поля с лимитом размера среди копируемых (по индексу в RAW_HTTP_FIELDS)
+     */
+    private static final PayloadField[] RAW_PAYLOAD_FIELDS = {null, null, null, null, PayloadField.REQUEST_BODY, PayloadField.RESPONSE_BODY};
+
+    private static final String METHOD_ID_PREFIX = "method";
+    private static final String HTTP_ID_PREFIX = "http";
+
+    private final JsonFactory jsonFactory;
+    private final PayloadLimiter payloadLimiter;
+    private final ArgsRenderer argsRenderer;
+    private final SchemaValidator schemaValidator;
+
+    public EventDocumentParserImpl(ObjectMapper objectMapper, PayloadLimiter payloadLimiter, ArgsRenderer argsRenderer,
+                                   SchemaValidator schemaValidator) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.payloadLimiter = payloadLimiter;
+        this.argsRenderer = argsRenderer;
+        this.schemaValidator = schemaValidator;
+    }
+
+    public MethodDocument parseMethodEvent(String message) {
+        try (JsonParser parser = createParser(message)) {
+            return readMethodEvent(parser);
+        } catch (IOException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, e.getMessage(), e);
+        }
+    }
+
+    public MethodDocument parseMethodEvent(byte[] message) {
+        try (JsonParser parser = createParser(message)) {
+            return readMethodEvent(parser);
+        } catch (IOException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, e.getMessage(), e);
+        }
+    }
+
+    public MethodDocument parseMethodEvent(TokenBuffer event) {
+        try (JsonParser parser = event.asParser()) {
+            return readMethodEvent(parser);
+        } catch (IOException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, e.getMessage(), e);
+        }
+    }
+
+    public HttpDocument parseHttpEvent(String message, String key) {
+        try (JsonParser parser = createParser(message)) {
+            return readHttpEvent(parser, key);
+        } catch (IOException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, e.getMessage(), e);
+        }
+    }
+
+    public HttpDocument parseHttpEvent(byte[] message, String key) {
+        try (JsonParser parser = createParser(message)) {
+            return readHttpEvent(parser, key);
+        } catch (IOException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, e.getMessage(), e);
+        }
+    }
+
+    public HttpDocument parseHttpEvent(TokenBuffer event, String key) {
+        try (JsonParser parser = event.asParser()) {
+            return readHttpEvent(parser, key);
+        } catch (IOException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, e.getMessage(), e);
+        }
+    }
+
+    public RawHttpDocument rewriteHttpEvent(byte[] message, String key) {
+        try (JsonParser parser = createParser(message)) {
+            return rewriteHttpEvent(parser, message, key);
+        } catch (IOException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, e.getMessage(), e);
+        }
+    }
+
+    private JsonParser createParser(String message) throws IOException {
+        if (message == null) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, "Message is null");
+        }
+        return jsonFactory.createParser(message);
+    }
+
+    private JsonParser createParser(byte[] message) throws IOException {
+        if (message == null) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, "Message is null");
+        }
+        return jsonFactory.createParser(message);
+    }
+
+    private MethodDocument readMethodEvent(JsonParser parser) throws IOException {
+        String correlationId = null;
+        String timestamp = null;
+        String eventType = null;
+        String logLevel = null;
+        String methodName = null;
+        ArgsRenderer.Rendered args = null;
+        String result = null;
+        String errorMessage = null;
+        RuntimeException argsFailure = null;
+        SchemaValidator.Validation validation = schemaValidator.methodEvent();
+
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                validation.value(field, parser);
+                switch (field) {
+                    case "correlationId" -> correlationId = readText(parser);
+                    case "timestamp" -> timestamp = readText(parser);
+                    case "eventType" -> eventType = readText(parser);
+                    case "logLevel" -> logLevel = readText(parser);
+                    case "methodName" -> methodName = readText(parser);
+                    case "result" -> result = readText(parser);
+                    case "errorMessage" -> errorMessage = readText(parser);
+                    case "arguments" -> {
+                        argsFailure = null;
+                        args = null;
+                        try {
+                            args = argsRenderer.render(parser);
+                        } catch (IllegalArgumentException e) {
+                            argsFailure = e;
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        validation.finish();
+        if (argsFailure != null) {
+            throw argsFailure;
+        }
+
+        return MethodDocument.builder()
+                .id(DocumentIds.of(METHOD_ID_PREFIX, correlationId, timestamp, eventType, methodName,
+                        args != null ? args.text() : null, result, errorMessage))
+                .correlationId(correlationId)
+                .timestamp(timestamp(timestamp))
+                .eventType(eventType)
+                .level(logLevel)
+                .method(methodName)
+                .args(args != null ? payloadLimiter.limit(PayloadField.ARGS, args.text()) : null)
+                .argsFields(args != null ? argsFields(args.fields()) : null)
+                .result(payloadLimiter.limit(PayloadField.RESULT, result))
+                .errorMessage(errorMessage)
+                .build();
+    }
+
+    private HttpDocument readHttpEvent(JsonParser parser, String key) throws IOException {
+        String timestamp = null;
+        String direction = null;
+        String method = null;
+        String uri = null;
+        Integer statusCode = null;
+        String requestBody = null;
+        String responseBody = null;
+        SchemaValidator.Validation validation = schemaValidator.httpEvent();
+
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                validation.value(field, parser);
+                switch (field) {
+                    case "timestamp" -> timestamp = readText(parser);
+                    case "direction" -> direction = readText(parser);
+                    case "method" -> method = readText(parser);
+                    case "uri" -> uri = readText(parser);
+                    case "statusCode" -> statusCode = readInt(parser);
+                    case "requestBody" -> requestBody = readText(parser);
+                    case "responseBody" -> responseBody = readText(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        validation.finish();
+
+        return HttpDocument.builder()
+                .id(httpDocumentId(key, timestamp, direction, method, uri, statusCode,
+                        bodyHash(requestBody), bodyHash(responseBody)))
+                .correlationId(key)
+                .timestamp(timestamp(timestamp))
+                .direction(direction)
+                .method(method)
+                .uri(uri)
+                .statusCode(statusCode)
+                .requestBody(payloadLimiter.limit(PayloadField.REQUEST_BODY, requestBody))
+                .responseBody(payloadLimiter.limit(PayloadField.RESPONSE_BODY, responseBody))
+                .build();
+    }
+
+    /**
+     * Сканирует верхний уровень сообщения и запоминает байтовые границы копируемых полей.
+     * Строковые значения не декодируются в строки, кроме timestamp и коротких полей идентификатора
+     * (direction, method, uri, statusCode); тела хэшируются для идентификатора по буферу парсера.
+     * Тело длиннее лимита в байтах не копируется: документ
+     * строится разбором сообщения, где тело обрезается
+     */
+    private RawHttpDocument rewriteHttpEvent(JsonParser parser, byte[] message, String key) throws IOException {
+        String timestamp = null;
+        String[] idFields = new String[RAW_ID_FIELDS - 1];
+        Integer statusCode = null;
+        String[] bodyHashes = new String[RAW_HTTP_FIELDS.length - RAW_ID_FIELDS];
+        int[] starts = new int[RAW_HTTP_FIELDS.length];
+        int[] ends = new int[RAW_HTTP_FIELDS.length];
+        int[] valueStarts = new int[RAW_HTTP_FIELDS.length];
+        int[] sizes = new int[RAW_HTTP_FIELDS.length];
+        int present = 0;
+        int seen = 0;
+        boolean passthrough = true;
+        SchemaValidator.Validation validation = schemaValidator.httpEvent();
+
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int start = (int) parser.currentTokenLocation().getByteOffset();
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                validation.value(field, parser);
+
+                if ("timestamp".equals(field)) {
+                    timestamp = readText(parser);
+                    continue;
+                }
+
+                int index = rawHttpFieldIndex(field);
+                if (index < 0) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                passthrough &= (seen & (1 << index)) == 0 && isRawCompatible(index, token);
+                seen |= 1 << index;
+                if (token == JsonToken.VALUE_NULL) {
+                    present &= ~(1 << index);
+                } else {
+                    present |= 1 << index;
+                }
+                if (index < idFields.length && token.isScalarValue()) {
+                    idFields[index] = readText(parser);
+                } else if (index == idFields.length && token.isScalarValue()) {
+                    statusCode = readInt(parser);
+                } else if (index >= RAW_ID_FIELDS) {
+                    bodyHashes[index - RAW_ID_FIELDS] = token == JsonToken.VALUE_STRING
+                            ? DocumentIds.of(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())
+                            : null;
+                    sizes[index] = token == JsonToken.VALUE_STRING ? parser.getTextLength() : 0;
+                }
+
+                valueStarts[index] = (int) parser.currentTokenLocation().getByteOffset();
+                parser.skipChildren();
+                parser.finishToken();
+                starts[index] = start;
+                ends[index] = (int) parser.currentLocation().getByteOffset();
+
+                PayloadField payloadField = RAW_PAYLOAD_FIELDS[index];
+                if (payloadField != null && token != JsonToken.VALUE_NULL) {
+                    int max = payloadLimiter.maxChars(payloadField);
+                    passthrough &= max <= 0 || ends[index] - valueStarts[index] <= max;
+                }
+            }
+        }
+
+        validation.finish();
+        if (!passthrough) {
+            return null;
+        }
+
+        for (int i = 0; i < RAW_HTTP_FIELDS.length; i++) {
+            if (RAW_PAYLOAD_FIELDS[i] != null && (present & (1 << i)) != 0) {
+                // длина в символах, как и в разобранном документе: текст тела уже декодирован для хэша
+                payloadLimiter.recordSize(RAW_PAYLOAD_FIELDS[i], sizes[i]);
+            }
+        }
+
+        String id = httpDocumentId(key, timestamp, idFields[0], idFields[1], idFields[2], statusCode,
+                bodyHashes[0], bodyHashes[1]);
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(message.length + 128);
+
+        out.write('{');
+        writeRawString(out, "id", encoder.quoteAsUTF8(id));
+        out.write(',');
+        writeRawString(out, "correlationId", key == null ? null : encoder.quoteAsUTF8(key));
+        out.write(',');
+        writeRawName(out, "timestamp");
+        Instant time = timestamp(timestamp);
+        out.writeBytes((time != null ? Long.toString(time.toEpochMilli()) : "null").getBytes(StandardCharsets.US_ASCII));
+
+        for (int i = 0; i < RAW_HTTP_FIELDS.length; i++) {
+            if ((seen & (1 << i)) != 0) {
+                out.write(',');
+                out.write(message, starts[i], ends[i] - starts[i]);
+            }
+        }
+        out.write('}');
+
+        return new RawHttpDocument(id, out.toByteArray());
+    }
+
+    private int rawHttpFieldIndex(String field) {
+        for (int i = 0; i < RAW_HTTP_FIELDS.length; i++) {
+            if (RAW_HTTP_FIELDS[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Значение можно скопировать как есть, только если HttpDocument сериализовал бы его так же:
+     * строки (и null) для текстовых полей, целое число для statusCode
+     */
+    private boolean isRawCompatible(int index, JsonToken token) {
+        if (token == JsonToken.VALUE_NULL) {
+            return true;
+        }
+        return "statusCode".equals(RAW_HTTP_FIELDS[index])
+                ? token == JsonToken.VALUE_NUMBER_INT
+                : token == JsonToken.VALUE_STRING;
+    }
+
+    /**
+     * Идентификатор HTTP события - общий для разбора в документ и копирования без разбора: поля передаются
+     * уже прочитанными readText/readInt, поэтому JSON null и отсутствующее поле дают одно значение (null),
+     * а statusCode хэшируется десятичной записью числа
+     */
+    private static String httpDocumentId(String key, String timestamp, String direction, String method, String uri,
+                                          Integer statusCode, String requestBodyHash, String responseBodyHash) {
+        return DocumentIds.of(HTTP_ID_PREFIX, key, timestamp, direction, method, uri,
+                statusCode != null ? statusCode.toString() : null, requestBodyHash, responseBodyHash);
+    }
+
+    /**
+     * Тело входит в идентификатор HTTP события своим хэшем: в копируемом без разбора сообщении
+     * тела хэшируются по буферу парсера, в порядке появления в сообщении
+     */
+    private static String bodyHash(String body) {
+        return body != null ? DocumentIds.of(body) : null;
+    }
+
+    /**
+     * Время события; значение, которое не является временем, - нарушение правила типа поля timestamp
+     */
+    private Instant timestamp(String timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        try {
+            return Timestamps.parse(timestamp);
+        } catch (DateTimeParseException e) {
+            throw new EventProcessingException(List.of(new FieldViolation("timestamp", ValidationRule.TYPE,
+                    "expected ISO-8601 date-time or epoch millis")));
+        }
+    }
+
+    private void writeRawString(ByteArrayOutputStream out, String name, byte[] quotedValue) {
+        writeRawName(out, name);
+        if (quotedValue == null) {
+            out.writeBytes("null".getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        out.write('"');
+        out.writeBytes(quotedValue);
+        out.write('"');
+    }
+
+    private void writeRawName(ByteArrayOutputStream out, String name) {
+        out.write('"');
+        out.writeBytes(name.getBytes(StandardCharsets.US_ASCII));
+        out.write('"');
+        out.write(':');
+    }
+
+    /**
+     * Переходит к первому токену. Корневое значение, отличное от объекта,
+     * дочитывается для проверки синтаксиса и не содержит ни одного поля
+     */
+    private boolean startObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            return true;
+        }
+        if (token != null) {
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Значение поля как текст (аналог JsonNode.asText(), null для JSON null)
+     */
+    private String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getText();
+    }
+
+    /**
+     * Значение поля как число (аналог JsonNode.asInt(), null для JSON null)
+     */
+    private Integer readInt(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return 0;
+        }
+        return parser.getValueAsInt(0);
+    }
+
+    /**
+     * Структурированные аргументы не обрезаются (обрезанный JSON не индексируется): при превышении
+     * лимита args поле argsFields не заполняется
+     */
+    private String argsFields(String fields) {
+        int max = payloadLimiter.maxChars(PayloadField.ARGS);
+        return fields != null && (max <= 0 || fields.length() <= max) ? fields : null;
+    }
+
+}
@@ -2,11 +2,16 @@ package io.github.auditlistener.service.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.exception.ErrorNotAcceptedException;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
 import io.github.auditlistener.model.elastic.ErrorDocument;
 import io.github.auditlistener.model.elastic.HttpDocument;
 import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.service.EventDocumentParser;
 import io.github.auditlistener.service.EventListener;
-import io.github.auditlistener.utils.EventValidator;
+import io.github.auditlistener.service.RetryService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -15,11 +20,8 @@ import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.UUID;
+import java.time.Duration;
 
 /**
  * Сервис "вычитки" сообщений из Kafka
@@ -27,26 +29,35 @@ import java.util.UUID;
 @Service
 public class EventListenerImpl implements EventListener {
 
+    private static final Duration NACK_SLEEP = Duration.ofSeconds(1);
+
     private final Logger log = LogManager.getLogger(EventListenerImpl.class);
 
 //    private final EventRepository eventRepository;
     private final ObjectMapper objectMapper;
+    private final EventDocumentParser eventParser;
     private final KafkaServiceImpl kafkaService;
     private final ElasticSearchServiceImpl elasticsearchService;
+    private final RetryService retryService;
+    private final AuditMetrics metrics;
 
-    public EventListenerImpl(ObjectMapper objectMapper,
-                             KafkaServiceImpl errorKafkaService, ElasticSearchServiceImpl elasticsearchService) {
+    public EventListenerImpl(ObjectMapper objectMapper, EventDocumentParser eventParser,
+                             KafkaServiceImpl errorKafkaService, ElasticSearchServiceImpl elasticsearchService,
+                             RetryService retryService, AuditMetrics metrics) {
 //        this.eventRepository = eventRepository;
         this.objectMapper = objectMapper;
+        this.eventParser = eventParser;
         this.kafkaService = errorKafkaService;
         this.elasticsearchService = elasticsearchService;
+        this.retryService = retryService;
+        this.metrics = metrics;
     }
 
     /**
      * Обработка событий метода
      */
-    @KafkaListener(topics = "audit.methods", containerFactory = "kafkaListenerContainerFactory")
-    @Transactional
+    @KafkaListener(topics = "${audit.listener.kafka.method-topic:audit.methods}",
+            containerFactory = "kafkaListenerContainerFactory")
     public void handleMethodEvent(@Payload String message,
                                   @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
                                   @Header(KafkaHeaders.RECEIVED_KEY) String key,
@@ -55,64 +66,51 @@ public class EventListenerImpl implements EventListener {
         log.debug("Received method audit message from topic: {}, key: {}",
                 topic, key);
 
+        metrics.recordConsumed(topic);
+
         try {
-            JsonNode event;
-            try {
-                event = objectMapper.readTree(message);
-            } catch (Exception e) {
-                kafkaService.sendErrorMessage("PARSING_ERROR", e.getMessage(), topic, message);
-                acknowledgment.acknowledge();
-                return;
-            }
+            processMethodEvent(message, topic, key);
+            acknowledgment.acknowledge();
+        } catch (ErrorNotAcceptedException e) {
+            notAccepted(e, topic, acknowledgment);
+        }
+    }
 
-            if (!EventValidator.validateMethodEvent(event)) {
-                kafkaService.sendErrorMessage("VALIDATION_ERROR", "Required fields missing", topic, message);
-                acknowledgment.acknowledge();
+    private void processMethodEvent(String message, String topic, String key) {
+        try {
+            MethodDocument document;
+            long parseStart = System.nanoTime();
+            try {
+                document = eventParser.parseMethodEvent(message);
+            } catch (EventProcessingException e) {
+                metrics.recordParse(topic, System.nanoTime() - parseStart);
+                kafkaService.sendErrorMessage(e, topic, key, message);
                 return;
             }
-
-            MethodDocument document = MethodDocument.builder()
-                    .id(UUID.randomUUID().toString())
-                    .correlationId(event.get("correlationId").asText())
-                    .timestamp(LocalDateTime.parse(event.get("timestamp").asText()))
-                    .eventType(event.get("eventType").asText())
-                    .level(event.get("logLevel").asText())
-                    .method(event.get("methodName").asText())
-                    .args(event.hasNonNull("arguments")
-                            ? Arrays.toString(objectMapper.convertValue(event.get("arguments"), Object[].class))
-                            : null)
-                    .result(event.hasNonNull("result")
-                            ? event.get("result").asText()
-                            : null)
-                    .errorMessage(event.hasNonNull("errorMessage")
-                            ? event.get("errorMessage").asText()
-                            : null)
-                    .build();
+            metrics.recordParse(topic, System.nanoTime() - parseStart);
 
             try {
                 elasticsearchService.indexMethodDocument(document);
                 log.debug("Successfully indexed method event with correlation ID: {}", document.getCorrelationId());
             } catch (Exception e) {
-                kafkaService.sendErrorMessage("INDEXING_ERROR", e.getMessage(), topic, message);
-                acknowledgment.acknowledge();
-                return;
+                if (!retryService.retry(topic, key, message, e)) {
+                    kafkaService.sendErrorMessage(ErrorType.INDEXING_ERROR.name(), e.getMessage(), topic, key, message);
+                }
             }
 
-            acknowledgment.acknowledge();
-
+        } catch (ErrorNotAcceptedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Unexpected error processing method audit message: {}", message, e);
-            kafkaService.sendErrorMessage("PROCESSING_ERROR", e.getMessage(), topic, message);
-            acknowledgment.acknowledge();
+            kafkaService.sendErrorMessage(ErrorType.PROCESSING_ERROR.name(), e.getMessage(), topic, key, message);
         }
-
     }
 
     /**
      * Обработка HTTP событий
      */
-    @KafkaListener(topics = "audit.requests", containerFactory = "kafkaListenerContainerFactory")
-    @Transactional
+    @KafkaListener(topics = "${audit.listener.kafka.http-topic:audit.requests}",
+            containerFactory = "kafkaListenerContainerFactory")
     public void handleHttpEvent(@Payload String message,
                                 @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
                                 @Header(KafkaHeaders.RECEIVED_KEY) String key,
@@ -121,63 +119,64 @@ public class EventListenerImpl implements EventListener {
         log.debug("Received HTTP audit message from topic: {}, key: {}",
                 topic, key);
 
+        metrics.recordConsumed(topic);
+
         try {
-            JsonNode event;
-            try {
-                event = objectMapper.readTree(message);
-            } catch (Exception e) {
-                kafkaService.sendErrorMessage("PARSING_ERROR", e.getMessage(), topic, message);
-                acknowledgment.acknowledge();
-                return;
-            }
+            processHttpEvent(message, topic, key);
+            acknowledgment.acknowledge();
+        } catch (ErrorNotAcceptedException e) {
+            notAccepted(e, topic, acknowledgment);
+        }
+    }
 
-            if (!EventValidator.validateHttpEvent(event)) {
-                kafkaService.sendErrorMessage("VALIDATION_ERROR", "Required fields missing", topic, message);
-                acknowledgment.acknowledge();
+    private void processHttpEvent(String message, String topic, String key) {
+        try {
+            HttpDocument document;
+            long parseStart = System.nanoTime();
+            try {
+                document = eventParser.parseHttpEvent(message, key);
+            } catch (EventProcessingException e) {
+                metrics.recordParse(topic, System.nanoTime() - parseStart);
+                kafkaService.sendErrorMessage(e, topic, key, message);
                 return;
             }
-
-            HttpDocument document = HttpDocument.builder()
-                    .id(UUID.randomUUID().toString())
-                    .correlationId(key)
-                    .timestamp(LocalDateTime.parse(event.get("timestamp").asText()))
-                    .direction(event.get("direction").asText())
-                    .method(event.get("method").asText())
-                    .uri(event.get("uri").asText())
-                    .statusCode(event.get("statusCode").asInt())
-                    .requestBody(event.hasNonNull("requestBody")
-                            ? event.get("requestBody").asText()
-                            : null)
-                    .responseBody(event.hasNonNull("responseBody")
-                            ? event.get("responseBody").asText()
-                            : null)
-                    .build();
+            metrics.recordParse(topic, System.nanoTime() - parseStart);
 
             try {
                 elasticsearchService.indexHttpDocument(document);
                 log.debug("Successfully indexed HTTP event for URI: {}", document.getUri());
             } catch (Exception e) {
-                kafkaService.sendErrorMessage("INDEXING_ERROR", e.getMessage(), topic, message);
-                acknowledgment.acknowledge();
-                return;
+                if (!retryService.retry(topic, key, message, e)) {
+                    kafkaService.sendErrorMessage(ErrorType.INDEXING_ERROR.name(), e.getMessage(), topic, key, message);
+                }
             }
 
-            acknowledgment.acknowledge();
-
+        } catch (ErrorNotAcceptedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Unexpected error processing HTTP audit message: {}", message, e);
-            kafkaService.sendErrorMessage("PROCESSING_ERROR", e.getMessage(), topic, message);
-            acknowledgment.acknowledge();
+            kafkaService.sendErrorMessage(ErrorType.PROCESSING_ERROR.name(), e.getMessage(), topic, key, message);
         }
     }
 
-    @KafkaListener(topics = "audit.errors", containerFactory = "kafkaListenerContainerFactory")
+    /**
+     * Ошибка записи не принята в буфер error топика: запись не подтверждается и читается повторно через NACK_SLEEP
+     */
+    private void notAccepted(ErrorNotAcceptedException e, String topic, Acknowledgment acknowledgment) {
+        log.warn("Error message for a record of topic {} not accepted, the record will be redelivered: {}",
+                topic, e.getMessage());
+        acknowledgment.nack(NACK_SLEEP);
+    }
+
+    @KafkaListener(topics = "${audit.listener.kafka.error-topic:audit.errors}",
+            containerFactory = "kafkaListenerContainerFactory", autoStartup = "true")
     public void handleErrorEvent(@Payload String message,
                                  @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
                                  @Header(KafkaHeaders.RECEIVED_KEY) String key,
                                  Acknowledgment acknowledgment) {
 
         log.debug("Received error message from topic: {}, key: {}", topic, key);
+        metrics.recordConsumed(topic);
 
         try {
             JsonNode errorNode = objectMapper.readTree(message);
@@ -0,0 +1,106 @@
+package io.github.auditlistener.service.impl;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.service.EventPartitionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание дневных секций таблицы events (секционирована по timestamp, см. changelog 002).
+ * Выполняется при старте приложения и по расписанию audit.listener.persistence.partitions.cron
+ */
+@Service
+@ConditionalOnExpression("${audit.listener.persistence.enabled:false} and ${audit.listener.persistence.partitions.enabled:true}")
+public class EventPartitionManagerImpl implements EventPartitionManager {
+
+    static final String LIST_PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'events'::regclass";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("events_p(\\d{8})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Logger log = LogManager.getLogger(EventPartitionManagerImpl.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ListenerConfig.Partitions config;
+
+    public EventPartitionManagerImpl(JdbcTemplate jdbcTemplate, ListenerConfig listenerConfig) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = listenerConfig.getPersistence().getPartitions();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${audit.listener.persistence.partitions.cron:0 0 * * * *}")
+    public void maintainPartitions() {
+        // timestamp событий хранится в UTC, секции нарезаются по дням UTC
+        maintainPartitions(LocalDate.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * @param today день, от которого отсчитываются создаваемые и просроченные секции
+     */
+    public void maintainPartitions(LocalDate today) {
+        for (int i = 0; i <= config.getPrecreateDays(); i++) {
+            createPartition(today.plusDays(i));
+        }
+
+        if (config.getRetentionDays() > 0) {
+            LocalDate oldestKept = today.minusDays(config.getRetentionDays());
+            for (String partition : listPartitions()) {
+                Matcher matcher = PARTITION_NAME.matcher(partition);
+                if (matcher.matches() && LocalDate.parse(matcher.group(1), PARTITION_SUFFIX).isBefore(oldestKept)) {
+                    removePartition(partition);
+                }
+            }
+        }
+    }
+
+    private void createPartition(LocalDate day) {
+        String sql = String.format("CREATE TABLE IF NOT EXISTS events_p%s PARTITION OF events FOR VALUES FROM ('%s') TO ('%s')",
+                day.format(PARTITION_SUFFIX), day, day.plusDays(1));
+        try {
+            jdbcTemplate.execute(sql);
+        } catch (DataAccessException e) {
+            // например, в events_default уже есть строки за этот день
+            log.warn("Failed to create partition of events for {}: {}", day, e.getMessage());
+        }
+    }
+
+    private List<String> listPartitions() {
+        try {
+            return jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+        } catch (DataAccessException e) {
+            log.warn("Failed to list partitions of events: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void removePartition(String partition) {
+        try {
+            jdbcTemplate.execute("ALTER TABLE events DETACH PARTITION " + partition);
+            if (config.isDropExpired()) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Dropped expired partition {}", partition);
+            } else {
+                log.info("Detached expired partition {}", partition);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to remove expired partition {}: {}", partition, e.getMessage());
+        }
+    }
+
+}
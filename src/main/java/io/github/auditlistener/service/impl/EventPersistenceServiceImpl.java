@@ -0,0 +1,218 @@
+package io.github.auditlistener.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.enums.ProcessingMode;
+import io.github.auditlistener.model.persistence.RowFailure;
+import io.github.auditlistener.service.EventPersistenceService;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Запись событий в PostgreSQL пачками через COPY ... FROM STDIN (текстовый формат) во временную таблицу
+ * и INSERT ... SELECT ... ON CONFLICT DO NOTHING в events: пачка передается без построчных INSERT и без JPA,
+ * а событие, строка которого уже записана (повторная доставка, повтор пачки после перезапуска, загрузка из
+ * error топика), пропускается по уникальному (document_id, timestamp). Строка, которую отклоняет база данных,
+ * находится делением пачки и возвращается как ошибка только этого события.
+ * Запись выполняется только из пачек режимов BATCH и PIPELINED
+ */
+@Service
+@ConditionalOnProperty(prefix = "audit.listener.persistence", name = "enabled", havingValue = "true")
+public class EventPersistenceServiceImpl implements EventPersistenceService {
+
+    private static final String COLUMNS = "document_id, correlation_id, event_type, event_source, target_name, "
+            + "log_level, timestamp, data, http_method, http_status, uri, direction, error_message";
+
+    /**
+     * Временная таблица с типами колонок events без ограничений: NOT NULL и секции проверяет INSERT в events
+     */
+    static final String CREATE_STAGING_SQL = "CREATE TEMP TABLE events_staging ON COMMIT DROP AS SELECT "
+            + COLUMNS + " FROM events WITH NO DATA";
+
+    static final String COPY_SQL = "COPY events_staging (" + COLUMNS + ") FROM STDIN";
+
+    static final String INSERT_SQL = "INSERT INTO events (" + COLUMNS + ") SELECT " + COLUMNS
+            + " FROM events_staging ON CONFLICT (document_id, timestamp) DO NOTHING";
+
+    private static final String NULL = "\\N";
+
+    private static final String DATA_EXCEPTION = "22";
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    /**
+     * Длины VARCHAR колонок таблицы events: более длинные значения обрезаются до COPY,
+     * чтобы строка не отклонялась из-за длины
+     */
+    private static final int CORRELATION_ID_LENGTH = 36;
+    private static final int TARGET_NAME_LENGTH = 500;
+    private static final int LOG_LEVEL_LENGTH = 10;
+    private static final int HTTP_METHOD_LENGTH = 10;
+    private static final int URI_LENGTH = 1000;
+    private static final int DIRECTION_LENGTH = 20;
+
+    private final Logger log = LogManager.getLogger(EventPersistenceServiceImpl.class);
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final AuditMetrics metrics;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public EventPersistenceServiceImpl(ListenerConfig config, DataSource dataSource, ObjectMapper objectMapper,
+                                       AuditMetrics metrics) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+
+        if (config.getProcessingMode() != ProcessingMode.BATCH && config.getProcessingMode() != ProcessingMode.PIPELINED) {
+            log.warn("audit.listener.persistence.enabled=true has no effect in {} mode, "
+                    + "events are written to PostgreSQL only in BATCH and PIPELINED modes", config.getProcessingMode());
+        }
+    }
+
+    public List<RowFailure> persist(List<Event> events) {
+        if (events.isEmpty()) {
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        boolean persisted = false;
+        List<RowFailure> failures = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            copy(connection, connection.unwrap(PGConnection.class).getCopyAPI(), events, 0, failures);
+            persisted = failures.isEmpty();
+        } catch (Exception e) {
+            log.error("Failed to copy {} events into PostgreSQL", events.size(), e);
+            throw new RuntimeException("Failed to persist events", e);
+        } finally {
+            metrics.recordCopy(events.size(), System.nanoTime() - start, persisted);
+        }
+        return failures;
+    }
+
+    public CompletableFuture<List<RowFailure>> persistAsync(List<Event> events) {
+        return CompletableFuture.supplyAsync(() -> persist(events), executor);
+    }
+
+    /**
+     * Запись части пачки в отдельной транзакции. Если ее отклонили данные строки (SQLState классов 22 и 23:
+     * формат значения, NOT NULL, нет партиции), транзакция откатывается и часть делится пополам, пока ошибочная
+     * строка не останется одна, остальные строки записываются. Другие ошибки прерывают запись всей пачки
+     *
+     * @param offset позиция первого события части в исходном списке
+     */
+    private void copy(Connection connection, CopyManager copyManager, List<Event> events, int offset,
+                      List<RowFailure> failures) throws SQLException, IOException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING_SQL);
+            copyManager.copyIn(COPY_SQL, new ByteArrayInputStream(toCopyRows(events)));
+            int inserted = statement.executeUpdate(INSERT_SQL);
+            connection.commit();
+            if (inserted < events.size()) {
+                metrics.recordCopyDuplicates(events.size() - inserted);
+            }
+            log.debug("Copied {} events into PostgreSQL, {} already written", inserted, events.size() - inserted);
+            return;
+        } catch (SQLException e) {
+            connection.rollback();
+            if (!isRowError(e)) {
+                throw e;
+            }
+            if (events.size() == 1) {
+                log.warn("Failed to copy event {} into PostgreSQL: {}", events.getFirst().getCorrelationId(), e.getMessage());
+                failures.add(RowFailure.builder().position(offset).reason(e.getMessage()).build());
+                return;
+            }
+        }
+
+        int middle = events.size() / 2;
+        copy(connection, copyManager, events.subList(0, middle), offset, failures);
+        copy(connection, copyManager, events.subList(middle, events.size()), offset + middle, failures);
+    }
+
+    private static boolean isRowError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith(DATA_EXCEPTION) || state.startsWith(INTEGRITY_CONSTRAINT_VIOLATION));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.close();
+    }
+
+    /**
+     * Строки COPY в текстовом формате: поля через табуляцию, NULL как \N,
+     * обратная косая черта и управляющие символы экранируются
+     */
+    byte[] toCopyRows(List<Event> events) throws JsonProcessingException {
+        StringBuilder rows = new StringBuilder(events.size() * 256);
+        for (Event event : events) {
+            appendField(rows, event.getDocumentId()).append('\t');
+            appendField(rows, truncate(event.getCorrelationId(), CORRELATION_ID_LENGTH)).append('\t');
+            appendField(rows, event.getEventType() != null ? event.getEventType().name() : null).append('\t');
+            appendField(rows, event.getEventSource() != null ? event.getEventSource().name() : null).append('\t');
+            appendField(rows, truncate(event.getTargetName(), TARGET_NAME_LENGTH)).append('\t');
+            appendField(rows, truncate(event.getLogLevel(), LOG_LEVEL_LENGTH)).append('\t');
+            appendField(rows, event.getTimestamp() != null ? event.getTimestamp().toString() : null).append('\t');
+            appendField(rows, event.getData() != null ? objectMapper.writeValueAsString(event.getData()) : null)
+                    .append('\t');
+            appendField(rows, truncate(event.getHttpMethod(), HTTP_METHOD_LENGTH)).append('\t');
+            appendField(rows, event.getHttpStatus() != null ? event.getHttpStatus().toString() : null).append('\t');
+            appendField(rows, truncate(event.getUri(), URI_LENGTH)).append('\t');
+            appendField(rows, truncate(event.getDirection(), DIRECTION_LENGTH)).append('\t');
+            appendField(rows, event.getErrorMessage()).append('\n');
+        }
+        return rows.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Обрезает значение до длины колонки в символах (VARCHAR(n) считает кодовые точки, а не char)
+     */
+    private static String truncate(String value, int length) {
+        if (value == null || value.length() <= length || value.codePointCount(0, value.length()) <= length) {
+            return value;
+        }
+        return value.substring(0, value.offsetByCodePoints(0, length));
+    }
+
+    private static StringBuilder appendField(StringBuilder rows, String value) {
+        if (value == null) {
+            return rows.append(NULL);
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> rows.append("\\\\");
+                case '\t' -> rows.append("\\t");
+                case '\n' -> rows.append("\\n");
+                case '\r' -> rows.append("\\r");
+                default -> rows.append(c);
+            }
+        }
+        return rows;
+    }
+
+}
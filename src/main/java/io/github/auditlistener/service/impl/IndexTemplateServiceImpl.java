@@ -0,0 +1,231 @@
+package io.github.auditlistener.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.indices.put_index_template.IndexTemplateMapping;
+import co.elastic.clients.json.JsonData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.model.elastic.ErrorDocument;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.LargeText;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.elastic.StructuredArgs;
+import io.github.auditlistener.model.enums.ArgsMapping;
+import io.github.auditlistener.model.enums.BodyMapping;
+import io.github.auditlistener.service.IndexTemplateService;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.index.MappingBuilder;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Установка шаблонов индексов ElasticSearch при старте приложения (вместо ручного создания индексов).
+ * Маппинги строятся по аннотациям @Field документов, поля @LargeText отображаются по
+ * audit.listener.indices.body-mapping, поля @StructuredArgs - по audit.listener.args.mapping; настройки шардов, ILM и pipeline - из audit.listener.indices.
+ * Ошибка установки не останавливает приложение
+ */
+@Service
+public class IndexTemplateServiceImpl implements IndexTemplateService {
+
+    private static final List<Class<?>> DOCUMENTS = List.of(MethodDocument.class, HttpDocument.class, ErrorDocument.class);
+
+    public static final List<String> INDICES = DOCUMENTS.stream()
+            .map(document -> document.getAnnotation(Document.class).indexName())
+            .toList();
+
+    static final String LIFECYCLE_POLICY = "audit-events";
+    static final String INGEST_PIPELINE = "audit-ingest";
+
+    private static final String ANALYZER = "audit_analyzer";
+    /**
+     * Значения flattened поля индексируются как keyword: длинные строки не индексируются,
+     * чтобы не превысить лимит длины термина Lucene
+     */
+    private static final int FLATTENED_IGNORE_ABOVE = 8191;
+
+    /**
+     * Обрезка полей @LargeText до params.max символов (body-mapping = TRUNCATED)
+     */
+    private static final String TRUNCATE_SCRIPT = """
+            for (String field : params.fields) {
+              def value = ctx[field];
+              if (value instanceof String && value.length() > params.max) {
+                ctx[field] = value.substring(0, params.max);
+              }
+            }""";
+
+    private static final String TEMPLATE_SUFFIX = "-template";
+    private static final long TEMPLATE_PRIORITY = 200;
+
+    private final Logger log = LogManager.getLogger(IndexTemplateServiceImpl.class);
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ListenerConfig.Indices config;
+    private final ArgsMapping argsMapping;
+    private final ObjectMapper objectMapper;
+    private final MappingBuilder mappingBuilder;
+
+    public IndexTemplateServiceImpl(ElasticsearchClient elasticsearchClient, ListenerConfig listenerConfig,
+                                    ObjectMapper objectMapper) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.config = listenerConfig.getIndices();
+        this.argsMapping = listenerConfig.getArgs().getMapping();
+        this.objectMapper = objectMapper;
+        this.mappingBuilder = new MappingBuilder(new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext()));
+    }
+
+    @PostConstruct
+    public void init() {
+        if (config.isInstallTemplates()) {
+            installTemplates();
+        }
+    }
+
+    public boolean installTemplates() {
+        try {
+            installIngestPipeline();
+            if (config.isDataStreams()) {
+                installLifecyclePolicy();
+            }
+            for (Class<?> document : DOCUMENTS) {
+                installIndexTemplate(document);
+            }
+            log.info("Elasticsearch index templates installed: {}", INDICES);
+            return true;
+
+        } catch (Exception e) {
+            log.error("Failed to install Elasticsearch index templates", e);
+            return false;
+        }
+    }
+
+    /**
+     * Data stream требует поле @timestamp: оно заполняется из timestamp события (или временем приема).
+     * При body-mapping = TRUNCATED pipeline также обрезает поля @LargeText
+     */
+    private void installIngestPipeline() throws IOException {
+        elasticsearchClient.ingest().putPipeline(p -> {
+            p.id(INGEST_PIPELINE)
+                    .description("Copies event timestamp into @timestamp and truncates large bodies")
+                    .processors(pr -> pr.set(s -> s
+                            .field("@timestamp")
+                            .copyFrom("timestamp")
+                            .ignoreEmptyValue(true)))
+                    .processors(pr -> pr.set(s -> s
+                            .field("@timestamp")
+                            .value(JsonData.of("{{{_ingest.timestamp}}}"))
+                            .override(false)));
+            if (config.getBodyMapping() == BodyMapping.TRUNCATED) {
+                p.processors(pr -> pr.script(sc -> sc
+                        .lang("painless")
+                        .source(TRUNCATE_SCRIPT)
+                        .params("fields", JsonData.of(largeTextFields()))
+                        .params("max", JsonData.of(config.getBodyMaxChars()))));
+            }
+            return p;
+        });
+    }
+
+    private void installLifecyclePolicy() throws IOException {
+        elasticsearchClient.ilm().putLifecycle(r -> r
+                .name(LIFECYCLE_POLICY)
+                .policy(p -> p.phases(ph -> {
+                    ph.hot(h -> h.actions(a -> a.rollover(ro -> ro
+                            .maxAge(Time.of(t -> t.time(config.getRolloverMaxAge())))
+                            .maxPrimaryShardSize(config.getRolloverMaxPrimaryShardSize()))));
+                    if (config.getRetention() != null && !config.getRetention().isBlank()) {
+                        ph.delete(d -> d
+                                .minAge(Time.of(t -> t.time(config.getRetention())))
+                                .actions(a -> a.delete(del -> del)));
+                    }
+                    return ph;
+                }))
+        );
+    }
+
+    private void installIndexTemplate(Class<?> document) throws IOException {
+        String index = document.getAnnotation(Document.class).indexName();
+        String template = buildTemplate(document);
+        elasticsearchClient.indices().putIndexTemplate(r -> {
+            r.name(index + TEMPLATE_SUFFIX)
+                    .indexPatterns(index)
+                    .priority(TEMPLATE_PRIORITY)
+                    .template(IndexTemplateMapping.of(t -> t.withJson(new StringReader(template))));
+            if (config.isDataStreams()) {
+                r.dataStream(ds -> ds);
+            }
+            return r;
+        });
+    }
+
+    /**
+     * Тело шаблона: маппинг по аннотациям документа, анализатор и настройки индекса из конфигурации
+     */
+    private String buildTemplate(Class<?> document) throws IOException {
+        ObjectNode template = objectMapper.createObjectNode();
+
+        ObjectNode settings = template.putObject("settings");
+        settings.put("number_of_shards", config.getShards());
+        settings.put("number_of_replicas", config.getReplicas());
+        settings.put("default_pipeline", INGEST_PIPELINE);
+        if (config.isDataStreams()) {
+            settings.putObject("lifecycle").put("name", LIFECYCLE_POLICY);
+        }
+        settings.putObject("analysis").putObject("analyzer").putObject(ANALYZER)
+                .put("type", "standard")
+                .put("stopwords", "_english_");
+
+        ObjectNode mappings = (ObjectNode) objectMapper.readTree(mappingBuilder.buildPropertyMapping(document));
+        ObjectNode properties = (ObjectNode) mappings.get("properties");
+        properties.putObject("@timestamp").put("type", "date");
+        for (Field field : document.getDeclaredFields()) {
+            if (field.isAnnotationPresent(LargeText.class)) {
+                properties.set(field.getName(), bodyFieldMapping());
+            } else if (field.isAnnotationPresent(StructuredArgs.class)) {
+                properties.set(field.getName(), argsFieldMapping());
+            }
+        }
+        template.set("mappings", mappings);
+
+        return objectMapper.writeValueAsString(template);
+    }
+
+    private ObjectNode bodyFieldMapping() {
+        ObjectNode mapping = objectMapper.createObjectNode().put("type", "text");
+        if (config.getBodyMapping() == BodyMapping.NOT_INDEXED) {
+            return mapping.put("index", false);
+        }
+        return mapping.put("analyzer", ANALYZER);
+    }
+
+    private ObjectNode argsFieldMapping() {
+        ObjectNode mapping = objectMapper.createObjectNode();
+        return switch (argsMapping) {
+            case FLATTENED -> mapping.put("type", "flattened").put("ignore_above", FLATTENED_IGNORE_ABOVE);
+            case OBJECT -> mapping.put("type", "object").put("dynamic", true);
+            case NONE -> mapping.put("type", "object").put("enabled", false);
+        };
+    }
+
+    private static List<String> largeTextFields() {
+        return DOCUMENTS.stream()
+                .flatMap(document -> Arrays.stream(document.getDeclaredFields()))
+                .filter(field -> field.isAnnotationPresent(LargeText.class))
+                .map(Field::getName)
+                .distinct()
+                .toList();
+    }
+
+}
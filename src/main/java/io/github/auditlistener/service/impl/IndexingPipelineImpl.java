@@ -0,0 +1,155 @@
+package io.github.auditlistener.service.impl;
+
+import io.github.auditlistener.service.AdaptiveBatchController;
+import io.github.auditlistener.service.IndexingPipeline;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер асинхронной индексации: ограничивает число пачек в обработке для каждого слушателя
+ * (адаптивный лимит, см. AdaptiveBatchController), приостанавливает контейнер при заполнении окна
+ * и подтверждает пачки по порядку. Пачка, завершившаяся с ошибкой (ее записи не переданы ни в индекс,
+ * ни на повтор, ни в error топик), не подтверждается: окно сбрасывается без подтверждения последующих
+ * пачек, а контейнер перезапускается и читает записи заново с последнего закоммиченного offset'а
+ */
+@Service
+public class IndexingPipelineImpl implements IndexingPipeline {
+
+    private static final long RESTART_DELAY_MS = 1000;
+
+    private final Logger log = LogManager.getLogger(IndexingPipelineImpl.class);
+
+    private final AdaptiveBatchController batchController;
+    private final KafkaListenerEndpointRegistry registry;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public IndexingPipelineImpl(AdaptiveBatchController batchController, KafkaListenerEndpointRegistry registry) {
+        this.batchController = batchController;
+        this.registry = registry;
+    }
+
+    public void submit(String listenerId, CompletableFuture<Void> indexing, Acknowledgment acknowledgment) {
+        Window window = windows.computeIfAbsent(listenerId, id -> new Window());
+
+        synchronized (window) {
+            if (window.restarting) {
+                // пачка прочитана до остановки контейнера, ее записи будут прочитаны повторно
+                return;
+            }
+            window.batches.addLast(new PendingBatch(indexing, acknowledgment));
+            if (window.batches.size() >= batchController.maxInFlight() && !window.paused) {
+                pause(listenerId, window);
+            }
+        }
+
+        indexing.whenComplete((result, e) -> complete(listenerId, window));
+    }
+
+    public int inFlight(String listenerId) {
+        Window window = windows.get(listenerId);
+        if (window == null) {
+            return 0;
+        }
+        synchronized (window) {
+            return window.batches.size();
+        }
+    }
+
+    /**
+     * Подтверждает завершенные пачки с начала очереди. Пачка, завершившаяся раньше
+     * предыдущих, ожидает их завершения, чтобы не закоммитить offset'ы поверх необработанных записей
+     */
+    private void complete(String listenerId, Window window) {
+        Throwable failure = null;
+        synchronized (window) {
+            while (!window.batches.isEmpty() && window.batches.peekFirst().indexing().isDone()) {
+                CompletableFuture<Void> indexing = window.batches.peekFirst().indexing();
+                if (indexing.isCompletedExceptionally()) {
+                    failure = indexing.handle((result, e) -> e).join();
+                    window.batches.clear();
+                    window.paused = false;
+                    window.restarting = true;
+                    break;
+                }
+                window.batches.pollFirst().acknowledgment().acknowledge();
+            }
+            if (window.paused && window.batches.size() < batchController.maxInFlight()) {
+                resume(listenerId, window);
+            }
+        }
+
+        if (failure != null) {
+            restart(listenerId, window, failure);
+        }
+    }
+
+    /**
+     * Останавливает контейнер без подтверждения пачки с ошибкой и последующих пачек и запускает его
+     * через RESTART_DELAY_MS: consumer'ы продолжают чтение с последнего закоммиченного offset'а.
+     * Повторная индексация уже проиндексированных записей идемпотентна (идентификаторы документов по содержимому)
+     */
+    private void restart(String listenerId, Window window, Throwable failure) {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container == null || !container.isRunning()) {
+            log.error("Asynchronous indexing of batch failed for stopped listener {}, batch is not acknowledged",
+                    listenerId, failure);
+            return;
+        }
+
+        log.error("Asynchronous indexing of batch failed for listener {}, restarting it to read unacknowledged batches again",
+                listenerId, failure);
+        container.stop(() -> CompletableFuture.delayedExecutor(RESTART_DELAY_MS, TimeUnit.MILLISECONDS).execute(() -> {
+            synchronized (window) {
+                window.restarting = false;
+            }
+            container.start();
+        }));
+    }
+
+    private void pause(String listenerId, Window window) {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container != null) {
+            container.pause();
+            window.paused = true;
+            log.debug("Listener {} paused, batches in flight: {}", listenerId, window.batches.size());
+        }
+    }
+
+    private void resume(String listenerId, Window window) {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container != null) {
+            container.resume();
+            log.debug("Listener {} resumed, batches in flight: {}", listenerId, window.batches.size());
+        }
+        window.paused = false;
+    }
+
+    private record PendingBatch(CompletableFuture<Void> indexing, Acknowledgment acknowledgment) {
+    }
+
+    private static final class Window {
+
+        private final Deque<PendingBatch> batches = new ArrayDeque<>();
+
+        private boolean paused;
+
+        /**
+         * Контейнер перезапускается после ошибки: новые пачки не подтверждаются
+         */
+        private boolean restarting;
+
+    }
+
+}
@@ -2,56 +2,269 @@ package io.github.auditlistener.service.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.ErrorNotAcceptedException;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
 import io.github.auditlistener.model.elastic.ErrorDocument;
+import io.github.auditlistener.model.enums.PayloadField;
+import io.github.auditlistener.model.enums.PayloadFormat;
+import io.github.auditlistener.model.validation.FieldViolation;
 import io.github.auditlistener.service.KafkaService;
+import io.github.auditlistener.service.PayloadLimiter;
+import io.github.auditlistener.utils.DocumentIds;
+import io.github.auditlistener.utils.Payloads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.UUID;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Сервис для работы с Kafka
+ * Сервис для работы с Kafka. Сообщения об ошибках помещаются в ограниченный локальный буфер
+ * и отправляются отдельным потоком, чтобы всплеск ошибок не задерживал поток consumer'а.
+ * Если буфер заполнен дольше error-producer.buffer-offer-timeout-ms, вызов завершается
+ * ErrorNotAcceptedException: сообщение не отбрасывается молча, исходная запись не подтверждается
+ * и будет прочитана повторно.
+ * Принятое сообщение хранится только в памяти, а исходная запись подтверждается сразу после приема:
+ * сообщения, находящиеся в буфере или в producer'е в момент аварийного завершения процесса, теряются
+ * (доставка не более одного раза в пределах этого окна); при штатной остановке буфер отправляется
  */
 @Service
 public class KafkaServiceImpl implements KafkaService {
 
+    private static final long DRAIN_POLL_MS = 100;
+    private static final long STOP_TIMEOUT_MS = 10000;
+
     private final Logger log = LogManager.getLogger(KafkaServiceImpl.class);
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final ListenerConfig config;
     private final ObjectMapper objectMapper;
+    private final PayloadLimiter payloadLimiter;
+    private final AuditMetrics metrics;
+
+    private final BlockingQueue<ErrorDocument> buffer;
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private Thread sender;
 
-    public KafkaServiceImpl(KafkaTemplate<String, String> kafkaTemplate,
+    public KafkaServiceImpl(@Qualifier("errorKafkaTemplate") KafkaTemplate<String, byte[]> kafkaTemplate,
                             ListenerConfig config,
-                            ObjectMapper objectMapper) {
+                            ObjectMapper objectMapper,
+                            PayloadLimiter payloadLimiter,
+                            AuditMetrics metrics) {
         this.kafkaTemplate = kafkaTemplate;
         this.config = config;
         this.objectMapper = objectMapper;
+        this.payloadLimiter = payloadLimiter;
+        this.metrics = metrics;
+        this.buffer = new ArrayBlockingQueue<>(config.getErrorProducer().getBufferCapacity());
+        metrics.registerErrorBuffer(buffer);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        sender = Thread.ofPlatform().name("audit-error-sender").daemon().start(this::drain);
+    }
+
+    /**
+     * Останавливает отправку, дожидаясь отправки сообщений, оставшихся в буфере
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        running = false;
+        if (sender != null) {
+            sender.join(STOP_TIMEOUT_MS);
+        }
+        kafkaTemplate.flush();
+    }
+
+    /**
+     * Помещает сообщение в буфер отправки. При заполненном буфере ожидает освобождения места
+     * не дольше error-producer.buffer-offer-timeout-ms. Исходное сообщение обрезается
+     * по лимиту payload.original-message-max-chars
+     *
+     * @throws ErrorNotAcceptedException буфер заполнен дольше таймаута, отправка остановлена или поток
+     * прерван во время ожидания: сообщение не принято, исходную запись нельзя подтверждать
+     */
+    public void sendErrorMessage(String errorType, String errorMessage, String originalTopic, String originalKey,
+                                 String originalMessage) {
+        sendErrorMessage(errorType, errorMessage, null, originalTopic, originalKey, originalMessage);
     }
 
-    public void sendErrorMessage(String errorType, String errorMessage, String originalTopic,
+    public void sendErrorMessage(EventProcessingException error, String originalTopic, String originalKey,
                                  String originalMessage) {
+        sendErrorMessage(error.getErrorType().name(), error.getMessage(), violations(error), originalTopic, originalKey,
+                originalMessage);
+    }
+
+    public void sendErrorMessage(String errorType, String errorMessage, ConsumerRecord<String, Object> record) {
+        sendErrorMessage(errorType, errorMessage, null, record);
+    }
+
+    public void sendErrorMessage(EventProcessingException error, ConsumerRecord<String, Object> record) {
+        sendErrorMessage(error.getErrorType().name(), error.getMessage(), violations(error), record);
+    }
+
+    private void sendErrorMessage(String errorType, String errorMessage, List<FieldViolation> violations,
+                                  String originalTopic, String originalKey, String originalMessage) {
+        ErrorDocument errorDoc = errorDocument(errorType, errorMessage, violations, originalTopic, originalKey);
+        errorDoc.setOriginalMessage(payloadLimiter.limit(PayloadField.ORIGINAL_MESSAGE, originalMessage));
+
+        enqueue(errorDoc);
+        metrics.recordErrorSent(errorType, originalTopic);
+    }
+
+    /**
+     * Значение бинарного формата в байтах не обрезается: обрезанное значение нельзя декодировать
+     */
+    private void sendErrorMessage(String errorType, String errorMessage, List<FieldViolation> violations,
+                                  ConsumerRecord<String, Object> record) {
+        ErrorDocument errorDoc = errorDocument(errorType, errorMessage, violations, record.topic(), record.key());
+        String format = format(record);
+        String encoding = header(record, config.getKafka().getContentEncodingHeader());
+        if (record.value() instanceof byte[] payload
+                && (encoding != null || !PayloadFormat.JSON.name().equalsIgnoreCase(format))) {
+            payloadLimiter.recordSize(PayloadField.ORIGINAL_MESSAGE, payload.length);
+            errorDoc.setOriginalPayload(payload);
+            errorDoc.setOriginalFormat(format);
+            errorDoc.setOriginalContentEncoding(encoding);
+            // идентификатор схемы сжатого значения находится в сжатых данных
+            errorDoc.setOriginalSchemaId(encoding == null && PayloadFormat.AVRO.name().equalsIgnoreCase(format)
+                    ? schemaId(payload) : null);
+        } else {
+            errorDoc.setOriginalMessage(payloadLimiter.limit(PayloadField.ORIGINAL_MESSAGE, Payloads.asString(record.value())));
+        }
+
+        enqueue(errorDoc);
+        metrics.recordErrorSent(errorType, record.topic());
+    }
+
+    private static ErrorDocument errorDocument(String errorType, String errorMessage, List<FieldViolation> violations,
+                                               String originalTopic, String originalKey) {
+        return ErrorDocument.builder()
+                .id(DocumentIds.timeBased())
+                .timestamp(Instant.now())
+                .errorType(errorType)
+                .errorMessage(errorMessage)
+                .violations(violations)
+                .originalTopic(originalTopic)
+                .originalKey(originalKey)
+                .build();
+    }
+
+    private static List<FieldViolation> violations(EventProcessingException error) {
+        return error.getViolations().isEmpty() ? null : error.getViolations();
+    }
+
+    /**
+     * Формат значения так же, как его определяет PayloadDecoder: заголовок kafka.format-header,
+     * без заголовка - формат топика
+     */
+    private String format(ConsumerRecord<String, Object> record) {
+        String format = header(record, config.getKafka().getFormatHeader());
+        if (format != null) {
+            return format;
+        }
+        ListenerConfig.TopicListener listener = config.topicListener(record.topic());
+        return (listener != null ? listener.getFormat() : PayloadFormat.JSON).name();
+    }
+
+    private static String header(ConsumerRecord<String, Object> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null && header.value() != null
+                ? new String(header.value(), StandardCharsets.UTF_8).trim()
+                : null;
+    }
+
+    /**
+     * Идентификатор схемы из заголовка значения Avro (магический байт 0 и 4 байта идентификатора)
+     */
+    private static Integer schemaId(byte[] payload) {
+        if (payload.length < 1 + Integer.BYTES || payload[0] != 0) {
+            return null;
+        }
+        return ByteBuffer.wrap(payload, 1, Integer.BYTES).getInt();
+    }
+
+    private void enqueue(ErrorDocument errorDoc) {
+        long timeoutMs = config.getErrorProducer().getBufferOfferTimeoutMs();
+        boolean accepted;
+        try {
+            accepted = buffer.offer(errorDoc, timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ErrorNotAcceptedException("Interrupted while waiting for error buffer: " + errorDoc.getErrorMessage(), e);
+        }
+        if (accepted) {
+            return;
+        }
+
+        metrics.recordErrorStalled();
+        if (stopped) {
+            throw new ErrorNotAcceptedException("Error sender is stopped, error message not accepted: "
+                    + errorDoc.getErrorMessage());
+        }
+        log.warn("Error buffer is full for {} ms, error message not accepted: {}", timeoutMs, errorDoc.getErrorMessage());
+        throw new ErrorNotAcceptedException("Error buffer is full for " + timeoutMs + " ms, error message not accepted: "
+                + errorDoc.getErrorMessage());
+    }
+
+    /**
+     * Количество сообщений в буфере, ожидающих отправки
+     */
+    public int buffered() {
+        return buffer.size();
+    }
+
+    private void drain() {
+        while (running || !buffer.isEmpty()) {
+            ErrorDocument errorDoc;
+            try {
+                errorDoc = buffer.poll(DRAIN_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (errorDoc != null) {
+                send(errorDoc);
+            }
+        }
+    }
+
+    private void send(ErrorDocument errorDoc) {
         try {
-            ErrorDocument errorDoc = ErrorDocument.builder()
-                    .id(UUID.randomUUID().toString())
-                    .timestamp(LocalDateTime.now())
-                    .errorType(errorType)
-                    .errorMessage(errorMessage)
-                    .originalTopic(originalTopic)
-                    .originalMessage(originalMessage)
-                    .build();
-
-            String jsonMessage = objectMapper.writeValueAsString(errorDoc);
+            byte[] jsonMessage = objectMapper.writeValueAsBytes(errorDoc);
             String key = "error_" + errorDoc.getId();
 
-            kafkaTemplate.send(config.getKafka().getErrorTopic(), key, jsonMessage);
-            log.debug("Error sent to Kafka: {}", errorType);
+            kafkaTemplate.send(config.getKafka().getErrorTopic(), key, jsonMessage)
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            metrics.recordErrorSendFailure();
+                            log.error("Failed to send error to Kafka: {}", errorDoc.getErrorMessage(), e);
+                        } else {
+                            log.debug("Error sent to Kafka: {}", errorDoc.getErrorType());
+                        }
+                    });
 
         } catch (Exception e) {
-            log.error("Failed to send error to Kafka: {}", errorMessage, e);
+            metrics.recordErrorSendFailure();
+            log.error("Failed to send error to Kafka: {}", errorDoc.getErrorMessage(), e);
         }
     }
 
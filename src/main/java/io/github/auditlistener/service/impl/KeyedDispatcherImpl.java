@@ -0,0 +1,53 @@
+package io.github.auditlistener.service.impl;
+
+import io.github.auditlistener.service.KeyedDispatcher;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Диспетчер задач на виртуальных потоках с сохранением порядка внутри ключа: для каждого ключа
+ * хранится последняя задача, следующая задача ключа запускается по ее завершении
+ */
+@Service
+public class KeyedDispatcherImpl implements KeyedDispatcher {
+
+    private final Logger log = LogManager.getLogger(KeyedDispatcherImpl.class);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public void dispatch(String key, Runnable task) {
+        Runnable guarded = () -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Task failed for key: {}", key, e);
+            }
+        };
+
+        CompletableFuture<Void> tail = tails.compute(key, (k, previous) -> previous == null
+                ? CompletableFuture.runAsync(guarded, executor)
+                : previous.thenRunAsync(guarded, executor));
+
+        tail.whenComplete((result, e) -> tails.remove(key, tail));
+    }
+
+    public int activeKeys() {
+        return tails.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.close();
+    }
+
+}
@@ -0,0 +1,167 @@
+package io.github.auditlistener.service.impl;
+
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.ErrorNotAcceptedException;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.service.EventDocumentParser;
+import io.github.auditlistener.service.KeyedDispatcher;
+import io.github.auditlistener.service.KeyedEventListener;
+import io.github.auditlistener.service.PayloadDecoder;
+import io.github.auditlistener.service.RetryService;
+import io.github.auditlistener.utils.Payloads;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сервис "вычитки" сообщений из Kafka с параллельной обработкой по ключам на виртуальных потоках.
+ * Записи подтверждаются асинхронно (async acks), поэтому nack не поддерживается: запись, ошибку которой
+ * error топик не принял ({@link ErrorNotAcceptedException}), не подтверждается, а контейнер перезапускается
+ * и читает записи заново с последнего закоммиченного offset'а. Иначе неподтвержденный offset остановил бы
+ * коммиты партиции до перезапуска приложения. Повторная индексация уже обработанных записей идемпотентна
+ */
+@Service
+public class KeyedEventListenerImpl implements KeyedEventListener {
+
+    public static final String LISTENER_ID = "auditKeyedListener";
+
+    private static final long RESTART_DELAY_MS = 1000;
+
+    private final Logger log = LogManager.getLogger(KeyedEventListenerImpl.class);
+
+    private final ListenerConfig config;
+    private final EventDocumentParser eventParser;
+    private final PayloadDecoder payloadDecoder;
+    private final KafkaServiceImpl kafkaService;
+    private final ElasticSearchServiceImpl elasticsearchService;
+    private final KeyedDispatcher dispatcher;
+    private final RetryService retryService;
+    private final AuditMetrics metrics;
+    private final KafkaListenerEndpointRegistry registry;
+
+    private final AtomicBoolean restarting = new AtomicBoolean();
+
+    public KeyedEventListenerImpl(ListenerConfig config, EventDocumentParser eventParser, PayloadDecoder payloadDecoder,
+                                  KafkaServiceImpl kafkaService, ElasticSearchServiceImpl elasticsearchService,
+                                  KeyedDispatcher dispatcher, RetryService retryService, AuditMetrics metrics,
+                                  KafkaListenerEndpointRegistry registry) {
+        this.config = config;
+        this.eventParser = eventParser;
+        this.payloadDecoder = payloadDecoder;
+        this.kafkaService = kafkaService;
+        this.elasticsearchService = elasticsearchService;
+        this.dispatcher = dispatcher;
+        this.retryService = retryService;
+        this.metrics = metrics;
+        this.registry = registry;
+    }
+
+    /**
+     * Записи с ключом (correlationId) упорядочиваются по ключу, записи без ключа - по партиции
+     */
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = {"${audit.listener.kafka.method-topic:audit.methods}",
+            "${audit.listener.kafka.http-topic:audit.requests}"},
+            containerFactory = "keyedKafkaListenerContainerFactory")
+    public void handleEvent(ConsumerRecord<String, Object> record, Acknowledgment acknowledgment) {
+
+        metrics.recordConsumed(record.topic());
+
+        String key = record.key() != null
+                ? record.key()
+                : record.topic() + "-" + record.partition();
+
+        dispatcher.dispatch(key, () -> {
+            try {
+                process(record);
+                acknowledgment.acknowledge();
+            } catch (ErrorNotAcceptedException e) {
+                restart(record, e);
+            }
+        });
+    }
+
+    /**
+     * Останавливает контейнер без подтверждения записи и запускает его через RESTART_DELAY_MS.
+     * Записи, ошибки которых не приняты одновременно, вызывают один перезапуск
+     */
+    private void restart(ConsumerRecord<String, Object> record, ErrorNotAcceptedException e) {
+        MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+        if (container == null || !container.isRunning() || !restarting.compareAndSet(false, true)) {
+            log.warn("Error of record {}-{}@{} is not accepted, record is not acknowledged: {}",
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+            return;
+        }
+
+        log.warn("Error of record {}-{}@{} is not accepted, restarting listener {} to read it again: {}",
+                record.topic(), record.partition(), record.offset(), LISTENER_ID, e.getMessage());
+        container.stop(() -> CompletableFuture.delayedExecutor(RESTART_DELAY_MS, TimeUnit.MILLISECONDS).execute(() -> {
+            restarting.set(false);
+            container.start();
+        }));
+    }
+
+    /**
+     * Значение бинарного формата декодируется PayloadDecoder; в error топик и на повтор
+     * передается сообщение в JSON
+     */
+    private void process(ConsumerRecord<String, Object> record) {
+        boolean methodEvent = config.getKafka().getMethodTopic().equals(record.topic());
+
+        MethodDocument methodDocument = null;
+        HttpDocument httpDocument = null;
+        ConsumerRecord<String, Object> event = record;
+        long parseStart = System.nanoTime();
+        try {
+            event = payloadDecoder.decode(record);
+            if (methodEvent) {
+                methodDocument = event.value() instanceof TokenBuffer events
+                        ? eventParser.parseMethodEvent(events)
+                        : event.value() instanceof byte[] bytes
+                        ? eventParser.parseMethodEvent(bytes)
+                        : eventParser.parseMethodEvent((String) event.value());
+            } else {
+                httpDocument = event.value() instanceof TokenBuffer events
+                        ? eventParser.parseHttpEvent(events, event.key())
+                        : event.value() instanceof byte[] bytes
+                        ? eventParser.parseHttpEvent(bytes, event.key())
+                        : eventParser.parseHttpEvent((String) event.value(), event.key());
+            }
+        } catch (EventProcessingException e) {
+            metrics.recordParse(record.topic(), System.nanoTime() - parseStart);
+            kafkaService.sendErrorMessage(e, event);
+            return;
+        } catch (Exception e) {
+            log.error("Unexpected error processing audit message {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+            kafkaService.sendErrorMessage(ErrorType.PROCESSING_ERROR.name(), e.getMessage(), event);
+            return;
+        }
+        metrics.recordParse(record.topic(), System.nanoTime() - parseStart);
+
+        try {
+            if (methodEvent) {
+                elasticsearchService.indexMethodDocument(methodDocument);
+            } else {
+                elasticsearchService.indexHttpDocument(httpDocument);
+            }
+        } catch (Exception e) {
+            if (!retryService.retry(record.topic(), record.key(), Payloads.asString(event.value()), e)) {
+                kafkaService.sendErrorMessage(ErrorType.INDEXING_ERROR.name(), e.getMessage(), record);
+            }
+        }
+    }
+
+}
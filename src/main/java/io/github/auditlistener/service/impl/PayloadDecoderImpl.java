@@ -0,0 +1,188 @@
+package io.github.auditlistener.service.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.enums.ContentEncoding;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.model.enums.PayloadFormat;
+import io.github.auditlistener.service.PayloadDecoder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Декодирование бинарных значений записей. Avro значение читается по схеме из локального реестра
+ * (schema-registry.directory/{id}.avsc), скомпилированный декодер кэшируется по идентификатору схемы.
+ * Значение декодируется сразу в токены (TokenBuffer), которые EventDocumentParser разбирает в документ
+ * так же, как JSON сообщение, без промежуточного JSON текста.
+ * Сжатое значение (заголовок kafka.content-encoding-header) распаковывается потоком {@link Decompressors}:
+ * JSON читается парсером прямо из потока, Avro - из распакованных байтов
+ */
+@Service
+public class PayloadDecoderImpl implements PayloadDecoder {
+
+    private static final byte MAGIC_BYTE = 0;
+    private static final int HEADER_BYTES = 1 + Integer.BYTES;
+    /**
+     * Inflater'ов в пуле: не меньше числа потоков, одновременно разбирающих записи
+     */
+    private static final int INFLATER_POOL_SIZE = 64;
+
+    private final Logger log = LogManager.getLogger(PayloadDecoderImpl.class);
+
+    private final ListenerConfig config;
+    private final ObjectMapper objectMapper;
+    private final AuditMetrics metrics;
+    private final Path schemaDirectory;
+    private final Decompressors decompressors = new Decompressors(INFLATER_POOL_SIZE);
+
+    private final Map<Integer, AvroDecoder> decoders = new ConcurrentHashMap<>();
+
+    public PayloadDecoderImpl(ListenerConfig config, ObjectMapper objectMapper, AuditMetrics metrics) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.schemaDirectory = Path.of(config.getSchemaRegistry().getDirectory());
+    }
+
+    public ConsumerRecord<String, Object> decode(ConsumerRecord<String, Object> record) {
+        if (record.value() == null) {
+            return record;
+        }
+        PayloadFormat format = format(record);
+        ContentEncoding encoding = encoding(record);
+        if (format == PayloadFormat.JSON && encoding == null) {
+            return record;
+        }
+        if (!(record.value() instanceof byte[] bytes)) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, (encoding != null ? "Compressed" : "Avro")
+                    + " payload requires audit.listener.kafka.byte-array-values=true");
+        }
+
+        TokenBuffer events = encoding != null
+                ? decompress(record.topic(), encoding, format, bytes)
+                : decodeAvro(bytes);
+        return new ConsumerRecord<>(record.topic(), record.partition(), record.offset(), record.timestamp(),
+                record.timestampType(), record.serializedKeySize(), record.serializedValueSize(), record.key(),
+                events, record.headers(), record.leaderEpoch());
+    }
+
+    private PayloadFormat format(ConsumerRecord<String, Object> record) {
+        Header header = record.headers().lastHeader(config.getKafka().getFormatHeader());
+        if (header == null || header.value() == null) {
+            ListenerConfig.TopicListener listener = config.topicListener(record.topic());
+            return listener != null ? listener.getFormat() : PayloadFormat.JSON;
+        }
+
+        String format = new String(header.value(), StandardCharsets.UTF_8).trim();
+        try {
+            return PayloadFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, "Unsupported payload format: " + format);
+        }
+    }
+
+    private ContentEncoding encoding(ConsumerRecord<String, Object> record) {
+        Header header = record.headers().lastHeader(config.getKafka().getContentEncodingHeader());
+        if (header == null || header.value() == null) {
+            return null;
+        }
+        try {
+            return ContentEncoding.of(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Распаковывает значение потоком: JSON копируется парсером из потока в токены, Avro декодируется
+     * из распакованных байтов. Коэффициент сжатия записывается в метрики
+     */
+    private TokenBuffer decompress(String topic, ContentEncoding encoding, PayloadFormat format, byte[] payload) {
+        TokenBuffer events;
+        long decompressedBytes;
+        try (Decompressors.DecompressedInputStream in =
+                     decompressors.open(encoding, payload, config.getKafka().getMaxDecompressedBytes())) {
+            events = format == PayloadFormat.AVRO ? decodeAvro(in.readAllBytes()) : readJson(in);
+            decompressedBytes = in.bytesRead();
+        } catch (JsonProcessingException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR,
+                    "Invalid " + encoding.getHeaderValue() + " payload: " + e.getMessage(), e);
+        }
+
+        metrics.recordCompression(topic, encoding, payload.length, decompressedBytes);
+        return events;
+    }
+
+    /**
+     * Корневое значение JSON сообщения в токенах; пустое сообщение - без токенов, как пустая строка JSON.
+     * Поток дочитывается до конца, чтобы распаковщик проверил контрольную сумму
+     */
+    private TokenBuffer readJson(InputStream in) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            TokenBuffer events = new TokenBuffer(parser);
+            if (parser.nextToken() != null) {
+                events.copyCurrentStructure(parser);
+                parser.nextToken();
+            }
+            return events;
+        }
+    }
+
+    private TokenBuffer decodeAvro(byte[] payload) {
+        if (payload.length < HEADER_BYTES || payload[0] != MAGIC_BYTE) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR,
+                    "Avro payload must start with magic byte 0 and schema id");
+        }
+
+        int schemaId = (payload[1] & 0xFF) << 24 | (payload[2] & 0xFF) << 16 | (payload[3] & 0xFF) << 8 | (payload[4] & 0xFF);
+        AvroDecoder decoder = decoders.computeIfAbsent(schemaId, this::loadSchema);
+
+        TokenBuffer events = new TokenBuffer(objectMapper, false);
+        try {
+            decoder.decode(payload, HEADER_BYTES, events);
+        } catch (IOException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR,
+                    "Invalid Avro payload of schema " + schemaId + ": " + e.getMessage(), e);
+        }
+        return events;
+    }
+
+    /**
+     * Читает и компилирует схему. Ошибка не кэшируется: схему можно добавить в каталог без перезапуска
+     */
+    private AvroDecoder loadSchema(int schemaId) {
+        Path file = schemaDirectory.resolve(schemaId + ".avsc");
+        if (!Files.isRegularFile(file)) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR, "Unknown Avro schema id " + schemaId);
+        }
+
+        try {
+            AvroDecoder decoder = AvroDecoder.compile(objectMapper.readTree(file.toFile()));
+            log.info("Loaded Avro schema {} from {}", schemaId, file);
+            return decoder;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new EventProcessingException(ErrorType.PARSING_ERROR,
+                    "Invalid Avro schema " + schemaId + ": " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package io.github.auditlistener.service.impl;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.enums.PayloadField;
+import io.github.auditlistener.service.PayloadLimiter;
+import io.github.auditlistener.service.PayloadStore;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Лимиты размера тел (audit.listener.payload.*). Обрезанное значение заканчивается маркером
+ * "...[truncated {длина} chars]"; при включенном хранилище полное значение сохраняется в {@link PayloadStore},
+ * а маркер содержит ссылку на него. Ошибка хранилища не прерывает обработку: значение обрезается без ссылки
+ */
+@Service
+public class PayloadLimiterImpl implements PayloadLimiter {
+
+    private static final String MARKER_START = "...[truncated ";
+    private static final String MARKER_CHARS = " chars";
+    private static final String MARKER_STORED = ", stored as ";
+    private static final char MARKER_END = ']';
+
+    private final Logger log = LogManager.getLogger(PayloadLimiterImpl.class);
+
+    private final ListenerConfig.Payload config;
+    private final PayloadStore store;
+    private final AuditMetrics metrics;
+
+    /**
+     * Лимиты по PayloadField.ordinal()
+     */
+    private final int[] maxChars;
+
+    public PayloadLimiterImpl(ListenerConfig config, PayloadStore store, AuditMetrics metrics) {
+        this.config = config.getPayload();
+        this.store = store;
+        this.metrics = metrics;
+        this.maxChars = new int[PayloadField.values().length];
+        if (this.config.isEnabled()) {
+            maxChars[PayloadField.ARGS.ordinal()] = this.config.getArgsMaxChars();
+            maxChars[PayloadField.RESULT.ordinal()] = this.config.getResultMaxChars();
+            maxChars[PayloadField.REQUEST_BODY.ordinal()] = this.config.getRequestBodyMaxChars();
+            maxChars[PayloadField.RESPONSE_BODY.ordinal()] = this.config.getResponseBodyMaxChars();
+            maxChars[PayloadField.ORIGINAL_MESSAGE.ordinal()] = this.config.getOriginalMessageMaxChars();
+        }
+    }
+
+    public String limit(PayloadField field, String value) {
+        if (value == null) {
+            return null;
+        }
+
+        int length = value.length();
+        metrics.recordPayloadSize(field, length);
+        int max = maxChars[field.ordinal()];
+        if (max <= 0 || length <= max) {
+            return value;
+        }
+
+        String reference = store(field, value);
+        int end = Character.isHighSurrogate(value.charAt(max - 1)) ? max - 1 : max;
+        StringBuilder truncated = new StringBuilder(end + 128)
+                .append(value, 0, end)
+                .append(MARKER_START).append(length).append(MARKER_CHARS);
+        if (reference != null) {
+            truncated.append(MARKER_STORED).append(reference);
+        }
+        metrics.recordPayloadTruncated(field);
+        return truncated.append(MARKER_END).toString();
+    }
+
+    public int maxChars(PayloadField field) {
+        return maxChars[field.ordinal()];
+    }
+
+    public void recordSize(PayloadField field, int chars) {
+        metrics.recordPayloadSize(field, chars);
+    }
+
+    public String restore(String value) throws IOException {
+        if (value == null || value.isEmpty() || value.charAt(value.length() - 1) != MARKER_END) {
+            return value;
+        }
+
+        int at = value.lastIndexOf(MARKER_STORED);
+        if (at < 0) {
+            return value;
+        }
+        String reference = value.substring(at + MARKER_STORED.length(), value.length() - 1);
+        return PayloadStoreImpl.isReference(reference) ? store.load(reference) : value;
+    }
+
+    private String store(PayloadField field, String value) {
+        if (!config.getStore().isEnabled()) {
+            return null;
+        }
+
+        try {
+            String reference = store.store(value);
+            metrics.recordPayloadStored(field);
+            return reference;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to store {} of {} chars, value is truncated without reference", field.getFieldName(),
+                    value.length(), e);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,214 @@
+package io.github.auditlistener.service.impl;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.service.PayloadStore;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Файловое хранилище полных значений обрезанных тел. Значение сжимается gzip и записывается
+ * в {directory}/{первые 2 символа hash}/{hash}.gz, где hash - SHA-256 содержимого, поэтому
+ * одинаковые тела хранятся один раз. Файл записывается во временный и переименовывается,
+ * так что по ссылке не читается недописанное значение.
+ * Время изменения файла обновляется при каждой записи того же значения, и очистка удаляет файлы,
+ * на которые не ссылались дольше retention-days, а затем самые старые файлы сверх max-size-bytes.
+ * Ссылки в уже проиндексированных документах на удаленные значения больше не восстанавливаются
+ */
+@Service
+public class PayloadStoreImpl implements PayloadStore {
+
+    static final String REFERENCE_PREFIX = "sha256:";
+
+    private static final int HASH_CHARS = 64;
+    private static final String SUFFIX = ".gz";
+
+    private final Logger log = LogManager.getLogger(PayloadStoreImpl.class);
+
+    private final ListenerConfig.Store config;
+    private final Path directory;
+    private final AuditMetrics metrics;
+
+    private final AtomicLong storeBytes = new AtomicLong();
+
+    public PayloadStoreImpl(ListenerConfig config, AuditMetrics metrics) {
+        this.config = config.getPayload().getStore();
+        this.directory = Path.of(this.config.getDirectory());
+        this.metrics = metrics;
+        metrics.registerPayloadStore(storeBytes::get);
+    }
+
+    public String store(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        String hash = HexFormat.of().formatHex(sha256(bytes));
+        Path file = file(hash);
+        if (Files.exists(file)) {
+            try {
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+                return REFERENCE_PREFIX + hash;
+            } catch (NoSuchFileException e) {
+                // файл удален очисткой после проверки - значение записывается заново
+            }
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), hash, ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                out.write(bytes);
+            }
+            long size = Files.size(temp);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            storeBytes.addAndGet(size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return REFERENCE_PREFIX + hash;
+    }
+
+    public String load(String reference) throws IOException {
+        if (!isReference(reference)) {
+            throw new IllegalArgumentException("Invalid payload reference: " + reference);
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file(reference.substring(REFERENCE_PREFIX.length()))))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Удаляет файлы старше retention-days и самые старые файлы, пока объем хранилища больше max-size-bytes.
+     * Объем хранилища пересчитывается по оставшимся файлам (первый запуск - при старте приложения)
+     */
+    @Scheduled(fixedDelayString = "${audit.listener.payload.store.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        if (!config.isEnabled() || Files.notExists(directory)) {
+            return;
+        }
+
+        List<StoredFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .map(PayloadStoreImpl::storedFile)
+                    .filter(Objects::nonNull)
+                    .forEach(files::add);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to list payload store {}", directory, e);
+            return;
+        }
+        files.sort(Comparator.comparing(StoredFile::modified));
+
+        FileTime expiry = config.getRetentionDays() > 0
+                ? FileTime.from(Instant.now().minus(Duration.ofDays(config.getRetentionDays())))
+                : null;
+        long total = files.stream().mapToLong(StoredFile::size).sum();
+        int evicted = 0;
+        for (StoredFile file : files) {
+            boolean expired = expiry != null && file.modified().compareTo(expiry) < 0;
+            boolean oversized = config.getMaxSizeBytes() > 0 && total > config.getMaxSizeBytes();
+            if (!expired && !oversized) {
+                break;
+            }
+            if (delete(file)) {
+                total -= file.size();
+                evicted++;
+            }
+        }
+
+        storeBytes.set(total);
+        metrics.recordPayloadStoreEvicted(evicted);
+        if (evicted > 0) {
+            log.info("Removed {} files from payload store {}, {} bytes left", evicted, directory, total);
+        }
+    }
+
+    /**
+     * Ссылка sha256:{64 hex символа}; проверяется до обращения к файлу, чтобы ссылка из сообщения
+     * не могла указывать за пределы directory
+     */
+    static boolean isReference(String reference) {
+        if (reference == null || reference.length() != REFERENCE_PREFIX.length() + HASH_CHARS
+                || !reference.startsWith(REFERENCE_PREFIX)) {
+            return false;
+        }
+        for (int i = REFERENCE_PREFIX.length(); i < reference.length(); i++) {
+            if (Character.digit(reference.charAt(i), 16) < 0 || Character.isUpperCase(reference.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Файл, значение которого записано повторно после составления списка, не удаляется
+     */
+    private boolean delete(StoredFile file) {
+        try {
+            if (Files.getLastModifiedTime(file.path()).compareTo(file.modified()) > 0) {
+                return false;
+            }
+            return Files.deleteIfExists(file.path());
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            log.error("Failed to remove payload file {}", file.path(), e);
+            return false;
+        }
+    }
+
+    /**
+     * @return null, если файл удален после составления списка
+     */
+    private static StoredFile storedFile(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new StoredFile(path, attributes.lastModifiedTime(), attributes.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash + SUFFIX);
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredFile(Path path, FileTime modified, long size) {
+    }
+
+}
@@ -0,0 +1,346 @@
+package io.github.auditlistener.service.impl;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.service.EventDocumentParser;
+import io.github.auditlistener.service.RetryService;
+import io.github.auditlistener.utils.ElasticsearchErrors;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Повтор индексации после временных ошибок ElasticSearch. Записи ожидают повтора в очереди с задержкой
+ * (экспоненциальная задержка со случайным разбросом) и индексируются отдельным потоком. При переполнении
+ * очереди и после исчерпания попыток записи сохраняются в spill-журнал и индексируются из него,
+ * когда ElasticSearch восстановится. В error топик отправляются только записи с постоянной ошибкой.
+ * Запись принимается (и исходная запись Kafka подтверждается) только после добавления в журнал очереди
+ * (spill-directory/queue) или в spill-журнал: очередь в памяти - индекс записей журнала очереди, запись
+ * помечается в журнале после индексации, и при аварийном завершении процесса непомеченные записи
+ * возвращаются в очередь при следующем старте
+ */
+@Service
+public class RetryServiceImpl implements RetryService {
+
+    private static final long POLL_MS = 100;
+    private static final long STOP_TIMEOUT_MS = 10000;
+    /**
+     * Записей spill-журнала за одну итерацию, чтобы повторы из очереди не ждали всего журнала
+     */
+    private static final int REPLAY_BATCH = 500;
+    private static final String QUEUE_DIRECTORY = "queue";
+
+    private final Logger log = LogManager.getLogger(RetryServiceImpl.class);
+
+    private final ListenerConfig.Retry config;
+    private final ListenerConfig.Kafka kafkaConfig;
+    private final EventDocumentParser eventParser;
+    private final ElasticSearchServiceImpl elasticsearchService;
+    private final KafkaServiceImpl kafkaService;
+    private final AuditMetrics metrics;
+
+    private final DelayQueue<RetryTask> queue = new DelayQueue<>();
+
+    private SpillLog spillLog;
+    private SpillLog queueLog;
+    private volatile boolean running;
+    private Thread worker;
+    private long replayAt;
+
+    public RetryServiceImpl(ListenerConfig config, EventDocumentParser eventParser,
+                            ElasticSearchServiceImpl elasticsearchService, KafkaServiceImpl kafkaService,
+                            AuditMetrics metrics) {
+        this.config = config.getRetry();
+        this.kafkaConfig = config.getKafka();
+        this.eventParser = eventParser;
+        this.elasticsearchService = elasticsearchService;
+        this.kafkaService = kafkaService;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        try {
+            spillLog = new SpillLog(Path.of(config.getSpillDirectory()), config.getSpillSegmentBytes(),
+                    config.getSpillMaxSegments());
+        } catch (IOException e) {
+            log.error("Failed to open spill log in {}, overflowing retries go to the error topic",
+                    config.getSpillDirectory(), e);
+        }
+        try {
+            queueLog = new SpillLog(Path.of(config.getSpillDirectory()).resolve(QUEUE_DIRECTORY),
+                    config.getSpillSegmentBytes(), config.getSpillMaxSegments());
+            restore();
+        } catch (IOException e) {
+            log.error("Failed to open retry queue log in {}, retries go to the spill log",
+                    config.getSpillDirectory(), e);
+        }
+        metrics.registerRetryQueue(queue, () -> spillLog != null ? spillLog.pendingBytes() : 0);
+
+        running = true;
+        worker = Thread.ofPlatform().name("audit-retry").daemon().start(this::work);
+    }
+
+    /**
+     * Записи журнала очереди, не проиндексированные до остановки или аварийного завершения, возвращаются
+     * в очередь; не поместившиеся в нее переносятся в spill-журнал
+     */
+    private void restore() {
+        queueLog.forEachPending(pending -> {
+            if (queue.size() < config.getQueueCapacity()) {
+                queue.offer(new RetryTask(pending.entry(), pending.position(), 1, backoffMs(1)));
+            } else if (spill(pending.entry())) {
+                queueLog.commit(pending.position());
+            }
+        });
+        if (!queue.isEmpty()) {
+            log.info("Restored {} records from the retry queue log", queue.size());
+        }
+    }
+
+    /**
+     * Останавливает повторы. Записи очереди остаются в журнале очереди и повторяются после перезапуска
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join(STOP_TIMEOUT_MS);
+        }
+
+        queue.clear();
+        close(queueLog);
+        close(spillLog);
+    }
+
+    private void close(SpillLog journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.error("Failed to close spill log", e);
+        }
+    }
+
+    public boolean retry(String topic, String key, String message, Throwable error) {
+        return ElasticsearchErrors.isTransient(error) && schedule(new SpillLog.Entry(topic, key, message));
+    }
+
+    public boolean retry(String topic, String key, String message, int status) {
+        return ElasticsearchErrors.isTransient(status) && schedule(new SpillLog.Entry(topic, key, message));
+    }
+
+    private boolean schedule(SpillLog.Entry entry) {
+        if (!running) {
+            return false;
+        }
+
+        boolean accepted = queue.size() < config.getQueueCapacity() && enqueue(entry) || spill(entry);
+        if (accepted) {
+            metrics.recordRetryScheduled();
+        }
+        return accepted;
+    }
+
+    /**
+     * Добавляет запись в журнал очереди и затем в очередь
+     *
+     * @return false, если журнал очереди не открыт или заполнен
+     */
+    private boolean enqueue(SpillLog.Entry entry) {
+        if (queueLog == null) {
+            return false;
+        }
+
+        try {
+            long position = queueLog.append(entry);
+            if (position == SpillLog.FULL) {
+                return false;
+            }
+            queue.offer(new RetryTask(entry, position, 1, backoffMs(1)));
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to append record of topic {} to retry queue log", entry.topic(), e);
+            return false;
+        }
+    }
+
+    private void work() {
+        while (running) {
+            RetryTask task;
+            try {
+                task = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // запись, ошибку которой не удалось передать в error топик, остается в журнале очереди
+            // и повторяется после перезапуска
+            try {
+                if (task != null) {
+                    attempt(task);
+                } else {
+                    replay();
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to complete retry", e);
+            }
+            if (queueLog != null) {
+                queueLog.flush();
+            }
+            if (spillLog != null) {
+                spillLog.flush();
+            }
+        }
+    }
+
+    private void attempt(RetryTask task) {
+        Exception error = index(task.entry);
+        if (error == null) {
+            metrics.recordRetrySucceeded();
+        } else if (!ElasticsearchErrors.isTransient(error)) {
+            deadLetter(task.entry, error);
+        } else if (task.attempt < config.getMaxAttempts()) {
+            queue.offer(new RetryTask(task.entry, task.position, task.attempt + 1, backoffMs(task.attempt + 1)));
+            return;
+        } else if (!spill(task.entry)) {
+            deadLetter(task.entry, error);
+        }
+        queueLog.commit(task.position);
+    }
+
+    /**
+     * Индексирует записи spill-журнала, пока ElasticSearch отвечает без временных ошибок.
+     * При временной ошибке следующая попытка - через replay-interval-ms
+     */
+    private void replay() {
+        if (spillLog == null || System.currentTimeMillis() < replayAt) {
+            return;
+        }
+
+        try {
+            for (int i = 0; i < REPLAY_BATCH && running; i++) {
+                SpillLog.Entry entry = spillLog.peek();
+                if (entry == null) {
+                    return;
+                }
+
+                Exception error = index(entry);
+                if (error != null && ElasticsearchErrors.isTransient(error)) {
+                    replayAt = System.currentTimeMillis() + config.getReplayIntervalMs();
+                    return;
+                }
+                if (error != null) {
+                    deadLetter(entry, error);
+                } else {
+                    metrics.recordRetrySpillReplayed();
+                }
+                spillLog.commit();
+            }
+        } catch (IOException e) {
+            log.error("Failed to read spill log", e);
+            replayAt = System.currentTimeMillis() + config.getReplayIntervalMs();
+        }
+    }
+
+    /**
+     * Повторно разбирает и индексирует сообщение
+     *
+     * @return ошибка разбора или индексации, null - документ проиндексирован
+     */
+    private Exception index(SpillLog.Entry entry) {
+        try {
+            if (kafkaConfig.getHttpTopic().equals(entry.topic())) {
+                elasticsearchService.indexHttpDocument(eventParser.parseHttpEvent(entry.message(), entry.key()));
+            } else {
+                elasticsearchService.indexMethodDocument(eventParser.parseMethodEvent(entry.message()));
+            }
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private boolean spill(SpillLog.Entry entry) {
+        if (spillLog == null) {
+            return false;
+        }
+
+        try {
+            if (spillLog.append(entry) != SpillLog.FULL) {
+                metrics.recordRetrySpilled();
+                return true;
+            }
+            log.error("Spill log is full, record of topic {} goes to the error topic", entry.topic());
+        } catch (IOException e) {
+            log.error("Failed to append record of topic {} to spill log", entry.topic(), e);
+        }
+        return false;
+    }
+
+    private void deadLetter(SpillLog.Entry entry, Exception error) {
+        if (error instanceof EventProcessingException processingError) {
+            kafkaService.sendErrorMessage(processingError, entry.topic(), entry.key(), entry.message());
+        } else {
+            kafkaService.sendErrorMessage(ErrorType.INDEXING_ERROR.name(), error.getMessage(),
+                    entry.topic(), entry.key(), entry.message());
+        }
+    }
+
+    /**
+     * Задержка попытки: initial-backoff-ms * 2^(attempt - 1), не больше max-backoff-ms,
+     * уменьшенная на случайную долю до jitter, чтобы повторы не приходили в кластер одновременно
+     */
+    private long backoffMs(int attempt) {
+        long backoff = Math.min(config.getMaxBackoffMs(), config.getInitialBackoffMs() << Math.min(attempt - 1, 20));
+        return backoff - (long) (backoff * config.getJitter() * ThreadLocalRandom.current().nextDouble());
+    }
+
+    private static final class RetryTask implements Delayed {
+
+        private final SpillLog.Entry entry;
+        /**
+         * Позиция записи в журнале очереди
+         */
+        private final long position;
+        private final int attempt;
+        private final long dueNanos;
+
+        private RetryTask(SpillLog.Entry entry, long position, int attempt, long delayMs) {
+            this.entry = entry;
+            this.position = position;
+            this.attempt = attempt;
+            this.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((RetryTask) other).dueNanos);
+        }
+
+    }
+
+}
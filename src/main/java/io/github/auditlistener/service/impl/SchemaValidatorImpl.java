@@ -0,0 +1,186 @@
+package io.github.auditlistener.service.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.model.enums.ValidationRule;
+import io.github.auditlistener.model.enums.ValueType;
+import io.github.auditlistener.model.validation.FieldViolation;
+import io.github.auditlistener.service.SchemaValidator;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Правила audit.listener.validation.* компилируются при старте в массивы по индексу поля: индекс
+ * находится по имени поля (имена полей парсер интернирует, хэш строки вычисляется один раз), обязательные
+ * поля - битовая маска. Проверка значения смотрит только на текущий токен, строка декодируется лишь
+ * для правил values и max-length (повторный getText() парсера возвращает ту же строку)
+ */
+@Service
+public class SchemaValidatorImpl implements SchemaValidator {
+
+    /**
+     * Поля одного топика помещаются в маску long
+     */
+    private static final int MAX_FIELDS = Long.SIZE;
+
+    private final Schema methodSchema;
+    private final Schema httpSchema;
+
+    public SchemaValidatorImpl(ListenerConfig config) {
+        this.methodSchema = new Schema(config.getValidation().getMethod());
+        this.httpSchema = new Schema(config.getValidation().getHttp());
+    }
+
+    public Validation methodEvent() {
+        return new FieldValidation(methodSchema);
+    }
+
+    public Validation httpEvent() {
+        return new FieldValidation(httpSchema);
+    }
+
+    private static final class Schema {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final String[] names;
+        private final ValueType[] types;
+        private final String[][] values;
+        private final int[] maxLengths;
+        private final long requiredMask;
+
+        private Schema(Map<String, ListenerConfig.FieldRule> rules) {
+            if (rules.size() > MAX_FIELDS) {
+                throw new IllegalArgumentException("Validation rules are limited to " + MAX_FIELDS + " fields per topic");
+            }
+
+            int size = rules.size();
+            names = new String[size];
+            types = new ValueType[size];
+            values = new String[size][];
+            maxLengths = new int[size];
+            long required = 0;
+            int index = 0;
+            for (Map.Entry<String, ListenerConfig.FieldRule> entry : rules.entrySet()) {
+                ListenerConfig.FieldRule rule = entry.getValue();
+                indexes.put(entry.getKey(), index);
+                names[index] = entry.getKey();
+                types[index] = rule.getType();
+                values[index] = rule.getValues() != null ? rule.getValues().toArray(String[]::new) : new String[0];
+                maxLengths[index] = rule.getMaxLength();
+                if (rule.isRequired()) {
+                    required |= 1L << index;
+                }
+                index++;
+            }
+            requiredMask = required;
+        }
+
+    }
+
+    private static final class FieldValidation implements Validation {
+
+        private final Schema schema;
+
+        /**
+         * Поля со значением, отличным от null
+         */
+        private long present;
+
+        /**
+         * Нарушения по индексу поля, создается при первом нарушении
+         */
+        private FieldViolation[] violations;
+
+        private FieldValidation(Schema schema) {
+            this.schema = schema;
+        }
+
+        public void value(String field, JsonParser parser) throws IOException {
+            Integer index = schema.indexes.get(field);
+            if (index == null) {
+                return;
+            }
+
+            int i = index;
+            if (violations != null) {
+                violations[i] = null;
+            }
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NULL) {
+                present &= ~(1L << i);
+                return;
+            }
+            present |= 1L << i;
+
+            ValueType type = schema.types[i];
+            if (type != null && !type.matches(token)) {
+                violation(i, ValidationRule.TYPE, "expected " + type + ", got " + ValueType.of(token));
+                return;
+            }
+
+            String[] allowed = schema.values[i];
+            int maxLength = schema.maxLengths[i];
+            if (allowed.length == 0 && maxLength <= 0) {
+                return;
+            }
+            if (token != JsonToken.VALUE_STRING) {
+                if (allowed.length > 0) {
+                    violation(i, ValidationRule.VALUES, "expected one of " + String.join(", ", allowed)
+                            + ", got " + ValueType.of(token));
+                }
+                return;
+            }
+
+            String text = parser.getText();
+            if (allowed.length > 0 && !contains(allowed, text)) {
+                violation(i, ValidationRule.VALUES, "expected one of " + String.join(", ", allowed));
+            } else if (maxLength > 0 && text.length() > maxLength) {
+                violation(i, ValidationRule.MAX_LENGTH, "longer than " + maxLength + " chars");
+            }
+        }
+
+        public void finish() {
+            long missing = schema.requiredMask & ~present;
+            if (missing == 0 && violations == null) {
+                return;
+            }
+
+            List<FieldViolation> result = new ArrayList<>();
+            for (int i = 0; i < schema.names.length; i++) {
+                if ((missing & (1L << i)) != 0) {
+                    result.add(new FieldViolation(schema.names[i], ValidationRule.REQUIRED, "required field is missing"));
+                } else if (violations != null && violations[i] != null) {
+                    result.add(violations[i]);
+                }
+            }
+            if (!result.isEmpty()) {
+                throw new EventProcessingException(result);
+            }
+        }
+
+        private void violation(int index, ValidationRule rule, String message) {
+            if (violations == null) {
+                violations = new FieldViolation[schema.names.length];
+            }
+            violations[index] = new FieldViolation(schema.names[index], rule, message);
+        }
+
+        private static boolean contains(String[] allowed, String value) {
+            for (String candidate : allowed) {
+                if (candidate.equalsIgnoreCase(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
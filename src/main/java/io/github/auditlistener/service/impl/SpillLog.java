@@ -0,0 +1,351 @@
+package io.github.auditlistener.service.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Журнал записей, ожидающих повторной индексации: последовательность сегментов фиксированного размера,
+ * отображенных в память (spill-000001.log, ...). Запись - длина и данные (топик, ключ, сообщение);
+ * длина пишется после данных, поэтому оборванная запись не читается. Повторенная запись помечается
+ * отрицательной длиной (по порядку или по позиции, возвращенной append), полностью повторенный сегмент
+ * удаляется. После перезапуска журнал продолжается с первой непомеченной записи.
+ * Запись попадает в страницы отображенного сегмента при append и сохраняется при аварийном завершении
+ * процесса (SIGKILL, OOM); flush нужен только на случай отказа самой ОС или питания
+ */
+public class SpillLog implements Closeable {
+
+    private static final String PREFIX = "spill-";
+    private static final String SUFFIX = ".log";
+    private static final int LENGTH_BYTES = Integer.BYTES;
+    private static final int NO_KEY = -1;
+
+    /**
+     * Результат append, если запись больше сегмента или журнал заполнен
+     */
+    public static final long FULL = -1;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    /**
+     * Сегменты от старого к новому: чтение идет из первого, запись - в последний
+     */
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private long pendingBytes;
+    private boolean dirty;
+
+    public SpillLog(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> sequence(file) > 0)
+                    .sorted(Comparator.comparingLong(SpillLog::sequence))
+                    .toList();
+        }
+        for (Path file : files) {
+            Segment segment = open(file, sequence(file));
+            if (segment.readPosition == segment.writePosition && !file.equals(files.getLast())) {
+                segment.delete();
+                continue;
+            }
+            segments.addLast(segment);
+            pendingBytes += segment.pendingBytes;
+        }
+    }
+
+    /**
+     * Добавляет запись в конец журнала
+     *
+     * @return позиция записи для commit(long) или FULL, если запись больше сегмента
+     * или журнал заполнен (spill-max-segments)
+     */
+    public synchronized long append(Entry entry) throws IOException {
+        byte[] topic = entry.topic().getBytes(StandardCharsets.UTF_8);
+        byte[] key = entry.key() != null ? entry.key().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] message = entry.message().getBytes(StandardCharsets.UTF_8);
+        int length = 2 * Integer.BYTES + topic.length + (key != null ? key.length : 0) + message.length;
+        if (LENGTH_BYTES + length > segmentBytes - LENGTH_BYTES) {
+            return FULL;
+        }
+
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.writePosition + LENGTH_BYTES + length > segmentBytes - LENGTH_BYTES) {
+            if (segments.size() >= maxSegments) {
+                return FULL;
+            }
+            long sequence = tail != null ? tail.sequence + 1 : 1;
+            tail = open(directory.resolve(String.format("%s%06d%s", PREFIX, sequence, SUFFIX)), sequence);
+            segments.addLast(tail);
+        }
+
+        ByteBuffer buffer = tail.buffer;
+        int position = tail.writePosition + LENGTH_BYTES;
+        buffer.putInt(position, topic.length);
+        buffer.put(position + Integer.BYTES, topic);
+        position += Integer.BYTES + topic.length;
+        buffer.putInt(position, key != null ? key.length : NO_KEY);
+        position += Integer.BYTES;
+        if (key != null) {
+            buffer.put(position, key);
+            position += key.length;
+        }
+        buffer.put(position, message);
+        buffer.putInt(tail.writePosition, length);
+
+        long appended = position(tail.sequence, tail.writePosition);
+        tail.writePosition += LENGTH_BYTES + length;
+        tail.pendingBytes += LENGTH_BYTES + length;
+        pendingBytes += LENGTH_BYTES + length;
+        dirty = true;
+        return appended;
+    }
+
+    /**
+     * Первая непомеченная запись журнала без ее извлечения
+     *
+     * @return запись или null, если журнал пуст
+     */
+    public synchronized Entry peek() throws IOException {
+        Segment head = head();
+        return head != null ? read(head.buffer, head.readPosition) : null;
+    }
+
+    /**
+     * Все непомеченные записи журнала по порядку с их позициями
+     */
+    public synchronized void forEachPending(Consumer<Pending> action) {
+        for (Segment segment : List.copyOf(segments)) {
+            int position = segment.readPosition;
+            while (position < segment.writePosition) {
+                int length = segment.buffer.getInt(position);
+                if (length > 0) {
+                    action.accept(new Pending(position(segment.sequence, position), read(segment.buffer, position)));
+                }
+                position += LENGTH_BYTES + Math.abs(length);
+            }
+        }
+    }
+
+    /**
+     * Помечает первую запись журнала повторенной
+     */
+    public synchronized void commit() throws IOException {
+        Segment head = head();
+        if (head != null) {
+            mark(head, head.readPosition);
+        }
+    }
+
+    /**
+     * Помечает повторенной запись по позиции, возвращенной append; записи до нее остаются непомеченными
+     */
+    public synchronized void commit(long position) {
+        long sequence = position >>> 32;
+        for (Segment segment : segments) {
+            if (segment.sequence == sequence) {
+                mark(segment, (int) position);
+                return;
+            }
+        }
+    }
+
+    public synchronized boolean isEmpty() throws IOException {
+        return head() == null;
+    }
+
+    /**
+     * Объем непомеченных записей в байтах
+     */
+    public synchronized long pendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Сбрасывает измененные страницы сегментов на диск
+     */
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        dirty = false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+        segments.clear();
+    }
+
+    private void mark(Segment segment, int position) {
+        int length = segment.buffer.getInt(position);
+        if (length <= 0) {
+            return;
+        }
+
+        segment.buffer.putInt(position, -length);
+        if (position == segment.readPosition) {
+            segment.readPosition = next(segment.buffer, position + LENGTH_BYTES + length);
+        }
+        segment.pendingBytes -= LENGTH_BYTES + length;
+        pendingBytes -= LENGTH_BYTES + length;
+        dirty = true;
+    }
+
+    /**
+     * Запись, длина которой хранится по позиции position сегмента
+     */
+    private static Entry read(ByteBuffer buffer, int position) {
+        int end = position + LENGTH_BYTES + buffer.getInt(position);
+        position += LENGTH_BYTES;
+        int topicLength = buffer.getInt(position);
+        String topic = read(buffer, position + Integer.BYTES, topicLength);
+        position += Integer.BYTES + topicLength;
+        int keyLength = buffer.getInt(position);
+        position += Integer.BYTES;
+        String key = null;
+        if (keyLength != NO_KEY) {
+            key = read(buffer, position, keyLength);
+            position += keyLength;
+        }
+        return new Entry(topic, key, read(buffer, position, end - position));
+    }
+
+    private static long position(long sequence, int position) {
+        return sequence << 32 | position;
+    }
+
+    /**
+     * Сегмент с непомеченными записями; полностью повторенные сегменты, кроме текущего для записи, удаляются
+     */
+    private Segment head() throws IOException {
+        Segment head = segments.peekFirst();
+        while (head != null && head.readPosition == head.writePosition) {
+            if (head == segments.peekLast()) {
+                return null;
+            }
+            segments.removeFirst().delete();
+            head = segments.peekFirst();
+        }
+        return head;
+    }
+
+    private Segment open(Path file, long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        Segment segment = new Segment(file, sequence, channel, buffer);
+
+        int position = 0;
+        int readPosition = -1;
+        while (position + LENGTH_BYTES <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length > 0) {
+                segment.pendingBytes += LENGTH_BYTES + length;
+                if (readPosition < 0) {
+                    readPosition = position;
+                }
+            }
+            position += LENGTH_BYTES + Math.abs(length);
+        }
+        segment.writePosition = position;
+        segment.readPosition = readPosition >= 0 ? readPosition : position;
+        return segment;
+    }
+
+    /**
+     * Позиция первой непомеченной записи начиная с position
+     */
+    private int next(ByteBuffer buffer, int position) {
+        while (position + LENGTH_BYTES <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length >= 0) {
+                return position;
+            }
+            position += LENGTH_BYTES - length;
+        }
+        return position;
+    }
+
+    private static String read(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long sequence(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Запись журнала: исходное сообщение с топиком и ключом, по которым оно разбирается повторно
+     */
+    public record Entry(String topic, String key, String message) {
+    }
+
+    /**
+     * Непомеченная запись журнала и ее позиция для commit(long)
+     */
+    public record Pending(long position, Entry entry) {
+    }
+
+    private static final class Segment {
+
+        private final Path file;
+        private final long sequence;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int readPosition;
+        private int writePosition;
+        private long pendingBytes;
+
+        private Segment(Path file, long sequence, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private void delete() throws IOException {
+            channel.close();
+            Files.deleteIfExists(file);
+        }
+
+    }
+
+}
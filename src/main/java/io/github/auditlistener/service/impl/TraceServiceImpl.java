@@ -0,0 +1,135 @@
+package io.github.auditlistener.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.enums.TraceSource;
+import io.github.auditlistener.repository.EventRepository;
+import io.github.auditlistener.service.TraceService;
+import io.github.auditlistener.utils.EventMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Поиск трассы по correlationId в ElasticSearch (индексы методов и HTTP запрашиваются параллельно
+ * term запросом по keyword полю) или в PostgreSQL. Найденные трассы хранятся в ограниченном кэше с TTL;
+ * пустой результат не кэшируется, чтобы трасса, события которой еще не проиндексированы, находилась
+ * при следующем запросе
+ */
+@Service
+public class TraceServiceImpl implements TraceService {
+
+    private static final String METHOD_INDEX = "audit-methods";
+    private static final String HTTP_INDEX = "audit-requests";
+    private static final String CORRELATION_ID_FIELD = "correlationId";
+
+    private final Logger log = LogManager.getLogger(TraceServiceImpl.class);
+
+    private final ElasticsearchAsyncClient elasticsearchAsyncClient;
+    private final EventRepository eventRepository;
+    private final ListenerConfig.Trace config;
+
+    private final Cache<String, List<Event>> traces;
+
+    public TraceServiceImpl(ElasticsearchAsyncClient elasticsearchAsyncClient,
+                            ObjectProvider<EventRepository> eventRepository,
+                            ListenerConfig listenerConfig,
+                            AuditMetrics metrics) {
+        this.elasticsearchAsyncClient = elasticsearchAsyncClient;
+        this.eventRepository = eventRepository.getIfAvailable();
+        this.config = listenerConfig.getTrace();
+        this.traces = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(config.getCacheTtlMs()))
+                .maximumSize(config.getCacheMaxSize())
+                .recordStats()
+                .build();
+        metrics.monitorCache("traces", traces);
+
+        if (config.getSource() == TraceSource.POSTGRES && this.eventRepository == null) {
+            log.warn("Trace source POSTGRES requires audit.listener.persistence.enabled=true, using ELASTICSEARCH");
+        }
+    }
+
+    public List<Event> findTrace(String correlationId) {
+        List<Event> trace = traces.getIfPresent(correlationId);
+        if (trace != null) {
+            return trace;
+        }
+
+        trace = loadTrace(correlationId);
+        if (!trace.isEmpty()) {
+            traces.put(correlationId, trace);
+        }
+        return trace;
+    }
+
+    public void invalidate(String correlationId) {
+        if (correlationId != null) {
+            traces.invalidate(correlationId);
+        }
+    }
+
+    private List<Event> loadTrace(String correlationId) {
+        if (config.getSource() == TraceSource.POSTGRES && eventRepository != null) {
+            return List.copyOf(eventRepository.findByCorrelationIdOrderByTimestamp(correlationId));
+        }
+
+        CompletableFuture<List<Event>> methods = search(METHOD_INDEX, correlationId, MethodDocument.class,
+                EventMapper::fromMethodDocument);
+        CompletableFuture<List<Event>> requests = search(HTTP_INDEX, correlationId, HttpDocument.class,
+                EventMapper::fromHttpDocument);
+
+        try {
+            List<Event> trace = new ArrayList<>(methods.join());
+            trace.addAll(requests.join());
+            trace.sort(Comparator.comparing(Event::getTimestamp, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder())));
+            return List.copyOf(trace);
+
+        } catch (CompletionException e) {
+            log.error("Failed to load trace {} from ElasticSearch", correlationId, e.getCause());
+            throw new RuntimeException("Failed to load trace", e.getCause());
+        }
+    }
+
+    private <T> CompletableFuture<List<Event>> search(String index, String correlationId, Class<T> documentClass,
+                                                      Function<T, Event> mapper) {
+        try {
+            return elasticsearchAsyncClient.search(s -> s
+                                    .index(index)
+                                    .size(config.getMaxEvents())
+                                    .query(q -> q.term(t -> t.field(CORRELATION_ID_FIELD).value(correlationId))),
+                            documentClass)
+                    .thenApply(response -> toEvents(response, mapper));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static <T> List<Event> toEvents(SearchResponse<T> response, Function<T, Event> mapper) {
+        return response.hits().hits().stream()
+                .map(Hit::source)
+                .filter(Objects::nonNull)
+                .map(mapper)
+                .toList();
+    }
+
+}
@@ -0,0 +1,152 @@
+package io.github.auditlistener.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.CharBuffer;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Идентификаторы документов ElasticSearch.
+ * Идентификатор события вычисляется по его полям, включая тела (MurmurHash3 x64 128), поэтому повторная доставка
+ * записи из Kafka и повторная загрузка из error топика перезаписывают документ, а не создают дубликат,
+ * а разные вызовы одного метода в одну миллисекунду (рекурсия, параллельные вызовы) различаются аргументами.
+ * Для документов ошибок используется UUID версии 7 (время + ThreadLocalRandom) без SecureRandom
+ */
+@UtilityClass
+public class DocumentIds {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * Идентификатор по значениям полей события (22 символа base64url). Значения разделяются
+     * их длиной, null отличается от пустой строки
+     */
+    public static String of(String... fields) {
+        Hasher hasher = new Hasher();
+        for (String field : fields) {
+            hasher.add(field);
+        }
+        return hasher.finish();
+    }
+
+    /**
+     * Идентификатор по одному значению, заданному фрагментом массива символов (например, текстом
+     * токена JsonParser без создания строки). Совпадает с {@code of(new String(chars, offset, length))}
+     */
+    public static String of(char[] chars, int offset, int length) {
+        Hasher hasher = new Hasher();
+        hasher.add(CharBuffer.wrap(chars, offset, length));
+        return hasher.finish();
+    }
+
+    /**
+     * UUID версии 7: миллисекунды Unix времени и 74 случайных бита. Идентификаторы упорядочены
+     * по времени создания, генерация не блокируется на SecureRandom
+     */
+    public static String timeBased() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    /**
+     * MurmurHash3 x64 128 по 64-битным словам: длина значения, затем символы по четыре в слове
+     */
+    private static final class Hasher {
+
+        private long h1;
+        private long h2;
+        private long pending;
+        private boolean hasPending;
+        private long words;
+
+        private void add(CharSequence value) {
+            if (value == null) {
+                addWord(-1L);
+                return;
+            }
+
+            int length = value.length();
+            addWord(length);
+            for (int i = 0; i < length; i += 4) {
+                long word = 0;
+                for (int j = 0; j < 4 && i + j < length; j++) {
+                    word |= (long) value.charAt(i + j) << (16 * j);
+                }
+                addWord(word);
+            }
+        }
+
+        private void addWord(long word) {
+            words++;
+            if (!hasPending) {
+                pending = word;
+                hasPending = true;
+                return;
+            }
+            hasPending = false;
+
+            h1 ^= mixK1(pending);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(word);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private String finish() {
+            if (hasPending) {
+                h1 ^= mixK1(pending);
+            }
+
+            long length = words * Long.BYTES;
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            byte[] bytes = new byte[2 * Long.BYTES];
+            for (int i = 0; i < Long.BYTES; i++) {
+                bytes[i] = (byte) (h1 >>> (8 * i));
+                bytes[Long.BYTES + i] = (byte) (h2 >>> (8 * i));
+            }
+            return ENCODER.encodeToString(bytes);
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            return k1 * C2;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            return k2 * C1;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb93fe53e4cb9L;
+            k ^= k >>> 33;
+            return k;
+        }
+
+    }
+
+}
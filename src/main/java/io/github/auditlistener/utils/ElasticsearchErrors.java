@@ -0,0 +1,86 @@
+package io.github.auditlistener.utils;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.transport.TransportException;
+import lombok.experimental.UtilityClass;
+import org.elasticsearch.client.ResponseException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Разбор ошибок клиента ElasticSearch
+ */
+@UtilityClass
+public class ElasticsearchErrors {
+
+    /**
+     * Кластер отклонил запрос из-за перегрузки (es_rejected_execution_exception, circuit breaker)
+     */
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Документ с таким идентификатором уже существует (op_type = create)
+     */
+    public static final int CONFLICT = 409;
+
+    /**
+     * HTTP статус ответа ElasticSearch, найденный в цепочке причин исключения
+     *
+     * @return статус или -1, если ошибка произошла без ответа сервера
+     */
+    public static int status(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof ElasticsearchException elasticsearchException) {
+                return elasticsearchException.status();
+            }
+            if (e instanceof TransportException transportException) {
+                return transportException.statusCode();
+            }
+            if (e instanceof ResponseException responseException) {
+                return responseException.getResponse().getStatusLine().getStatusCode();
+            }
+            if (e.getCause() == e) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    public static boolean isConflict(Throwable error) {
+        return status(error) == CONFLICT;
+    }
+
+    public static boolean isRejected(Throwable error) {
+        return status(error) == TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Временная ошибка, после которой запрос можно повторить: перегрузка кластера (429), недоступность
+     * узла (502, 503, 504), таймаут запроса (408) или ошибка соединения без ответа сервера
+     */
+    public static boolean isTransient(Throwable error) {
+        int status = status(error);
+        if (status >= 0) {
+            return isTransient(status);
+        }
+
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof IOException || e instanceof TimeoutException) {
+                return true;
+            }
+            if (e.getCause() == e) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param status HTTP статус ответа ElasticSearch (в том числе статус документа в ответе _bulk)
+     */
+    public static boolean isTransient(int status) {
+        return status == TOO_MANY_REQUESTS || status == 408 || status == 502 || status == 503 || status == 504;
+    }
+
+}
@@ -0,0 +1,21 @@
+package io.github.auditlistener.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Время документа числом epoch millis: ElasticSearch принимает его без разбора строки,
+ * а сериализатор не форматирует дату
+ */
+public class EpochMillisSerializer extends JsonSerializer<Instant> {
+
+    @Override
+    public void serialize(Instant value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeNumber(value.toEpochMilli());
+    }
+
+}
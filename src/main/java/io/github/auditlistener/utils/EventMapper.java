@@ -0,0 +1,76 @@
+package io.github.auditlistener.utils;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.enums.EventSource;
+import io.github.auditlistener.model.enums.EventType;
+import lombok.experimental.UtilityClass;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Преобразование документов ElasticSearch в строки таблицы events. Время события хранится в UTC
+ */
+@UtilityClass
+public class EventMapper {
+
+    public static Event fromMethodDocument(MethodDocument document) {
+        ObjectNode data = JsonNodeFactory.instance.objectNode();
+        data.put("args", document.getArgs());
+        if (document.getResult() != null) {
+            data.put("result", document.getResult());
+        }
+
+        return Event.builder()
+                .documentId(document.getId())
+                .correlationId(document.getCorrelationId())
+                .eventType(eventType(document.getEventType()))
+                .timestamp(utc(document.getTimestamp()))
+                .logLevel(document.getLevel())
+                .eventSource(EventSource.METHOD)
+                .targetName(document.getMethod())
+                .data(data)
+                .errorMessage(document.getErrorMessage())
+                .build();
+    }
+
+    public static Event fromHttpDocument(HttpDocument document) {
+        ObjectNode data = JsonNodeFactory.instance.objectNode();
+        data.put("requestBody", document.getRequestBody());
+        data.put("responseBody", document.getResponseBody());
+
+        return Event.builder()
+                .documentId(document.getId())
+                .correlationId(document.getCorrelationId())
+                .timestamp(utc(document.getTimestamp()))
+                .eventSource(EventSource.HTTP)
+                .targetName(document.getUri())
+                .data(data)
+                .httpMethod(document.getMethod())
+                .httpStatus(document.getStatusCode())
+                .uri(document.getUri())
+                .direction(document.getDirection())
+                .build();
+    }
+
+    private static LocalDateTime utc(Instant timestamp) {
+        return timestamp != null ? LocalDateTime.ofInstant(timestamp, ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Тип события или null, если значение не входит в EventType
+     */
+    private static EventType eventType(String eventType) {
+        try {
+            return EventType.getByName(eventType);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+}
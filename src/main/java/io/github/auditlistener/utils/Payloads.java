@@ -0,0 +1,57 @@
+package io.github.auditlistener.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Работа со значениями записей Kafka, которые в зависимости от
+ * audit.listener.kafka.byte-array-values приходят как String или byte[], а после декодирования
+ * бинарного формата (PayloadDecoder) - как TokenBuffer
+ */
+@UtilityClass
+public class Payloads {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Размер значения (в байтах для byte[], в символах для String)
+     */
+    public static int size(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        return payload == null ? 0 : payload.toString().length();
+    }
+
+    /**
+     * Значение в виде строки (байты декодируются как UTF-8, декодированное событие сериализуется в JSON,
+     * чтобы error топик и повторы получали сообщение, которое разбирается как JSON)
+     */
+    public static String asString(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (payload instanceof TokenBuffer events) {
+            return toJson(events);
+        }
+        return payload == null ? null : payload.toString();
+    }
+
+    private static String toJson(TokenBuffer events) {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            events.serialize(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
+}
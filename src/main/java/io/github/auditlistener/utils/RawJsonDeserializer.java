@@ -0,0 +1,20 @@
+package io.github.auditlistener.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Чтение произвольного JSON значения в строку: пара к @JsonRawValue для полей, которые
+ * пишутся в документ как JSON объект, а хранятся в модели строкой
+ */
+public class RawJsonDeserializer extends JsonDeserializer<String> {
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        return context.readTree(parser).toString();
+    }
+
+}
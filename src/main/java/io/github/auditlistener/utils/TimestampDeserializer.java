@@ -0,0 +1,29 @@
+package io.github.auditlistener.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Время документа из epoch millis (числом) или строки ISO-8601 ({@link Timestamps#parse}),
+ * так читаются и документы, сохраненные до перехода на epoch millis
+ */
+public class TimestampDeserializer extends JsonDeserializer<Instant> {
+
+    @Override
+    public Instant deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return Instant.ofEpochMilli(parser.getLongValue());
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return Timestamps.parse(parser.getText());
+        }
+        return (Instant) context.handleUnexpectedToken(Instant.class, parser);
+    }
+
+}
@@ -0,0 +1,200 @@
+package io.github.auditlistener.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Разбор времени событий в UTC Instant без DateTimeFormatter на горячем пути.
+ * Поддерживаются epoch millis (только цифры) и ISO-8601 yyyy-MM-ddTHH:mm:ss[.SSSSSSSSS][Z|±HH[:MM]];
+ * время без смещения считается временем UTC (так его интерпретировал и ElasticSearch). Начало строки
+ * до секунд переводится в epoch second через кэш последних секунд: события одной секунды разбираются
+ * без вычисления даты. Остальные варианты ISO-8601 (без секунд, с зоной [Europe/Moscow] и т.д.)
+ * разбираются DateTimeFormatter.ISO_DATE_TIME
+ */
+@UtilityClass
+public class Timestamps {
+
+    /**
+     * yyyy-MM-ddTHH:mm:ss
+     */
+    private static final int PREFIX_LENGTH = 19;
+    private static final int CACHE_SIZE = 256;
+    private static final long SECONDS_PER_DAY = 86400;
+    private static final long NO_SECOND = Long.MIN_VALUE;
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+    private static final int MAX_OFFSET_HOURS = 18;
+    private static final int[] NANOS_SCALE = {
+            1_000_000_000, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1
+    };
+
+    /**
+     * Кэш секунд по ключу yyyyMMddHHmmss; элементы неизменяемы, поэтому доступ без синхронизации
+     */
+    private static final Second[] CACHE = new Second[CACHE_SIZE];
+
+    /**
+     * @throws java.time.format.DateTimeParseException Значение не является временем
+     */
+    public static Instant parse(String text) {
+        int length = text.length();
+        if (isEpochMillis(text)) {
+            return Instant.ofEpochMilli(Long.parseLong(text));
+        }
+        if (length < PREFIX_LENGTH) {
+            return parseIso(text);
+        }
+
+        long second = localEpochSecond(text);
+        if (second == NO_SECOND) {
+            return parseIso(text);
+        }
+
+        int position = PREFIX_LENGTH;
+        int nanos = 0;
+        if (position < length && text.charAt(position) == '.') {
+            int digits = 0;
+            position++;
+            while (position < length && digits < 9 && isDigit(text.charAt(position))) {
+                nanos = nanos * 10 + text.charAt(position) - '0';
+                position++;
+                digits++;
+            }
+            if (digits == 0) {
+                return parseIso(text);
+            }
+            nanos *= NANOS_SCALE[digits];
+        }
+
+        int offset = position < length ? offsetSeconds(text, position) : 0;
+        if (offset == NO_OFFSET) {
+            return parseIso(text);
+        }
+        return Instant.ofEpochSecond(second - offset, nanos);
+    }
+
+    /**
+     * Секунды от эпохи для yyyy-MM-ddTHH:mm:ss в начале строки без учета смещения
+     *
+     * @return NO_SECOND, если начало строки не в этом формате или дата некорректна
+     */
+    private static long localEpochSecond(String text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return NO_SECOND;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int secondOfMinute = digits(text, 17, 2);
+        if ((year | month | day | hour | minute | secondOfMinute) < 0) {
+            return NO_SECOND;
+        }
+
+        long key = ((((year * 100L + month) * 100 + day) * 100 + hour) * 100 + minute) * 100 + secondOfMinute;
+        int slot = (int) (key ^ (key >>> 17) ^ (key >>> 31)) & (CACHE_SIZE - 1);
+        Second cached = CACHE[slot];
+        if (cached != null && cached.key == key) {
+            return cached.epochSecond;
+        }
+
+        if (hour > 23 || minute > 59 || secondOfMinute > 59) {
+            return NO_SECOND;
+        }
+        long epochDay;
+        try {
+            epochDay = LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return NO_SECOND;
+        }
+        long epochSecond = epochDay * SECONDS_PER_DAY + hour * 3600L + minute * 60L + secondOfMinute;
+        CACHE[slot] = new Second(key, epochSecond);
+        return epochSecond;
+    }
+
+    /**
+     * Смещение Z, ±HH, ±HHMM или ±HH:MM до конца строки
+     *
+     * @return смещение в секундах или NO_OFFSET
+     */
+    private static int offsetSeconds(String text, int position) {
+        int length = text.length() - position;
+        char sign = text.charAt(position);
+        if (sign == 'Z') {
+            return length == 1 ? 0 : NO_OFFSET;
+        }
+        if (sign != '+' && sign != '-') {
+            return NO_OFFSET;
+        }
+
+        int hours = length >= 3 ? digits(text, position + 1, 2) : -1;
+        int minutes;
+        if (length == 3) {
+            minutes = 0;
+        } else if (length == 5) {
+            minutes = digits(text, position + 3, 2);
+        } else if (length == 6 && text.charAt(position + 3) == ':') {
+            minutes = digits(text, position + 4, 2);
+        } else {
+            return NO_OFFSET;
+        }
+        if (hours < 0 || hours > MAX_OFFSET_HOURS || minutes < 0 || minutes > 59) {
+            return NO_OFFSET;
+        }
+        int seconds = hours * 3600 + minutes * 60;
+        return sign == '-' ? -seconds : seconds;
+    }
+
+    private static Instant parseIso(String text) {
+        TemporalAccessor parsed = DateTimeFormatter.ISO_DATE_TIME.parseBest(text, OffsetDateTime::from, LocalDateTime::from);
+        return parsed instanceof OffsetDateTime dateTime
+                ? dateTime.toInstant()
+                : ((LocalDateTime) parsed).toInstant(ZoneOffset.UTC);
+    }
+
+    private static boolean isEpochMillis(String text) {
+        int length = text.length();
+        int start = length > 1 && text.charAt(0) == '-' ? 1 : 0;
+        if (length == start || length - start > 18) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            if (!isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return число из count цифр или -1
+     */
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private record Second(long key, long epochSecond) {
+    }
+
+}
@@ -0,0 +1,135 @@
+package io.github.auditlistener.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ListenerContainerCustomizerTest {
+
+    @Mock
+    private ConsumerFactory<String, Object> consumerFactory;
+
+    private ListenerConfig config;
+
+    private Map<String, Integer> partitions;
+
+    private AtomicInteger lookups;
+
+    private ListenerContainerCustomizer customizer;
+
+    @BeforeEach
+    void setUp() {
+        config = new ListenerConfig();
+        partitions = Map.of("audit.methods", 24, "audit.requests", 6);
+        lookups = new AtomicInteger();
+
+        customizer = new ListenerContainerCustomizer(config, topic -> {
+            lookups.incrementAndGet();
+            return partitions.getOrDefault(topic, 0);
+        });
+    }
+
+    @Test
+    void configureWithoutConcurrency_UsePartitionCount() {
+
+        ConcurrentMessageListenerContainer<String, Object> methods = container("audit.methods");
+        ConcurrentMessageListenerContainer<String, Object> requests = container("audit.requests");
+
+        customizer.configure(methods);
+        customizer.configure(requests);
+
+        assertEquals(24, methods.getConcurrency());
+        assertEquals(6, requests.getConcurrency());
+    }
+
+    @Test
+    void configureMultipleTopics_UseLargestConcurrencyAndCachePartitions() {
+
+        ConcurrentMessageListenerContainer<String, Object> batch = container("audit.methods", "audit.requests");
+        ConcurrentMessageListenerContainer<String, Object> methods = container("audit.methods");
+
+        customizer.configure(batch);
+        customizer.configure(methods);
+
+        assertEquals(24, batch.getConcurrency());
+        assertEquals(2, lookups.get());
+        assertTrue(batch.getContainerProperties().getKafkaConsumerProperties().isEmpty());
+    }
+
+    @Test
+    void configureExplicitSettings_OverrideConcurrencyAndConsumerProperties() {
+
+        config.getListeners().getMethod().setConcurrency(3);
+        config.getListeners().getMethod().setMaxPollRecords(200);
+        config.getListeners().getMethod().setFetchMinBytes(65536);
+        config.getListeners().getMethod().setFetchMaxWaitMs(50);
+        config.getListeners().getHttp().setMaxConcurrency(4);
+
+        ConcurrentMessageListenerContainer<String, Object> methods = container("audit.methods");
+        ConcurrentMessageListenerContainer<String, Object> requests = container("audit.requests");
+
+        customizer.configure(methods);
+        customizer.configure(requests);
+
+        assertEquals(3, methods.getConcurrency());
+        assertEquals(4, requests.getConcurrency());
+        assertEquals(1, lookups.get());
+
+        var properties = methods.getContainerProperties().getKafkaConsumerProperties();
+        assertEquals("200", properties.get(ConsumerConfig.MAX_POLL_RECORDS_CONFIG));
+        assertEquals("65536", properties.get(ConsumerConfig.FETCH_MIN_BYTES_CONFIG));
+        assertEquals("50", properties.get(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG));
+    }
+
+    @Test
+    void configureContainerWithoutAutoStartup_SkipPartitionLookup() {
+
+        ConcurrentMessageListenerContainer<String, Object> keyed = container("audit.methods", "audit.requests");
+        keyed.setAutoStartup(false);
+
+        customizer.configure(keyed);
+
+        assertEquals(1, keyed.getConcurrency());
+        assertEquals(0, lookups.get());
+    }
+
+    @Test
+    void configureMultipleTopicsWithPerTopicSettings_KeepConsumerProperties() {
+
+        config.getListeners().getMethod().setMaxPollRecords(200);
+
+        ConcurrentMessageListenerContainer<String, Object> batch = container("audit.methods", "audit.requests");
+
+        customizer.configure(batch);
+
+        assertFalse(batch.getContainerProperties().getKafkaConsumerProperties()
+                .containsKey(ConsumerConfig.MAX_POLL_RECORDS_CONFIG));
+    }
+
+    @Test
+    void configureUnknownPartitionCount_UseSingleConsumer() {
+
+        ConcurrentMessageListenerContainer<String, Object> errors = container("audit.errors");
+
+        customizer.configure(errors);
+
+        assertEquals(1, errors.getConcurrency());
+    }
+
+    private ConcurrentMessageListenerContainer<String, Object> container(String... topics) {
+        return new ConcurrentMessageListenerContainer<>(consumerFactory, new ContainerProperties(topics));
+    }
+
+}
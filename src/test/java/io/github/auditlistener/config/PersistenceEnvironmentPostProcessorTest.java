@@ -0,0 +1,56 @@
+package io.github.auditlistener.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenceEnvironmentPostProcessorTest {
+
+    private final PersistenceEnvironmentPostProcessor postProcessor = new PersistenceEnvironmentPostProcessor();
+
+    @Test
+    void persistenceEnabled_KeepAutoConfiguration() {
+
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(PersistenceEnvironmentPostProcessor.PERSISTENCE_ENABLED, "true");
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertNull(environment.getProperty("spring.autoconfigure.exclude"));
+    }
+
+    @Test
+    void persistenceDisabledByDefault_ExcludeDataSource() {
+
+        MockEnvironment environment = new MockEnvironment();
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        String excludes = environment.getProperty("spring.autoconfigure.exclude");
+        assertNotNull(excludes);
+        assertTrue(excludes.contains(DataSourceAutoConfiguration.class.getName()));
+    }
+
+    @Test
+    void persistenceDisabled_ExcludeDataSourceJpaAndLiquibase() {
+
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(PersistenceEnvironmentPostProcessor.PERSISTENCE_ENABLED, "false")
+                .withProperty("spring.autoconfigure.exclude", "com.example.CustomAutoConfiguration");
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        String excludes = environment.getProperty("spring.autoconfigure.exclude");
+        assertNotNull(excludes);
+        assertTrue(excludes.contains("com.example.CustomAutoConfiguration"));
+        assertTrue(excludes.contains(DataSourceAutoConfiguration.class.getName()));
+        assertTrue(excludes.contains(HibernateJpaAutoConfiguration.class.getName()));
+        assertTrue(excludes.contains(LiquibaseAutoConfiguration.class.getName()));
+    }
+
+}
@@ -1,5 +1,6 @@
 package io.github.auditlistener.integration;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
@@ -11,14 +12,25 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.github.auditlistener.config.KafkaConfig;
 import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
 import io.github.auditlistener.model.elastic.ErrorDocument;
 import io.github.auditlistener.model.elastic.HttpDocument;
 import io.github.auditlistener.model.elastic.MethodDocument;
 import io.github.auditlistener.repository.EventRepository;
+import io.github.auditlistener.service.impl.AdaptiveBatchControllerImpl;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
 import io.github.auditlistener.service.impl.ElasticSearchServiceImpl;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
 import io.github.auditlistener.service.impl.EventListenerImpl;
 import io.github.auditlistener.service.impl.KafkaServiceImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.github.auditlistener.service.impl.RetryServiceImpl;
+import io.github.auditlistener.service.impl.SchemaValidatorImpl;
+import io.github.auditlistener.service.impl.TraceServiceImpl;
 import io.github.auditlistener.utils.EventListenerTestUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.http.HttpHost;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -32,9 +44,6 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.core.DefaultKafkaProducerFactory;
-import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -45,6 +54,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -57,8 +67,17 @@ import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest(classes = {
         EventListenerImplIntegrationTest.TestConfig.class,
         EventListenerImpl.class,
+        EventDocumentParserImpl.class,
+        AuditMetrics.class,
+        AdaptiveBatchControllerImpl.class,
+        ArgsRendererImpl.class,
+        SchemaValidatorImpl.class,
         ElasticSearchServiceImpl.class,
         KafkaServiceImpl.class,
+        PayloadLimiterImpl.class,
+        PayloadStoreImpl.class,
+        RetryServiceImpl.class,
+        TraceServiceImpl.class,
         KafkaConfig.class
 })
 @Testcontainers
@@ -89,6 +108,7 @@ public class EventListenerImplIntegrationTest {
     static void configureProperties(DynamicPropertyRegistry registry) {
         registry.add("audit.listener.kafka.bootstrap-servers", kafka::getBootstrapServers);
         registry.add("audit.listener.kafka.group-id", () -> "test-audit-listener-group");
+        registry.add("audit.listener.retry.spill-directory", () -> "target/spill");
         registry.add("spring.elasticsearch.uris", () -> "http://" + elasticsearch.getHttpHostAddress());
     }
 
@@ -224,7 +244,8 @@ public class EventListenerImplIntegrationTest {
 
             assertNotNull(errorDocument);
             assertEquals("VALIDATION_ERROR", errorDocument.getErrorType());
-            assertEquals("Required fields missing", errorDocument.getErrorMessage());
+            assertEquals("Validation failed: timestamp: required field is missing; eventType: required field is missing; "
+                    + "logLevel: required field is missing; methodName: required field is missing", errorDocument.getErrorMessage());
             assertEquals("audit.methods", errorDocument.getOriginalTopic());
         });
     }
@@ -266,7 +287,7 @@ public class EventListenerImplIntegrationTest {
     void processErrorData_Success() throws Exception {
         ErrorDocument errorDoc = ErrorDocument.builder()
                 .id("error-123")
-                .timestamp(LocalDateTime.now())
+                .timestamp(Instant.now())
                 .errorType("TEST_ERROR")
                 .errorMessage("Test error message")
                 .originalTopic("audit.methods")
@@ -330,17 +351,13 @@ public class EventListenerImplIntegrationTest {
         }
 
         @Bean
-        public ProducerFactory<String, String> testProducerFactory() {
-            Map<String, Object> configProps = new HashMap<>();
-            configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
-            configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-            configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-            return new DefaultKafkaProducerFactory<>(configProps);
+        public ElasticsearchAsyncClient testElasticsearchAsyncClient(ElasticsearchClient elasticsearchClient) {
+            return new ElasticsearchAsyncClient(elasticsearchClient._transport());
         }
 
         @Bean
-        public KafkaTemplate<String, String> testKafkaTemplate(ProducerFactory<String, String> producerFactory) {
-            return new KafkaTemplate<>(producerFactory);
+        public MeterRegistry testMeterRegistry() {
+            return new SimpleMeterRegistry();
         }
 
         @Bean
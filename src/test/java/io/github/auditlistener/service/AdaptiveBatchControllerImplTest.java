@@ -0,0 +1,86 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.service.impl.AdaptiveBatchControllerImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBatchControllerImplTest {
+
+    private ListenerConfig config;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AdaptiveBatchControllerImpl batchController;
+
+    @BeforeEach
+    void setUp() {
+        config = new ListenerConfig();
+        config.getBatch().setSize(1000);
+        config.getBatch().setMaxBytes(10 * 1024 * 1024);
+        config.getBatch().setMaxInFlight(4);
+        meterRegistry = new SimpleMeterRegistry();
+
+        batchController = new AdaptiveBatchControllerImpl(config, new AuditMetrics(meterRegistry));
+    }
+
+    @Test
+    void rejectedBulk_DecreaseLimitsAndRecoverAfterSuccessfulBulks() {
+
+        batchController.onBulkCompleted(1000, TimeUnit.MILLISECONDS.toNanos(100), 10);
+
+        assertEquals(500, batchController.bulkMaxDocuments());
+        assertEquals(5 * 1024 * 1024, batchController.bulkMaxBytes());
+        assertEquals(2, batchController.maxInFlight());
+        assertEquals(500, meterRegistry.get(AuditMetrics.ADAPTIVE_BULK_DOCUMENTS).gauge().value());
+
+        for (int i = 0; i < 5; i++) {
+            batchController.onBulkRejected();
+        }
+
+        assertEquals(config.getBatch().getAdaptive().getMinSize(), batchController.bulkMaxDocuments());
+        assertEquals(1, batchController.maxInFlight());
+
+        for (int i = 0; i < 20; i++) {
+            batchController.onBulkCompleted(batchController.bulkMaxDocuments(), TimeUnit.MILLISECONDS.toNanos(100), 0);
+        }
+
+        assertEquals(1000, batchController.bulkMaxDocuments());
+        assertEquals(10 * 1024 * 1024, batchController.bulkMaxBytes());
+        assertEquals(4, batchController.maxInFlight());
+    }
+
+    @Test
+    void slowBulk_DecreaseLimitsWithoutRetries() {
+
+        batchController.onBulkCompleted(1000, TimeUnit.SECONDS.toNanos(5), 0);
+
+        assertEquals(800, batchController.bulkMaxDocuments());
+        assertEquals(3, batchController.maxInFlight());
+    }
+
+    @Test
+    void rejectBackoff_GrowsUntilRetriesExhausted() {
+
+        ListenerConfig.Adaptive adaptive = config.getBatch().getAdaptive();
+        adaptive.setRejectBackoffMs(500);
+        adaptive.setMaxRejectBackoffMs(1500);
+        adaptive.setMaxRejectRetries(3);
+
+        assertEquals(500, batchController.rejectBackoffMs(0));
+        assertEquals(1000, batchController.rejectBackoffMs(1));
+        assertEquals(1500, batchController.rejectBackoffMs(2));
+        assertEquals(-1, batchController.rejectBackoffMs(3));
+
+        adaptive.setEnabled(false);
+
+        assertEquals(-1, batchController.rejectBackoffMs(0));
+    }
+
+}
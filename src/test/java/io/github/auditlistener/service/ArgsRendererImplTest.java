@@ -0,0 +1,93 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.model.enums.ArgsFormat;
+import io.github.auditlistener.model.enums.ArgsMapping;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArgsRendererImplTest {
+
+    private ObjectMapper objectMapper;
+
+    private ListenerConfig config;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        config = new ListenerConfig();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "[]",
+            "[\"arg1\",2,{\"key\":\"value\"},[1,2],null]",
+            "[1.5,1e10,-0.0,12345678901,123456789012345678901234567890,true,false]",
+            "[{\"a\":{\"b\":[{},[],\"\"]},\"c\":null},[[\"x\"],{\"y\":\"\\u0442\\\"\\n\"}]]"
+    })
+    void renderToString_MatchArraysToString(String arguments) throws IOException {
+
+        ArgsRenderer.Rendered rendered = render(new ArgsRendererImpl(config), arguments);
+
+        assertEquals(Arrays.toString(objectMapper.readValue(arguments, Object[].class)), rendered.text());
+        assertNull(rendered.fields());
+    }
+
+    @Test
+    void renderJson_CompactJsonAndFields() throws IOException {
+
+        config.getArgs().setFormat(ArgsFormat.JSON);
+        config.getArgs().setMapping(ArgsMapping.FLATTENED);
+        String arguments = "[ \"arg1\", 2.50, {\"key\" : \"va\\\"lue\"}, [1, 2], null ]";
+
+        ArgsRenderer.Rendered rendered = render(new ArgsRendererImpl(config), arguments);
+
+        assertEquals("[\"arg1\",2.50,{\"key\":\"va\\\"lue\"},[1,2],null]", rendered.text());
+        JsonNode fields = objectMapper.readTree(rendered.fields());
+        assertEquals(5, fields.size());
+        assertEquals("va\"lue", fields.get("2").get("key").asText());
+        assertEquals(2, fields.get("3").get(1).asInt());
+    }
+
+    @Test
+    void renderLongArgument_TruncateAndSkipRest() throws IOException {
+
+        config.getArgs().setMaxArgChars(5);
+        config.getArgs().setMapping(ArgsMapping.FLATTENED);
+        String arguments = "[\"0123456789\",{\"a\":\"bbbbbbbb\",\"c\":[1,2,3]},3]";
+
+        ArgsRenderer.Rendered rendered = render(new ArgsRendererImpl(config), arguments);
+
+        assertEquals("[01234..., {a=bb..., 3]", rendered.text());
+        JsonNode fields = objectMapper.readTree(rendered.fields());
+        assertEquals("\"0123...", fields.get("0").asText());
+        assertEquals(3, fields.get("2").asInt());
+    }
+
+    @Test
+    void renderNotArray_IllegalArgument() {
+
+        assertThrows(IllegalArgumentException.class, () -> render(new ArgsRendererImpl(config), "{\"key\":\"value\"}"));
+    }
+
+    private ArgsRenderer.Rendered render(ArgsRenderer argsRenderer, String arguments) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(arguments)) {
+            parser.nextToken();
+            ArgsRenderer.Rendered rendered = argsRenderer.render(parser);
+            assertNull(parser.nextToken());
+            return rendered;
+        }
+    }
+
+}
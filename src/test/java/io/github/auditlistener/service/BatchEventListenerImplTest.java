@@ -0,0 +1,468 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.ErrorNotAcceptedException;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.BulkDocument;
+import io.github.auditlistener.model.elastic.BulkItemFailure;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.model.enums.EventSource;
+import io.github.auditlistener.model.enums.EventType;
+import io.github.auditlistener.model.enums.ProcessingMode;
+import io.github.auditlistener.model.persistence.RowFailure;
+import io.github.auditlistener.service.impl.AdaptiveBatchControllerImpl;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
+import io.github.auditlistener.service.impl.BatchEventListenerImpl;
+import io.github.auditlistener.service.impl.ElasticSearchServiceImpl;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
+import io.github.auditlistener.service.impl.KafkaServiceImpl;
+import io.github.auditlistener.service.impl.PayloadDecoderImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.github.auditlistener.service.impl.SchemaValidatorImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchEventListenerImplTest {
+
+    @Mock
+    private KafkaServiceImpl kafkaService;
+
+    @Mock
+    private ElasticSearchServiceImpl elasticsearchService;
+
+    @Mock
+    private RetryService retryService;
+
+    @Mock
+    private IndexingPipeline indexingPipeline;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private BatchEventListenerImpl batchListener;
+
+    private ListenerConfig config;
+
+    private ObjectMapper objectMapper;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        meterRegistry = new SimpleMeterRegistry();
+
+        config = new ListenerConfig();
+
+        batchListener = batchListener(Optional.empty());
+    }
+
+    private BatchEventListenerImpl batchListener(Optional<EventPersistenceService> eventPersistence) {
+        AuditMetrics metrics = new AuditMetrics(meterRegistry);
+        return new BatchEventListenerImpl(
+                config,
+                new EventDocumentParserImpl(objectMapper, new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics),
+                        new ArgsRendererImpl(config), new SchemaValidatorImpl(config)),
+                new PayloadDecoderImpl(config, objectMapper, metrics),
+                kafkaService,
+                elasticsearchService,
+                indexingPipeline,
+                eventPersistence,
+                new AdaptiveBatchControllerImpl(config, metrics),
+                retryService,
+                metrics
+        );
+    }
+
+    @Test
+    void processMixedBatch_SingleBulkRequest() throws JsonProcessingException {
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", httpMessage())
+        );
+
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BulkDocument>> bulkCaptor = ArgumentCaptor.forClass(List.class);
+        verify(elasticsearchService).indexBulk(bulkCaptor.capture());
+        verify(acknowledgment).acknowledge();
+        verifyNoInteractions(kafkaService);
+
+        List<BulkDocument> documents = bulkCaptor.getValue();
+        assertEquals(2, documents.size());
+        assertEquals("audit-methods", documents.get(0).getIndex());
+        assertEquals("correlation-1", ((MethodDocument) documents.get(0).getDocument()).getCorrelationId());
+        assertEquals("audit-requests", documents.get(1).getIndex());
+        assertEquals("correlation-2", ((HttpDocument) documents.get(1).getDocument()).getCorrelationId());
+    }
+
+    @Test
+    void processBatchWithItemFailure_SendFailedRecordToErrorTopic() throws JsonProcessingException {
+
+        String failedMessage = httpMessage();
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", failedMessage)
+        );
+
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of(
+                BulkItemFailure.builder()
+                        .position(1)
+                        .status(400)
+                        .type("mapper_parsing_exception")
+                        .reason("failed to parse field")
+                        .build()
+        ));
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        InOrder inOrder = inOrder(kafkaService, acknowledgment);
+        inOrder.verify(kafkaService).sendErrorMessage(
+                eq("INDEXING_ERROR"),
+                eq("failed to parse field"),
+                argThat(record -> "audit.requests".equals(record.topic()) && failedMessage.equals(record.value()))
+        );
+        inOrder.verify(acknowledgment).acknowledge();
+        verifyNoMoreInteractions(kafkaService);
+    }
+
+    @Test
+    void processBatchWithInvalidRecord_IndexOnlyValidRecords() throws JsonProcessingException {
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "invalid", "invalid json"),
+                new ConsumerRecord<>("audit.methods", 0, 1L, "correlation-1", methodMessage("correlation-1"))
+        );
+
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        verify(kafkaService).sendErrorMessage(
+                argThat(error -> error.getErrorType() == ErrorType.PARSING_ERROR),
+                eq(records.get(0))
+        );
+        verify(elasticsearchService).indexBulk(argThat(documents -> documents.size() == 1));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void processBatchWithInvalidRecord_ErrorNotAccepted_NackWholeBatch() throws JsonProcessingException {
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                new ConsumerRecord<>("audit.methods", 0, 1L, "invalid", "invalid json")
+        );
+
+        doThrow(new ErrorNotAcceptedException("Error buffer is full"))
+                .when(kafkaService).sendErrorMessage(any(EventProcessingException.class), any(ConsumerRecord.class));
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        verify(acknowledgment).nack(eq(0), any(Duration.class));
+        verify(acknowledgment, never()).acknowledge();
+        verifyNoInteractions(elasticsearchService);
+    }
+
+    @Test
+    void processBatchExceedingMaxBytes_SplitIntoSeveralBulkRequests() throws JsonProcessingException {
+
+        String message = methodMessage("correlation-1");
+        config.getBatch().setMaxBytes(message.length() + 1);
+        batchListener = batchListener(Optional.empty());
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", message),
+                new ConsumerRecord<>("audit.methods", 0, 1L, "correlation-1", message),
+                new ConsumerRecord<>("audit.methods", 0, 2L, "correlation-1", message)
+        );
+
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        verify(elasticsearchService, times(3)).indexBulk(argThat(documents -> documents.size() == 1));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void processBatch_ElasticsearchError_SendAllRecordsToErrorTopic() throws JsonProcessingException {
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", httpMessage())
+        );
+
+        when(elasticsearchService.indexBulk(anyList())).thenThrow(new RuntimeException("ES connection error"));
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        verify(kafkaService, times(2)).sendErrorMessage(
+                eq("INDEXING_ERROR"),
+                eq("ES connection error"),
+                any(ConsumerRecord.class)
+        );
+        verify(elasticsearchService, never()).indexMethodDocument(any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void processBatchWithPersistence_CopySameRecordsToPostgres() throws JsonProcessingException {
+
+        EventPersistenceService eventPersistence = mock(EventPersistenceService.class);
+        config.getBatch().setRawHttpPassthrough(true);
+        batchListener = batchListener(Optional.of(eventPersistence));
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", httpMessage())
+        );
+
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Event>> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(elasticsearchService, eventPersistence, acknowledgment);
+        inOrder.verify(elasticsearchService).indexBulk(argThat(documents -> documents.get(1).getSource() == null));
+        inOrder.verify(eventPersistence).persist(eventsCaptor.capture());
+        inOrder.verify(acknowledgment).acknowledge();
+
+        List<Event> events = eventsCaptor.getValue();
+        assertEquals(2, events.size());
+        assertEquals(EventSource.METHOD, events.get(0).getEventSource());
+        assertEquals("correlation-1", events.get(0).getCorrelationId());
+        assertEquals(EventType.START, events.get(0).getEventType());
+        assertEquals(EventSource.HTTP, events.get(1).getEventSource());
+        assertEquals("correlation-2", events.get(1).getCorrelationId());
+        assertEquals(200, events.get(1).getHttpStatus());
+    }
+
+    @Test
+    void processBatch_PostgresError_SendAllRecordsToErrorTopic() throws JsonProcessingException {
+
+        EventPersistenceService eventPersistence = mock(EventPersistenceService.class);
+        batchListener = batchListener(Optional.of(eventPersistence));
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1"))
+        );
+
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+        doThrow(new RuntimeException("Failed to persist events")).when(eventPersistence).persist(anyList());
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        verify(kafkaService).sendErrorMessage(
+                eq("PERSISTENCE_ERROR"),
+                eq("Failed to persist events"),
+                argThat(record -> "audit.methods".equals(record.topic()))
+        );
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void processBatch_PostgresRejectedRow_SendOnlyRejectedRecordToErrorTopic() throws JsonProcessingException {
+
+        EventPersistenceService eventPersistence = mock(EventPersistenceService.class);
+        batchListener = batchListener(Optional.of(eventPersistence));
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", httpMessage())
+        );
+
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+        when(eventPersistence.persist(anyList())).thenReturn(List.of(
+                RowFailure.builder().position(1).reason("null value in column \"timestamp\"").build()));
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        verify(kafkaService).sendErrorMessage(
+                eq("PERSISTENCE_ERROR"),
+                eq("null value in column \"timestamp\""),
+                eq(records.get(1))
+        );
+        verifyNoMoreInteractions(kafkaService);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void processBatchWithRejectedDocuments_RetryOnlyRejectedDocuments() throws JsonProcessingException {
+
+        config.getBatch().getAdaptive().setRejectBackoffMs(1);
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", httpMessage())
+        );
+
+        when(elasticsearchService.indexBulk(anyList()))
+                .thenReturn(List.of(BulkItemFailure.builder().position(1).status(429).reason("rejected").build()))
+                .thenReturn(List.of());
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        InOrder inOrder = inOrder(elasticsearchService, acknowledgment);
+        inOrder.verify(elasticsearchService).indexBulk(argThat(documents -> documents.size() == 2));
+        inOrder.verify(elasticsearchService).indexBulk(argThat(documents -> documents.size() == 1
+                && documents.get(0).getDocument() instanceof HttpDocument));
+        inOrder.verify(acknowledgment).acknowledge();
+        verifyNoInteractions(kafkaService);
+    }
+
+    @Test
+    void processPipelinedBatch_SubmitAsyncIndexingWithoutAcknowledge() throws JsonProcessingException {
+
+        config.setProcessingMode(ProcessingMode.PIPELINED);
+        String failedMessage = httpMessage();
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", failedMessage)
+        );
+
+        CompletableFuture<List<BulkItemFailure>> bulkResponse = new CompletableFuture<>();
+        when(elasticsearchService.indexBulkAsync(anyList())).thenReturn(bulkResponse);
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<CompletableFuture<Void>> indexingCaptor = ArgumentCaptor.forClass(CompletableFuture.class);
+        verify(indexingPipeline).submit(eq(BatchEventListenerImpl.LISTENER_ID), indexingCaptor.capture(), eq(acknowledgment));
+        verify(elasticsearchService, never()).indexBulk(anyList());
+        verify(acknowledgment, never()).acknowledge();
+
+        CompletableFuture<Void> indexing = indexingCaptor.getValue();
+        assertFalse(indexing.isDone());
+
+        bulkResponse.complete(List.of(BulkItemFailure.builder().position(1).status(400).reason("mapper_parsing_exception").build()));
+
+        assertTrue(indexing.isDone());
+        verify(kafkaService).sendErrorMessage(
+                eq("INDEXING_ERROR"),
+                eq("mapper_parsing_exception"),
+                argThat(record -> "audit.requests".equals(record.topic()) && failedMessage.equals(record.value()))
+        );
+    }
+
+    @Test
+    void processPipelinedBatch_BulkRequestFailed_RetryRecordsOrFailIndexing() throws JsonProcessingException {
+
+        config.setProcessingMode(ProcessingMode.PIPELINED);
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", httpMessage())
+        );
+
+        when(elasticsearchService.indexBulkAsync(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("Connection refused")));
+        when(retryService.retry(anyString(), anyString(), anyString(), any(Throwable.class))).thenReturn(true);
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<CompletableFuture<Void>> indexingCaptor = ArgumentCaptor.forClass(CompletableFuture.class);
+        verify(indexingPipeline).submit(eq(BatchEventListenerImpl.LISTENER_ID), indexingCaptor.capture(), eq(acknowledgment));
+        assertFalse(indexingCaptor.getValue().isCompletedExceptionally());
+        verify(retryService, times(2)).retry(anyString(), anyString(), anyString(), any(ConnectException.class));
+
+        // записи не удалось передать ни на повтор, ни в error топик: пачка не должна подтверждаться
+        when(retryService.retry(anyString(), anyString(), anyString(), any(Throwable.class))).thenReturn(false);
+        doThrow(new IllegalStateException("Error sender is stopped"))
+                .when(kafkaService).sendErrorMessage(anyString(), anyString(), any(ConsumerRecord.class));
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        verify(indexingPipeline, times(2)).submit(eq(BatchEventListenerImpl.LISTENER_ID), indexingCaptor.capture(), eq(acknowledgment));
+        assertTrue(indexingCaptor.getValue().isCompletedExceptionally());
+    }
+
+    @Test
+    void processRawHttpPassthrough_IndexOriginalBytes() throws Exception {
+
+        config.getBatch().setRawHttpPassthrough(true);
+
+        List<ConsumerRecord<String, Object>> records = List.of(
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", httpMessage().getBytes(StandardCharsets.UTF_8))
+        );
+
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+
+        batchListener.handleEventBatch(records, acknowledgment);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BulkDocument>> bulkCaptor = ArgumentCaptor.forClass(List.class);
+        verify(elasticsearchService).indexBulk(bulkCaptor.capture());
+
+        BulkDocument document = bulkCaptor.getValue().getFirst();
+        assertEquals("audit-requests", document.getIndex());
+        assertNull(document.getDocument());
+        assertNotNull(document.getSource());
+        assertEquals(document.getId(), objectMapper.readTree(document.getSource()).get("id").asText());
+        assertEquals("correlation-2", objectMapper.readTree(document.getSource()).get("correlationId").asText());
+    }
+
+    private String methodMessage(String correlationId) throws JsonProcessingException {
+        Map<String, Object> message = new HashMap<>();
+        message.put("correlationId", correlationId);
+        message.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        message.put("eventType", "START");
+        message.put("logLevel", "DEBUG");
+        message.put("methodName", "TestService.testMethod");
+        message.put("arguments", new Object[]{"arg1", "arg2"});
+        return objectMapper.writeValueAsString(message);
+    }
+
+    private String httpMessage() throws JsonProcessingException {
+        Map<String, Object> message = new HashMap<>();
+        message.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        message.put("direction", "INCOMING");
+        message.put("method", "GET");
+        message.put("uri", "/api/test");
+        message.put("statusCode", 200);
+        return objectMapper.writeValueAsString(message);
+    }
+
+}
@@ -0,0 +1,160 @@
+package io.github.auditlistener.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.PutIndicesSettingsRequest;
+import co.elastic.clients.util.ObjectBuilder;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.CatchUpLease;
+import io.github.auditlistener.service.impl.BulkCatchUpServiceImpl;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkCatchUpServiceImplTest {
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    @Mock
+    private ElasticsearchIndicesClient indicesClient;
+
+    private final AtomicLong lag = new AtomicLong();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BulkCatchUpServiceImpl catchUpService;
+
+    @BeforeEach
+    void setUp() {
+        ListenerConfig config = new ListenerConfig();
+        config.getIndices().setReplicas(1);
+        config.getIndices().getCatchUp().setLagThreshold(1000);
+        config.getIndices().getCatchUp().setResumeLagThreshold(100);
+
+        meterRegistry = new SimpleMeterRegistry();
+        Gauge.builder("kafka.consumer.fetch.manager.records.lag.max", lag, AtomicLong::get).register(meterRegistry);
+
+        catchUpService = new BulkCatchUpServiceImpl(elasticsearchClient, config, new AuditMetrics(meterRegistry));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkLag_DisableRefreshAboveThresholdAndRestoreBelowResumeThreshold() throws IOException {
+
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        when(elasticsearchClient.search(any(Function.class), eq(CatchUpLease.class))).thenReturn(leases());
+
+        lag.set(5000);
+        catchUpService.checkLag();
+        assertTrue(catchUpService.isActive());
+        assertEquals(1, meterRegistry.get(AuditMetrics.CATCH_UP_ACTIVE).gauge().value());
+
+        lag.set(500);
+        catchUpService.checkLag();
+        assertTrue(catchUpService.isActive());
+
+        lag.set(50);
+        catchUpService.checkLag();
+        assertFalse(catchUpService.isActive());
+
+        ArgumentCaptor<Function<PutIndicesSettingsRequest.Builder, ObjectBuilder<PutIndicesSettingsRequest>>> settings =
+                ArgumentCaptor.forClass(Function.class);
+        verify(indicesClient, times(2)).putSettings(settings.capture());
+        List<PutIndicesSettingsRequest> requests = settings.getAllValues().stream()
+                .map(request -> request.apply(new PutIndicesSettingsRequest.Builder()).build())
+                .toList();
+
+        assertEquals("-1", requests.get(0).settings().refreshInterval().time());
+        assertEquals("0", requests.get(0).settings().numberOfReplicas());
+        assertEquals("1s", requests.get(1).settings().refreshInterval().time());
+        assertEquals("1", requests.get(1).settings().numberOfReplicas());
+        assertEquals(List.of("audit-methods", "audit-requests", "audit-errors"), requests.get(0).index());
+
+        // аренда взята при включении, продлена при проверке и освобождена перед восстановлением
+        verify(elasticsearchClient, times(2)).index(any(Function.class));
+        verify(elasticsearchClient).delete(any(Function.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkLag_OtherInstanceStillCatchingUp_KeepSettings() throws IOException {
+
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        when(elasticsearchClient.search(any(Function.class), eq(CatchUpLease.class)))
+                .thenReturn(leases(new CatchUpLease("other", System.currentTimeMillis() + 60000)));
+
+        lag.set(5000);
+        catchUpService.checkLag();
+        lag.set(50);
+        catchUpService.checkLag();
+
+        assertFalse(catchUpService.isActive());
+        verify(indicesClient, times(1)).putSettings(any(Function.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkLag_OnlyExpiredLeases_RestoreSettings() throws IOException {
+
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        when(elasticsearchClient.search(any(Function.class), eq(CatchUpLease.class)))
+                .thenReturn(leases(new CatchUpLease("stopped", System.currentTimeMillis() - 1000)));
+
+        lag.set(50);
+        catchUpService.checkLag();
+
+        assertFalse(catchUpService.isActive());
+        ArgumentCaptor<Function<PutIndicesSettingsRequest.Builder, ObjectBuilder<PutIndicesSettingsRequest>>> settings =
+                ArgumentCaptor.forClass(Function.class);
+        verify(indicesClient).putSettings(settings.capture());
+        assertEquals("1s", settings.getValue().apply(new PutIndicesSettingsRequest.Builder()).build()
+                .settings().refreshInterval().time());
+        verify(elasticsearchClient).delete(any(Function.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkLag_UpdateFailed_StayInactive() throws IOException {
+
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        when(indicesClient.putSettings(any(Function.class))).thenThrow(new IOException("Connection refused"));
+
+        lag.set(5000);
+        catchUpService.checkLag();
+
+        assertFalse(catchUpService.isActive());
+    }
+
+    private static SearchResponse<CatchUpLease> leases(CatchUpLease... leases) {
+        List<Hit<CatchUpLease>> hits = Arrays.stream(leases)
+                .map(lease -> Hit.<CatchUpLease>of(hit -> hit.index("audit-catchup-leases").id(lease.getInstance()).source(lease)))
+                .toList();
+        return SearchResponse.of(r -> r
+                .took(1)
+                .timedOut(false)
+                .shards(s -> s.total(1).successful(1).failed(0))
+                .hits(h -> h.hits(hits)));
+    }
+
+}
@@ -0,0 +1,336 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.BulkDocument;
+import io.github.auditlistener.model.elastic.ErrorDocument;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.enums.ReplayState;
+import io.github.auditlistener.model.replay.ReplayProgress;
+import io.github.auditlistener.model.replay.ReplayRequest;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
+import io.github.auditlistener.service.impl.ElasticSearchServiceImpl;
+import io.github.auditlistener.service.impl.ErrorReplayServiceImpl;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
+import io.github.auditlistener.service.impl.PayloadDecoderImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.github.auditlistener.service.impl.SchemaValidatorImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ErrorReplayServiceImplTest {
+
+    private static final String ERROR_TOPIC = "audit.errors";
+
+    private static final String METHOD_MESSAGE = """
+            {"correlationId":"correlation-1","timestamp":"2025-01-01T10:00:00","eventType":"START",\
+            "logLevel":"INFO","methodName":"TestService.testMethod"}""";
+
+    private static final String HTTP_MESSAGE = """
+            {"timestamp":"2025-01-01T10:00:00","direction":"INCOMING","method":"GET","uri":"/api/test",\
+            "statusCode":200,"requestBody":"test request","responseBody":"test response"}""";
+
+    private static final int METHOD_SCHEMA_ID = 7;
+
+    private static final String METHOD_SCHEMA = """
+            {"type": "record", "name": "MethodEvent", "fields": [
+              {"name": "correlationId", "type": "string"},
+              {"name": "timestamp", "type": "string"},
+              {"name": "eventType", "type": "string"},
+              {"name": "logLevel", "type": "string"},
+              {"name": "methodName", "type": "string"}
+            ]}
+            """;
+
+    @TempDir
+    private Path directory;
+
+    @Mock
+    private ConsumerFactory<String, Object> consumerFactory;
+
+    @Mock
+    private ElasticSearchServiceImpl elasticsearchService;
+
+    @Mock
+    private EventPersistenceService eventPersistence;
+
+    private ObjectMapper objectMapper;
+
+    private MockConsumer<String, Object> consumer;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ListenerConfig config;
+
+    private AuditMetrics metrics;
+
+    private PayloadLimiterImpl payloadLimiter;
+
+    private EventDocumentParser eventParser;
+
+    private ErrorReplayServiceImpl errorReplayService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        meterRegistry = new SimpleMeterRegistry();
+
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(ERROR_TOPIC, List.of(new PartitionInfo(ERROR_TOPIC, 0, Node.noNode(), null, null)));
+        TopicPartition partition = new TopicPartition(ERROR_TOPIC, 0);
+        consumer.updateBeginningOffsets(Map.of(partition, 0L));
+        consumer.updateEndOffsets(Map.of(partition, 3L));
+        when(consumerFactory.createConsumer(anyString(), anyString(), isNull())).thenReturn(consumer);
+
+        config = new ListenerConfig();
+        config.getSchemaRegistry().setDirectory(directory.toString());
+        metrics = new AuditMetrics(meterRegistry);
+        payloadLimiter = new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics);
+        eventParser = new EventDocumentParserImpl(objectMapper, payloadLimiter, new ArgsRendererImpl(config),
+                new SchemaValidatorImpl(config));
+        errorReplayService = replayService(Optional.empty());
+    }
+
+    private ErrorReplayServiceImpl replayService(Optional<EventPersistenceService> persistence) {
+        return new ErrorReplayServiceImpl(config, consumerFactory, objectMapper, eventParser,
+                new PayloadDecoderImpl(config, objectMapper, metrics), payloadLimiter, elasticsearchService,
+                persistence, metrics);
+    }
+
+    @Test
+    void replayIndexingErrors_IndexOriginalMessagesOfMatchingRecords() throws Exception {
+
+        String indexingError = errorRecord("INDEXING_ERROR", "audit.methods", METHOD_MESSAGE);
+        String parsingError = errorRecord("PARSING_ERROR", "audit.methods", "invalid json");
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 0L, "error_1", indexingError));
+            consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 1L, "error_2", parsingError));
+            consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 2L, "error_3", indexingError));
+        });
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+
+        errorReplayService.start(ReplayRequest.builder().errorType("INDEXING_ERROR").build());
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> errorReplayService.progress().getState() != ReplayState.RUNNING);
+
+        ReplayProgress progress = errorReplayService.progress();
+        assertEquals(ReplayState.COMPLETED, progress.getState());
+        assertEquals(3, progress.getTotal());
+        assertEquals(3, progress.getScanned());
+        assertEquals(2, progress.getMatched());
+        assertEquals(2, progress.getReplayed());
+        assertEquals(0, progress.getFailed());
+        verify(elasticsearchService).indexBulk(argThat(documents -> documents.size() == 2
+                && documents.stream().allMatch(document -> document.getDocument() instanceof MethodDocument)));
+        assertEquals(2, meterRegistry.get(AuditMetrics.ERRORS_REPLAYED).counter().count());
+    }
+
+    @Test
+    void replayHttpError_KeepCorrelationIdAndDocumentId() throws Exception {
+
+        HttpDocument original = eventParser.parseHttpEvent(HTTP_MESSAGE, "correlation-http");
+        String indexingError = errorRecord("INDEXING_ERROR", "audit.requests", "correlation-http", HTTP_MESSAGE);
+        consumer.updateEndOffsets(Map.of(new TopicPartition(ERROR_TOPIC, 0), 1L));
+        consumer.schedulePollTask(() -> consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 0L, "error_1", indexingError)));
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+
+        errorReplayService.start(ReplayRequest.builder().errorType("INDEXING_ERROR").build());
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> errorReplayService.progress().getState() != ReplayState.RUNNING);
+
+        assertEquals(1, errorReplayService.progress().getReplayed());
+        ArgumentCaptor<List<BulkDocument>> bulkCaptor = ArgumentCaptor.forClass(List.class);
+        verify(elasticsearchService).indexBulk(bulkCaptor.capture());
+        BulkDocument replayed = bulkCaptor.getValue().getFirst();
+        assertEquals(original.getId(), replayed.getId());
+        assertEquals("correlation-http", ((HttpDocument) replayed.getDocument()).getCorrelationId());
+    }
+
+    @Test
+    void replayAvroError_DecodeOriginalPayload() throws Exception {
+
+        // схема появилась в реестре после ошибки декодирования
+        Files.writeString(directory.resolve(METHOD_SCHEMA_ID + ".avsc"), METHOD_SCHEMA);
+        String parsingError = objectMapper.writeValueAsString(ErrorDocument.builder()
+                .id("error-id")
+                .timestamp(Instant.now())
+                .errorType("PARSING_ERROR")
+                .errorMessage("Unknown Avro schema id " + METHOD_SCHEMA_ID)
+                .originalTopic("audit.methods")
+                .originalKey("correlation-1")
+                .originalPayload(avroMethodEvent("correlation-1"))
+                .originalFormat("AVRO")
+                .originalSchemaId(METHOD_SCHEMA_ID)
+                .build());
+        consumer.updateEndOffsets(Map.of(new TopicPartition(ERROR_TOPIC, 0), 1L));
+        consumer.schedulePollTask(() -> consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 0L, "error_1", parsingError)));
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+
+        errorReplayService.start(ReplayRequest.builder().errorType("PARSING_ERROR").build());
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> errorReplayService.progress().getState() != ReplayState.RUNNING);
+
+        assertEquals(1, errorReplayService.progress().getReplayed());
+        verify(elasticsearchService).indexBulk(argThat(documents -> documents.size() == 1
+                && documents.getFirst().getDocument() instanceof MethodDocument document
+                && "correlation-1".equals(document.getCorrelationId())
+                && "TestService.testMethod".equals(document.getMethod())));
+    }
+
+    @Test
+    void replayCompressedError_DecompressOriginalPayload() throws Exception {
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(METHOD_MESSAGE.getBytes(StandardCharsets.UTF_8));
+        }
+        String indexingError = objectMapper.writeValueAsString(ErrorDocument.builder()
+                .id("error-id")
+                .timestamp(Instant.now())
+                .errorType("INDEXING_ERROR")
+                .errorMessage("ES connection error")
+                .originalTopic("audit.methods")
+                .originalKey("correlation-1")
+                .originalPayload(compressed.toByteArray())
+                .originalFormat("JSON")
+                .originalContentEncoding("gzip")
+                .build());
+        consumer.updateEndOffsets(Map.of(new TopicPartition(ERROR_TOPIC, 0), 1L));
+        consumer.schedulePollTask(() -> consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 0L, "error_1", indexingError)));
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+
+        errorReplayService.start(ReplayRequest.builder().errorType("INDEXING_ERROR").build());
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> errorReplayService.progress().getState() != ReplayState.RUNNING);
+
+        assertEquals(1, errorReplayService.progress().getReplayed());
+        verify(elasticsearchService).indexBulk(argThat(documents -> documents.size() == 1
+                && documents.getFirst().getDocument() instanceof MethodDocument document
+                && "correlation-1".equals(document.getCorrelationId())));
+    }
+
+    @Test
+    void replayPersistenceErrors_WriteEventsWithoutIndexing() throws Exception {
+
+        errorReplayService = replayService(Optional.of(eventPersistence));
+        String persistenceError = errorRecord("PERSISTENCE_ERROR", "audit.methods", METHOD_MESSAGE);
+        String indexingError = errorRecord("INDEXING_ERROR", "audit.methods", METHOD_MESSAGE);
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 0L, "error_1", persistenceError));
+            consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 1L, "error_2", indexingError));
+            consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 2L, "error_3", persistenceError));
+        });
+        when(elasticsearchService.indexBulk(anyList())).thenReturn(List.of());
+        when(eventPersistence.persist(anyList())).thenReturn(List.of());
+
+        errorReplayService.start(ReplayRequest.builder().build());
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> errorReplayService.progress().getState() != ReplayState.RUNNING);
+
+        assertEquals(3, errorReplayService.progress().getReplayed());
+        ArgumentCaptor<List<Event>> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(eventPersistence).persist(eventsCaptor.capture());
+        assertEquals(2, eventsCaptor.getValue().size());
+        assertEquals(eventParser.parseMethodEvent(METHOD_MESSAGE).getId(), eventsCaptor.getValue().getFirst().getDocumentId());
+        verify(elasticsearchService).indexBulk(argThat(documents -> documents.size() == 1));
+    }
+
+    @Test
+    void replayPersistenceErrorsWithoutPersistence_Skip() throws Exception {
+
+        String persistenceError = errorRecord("PERSISTENCE_ERROR", "audit.methods", METHOD_MESSAGE);
+        consumer.updateEndOffsets(Map.of(new TopicPartition(ERROR_TOPIC, 0), 1L));
+        consumer.schedulePollTask(() -> consumer.addRecord(new ConsumerRecord<>(ERROR_TOPIC, 0, 0L, "error_1", persistenceError)));
+
+        errorReplayService.start(ReplayRequest.builder().errorType("PERSISTENCE_ERROR").build());
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> errorReplayService.progress().getState() != ReplayState.RUNNING);
+
+        assertEquals(ReplayState.COMPLETED, errorReplayService.progress().getState());
+        assertEquals(1, errorReplayService.progress().getScanned());
+        assertEquals(0, errorReplayService.progress().getMatched());
+        verifyNoInteractions(elasticsearchService);
+    }
+
+    @Test
+    void replayEmptyRange_CompleteWithoutIndexing() {
+
+        errorReplayService.start(ReplayRequest.builder().fromOffset(3L).build());
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> errorReplayService.progress().getState() != ReplayState.RUNNING);
+
+        assertEquals(ReplayState.COMPLETED, errorReplayService.progress().getState());
+        assertEquals(0, errorReplayService.progress().getTotal());
+        verifyNoInteractions(elasticsearchService);
+    }
+
+    /**
+     * Avro значение в формате Confluent: байт 0, идентификатор схемы, строки полей по порядку схемы
+     */
+    private static byte[] avroMethodEvent(String correlationId) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0);
+        out.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(METHOD_SCHEMA_ID).array());
+        for (String value : List.of(correlationId, "2025-01-01T10:00:00", "START", "INFO", "TestService.testMethod")) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.write(bytes.length << 1);
+            out.writeBytes(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private String errorRecord(String errorType, String originalTopic, String originalMessage) throws Exception {
+        return errorRecord(errorType, originalTopic, null, originalMessage);
+    }
+
+    private String errorRecord(String errorType, String originalTopic, String originalKey,
+                               String originalMessage) throws Exception {
+        return objectMapper.writeValueAsString(ErrorDocument.builder()
+                .id("error-id")
+                .timestamp(Instant.now())
+                .errorType(errorType)
+                .errorMessage("error")
+                .originalTopic(originalTopic)
+                .originalKey(originalKey)
+                .originalMessage(originalMessage)
+                .build());
+    }
+
+}
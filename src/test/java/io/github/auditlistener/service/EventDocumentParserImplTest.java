@@ -0,0 +1,402 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.elastic.RawHttpDocument;
+import io.github.auditlistener.model.enums.ArgsMapping;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.model.enums.ValidationRule;
+import io.github.auditlistener.model.enums.ValueType;
+import io.github.auditlistener.model.validation.FieldViolation;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.github.auditlistener.service.impl.SchemaValidatorImpl;
+import io.github.auditlistener.utils.EventValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventDocumentParserImplTest {
+
+    private static final String METHOD_EVENT = """
+            {"correlationId":"correlation-1","timestamp":"2024-01-01T12:00:00","eventType":"START",
+             "logLevel":"DEBUG","methodName":"TestService.testMethod",
+             "arguments":["arg1",2,{"key":"value"},[1,2],null],"result":"success"}
+            """;
+
+    private static final String HTTP_EVENT = """
+            {"timestamp":"2024-01-01T12:00:00","direction":"INCOMING","method":"GET","uri":"/api/test",
+             "statusCode":"201","requestBody":"test request","responseBody":{"nested":true}}
+            """;
+
+    private ObjectMapper objectMapper;
+
+    private ListenerConfig config;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private EventDocumentParserImpl eventParser;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+
+        config = new ListenerConfig();
+        meterRegistry = new SimpleMeterRegistry();
+        eventParser = parser();
+    }
+
+    private EventDocumentParserImpl parser() {
+        AuditMetrics metrics = new AuditMetrics(meterRegistry);
+        return new EventDocumentParserImpl(objectMapper, new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics),
+                new ArgsRendererImpl(config), new SchemaValidatorImpl(config));
+    }
+
+    @Test
+    void parseMethodEvent_MatchTreeBasedMapping() throws Exception {
+
+        MethodDocument document = eventParser.parseMethodEvent(METHOD_EVENT);
+        JsonNode tree = objectMapper.readTree(METHOD_EVENT);
+
+        assertEquals("correlation-1", document.getCorrelationId());
+        assertEquals("START", document.getEventType());
+        assertEquals("DEBUG", document.getLevel());
+        assertEquals("TestService.testMethod", document.getMethod());
+        assertEquals("success", document.getResult());
+        assertNull(document.getErrorMessage());
+        assertEquals(Arrays.toString(objectMapper.convertValue(tree.get("arguments"), Object[].class)), document.getArgs());
+    }
+
+    @Test
+    void parseHttpEvent_MatchTreeBasedMapping() {
+
+        HttpDocument document = eventParser.parseHttpEvent(HTTP_EVENT.getBytes(StandardCharsets.UTF_8), "correlation-1");
+
+        assertEquals("correlation-1", document.getCorrelationId());
+        assertEquals("INCOMING", document.getDirection());
+        assertEquals("GET", document.getMethod());
+        assertEquals("/api/test", document.getUri());
+        assertEquals(201, document.getStatusCode());
+        assertEquals("test request", document.getRequestBody());
+        assertEquals("", document.getResponseBody());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{}",
+            "[]",
+            "123",
+            "null",
+            "",
+            "{\"correlationId\":\"c\",\"timestamp\":\"2024-01-01T12:00:00\",\"eventType\":\"START\",\"logLevel\":\"DEBUG\"}",
+            "{\"correlationId\":null,\"timestamp\":\"2024-01-01T12:00:00\",\"eventType\":\"START\",\"logLevel\":\"DEBUG\",\"methodName\":\"m\"}",
+            "{\"correlationId\":\"c\",\"correlationId\":null,\"timestamp\":\"2024-01-01T12:00:00\",\"eventType\":\"START\",\"logLevel\":\"DEBUG\",\"methodName\":\"m\"}",
+            "{\"nested\":{\"correlationId\":\"c\"},\"timestamp\":\"2024-01-01T12:00:00\",\"eventType\":\"START\",\"logLevel\":\"DEBUG\",\"methodName\":\"m\"}"
+    })
+    void parseMethodEvent_RequiredFieldsMatchEventValidator(String message) throws Exception {
+
+        JsonNode tree = objectMapper.readTree(message);
+        boolean valid = EventValidator.validateMethodEvent(tree);
+
+        if (valid) {
+            assertNotNull(eventParser.parseMethodEvent(message));
+        } else {
+            EventProcessingException e = assertThrows(EventProcessingException.class,
+                    () -> eventParser.parseMethodEvent(message));
+            assertEquals(ErrorType.VALIDATION_ERROR, e.getErrorType());
+            assertFalse(e.getViolations().isEmpty());
+            assertTrue(e.getViolations().stream().allMatch(violation -> violation.getRule() == ValidationRule.REQUIRED));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{}",
+            "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"INCOMING\"}",
+            "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"GET\",\"uri\":\"/\",\"statusCode\":null}",
+            "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"GET\",\"uri\":\"/\",\"statusCode\":\"abc\"}",
+            "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"GET\",\"uri\":\"/\",\"statusCode\":{}}"
+    })
+    void parseHttpEvent_RequiredFieldsMatchEventValidator(String message) throws Exception {
+
+        JsonNode tree = objectMapper.readTree(message);
+        boolean valid = EventValidator.validateHttpEvent(tree);
+
+        if (valid) {
+            HttpDocument document = eventParser.parseHttpEvent(message, "key");
+            assertEquals(tree.get("statusCode").asInt(), document.getStatusCode());
+        } else {
+            EventProcessingException e = assertThrows(EventProcessingException.class,
+                    () -> eventParser.parseHttpEvent(message, "key"));
+            assertEquals(ErrorType.VALIDATION_ERROR, e.getErrorType());
+            assertEquals(List.of(new FieldViolation("statusCode", ValidationRule.REQUIRED, "required field is missing")),
+                    e.getViolations().stream().filter(violation -> violation.getField().equals("statusCode")).toList());
+        }
+    }
+
+    @Test
+    void parseInvalidJson_ParsingError() {
+
+        EventProcessingException e = assertThrows(EventProcessingException.class,
+                () -> eventParser.parseMethodEvent("{\"correlationId\":\"c\", invalid"));
+
+        assertEquals(ErrorType.PARSING_ERROR, e.getErrorType());
+    }
+
+    @Test
+    void parseMethodEventWithNonArrayArguments_TypeViolation() {
+
+        String message = "{\"correlationId\":\"c\",\"timestamp\":\"2024-01-01T12:00:00\",\"eventType\":\"START\","
+                + "\"logLevel\":\"DEBUG\",\"methodName\":\"m\",\"arguments\":{\"key\":\"value\"}}";
+
+        EventProcessingException e = assertThrows(EventProcessingException.class, () -> eventParser.parseMethodEvent(message));
+        assertEquals(List.of(new FieldViolation("arguments", ValidationRule.TYPE, "expected ARRAY, got OBJECT")), e.getViolations());
+    }
+
+    @Test
+    void parseMethodEventWithInvalidFields_ReportEachViolation() {
+
+        String message = "{\"correlationId\":\"c\",\"timestamp\":\"2024-01-01T12:00:00\",\"eventType\":\"BEGIN\","
+                + "\"logLevel\":\"VERBOSE_DEBUG\",\"methodName\":null}";
+
+        EventProcessingException e = assertThrows(EventProcessingException.class, () -> eventParser.parseMethodEvent(message));
+
+        assertEquals(ErrorType.VALIDATION_ERROR, e.getErrorType());
+        assertEquals(List.of(
+                new FieldViolation("eventType", ValidationRule.VALUES, "expected one of START, END, ERROR"),
+                new FieldViolation("logLevel", ValidationRule.MAX_LENGTH, "longer than 10 chars"),
+                new FieldViolation("methodName", ValidationRule.REQUIRED, "required field is missing")), e.getViolations());
+        assertEquals("Validation failed: eventType: expected one of START, END, ERROR; logLevel: longer than 10 chars; "
+                + "methodName: required field is missing", e.getMessage());
+    }
+
+    @Test
+    void parseMethodEventWithRepeatedField_ValidateLastValue() {
+
+        String message = METHOD_EVENT.replace("\"eventType\":\"START\"", "\"eventType\":{},\"eventType\":\"end\"");
+
+        assertEquals("end", eventParser.parseMethodEvent(message).getEventType());
+    }
+
+    @Test
+    void rewriteHttpEventWithConfiguredRule_ValidationError() {
+
+        config.getValidation().getHttp().put("requestBody", new ListenerConfig.FieldRule(false, ValueType.STRING, List.of(), 4));
+        eventParser = parser();
+        String message = "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"GET\","
+                + "\"uri\":\"/a\",\"statusCode\":200,\"requestBody\":\"short body\"}";
+
+        EventProcessingException e = assertThrows(EventProcessingException.class,
+                () -> eventParser.rewriteHttpEvent(message.getBytes(StandardCharsets.UTF_8), "key"));
+        assertEquals(List.of(new FieldViolation("requestBody", ValidationRule.MAX_LENGTH, "longer than 4 chars")), e.getViolations());
+        assertThrows(EventProcessingException.class, () -> eventParser.parseHttpEvent(message, "key"));
+    }
+
+    @Test
+    void rewriteHttpEvent_MatchSerializedHttpDocument() throws Exception {
+
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        String message = """
+                { "timestamp" : "2024-01-01T12:00", "extra": {"a": [1, 2]}, "direction":"INCOMING",
+                  "method":"POST", "uri":"/api/\\u0442\\"test\\"", "statusCode": 200,
+                  "requestBody":"тело \\n запроса", "responseBody":null }
+                """;
+
+        RawHttpDocument raw = eventParser.rewriteHttpEvent(message.getBytes(StandardCharsets.UTF_8), "corr\"1");
+        HttpDocument document = eventParser.parseHttpEvent(message, "corr\"1");
+
+        assertNotNull(raw);
+        assertEquals(document.getId(), raw.getId());
+        JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsString(document));
+        assertEquals(expected, objectMapper.readTree(raw.getSource()));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "2024-01-01T12:00:00, 2024-01-01T12:00:00Z",
+            "2024-01-01T12:00:00.123456789, 2024-01-01T12:00:00.123456789Z",
+            "2024-02-29T23:59:59.5Z, 2024-02-29T23:59:59.500Z",
+            "2024-01-01T12:00:00+03:00, 2024-01-01T09:00:00Z",
+            "2024-01-01T12:00:00.1-0130, 2024-01-01T13:30:00.100Z",
+            "2024-01-01T12:00:00+03, 2024-01-01T09:00:00Z",
+            "2024-01-01T12:00, 2024-01-01T12:00:00Z",
+            "2024-01-01T12:00:00+01:00[Europe/Paris], 2024-01-01T11:00:00Z",
+            "1704110400000, 2024-01-01T12:00:00Z"
+    })
+    void parseMethodEvent_NormalizeTimestampToUtc(String timestamp, String expected) {
+
+        String message = METHOD_EVENT.replace("2024-01-01T12:00:00", timestamp);
+
+        assertEquals(Instant.parse(expected), eventParser.parseMethodEvent(message).getTimestamp());
+    }
+
+    @Test
+    void parseMethodEvent_TimestampsMatchLocalDateTimeParse() {
+
+        LocalDateTime start = LocalDateTime.of(2023, 12, 31, 23, 59, 0);
+        for (int i = 0; i < 1000; i++) {
+            LocalDateTime time = start.plusSeconds(i * 37L);
+            String message = METHOD_EVENT.replace("2024-01-01T12:00:00", time.toString());
+
+            assertEquals(time.toInstant(ZoneOffset.UTC), eventParser.parseMethodEvent(message).getTimestamp());
+            assertEquals(time.toInstant(ZoneOffset.UTC), eventParser.parseMethodEvent(message).getTimestamp());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2024-02-30T12:00:00", "2024-01-01T24:00:00", "2024-01-01T12:00:00+19:00", "2024-01-01 12:00:00", "now"})
+    void parseMethodEventWithInvalidTimestamp_TypeViolation(String timestamp) {
+
+        String message = METHOD_EVENT.replace("2024-01-01T12:00:00", timestamp);
+
+        EventProcessingException e = assertThrows(EventProcessingException.class, () -> eventParser.parseMethodEvent(message));
+        assertEquals(ValidationRule.TYPE, e.getViolations().getFirst().getRule());
+        assertEquals("timestamp", e.getViolations().getFirst().getField());
+    }
+
+    @Test
+    void serializeDocument_TimestampAsEpochMillis() throws Exception {
+
+        MethodDocument document = eventParser.parseMethodEvent(METHOD_EVENT);
+        JsonNode source = objectMapper.readTree(objectMapper.writeValueAsString(document));
+
+        assertEquals(1704110400000L, source.get("timestamp").asLong());
+        assertEquals(document, objectMapper.treeToValue(source, MethodDocument.class));
+        ((ObjectNode) source).put("timestamp", "2024-01-01T12:00:00");
+        assertEquals(document.getTimestamp(), objectMapper.treeToValue(source, MethodDocument.class).getTimestamp());
+    }
+
+    @Test
+    void parseMethodEventWithStructuredArgs_WriteArgsObject() throws Exception {
+
+        config.getArgs().setMapping(ArgsMapping.FLATTENED);
+        eventParser = parser();
+
+        MethodDocument document = eventParser.parseMethodEvent(METHOD_EVENT);
+        JsonNode source = objectMapper.readTree(objectMapper.writeValueAsString(document));
+
+        assertEquals("value", source.get("argsFields").get("2").get("key").asText());
+        assertEquals(document, objectMapper.treeToValue(source, MethodDocument.class));
+    }
+
+    @Test
+    void parseRepeatedEvent_SameDocumentId() {
+
+        assertEquals(eventParser.parseMethodEvent(METHOD_EVENT).getId(), eventParser.parseMethodEvent(METHOD_EVENT).getId());
+        assertEquals(eventParser.parseHttpEvent(HTTP_EVENT, "key").getId(), eventParser.parseHttpEvent(HTTP_EVENT, "key").getId());
+        assertNotEquals(eventParser.parseHttpEvent(HTTP_EVENT, "key").getId(), eventParser.parseHttpEvent(HTTP_EVENT, "other").getId());
+    }
+
+    @Test
+    void parseCallsInSameMillisecond_DifferentDocumentIds() {
+
+        String recursiveCall = METHOD_EVENT.replace("\"arg1\"", "\"arg2\"");
+        assertNotEquals(eventParser.parseMethodEvent(METHOD_EVENT).getId(), eventParser.parseMethodEvent(recursiveCall).getId());
+
+        String message = "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"POST\","
+                + "\"uri\":\"/a\",\"statusCode\":200,\"requestBody\":\"first\"}";
+        String parallelCall = message.replace("first", "second");
+        RawHttpDocument raw = eventParser.rewriteHttpEvent(parallelCall.getBytes(StandardCharsets.UTF_8), "key");
+
+        assertNotEquals(eventParser.parseHttpEvent(message, "key").getId(), eventParser.parseHttpEvent(parallelCall, "key").getId());
+        assertEquals(eventParser.parseHttpEvent(parallelCall, "key").getId(), raw.getId());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {",\"statusCode\":null,\"requestBody\":null", ",\"requestBody\":null", ",\"statusCode\":null", ""})
+    void parseHttpEventWithNullOrMissingFields_SameDocumentIdInBothPaths(String fields) {
+
+        config.getValidation().getHttp().put("statusCode", new ListenerConfig.FieldRule(false, null, List.of(), 0));
+        eventParser = parser();
+        String message = "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"GET\",\"uri\":\"/a\""
+                + fields + "}";
+        String missing = "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"GET\",\"uri\":\"/a\"}";
+
+        RawHttpDocument raw = eventParser.rewriteHttpEvent(message.getBytes(StandardCharsets.UTF_8), "key");
+        String id = eventParser.parseHttpEvent(message, "key").getId();
+
+        assertNotNull(raw);
+        assertEquals(id, raw.getId());
+        assertEquals(eventParser.parseHttpEvent(missing, "key").getId(), id);
+    }
+
+    @Test
+    void rewriteHttpEvent_RecordBodySizeInChars() {
+
+        String message = "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"POST\","
+                + "\"uri\":\"/a\",\"statusCode\":200,\"requestBody\":\"тело \\u0442\"}";
+
+        assertNotNull(eventParser.rewriteHttpEvent(message.getBytes(StandardCharsets.UTF_8), "key"));
+        eventParser.parseHttpEvent(message, "key");
+
+        var sizes = meterRegistry.get(AuditMetrics.PAYLOAD_SIZE).tag("field", "requestBody").summary();
+        assertEquals(2, sizes.count());
+        assertEquals(12, sizes.totalAmount());
+    }
+
+    @Test
+    void rewriteHttpEventWithBodyOverLimit_FallbackToTruncatedDocument() {
+
+        config.getPayload().setResponseBodyMaxChars(8);
+        eventParser = parser();
+        String message = "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"GET\","
+                + "\"uri\":\"/a\",\"statusCode\":200,\"requestBody\":\"short\",\"responseBody\":\"0123456789abcdef\"}";
+
+        assertNull(eventParser.rewriteHttpEvent(message.getBytes(StandardCharsets.UTF_8), "key"));
+
+        HttpDocument document = eventParser.parseHttpEvent(message, "key");
+        assertEquals("short", document.getRequestBody());
+        assertEquals("01234567...[truncated 16 chars]", document.getResponseBody());
+    }
+
+    @Test
+    void rewriteHttpEventWithObjectBody_FallbackToDocument() {
+
+        RawHttpDocument source = eventParser.rewriteHttpEvent(HTTP_EVENT.getBytes(StandardCharsets.UTF_8), "key");
+
+        assertNull(source);
+    }
+
+    @Test
+    void rewriteHttpEventWithDuplicateField_FallbackToDocument() {
+
+        String message = "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"GET\","
+                + "\"uri\":\"/a\",\"uri\":\"/b\",\"statusCode\":200}";
+
+        assertNull(eventParser.rewriteHttpEvent(message.getBytes(StandardCharsets.UTF_8), "key"));
+    }
+
+    @Test
+    void rewriteHttpEventWithoutNeededFields_ValidationError() {
+
+        String message = "{\"timestamp\":\"2024-01-01T12:00:00\",\"direction\":\"IN\",\"method\":\"GET\",\"statusCode\":200}";
+
+        EventProcessingException e = assertThrows(EventProcessingException.class,
+                () -> eventParser.rewriteHttpEvent(message.getBytes(StandardCharsets.UTF_8), "key"));
+        assertEquals(ErrorType.VALIDATION_ERROR, e.getErrorType());
+    }
+
+}
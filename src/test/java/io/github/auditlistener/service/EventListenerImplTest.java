@@ -3,12 +3,25 @@ package io.github.auditlistener.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.ErrorNotAcceptedException;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
 import io.github.auditlistener.model.elastic.ErrorDocument;
 import io.github.auditlistener.model.elastic.HttpDocument;
 import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.validation.FieldViolation;
+import io.github.auditlistener.model.enums.ValidationRule;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
 import io.github.auditlistener.service.impl.ElasticSearchServiceImpl;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
 import io.github.auditlistener.service.impl.EventListenerImpl;
 import io.github.auditlistener.service.impl.KafkaServiceImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.github.auditlistener.service.impl.SchemaValidatorImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,14 +30,18 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.support.Acknowledgment;
 
+import java.net.ConnectException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +53,9 @@ class EventListenerImplTest {
     @Mock
     private ElasticSearchServiceImpl elasticsearchService;
 
+    @Mock
+    private RetryService retryService;
+
     @Mock
     private Acknowledgment acknowledgment;
 
@@ -43,15 +63,24 @@ class EventListenerImplTest {
 
     private ObjectMapper objectMapper;
 
+    private SimpleMeterRegistry meterRegistry;
+
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
+        meterRegistry = new SimpleMeterRegistry();
 
+        ListenerConfig config = new ListenerConfig();
+        AuditMetrics metrics = new AuditMetrics(meterRegistry);
         eventListener = new EventListenerImpl(
                 objectMapper,
+                new EventDocumentParserImpl(objectMapper, new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics),
+                        new ArgsRendererImpl(config), new SchemaValidatorImpl(config)),
                 kafkaService,
-                elasticsearchService
+                elasticsearchService,
+                retryService,
+                metrics
         );
     }
 
@@ -76,7 +105,7 @@ class EventListenerImplTest {
         ArgumentCaptor<MethodDocument> documentCaptor = ArgumentCaptor.forClass(MethodDocument.class);
         verify(elasticsearchService).indexMethodDocument(documentCaptor.capture());
         verify(acknowledgment).acknowledge();
-        verify(kafkaService, never()).sendErrorMessage(anyString(), anyString(), anyString(), anyString());
+        verifyNoInteractions(kafkaService);
 
         MethodDocument captured = documentCaptor.getValue();
         assertEquals("test-correlation-id", captured.getCorrelationId());
@@ -84,6 +113,9 @@ class EventListenerImplTest {
         assertEquals("DEBUG", captured.getLevel());
         assertEquals("TestService.testMethod", captured.getMethod());
         assertNotNull(captured.getArgs());
+
+        assertEquals(1, meterRegistry.get(AuditMetrics.RECORDS_CONSUMED).tag("topic", "audit.methods").counter().count());
+        assertEquals(1, meterRegistry.get(AuditMetrics.PARSE_TIME).tag("topic", "audit.methods").timer().count());
     }
 
     @Test
@@ -106,7 +138,7 @@ class EventListenerImplTest {
         ArgumentCaptor<HttpDocument> documentCaptor = ArgumentCaptor.forClass(HttpDocument.class);
         verify(elasticsearchService).indexHttpDocument(documentCaptor.capture());
         verify(acknowledgment).acknowledge();
-        verify(kafkaService, never()).sendErrorMessage(anyString(), anyString(), anyString(), anyString());
+        verifyNoInteractions(kafkaService);
 
         HttpDocument captured = documentCaptor.getValue();
         assertEquals("correlation-123", captured.getCorrelationId());
@@ -126,15 +158,27 @@ class EventListenerImplTest {
         eventListener.handleMethodEvent(invalidMessage, "audit.methods", "test-key", acknowledgment);
 
         verify(kafkaService).sendErrorMessage(
-                eq("PARSING_ERROR"),
-                anyString(),
+                argThat(error -> error.getErrorType() == ErrorType.PARSING_ERROR),
                 eq("audit.methods"),
+                eq("test-key"),
                 eq(invalidMessage)
         );
         verify(elasticsearchService, never()).indexMethodDocument(any());
         verify(acknowledgment).acknowledge();
     }
 
+    @Test
+    void processInvalidJsonMethodData_ErrorNotAccepted_NackWithoutAcknowledge() {
+
+        doThrow(new ErrorNotAcceptedException("Error buffer is full"))
+                .when(kafkaService).sendErrorMessage(any(EventProcessingException.class), anyString(), anyString(), anyString());
+
+        eventListener.handleMethodEvent("invalid json", "audit.methods", "test-key", acknowledgment);
+
+        verify(acknowledgment).nack(any(Duration.class));
+        verify(acknowledgment, never()).acknowledge();
+    }
+
     @Test
     void processMethodDataWithoutNeededFields_SendErrorMessage() throws JsonProcessingException {
 
@@ -148,12 +192,15 @@ class EventListenerImplTest {
 
         eventListener.handleMethodEvent(message, "audit.methods", "test-key", acknowledgment);
 
-        verify(kafkaService).sendErrorMessage(
-                eq("VALIDATION_ERROR"),
-                eq("Required fields missing"),
-                eq("audit.methods"),
-                eq(message)
-        );
+        ArgumentCaptor<EventProcessingException> errorCaptor = ArgumentCaptor.forClass(EventProcessingException.class);
+        verify(kafkaService).sendErrorMessage(errorCaptor.capture(), eq("audit.methods"), eq("test-key"), eq(message));
+        EventProcessingException error = errorCaptor.getValue();
+        assertEquals(ErrorType.VALIDATION_ERROR, error.getErrorType());
+        assertEquals("Validation failed: eventType: required field is missing; logLevel: required field is missing; "
+                + "methodName: required field is missing", error.getMessage());
+        assertEquals(List.of("eventType", "logLevel", "methodName"),
+                error.getViolations().stream().map(FieldViolation::getField).toList());
+        assertTrue(error.getViolations().stream().allMatch(violation -> violation.getRule() == ValidationRule.REQUIRED));
         verify(elasticsearchService, never()).indexMethodDocument(any());
         verify(acknowledgment).acknowledge();
     }
@@ -181,12 +228,36 @@ class EventListenerImplTest {
                 eq("INDEXING_ERROR"),
                 eq("ES connection error"),
                 eq("audit.methods"),
+                any(),
                 eq(message)
         );
         verify(acknowledgment).acknowledge();
     }
 
 
+    @Test
+    void processMethodData_TransientElasticsearchError_RetryWithoutErrorMessage() throws JsonProcessingException {
+
+        Map<String, Object> validMessage = new HashMap<>();
+        validMessage.put("correlationId", "test-correlation-id");
+        validMessage.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        validMessage.put("eventType", "START");
+        validMessage.put("logLevel", "DEBUG");
+        validMessage.put("methodName", "TestService.testMethod");
+
+        String message = objectMapper.writeValueAsString(validMessage);
+        RuntimeException error = new RuntimeException("Failed to index method document", new ConnectException("Connection refused"));
+
+        doThrow(error).when(elasticsearchService).indexMethodDocument(any());
+        when(retryService.retry("audit.methods", "test-key", message, error)).thenReturn(true);
+
+        eventListener.handleMethodEvent(message, "audit.methods", "test-key", acknowledgment);
+
+        verify(retryService).retry("audit.methods", "test-key", message, error);
+        verify(kafkaService, never()).sendErrorMessage(any(), any(), any(), any(), any());
+        verify(acknowledgment).acknowledge();
+    }
+
     @Test
     void processInvalidJsonHttpData_SendErrorMessage() {
         String invalidMessage = "invalid json";
@@ -194,9 +265,9 @@ class EventListenerImplTest {
         eventListener.handleHttpEvent(invalidMessage, "audit.requests", "test-key", acknowledgment);
 
         verify(kafkaService).sendErrorMessage(
-                eq("PARSING_ERROR"),
-                anyString(),
+                argThat(error -> error.getErrorType() == ErrorType.PARSING_ERROR),
                 eq("audit.requests"),
+                eq("test-key"),
                 eq(invalidMessage)
         );
         verify(elasticsearchService, never()).indexHttpDocument(any());
@@ -216,12 +287,14 @@ class EventListenerImplTest {
 
         eventListener.handleHttpEvent(message, "audit.requests", "test-key", acknowledgment);
 
-        verify(kafkaService).sendErrorMessage(
-                eq("VALIDATION_ERROR"),
-                eq("Required fields missing"),
-                eq("audit.requests"),
-                eq(message)
-        );
+        ArgumentCaptor<EventProcessingException> errorCaptor = ArgumentCaptor.forClass(EventProcessingException.class);
+        verify(kafkaService).sendErrorMessage(errorCaptor.capture(), eq("audit.requests"), eq("test-key"), eq(message));
+        EventProcessingException error = errorCaptor.getValue();
+        assertEquals(ErrorType.VALIDATION_ERROR, error.getErrorType());
+        assertEquals("Validation failed: method: required field is missing; uri: required field is missing; "
+                + "statusCode: required field is missing", error.getMessage());
+        assertEquals(List.of("method", "uri", "statusCode"),
+                error.getViolations().stream().map(FieldViolation::getField).toList());
         verify(elasticsearchService, never()).indexHttpDocument(any());
         verify(acknowledgment).acknowledge();
     }
@@ -249,6 +322,7 @@ class EventListenerImplTest {
                 eq("INDEXING_ERROR"),
                 eq("ES indexing failed"),
                 eq("audit.requests"),
+                any(),
                 eq(message)
         );
         verify(acknowledgment).acknowledge();
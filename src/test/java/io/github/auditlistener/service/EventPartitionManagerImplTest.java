@@ -0,0 +1,73 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.service.impl.EventPartitionManagerImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventPartitionManagerImplTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 10);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ListenerConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new ListenerConfig();
+        config.getPersistence().getPartitions().setPrecreateDays(2);
+        config.getPersistence().getPartitions().setRetentionDays(7);
+    }
+
+    @Test
+    void maintainPartitions_CreateFutureAndDropExpired() {
+
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("events_default", "events_p20240301", "events_p20240303", "events_p20240310"));
+
+        new EventPartitionManagerImpl(jdbcTemplate, config).maintainPartitions(TODAY);
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS events_p20240310 PARTITION OF events "
+                + "FOR VALUES FROM ('2024-03-10') TO ('2024-03-11')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS events_p20240311 PARTITION OF events "
+                + "FOR VALUES FROM ('2024-03-11') TO ('2024-03-12')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS events_p20240312 PARTITION OF events "
+                + "FOR VALUES FROM ('2024-03-12') TO ('2024-03-13')");
+        verify(jdbcTemplate).execute("ALTER TABLE events DETACH PARTITION events_p20240301");
+        verify(jdbcTemplate).execute("DROP TABLE events_p20240301");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE events DETACH PARTITION events_p20240303");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE events DETACH PARTITION events_default");
+    }
+
+    @Test
+    void maintainPartitions_DetachOnlyAndCreateFailed_Continue() {
+
+        config.getPersistence().getPartitions().setDropExpired(false);
+        doThrow(new DataIntegrityViolationException("updated partition constraint for default partition would be violated"))
+                .when(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS events_p20240310"));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("events_p20240301"));
+
+        new EventPartitionManagerImpl(jdbcTemplate, config).maintainPartitions(TODAY);
+
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS events_p20240312"));
+        verify(jdbcTemplate).execute("ALTER TABLE events DETACH PARTITION events_p20240301");
+        verify(jdbcTemplate, never()).execute("DROP TABLE events_p20240301");
+    }
+
+}
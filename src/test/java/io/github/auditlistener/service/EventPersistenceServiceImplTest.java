@@ -0,0 +1,226 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.enums.EventSource;
+import io.github.auditlistener.model.enums.EventType;
+import io.github.auditlistener.model.persistence.RowFailure;
+import io.github.auditlistener.service.impl.EventPersistenceServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventPersistenceServiceImplTest {
+
+    private static final String INSERT = "INSERT INTO events (document_id, correlation_id, event_type, event_source, "
+            + "target_name, log_level, timestamp, data, http_method, http_status, uri, direction, error_message) "
+            + "SELECT document_id, correlation_id, event_type, event_source, target_name, log_level, timestamp, data, "
+            + "http_method, http_status, uri, direction, error_message FROM events_staging "
+            + "ON CONFLICT (document_id, timestamp) DO NOTHING";
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PGConnection pgConnection;
+
+    @Mock
+    private CopyManager copyManager;
+
+    @Mock
+    private Statement statement;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private EventPersistenceServiceImpl eventPersistence;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        eventPersistence = new EventPersistenceServiceImpl(new ListenerConfig(), dataSource, new ObjectMapper(), new AuditMetrics(meterRegistry));
+    }
+
+    @Test
+    void persistEvents_CopyEscapedRows() throws Exception {
+
+        AtomicReference<String> copied = new AtomicReference<>();
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(connection.createStatement()).thenReturn(statement);
+        when(copyManager.copyIn(startsWith("COPY events_staging ("), any(InputStream.class))).thenAnswer(invocation -> {
+            InputStream rows = invocation.getArgument(1);
+            copied.set(new String(rows.readAllBytes(), StandardCharsets.UTF_8));
+            return 2L;
+        });
+        when(statement.executeUpdate(INSERT)).thenReturn(2);
+
+        Event methodEvent = Event.builder()
+                .documentId("document-1")
+                .correlationId("correlation-1")
+                .eventType(EventType.START)
+                .eventSource(EventSource.METHOD)
+                .targetName("TestService.testMethod")
+                .logLevel("DEBUG")
+                .timestamp(LocalDateTime.of(2024, 1, 1, 10, 0, 0))
+                .data(JsonNodeFactory.instance.objectNode().put("args", "[a\tb]"))
+                .errorMessage("line1\nline2 \\ end")
+                .build();
+        Event httpEvent = Event.builder()
+                .correlationId("correlation-2")
+                .eventSource(EventSource.HTTP)
+                .timestamp(LocalDateTime.of(2024, 1, 1, 10, 0, 1))
+                .httpMethod("GET")
+                .httpStatus(200)
+                .uri("/api/test")
+                .direction("INCOMING")
+                .build();
+
+        eventPersistence.persist(List.of(methodEvent, httpEvent));
+
+        String[] rows = copied.get().split("\n", -1);
+        assertEquals(3, rows.length);
+        assertEquals("document-1\tcorrelation-1\tSTART\tMETHOD\tTestService.testMethod\tDEBUG\t2024-01-01T10:00"
+                + "\t{\"args\":\"[a\\\\tb]\"}\t\\N\t\\N\t\\N\t\\N\tline1\\nline2 \\\\ end", rows[0]);
+        assertEquals("\\N\tcorrelation-2\t\\N\tHTTP\t\\N\t\\N\t2024-01-01T10:00:01"
+                + "\t\\N\tGET\t200\t/api/test\tINCOMING\t\\N", rows[1]);
+        assertEquals("", rows[2]);
+        verify(statement).execute(startsWith("CREATE TEMP TABLE events_staging"));
+        verify(connection).commit();
+        verify(connection).close();
+        assertEquals(2, meterRegistry.get(AuditMetrics.COPY_ROWS).summary().totalAmount());
+    }
+
+    @Test
+    void persistEvents_RowRejected_CopyOtherRowsAndReturnRejectedRow() throws Exception {
+
+        List<String> copied = new ArrayList<>();
+        AtomicInteger inserted = new AtomicInteger();
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(connection.createStatement()).thenReturn(statement);
+        when(copyManager.copyIn(startsWith("COPY events_staging ("), any(InputStream.class))).thenAnswer(invocation -> {
+            InputStream input = invocation.getArgument(1);
+            String rows = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            if (rows.contains("correlation-3")) {
+                throw new SQLException("null value in column \"timestamp\" violates not-null constraint", "23502");
+            }
+            copied.add(rows);
+            inserted.set((int) rows.lines().count());
+            return rows.lines().count();
+        });
+        when(statement.executeUpdate(INSERT)).thenAnswer(invocation -> inserted.get());
+
+        List<Event> events = List.of(event("correlation-1"), event("correlation-2"), event("correlation-3"),
+                event("correlation-4"), event("correlation-5"));
+
+        List<RowFailure> failures = eventPersistence.persist(events);
+
+        assertEquals(1, failures.size());
+        assertEquals(2, failures.get(0).getPosition());
+        assertTrue(failures.get(0).getReason().contains("not-null constraint"));
+        assertEquals(4, copied.stream().mapToLong(rows -> rows.lines().count()).sum());
+        assertTrue(copied.stream().noneMatch(rows -> rows.contains("correlation-3")));
+        assertEquals(1, meterRegistry.get(AuditMetrics.COPY_FAILURES).counter().count());
+        verify(connection, atLeastOnce()).rollback();
+        verify(connection).close();
+    }
+
+    @Test
+    void persistEvents_ValueLongerThanColumn_Truncate() throws Exception {
+
+        AtomicReference<String> copied = new AtomicReference<>();
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(connection.createStatement()).thenReturn(statement);
+        when(copyManager.copyIn(startsWith("COPY events_staging ("), any(InputStream.class))).thenAnswer(invocation -> {
+            InputStream rows = invocation.getArgument(1);
+            copied.set(new String(rows.readAllBytes(), StandardCharsets.UTF_8));
+            return 1L;
+        });
+        when(statement.executeUpdate(INSERT)).thenReturn(1);
+
+        Event event = event("k".repeat(40));
+        event.setUri("/api/" + "я".repeat(1200));
+
+        assertTrue(eventPersistence.persist(List.of(event)).isEmpty());
+
+        String[] fields = copied.get().split("\t", -1);
+        assertEquals("k".repeat(36), fields[1]);
+        assertEquals(1000, fields[10].length());
+    }
+
+    @Test
+    void persistEvents_AlreadyWritten_SkipDuplicates() throws Exception {
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(connection.createStatement()).thenReturn(statement);
+        when(copyManager.copyIn(startsWith("COPY events_staging ("), any(InputStream.class))).thenReturn(3L);
+        when(statement.executeUpdate(INSERT)).thenReturn(1);
+
+        List<RowFailure> failures = eventPersistence.persist(
+                List.of(event("correlation-1"), event("correlation-2"), event("correlation-3")));
+
+        assertTrue(failures.isEmpty());
+        assertEquals(2, meterRegistry.get(AuditMetrics.COPY_DUPLICATES).counter().count());
+        assertEquals(0, meterRegistry.get(AuditMetrics.COPY_FAILURES).counter().count());
+        verify(connection).commit();
+    }
+
+    @Test
+    void persistEvents_CopyFailed_ThrowAndCountFailure() throws Exception {
+
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        List<Event> events = List.of(Event.builder().correlationId("correlation-1").eventSource(EventSource.HTTP).build());
+
+        assertThrows(RuntimeException.class, () -> eventPersistence.persist(events));
+        assertEquals(1, meterRegistry.get(AuditMetrics.COPY_FAILURES).counter().count());
+    }
+
+    private static Event event(String correlationId) {
+        return Event.builder()
+                .correlationId(correlationId)
+                .eventSource(EventSource.HTTP)
+                .timestamp(LocalDateTime.of(2024, 1, 1, 10, 0, 0))
+                .httpMethod("GET")
+                .httpStatus(200)
+                .uri("/api/test")
+                .direction("INCOMING")
+                .build();
+    }
+
+}
@@ -0,0 +1,128 @@
+package io.github.auditlistener.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.DynamicMapping;
+import co.elastic.clients.elasticsearch._types.mapping.Property;
+import co.elastic.clients.elasticsearch.ilm.ElasticsearchIlmClient;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.PutIndexTemplateRequest;
+import co.elastic.clients.elasticsearch.ingest.ElasticsearchIngestClient;
+import co.elastic.clients.util.ObjectBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.model.enums.BodyMapping;
+import io.github.auditlistener.service.impl.IndexTemplateServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndexTemplateServiceImplTest {
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    @Mock
+    private ElasticsearchIndicesClient indicesClient;
+
+    @Mock
+    private ElasticsearchIlmClient ilmClient;
+
+    @Mock
+    private ElasticsearchIngestClient ingestClient;
+
+    private ListenerConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new ListenerConfig();
+        config.getIndices().setShards(3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void installTemplates_DataStreamTemplatesWithLifecycle() throws IOException {
+
+        when(elasticsearchClient.ingest()).thenReturn(ingestClient);
+        when(elasticsearchClient.ilm()).thenReturn(ilmClient);
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+
+        IndexTemplateServiceImpl service = new IndexTemplateServiceImpl(elasticsearchClient, config, new ObjectMapper());
+
+        assertTrue(service.installTemplates());
+
+        ArgumentCaptor<Function<PutIndexTemplateRequest.Builder, ObjectBuilder<PutIndexTemplateRequest>>> templates =
+                ArgumentCaptor.forClass(Function.class);
+        verify(indicesClient, times(3)).putIndexTemplate(templates.capture());
+        verify(ilmClient).putLifecycle(any(Function.class));
+        verify(ingestClient).putPipeline(any(Function.class));
+
+        List<PutIndexTemplateRequest> requests = templates.getAllValues().stream()
+                .map(template -> template.apply(new PutIndexTemplateRequest.Builder()).build())
+                .toList();
+
+        PutIndexTemplateRequest methods = requests.getFirst();
+        assertEquals("audit-methods-template", methods.name());
+        assertEquals(List.of("audit-methods"), methods.indexPatterns());
+        assertNotNull(methods.dataStream());
+        assertEquals("3", methods.template().settings().numberOfShards());
+        assertEquals("audit-events", methods.template().settings().lifecycle().name());
+        assertEquals("audit-ingest", methods.template().settings().defaultPipeline());
+        assertEquals("keyword", methods.template().mappings().properties().get("correlationId")._kind().jsonValue());
+        assertEquals("audit_analyzer", methods.template().mappings().properties().get("args").text().analyzer());
+        assertEquals(DynamicMapping.False, methods.template().mappings().dynamic());
+        assertEquals(List.of("audit-requests", "audit-errors"),
+                requests.subList(1, 3).stream().map(request -> request.indexPatterns().getFirst()).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void installTemplates_NotIndexedBodies() throws IOException {
+
+        config.getIndices().setBodyMapping(BodyMapping.NOT_INDEXED);
+        when(elasticsearchClient.ingest()).thenReturn(ingestClient);
+        when(elasticsearchClient.ilm()).thenReturn(ilmClient);
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+
+        new IndexTemplateServiceImpl(elasticsearchClient, config, new ObjectMapper()).installTemplates();
+
+        ArgumentCaptor<Function<PutIndexTemplateRequest.Builder, ObjectBuilder<PutIndexTemplateRequest>>> templates =
+                ArgumentCaptor.forClass(Function.class);
+        verify(indicesClient, times(3)).putIndexTemplate(templates.capture());
+        PutIndexTemplateRequest requestsTemplate = templates.getAllValues().get(1).apply(new PutIndexTemplateRequest.Builder()).build();
+
+        Map<String, Property> properties = requestsTemplate.template().mappings().properties();
+        assertFalse(properties.get("requestBody").text().index());
+        assertFalse(properties.get("responseBody").text().index());
+        assertEquals("keyword", properties.get("uri")._kind().jsonValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void installTemplates_StaticIndicesAndFailure_ReturnFalse() throws IOException {
+
+        config.getIndices().setDataStreams(false);
+        when(elasticsearchClient.ingest()).thenReturn(ingestClient);
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        when(indicesClient.putIndexTemplate(any(Function.class))).thenThrow(new IOException("Connection refused"));
+
+        IndexTemplateServiceImpl service = new IndexTemplateServiceImpl(elasticsearchClient, config, new ObjectMapper());
+
+        assertFalse(service.installTemplates());
+        verify(elasticsearchClient, never()).ilm();
+        verify(indicesClient, times(1)).putIndexTemplate(any(Function.class));
+    }
+
+}
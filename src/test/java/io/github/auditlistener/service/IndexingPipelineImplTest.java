@@ -0,0 +1,133 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.service.impl.AdaptiveBatchControllerImpl;
+import io.github.auditlistener.service.impl.IndexingPipelineImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndexingPipelineImplTest {
+
+    private static final String LISTENER_ID = "testListener";
+
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    @Mock
+    private Acknowledgment firstAcknowledgment;
+
+    @Mock
+    private Acknowledgment secondAcknowledgment;
+
+    @Mock
+    private Acknowledgment thirdAcknowledgment;
+
+    private ListenerConfig config;
+
+    private IndexingPipelineImpl indexingPipeline;
+
+    @BeforeEach
+    void setUp() {
+        config = new ListenerConfig();
+        config.getBatch().setMaxInFlight(2);
+
+        indexingPipeline = new IndexingPipelineImpl(
+                new AdaptiveBatchControllerImpl(config, new AuditMetrics(new SimpleMeterRegistry())), registry);
+    }
+
+    @Test
+    void completeBatchesOutOfOrder_AcknowledgeInSubmitOrder() {
+
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        when(registry.getListenerContainer(LISTENER_ID)).thenReturn(container);
+
+        indexingPipeline.submit(LISTENER_ID, first, firstAcknowledgment);
+        indexingPipeline.submit(LISTENER_ID, second, secondAcknowledgment);
+
+        second.complete(null);
+
+        verify(firstAcknowledgment, never()).acknowledge();
+        verify(secondAcknowledgment, never()).acknowledge();
+        assertEquals(2, indexingPipeline.inFlight(LISTENER_ID));
+
+        first.complete(null);
+
+        InOrder inOrder = inOrder(firstAcknowledgment, secondAcknowledgment);
+        inOrder.verify(firstAcknowledgment).acknowledge();
+        inOrder.verify(secondAcknowledgment).acknowledge();
+        assertEquals(0, indexingPipeline.inFlight(LISTENER_ID));
+    }
+
+    @Test
+    void fillWindow_PauseAndResumeContainer() {
+
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        when(registry.getListenerContainer(LISTENER_ID)).thenReturn(container);
+
+        indexingPipeline.submit(LISTENER_ID, first, firstAcknowledgment);
+        verify(container, never()).pause();
+
+        indexingPipeline.submit(LISTENER_ID, second, secondAcknowledgment);
+        verify(container).pause();
+
+        first.complete(null);
+
+        verify(container).resume();
+        verify(firstAcknowledgment).acknowledge();
+    }
+
+    @Test
+    void failedBatch_RestartContainerWithoutAcknowledge() {
+
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        CompletableFuture<Void> third = new CompletableFuture<>();
+        when(registry.getListenerContainer(LISTENER_ID)).thenReturn(container);
+        when(container.isRunning()).thenReturn(true);
+
+        indexingPipeline.submit(LISTENER_ID, first, firstAcknowledgment);
+        indexingPipeline.submit(LISTENER_ID, second, secondAcknowledgment);
+        first.complete(null);
+        second.completeExceptionally(new IllegalStateException("Error sender is stopped"));
+
+        verify(firstAcknowledgment).acknowledge();
+        verify(secondAcknowledgment, never()).acknowledge();
+        assertEquals(0, indexingPipeline.inFlight(LISTENER_ID));
+
+        // пачка, прочитанная до остановки контейнера, не подтверждается
+        ArgumentCaptor<Runnable> stopped = ArgumentCaptor.forClass(Runnable.class);
+        verify(container).stop(stopped.capture());
+        indexingPipeline.submit(LISTENER_ID, third, thirdAcknowledgment);
+        third.complete(null);
+        verify(thirdAcknowledgment, never()).acknowledge();
+
+        stopped.getValue().run();
+        verify(container, timeout(5000)).start();
+
+        CompletableFuture<Void> afterRestart = CompletableFuture.completedFuture(null);
+        indexingPipeline.submit(LISTENER_ID, afterRestart, thirdAcknowledgment);
+        verify(thirdAcknowledgment).acknowledge();
+    }
+
+}
@@ -0,0 +1,268 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.ErrorNotAcceptedException;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.ErrorDocument;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.model.enums.ValidationRule;
+import io.github.auditlistener.model.validation.FieldViolation;
+import io.github.auditlistener.service.impl.KafkaServiceImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaServiceImplTest {
+
+    private MockProducer<String, byte[]> producer;
+
+    private ListenerConfig config;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AuditMetrics metrics;
+
+    private ObjectMapper objectMapper;
+
+    private KafkaServiceImpl kafkaService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+
+        config = new ListenerConfig();
+        config.getErrorProducer().setBufferCapacity(2);
+        config.getErrorProducer().setBufferOfferTimeoutMs(10);
+
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new AuditMetrics(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (kafkaService != null) {
+            kafkaService.stop();
+        }
+    }
+
+    @Test
+    void sendErrorMessage_SendFromBuffer() throws Exception {
+
+        startService(true);
+
+        kafkaService.sendErrorMessage("PARSING_ERROR", "Invalid JSON", "audit.methods", "key-1", "invalid json");
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> producer.history().size() == 1);
+
+        ProducerRecord<String, byte[]> record = producer.history().get(0);
+        ErrorDocument errorDocument = objectMapper.readValue(record.value(), ErrorDocument.class);
+        assertEquals("audit.errors", record.topic());
+        assertEquals("error_" + errorDocument.getId(), record.key());
+        assertEquals("PARSING_ERROR", errorDocument.getErrorType());
+        assertEquals("audit.methods", errorDocument.getOriginalTopic());
+        assertEquals("key-1", errorDocument.getOriginalKey());
+        assertNull(errorDocument.getViolations());
+        assertEquals("invalid json", errorDocument.getOriginalMessage());
+        assertEquals(1, meterRegistry.get(AuditMetrics.ERRORS_SENT)
+                .tag("errorType", "PARSING_ERROR").tag("topic", "audit.methods").counter().count());
+    }
+
+    @Test
+    void sendValidationError_KeepFieldViolations() throws Exception {
+
+        startService(true);
+
+        kafkaService.sendErrorMessage(new EventProcessingException(List.of(
+                new FieldViolation("eventType", ValidationRule.REQUIRED, "required field is missing"),
+                new FieldViolation("logLevel", ValidationRule.VALUES, "value TRACE1 is not one of [INFO, WARN, ERROR]"))),
+                "audit.methods", "key-1", "{}");
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> producer.history().size() == 1);
+
+        ErrorDocument errorDocument = objectMapper.readValue(producer.history().get(0).value(), ErrorDocument.class);
+        assertEquals("VALIDATION_ERROR", errorDocument.getErrorType());
+        assertEquals(2, errorDocument.getViolations().size());
+        assertEquals(new FieldViolation("eventType", ValidationRule.REQUIRED, "required field is missing"),
+                errorDocument.getViolations().get(0));
+        assertEquals("logLevel", errorDocument.getViolations().get(1).getField());
+        assertEquals(ValidationRule.VALUES, errorDocument.getViolations().get(1).getRule());
+        assertEquals(1, meterRegistry.get(AuditMetrics.ERRORS_SENT)
+                .tag("errorType", "VALIDATION_ERROR").tag("topic", "audit.methods").counter().count());
+    }
+
+    @Test
+    void sendUndecodedAvroRecord_KeepOriginalBytes() throws Exception {
+
+        startService(true);
+        byte[] payload = {0, 0, 0, 0, 42, (byte) 0xC3, (byte) 0x28, (byte) 0xFF};
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.methods", 0, 5L, "key-1", payload);
+        record.headers().add("audit-format", "avro".getBytes(StandardCharsets.UTF_8));
+
+        kafkaService.sendErrorMessage(new EventProcessingException(ErrorType.PARSING_ERROR, "Unknown Avro schema id 42"), record);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> producer.history().size() == 1);
+
+        ErrorDocument errorDocument = objectMapper.readValue(producer.history().get(0).value(), ErrorDocument.class);
+        assertEquals("PARSING_ERROR", errorDocument.getErrorType());
+        assertEquals("key-1", errorDocument.getOriginalKey());
+        assertArrayEquals(payload, errorDocument.getOriginalPayload());
+        assertEquals("avro", errorDocument.getOriginalFormat());
+        assertEquals(42, errorDocument.getOriginalSchemaId());
+        assertNull(errorDocument.getOriginalMessage());
+    }
+
+    @Test
+    void sendCompressedRecord_KeepOriginalBytesAndEncoding() throws Exception {
+
+        startService(true);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write("{\"correlationId\":\"correlation-1\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.methods", 0, 5L, "key-1", compressed.toByteArray());
+        record.headers().add("content-encoding", "gzip".getBytes(StandardCharsets.UTF_8));
+
+        kafkaService.sendErrorMessage("INDEXING_ERROR", "ES connection error", record);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> producer.history().size() == 1);
+
+        ErrorDocument errorDocument = objectMapper.readValue(producer.history().get(0).value(), ErrorDocument.class);
+        assertArrayEquals(compressed.toByteArray(), errorDocument.getOriginalPayload());
+        assertEquals("gzip", errorDocument.getOriginalContentEncoding());
+        assertEquals("JSON", errorDocument.getOriginalFormat());
+        assertNull(errorDocument.getOriginalSchemaId());
+        assertNull(errorDocument.getOriginalMessage());
+    }
+
+    @Test
+    void sendUndecodedJsonRecord_KeepOriginalText() throws Exception {
+
+        startService(true);
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.methods", 0, 5L, "key-1",
+                "invalid json".getBytes(StandardCharsets.UTF_8));
+
+        kafkaService.sendErrorMessage(new EventProcessingException(ErrorType.PARSING_ERROR, "Invalid JSON"), record);
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> producer.history().size() == 1);
+
+        ErrorDocument errorDocument = objectMapper.readValue(producer.history().get(0).value(), ErrorDocument.class);
+        assertEquals("invalid json", errorDocument.getOriginalMessage());
+        assertNull(errorDocument.getOriginalPayload());
+        assertNull(errorDocument.getOriginalFormat());
+    }
+
+    @Test
+    void sendErrorMessage_ProducerFailure_CountFailure() {
+
+        startService(false);
+
+        kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}");
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> producer.history().size() == 1);
+        producer.errorNext(new RuntimeException("Broker unavailable"));
+
+        await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> meterRegistry.get(AuditMetrics.ERRORS_SEND_FAILURES).counter().count() == 1);
+    }
+
+    @Test
+    void sendErrorMessage_BufferFullLongerThanTimeout_ThrowNotAccepted() throws Exception {
+
+        producer = producer(true);
+        kafkaService = new KafkaServiceImpl(new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)),
+                config, objectMapper, new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics), metrics);
+
+        kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}");
+        kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}");
+
+        assertThrows(ErrorNotAcceptedException.class,
+                () -> kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}"));
+        assertEquals(1, meterRegistry.get(AuditMetrics.ERRORS_STALLED).counter().count());
+        assertEquals(2, kafkaService.buffered());
+        assertEquals(2, meterRegistry.get(AuditMetrics.ERRORS_BUFFERED).gauge().value());
+
+        kafkaService.start();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> producer.history().size() == 2);
+    }
+
+    @Test
+    void sendErrorMessage_BufferFreedWithinTimeout_Accept() throws Exception {
+
+        config.getErrorProducer().setBufferOfferTimeoutMs(5000);
+        producer = producer(true);
+        kafkaService = new KafkaServiceImpl(new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)),
+                config, objectMapper, new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics), metrics);
+
+        kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}");
+        kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}");
+        Thread blocked = Thread.ofPlatform().start(() ->
+                kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}"));
+
+        kafkaService.start();
+        blocked.join(5000);
+        assertFalse(blocked.isAlive());
+        await().atMost(5, TimeUnit.SECONDS).until(() -> producer.history().size() == 3);
+        assertEquals(0, meterRegistry.get(AuditMetrics.ERRORS_STALLED).counter().count());
+        assertEquals(3, meterRegistry.get(AuditMetrics.ERRORS_SENT)
+                .tag("errorType", "INDEXING_ERROR").tag("topic", "audit.requests").counter().count());
+    }
+
+    @Test
+    void sendErrorMessage_BufferFullAfterStop_Throw() throws Exception {
+
+        producer = producer(true);
+        kafkaService = new KafkaServiceImpl(new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)),
+                config, objectMapper, new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics), metrics);
+        kafkaService.stop();
+
+        kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}");
+        kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}");
+
+        assertThrows(ErrorNotAcceptedException.class,
+                () -> kafkaService.sendErrorMessage("INDEXING_ERROR", "Failed to index", "audit.requests", "key-1", "{}"));
+        kafkaService = null;
+    }
+
+    private void startService(boolean autoComplete) {
+        producer = producer(autoComplete);
+        kafkaService = new KafkaServiceImpl(new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)),
+                config, objectMapper, new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics), metrics);
+        kafkaService.start();
+    }
+
+    /**
+     * KafkaTemplate закрывает producer, полученный от фабрики, после каждой отправки
+     */
+    private static MockProducer<String, byte[]> producer(boolean autoComplete) {
+        return new MockProducer<>(autoComplete, null, new StringSerializer(), new ByteArraySerializer()) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.service.impl.KeyedDispatcherImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedDispatcherImplTest {
+
+    private KeyedDispatcherImpl dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new KeyedDispatcherImpl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void dispatchSameKey_ExecuteInOrder() {
+
+        List<Integer> executed = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            dispatcher.dispatch("correlation-1", () -> {
+                if (value % 10 == 0) {
+                    sleep();
+                }
+                executed.add(value);
+            });
+        }
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> executed.size() == 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, executed.get(i));
+        }
+    }
+
+    @Test
+    void dispatchDifferentKeys_ExecuteInParallel() throws InterruptedException {
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch executed = new CountDownLatch(1);
+
+        dispatcher.dispatch("correlation-1", () -> awaitLatch(blocked));
+        dispatcher.dispatch("correlation-2", executed::countDown);
+
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.activeKeys());
+
+        blocked.countDown();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> dispatcher.activeKeys() == 0);
+    }
+
+    @Test
+    void dispatchAfterFailedTask_ContinueKeyChain() {
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        dispatcher.dispatch("correlation-1", () -> {
+            throw new IllegalStateException("Task failed");
+        });
+        dispatcher.dispatch("correlation-1", () -> executed.add("next"));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> executed.size() == 1);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
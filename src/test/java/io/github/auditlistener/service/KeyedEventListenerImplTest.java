@@ -0,0 +1,231 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.ErrorNotAcceptedException;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
+import io.github.auditlistener.service.impl.ElasticSearchServiceImpl;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
+import io.github.auditlistener.service.impl.KafkaServiceImpl;
+import io.github.auditlistener.service.impl.KeyedDispatcherImpl;
+import io.github.auditlistener.service.impl.KeyedEventListenerImpl;
+import io.github.auditlistener.service.impl.PayloadDecoderImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.github.auditlistener.service.impl.SchemaValidatorImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KeyedEventListenerImplTest {
+
+    @Mock
+    private KafkaServiceImpl kafkaService;
+
+    @Mock
+    private ElasticSearchServiceImpl elasticsearchService;
+
+    @Mock
+    private RetryService retryService;
+
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    @Mock
+    private Acknowledgment firstAcknowledgment;
+
+    @Mock
+    private Acknowledgment secondAcknowledgment;
+
+    private KeyedDispatcherImpl dispatcher;
+
+    private KeyedEventListenerImpl keyedListener;
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+
+        dispatcher = new KeyedDispatcherImpl();
+
+        ListenerConfig config = new ListenerConfig();
+        AuditMetrics metrics = new AuditMetrics(new SimpleMeterRegistry());
+        keyedListener = new KeyedEventListenerImpl(
+                config,
+                new EventDocumentParserImpl(objectMapper, new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics),
+                        new ArgsRendererImpl(config), new SchemaValidatorImpl(config)),
+                new PayloadDecoderImpl(config, objectMapper, metrics),
+                kafkaService,
+                elasticsearchService,
+                dispatcher,
+                retryService,
+                metrics,
+                registry
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void processValidEvents_IndexAndAcknowledge() throws JsonProcessingException {
+
+        keyedListener.handleEvent(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                firstAcknowledgment);
+        keyedListener.handleEvent(
+                new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", httpMessage()),
+                secondAcknowledgment);
+
+        verify(firstAcknowledgment, timeout(5000)).acknowledge();
+        verify(secondAcknowledgment, timeout(5000)).acknowledge();
+
+        ArgumentCaptor<MethodDocument> methodCaptor = ArgumentCaptor.forClass(MethodDocument.class);
+        ArgumentCaptor<HttpDocument> httpCaptor = ArgumentCaptor.forClass(HttpDocument.class);
+        verify(elasticsearchService).indexMethodDocument(methodCaptor.capture());
+        verify(elasticsearchService).indexHttpDocument(httpCaptor.capture());
+        verifyNoInteractions(kafkaService);
+
+        assertEquals("correlation-1", methodCaptor.getValue().getCorrelationId());
+        assertEquals("correlation-2", httpCaptor.getValue().getCorrelationId());
+    }
+
+    @Test
+    void processSlowKey_AcknowledgeOtherKeyFirst() throws Exception {
+
+        CountDownLatch indexing = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            MethodDocument document = invocation.getArgument(0);
+            if ("correlation-1".equals(document.getCorrelationId())) {
+                assertTrue(indexing.await(5, TimeUnit.SECONDS));
+            }
+            return null;
+        }).when(elasticsearchService).indexMethodDocument(any());
+
+        keyedListener.handleEvent(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodMessage("correlation-1")),
+                firstAcknowledgment);
+        keyedListener.handleEvent(
+                new ConsumerRecord<>("audit.methods", 0, 1L, "correlation-2", methodMessage("correlation-2")),
+                secondAcknowledgment);
+
+        verify(secondAcknowledgment, timeout(5000)).acknowledge();
+        verify(firstAcknowledgment, never()).acknowledge();
+
+        indexing.countDown();
+        verify(firstAcknowledgment, timeout(5000)).acknowledge();
+    }
+
+    @Test
+    void processInvalidEvent_SendErrorMessageAndAcknowledge() {
+
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", "invalid json");
+        keyedListener.handleEvent(record, firstAcknowledgment);
+
+        verify(firstAcknowledgment, timeout(5000)).acknowledge();
+        verify(kafkaService).sendErrorMessage(argThat(error -> error.getErrorType() == ErrorType.PARSING_ERROR), eq(record));
+        verifyNoInteractions(elasticsearchService);
+    }
+
+    @Test
+    void processInvalidEventAfterErrorSenderStopped_NotAcknowledge() throws Exception {
+
+        doThrow(new ErrorNotAcceptedException("Error sender is stopped"))
+                .when(kafkaService).sendErrorMessage(any(EventProcessingException.class), any(ConsumerRecord.class));
+
+        keyedListener.handleEvent(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", "invalid json"),
+                firstAcknowledgment);
+        keyedListener.handleEvent(
+                new ConsumerRecord<>("audit.methods", 0, 1L, "correlation-1", methodMessage("correlation-1")),
+                secondAcknowledgment);
+
+        verify(secondAcknowledgment, timeout(5000)).acknowledge();
+        verify(firstAcknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void processInvalidEvent_ErrorNotAccepted_RestartContainerWithoutAcknowledge() throws Exception {
+
+        when(registry.getListenerContainer(KeyedEventListenerImpl.LISTENER_ID)).thenReturn(container);
+        when(container.isRunning()).thenReturn(true);
+        doThrow(new ErrorNotAcceptedException("Error buffer is full"))
+                .when(kafkaService).sendErrorMessage(any(EventProcessingException.class), any(ConsumerRecord.class));
+
+        keyedListener.handleEvent(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", "invalid json"),
+                firstAcknowledgment);
+        keyedListener.handleEvent(
+                new ConsumerRecord<>("audit.methods", 1, 0L, "correlation-2", "invalid json"),
+                secondAcknowledgment);
+
+        ArgumentCaptor<Runnable> stopped = ArgumentCaptor.forClass(Runnable.class);
+        verify(container, timeout(5000)).stop(stopped.capture());
+        verify(firstAcknowledgment, never()).acknowledge();
+        verify(kafkaService, timeout(5000).times(2)).sendErrorMessage(any(EventProcessingException.class), any(ConsumerRecord.class));
+        verify(container, times(1)).stop(any(Runnable.class));
+
+        stopped.getValue().run();
+        verify(container, timeout(5000)).start();
+        verify(secondAcknowledgment, never()).acknowledge();
+    }
+
+    private String methodMessage(String correlationId) throws JsonProcessingException {
+        Map<String, Object> message = new HashMap<>();
+        message.put("correlationId", correlationId);
+        message.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        message.put("eventType", "START");
+        message.put("logLevel", "DEBUG");
+        message.put("methodName", "TestService.testMethod");
+        message.put("arguments", new Object[]{"arg1", "arg2"});
+        return objectMapper.writeValueAsString(message);
+    }
+
+    private String httpMessage() throws JsonProcessingException {
+        Map<String, Object> message = new HashMap<>();
+        message.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        message.put("direction", "INCOMING");
+        message.put("method", "GET");
+        message.put("uri", "/api/test");
+        message.put("statusCode", 200);
+        return objectMapper.writeValueAsString(message);
+    }
+
+}
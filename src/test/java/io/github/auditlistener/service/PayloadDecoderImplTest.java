@@ -0,0 +1,342 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.exception.EventProcessingException;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.enums.ContentEncoding;
+import io.github.auditlistener.model.enums.ErrorType;
+import io.github.auditlistener.model.enums.PayloadFormat;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
+import io.github.auditlistener.service.impl.PayloadDecoderImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.github.auditlistener.service.impl.SchemaValidatorImpl;
+import io.github.auditlistener.utils.Payloads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadDecoderImplTest {
+
+    private static final int METHOD_SCHEMA_ID = 7;
+    private static final int HTTP_SCHEMA_ID = 8;
+
+    private static final String METHOD_SCHEMA = """
+            {"type": "record", "name": "MethodEvent", "namespace": "io.github.audit", "fields": [
+              {"name": "correlationId", "type": "string"},
+              {"name": "timestamp", "type": {"type": "long", "logicalType": "timestamp-millis"}},
+              {"name": "eventType", "type": {"type": "enum", "name": "EventType", "symbols": ["START", "END", "ERROR"]}},
+              {"name": "logLevel", "type": "string"},
+              {"name": "methodName", "type": "string"},
+              {"name": "arguments", "type": {"type": "array", "items": "string"}},
+              {"name": "result", "type": ["null", "string"]},
+              {"name": "errorMessage", "type": ["null", "string"]}
+            ]}
+            """;
+
+    private static final String HTTP_SCHEMA = """
+            {"type": "record", "name": "HttpEvent", "fields": [
+              {"name": "timestamp", "type": "string"},
+              {"name": "direction", "type": "string"},
+              {"name": "method", "type": "string"},
+              {"name": "uri", "type": ["null", "string"]},
+              {"name": "statusCode", "type": "int"},
+              {"name": "requestBody", "type": ["null", "bytes"]},
+              {"name": "headers", "type": {"type": "map", "values": "string"}}
+            ]}
+            """;
+
+    @TempDir
+    private Path directory;
+
+    private ListenerConfig config;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PayloadDecoderImpl payloadDecoder;
+
+    private EventDocumentParserImpl eventParser;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(directory.resolve(METHOD_SCHEMA_ID + ".avsc"), METHOD_SCHEMA);
+        Files.writeString(directory.resolve(HTTP_SCHEMA_ID + ".avsc"), HTTP_SCHEMA);
+
+        config = new ListenerConfig();
+        config.getSchemaRegistry().setDirectory(directory.toString());
+        config.getListeners().getMethod().setFormat(PayloadFormat.AVRO);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        meterRegistry = new SimpleMeterRegistry();
+        AuditMetrics metrics = new AuditMetrics(meterRegistry);
+        payloadDecoder = new PayloadDecoderImpl(config, objectMapper, metrics);
+        eventParser = new EventDocumentParserImpl(objectMapper, new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics),
+                new ArgsRendererImpl(config), new SchemaValidatorImpl(config));
+    }
+
+    @Test
+    void decode_AvroTopic_ParseMethodDocument() {
+
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodEvent());
+
+        ConsumerRecord<String, Object> decoded = payloadDecoder.decode(record);
+        MethodDocument document = eventParser.parseMethodEvent((TokenBuffer) decoded.value());
+
+        assertEquals("correlation-1", document.getCorrelationId());
+        assertEquals(Instant.ofEpochMilli(1700000000123L), document.getTimestamp());
+        assertEquals("END", document.getEventType());
+        assertEquals("INFO", document.getLevel());
+        assertEquals("TestService.testMethod", document.getMethod());
+        assertEquals("[arg1, arg2]", document.getArgs());
+        assertEquals("done", document.getResult());
+        assertNull(document.getErrorMessage());
+        assertEquals(record.offset(), decoded.offset());
+        assertEquals(record.key(), decoded.key());
+    }
+
+    @Test
+    void decode_FormatHeader_OverrideTopicFormat() {
+
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", httpEvent());
+        record.headers().add("audit-format", "avro".getBytes(StandardCharsets.UTF_8));
+
+        HttpDocument document = eventParser.parseHttpEvent((TokenBuffer) payloadDecoder.decode(record).value(), record.key());
+
+        assertEquals("correlation-2", document.getCorrelationId());
+        assertEquals(Instant.parse("2024-01-15T10:30:00Z"), document.getTimestamp());
+        assertEquals("/api/test", document.getUri());
+        assertEquals(201, document.getStatusCode());
+        assertEquals("{\"id\":1}", document.getRequestBody());
+
+        ConsumerRecord<String, Object> jsonRecord = new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", "{}");
+        jsonRecord.headers().add("audit-format", "JSON".getBytes(StandardCharsets.UTF_8));
+        assertSame(jsonRecord, payloadDecoder.decode(jsonRecord));
+    }
+
+    @Test
+    void decode_JsonTopic_ReturnSameRecord() {
+
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", "{\"uri\":\"/\"}");
+
+        assertSame(record, payloadDecoder.decode(record));
+    }
+
+    @Test
+    void decode_InvalidPayload_ThrowParsingError() {
+
+        byte[] event = methodEvent();
+        byte[] unknownSchema = event.clone();
+        unknownSchema[4] = 9;
+        byte[] truncated = Arrays.copyOf(event, event.length - 3);
+        byte[] trailing = Arrays.copyOf(event, event.length + 1);
+
+        assertParsingError("Unknown Avro schema id 9", unknownSchema);
+        assertParsingError("Truncated Avro datum", truncated);
+        assertParsingError("1 unexpected bytes after Avro datum", trailing);
+        assertParsingError("magic byte", new byte[]{'{', '}'});
+        assertParsingError("byte-array-values", "{}");
+
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.requests", 0, 0L, null, "{}");
+        record.headers().add("audit-format", "xml".getBytes(StandardCharsets.UTF_8));
+        EventProcessingException exception = assertThrows(EventProcessingException.class, () -> payloadDecoder.decode(record));
+        assertEquals("Unsupported payload format: xml", exception.getMessage());
+    }
+
+    @Test
+    void decodedEvent_AsString_ParseAsJsonWithSameId() {
+
+        ConsumerRecord<String, Object> decoded = payloadDecoder.decode(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodEvent()));
+
+        String message = Payloads.asString(decoded.value());
+
+        assertTrue(message.startsWith("{\"correlationId\":\"correlation-1\",\"timestamp\":1700000000123,\"eventType\":\"END\""));
+        assertEquals(eventParser.parseMethodEvent((TokenBuffer) decoded.value()).getId(), eventParser.parseMethodEvent(message).getId());
+    }
+
+    @Test
+    void decodedEvent_ValidationRules_Applied() {
+
+        config.getValidation().getMethod().get("methodName").setMaxLength(5);
+        AuditMetrics metrics = new AuditMetrics(new SimpleMeterRegistry());
+        EventDocumentParserImpl strictParser = new EventDocumentParserImpl(new ObjectMapper(),
+                new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics),
+                new ArgsRendererImpl(config), new SchemaValidatorImpl(config));
+        TokenBuffer event = (TokenBuffer) payloadDecoder.decode(
+                new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1", methodEvent())).value();
+
+        EventProcessingException exception = assertThrows(EventProcessingException.class, () -> strictParser.parseMethodEvent(event));
+
+        assertEquals(ErrorType.VALIDATION_ERROR, exception.getErrorType());
+        assertEquals("Validation failed: methodName: longer than 5 chars", exception.getMessage());
+    }
+
+    @Test
+    void decode_ContentEncoding_DecompressJsonAndRecordRatio() throws IOException {
+
+        byte[] message = ("{\"timestamp\":\"2024-01-15T10:30:00\",\"direction\":\"INCOMING\",\"method\":\"POST\","
+                + "\"uri\":\"/api/test\",\"statusCode\":200,\"requestBody\":\"" + "abc".repeat(1000) + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            byte[] compressed = compress(encoding, message);
+            ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.requests", 0, 0L, "correlation-2", compressed);
+            record.headers().add("content-encoding", encoding.getHeaderValue().toUpperCase().getBytes(StandardCharsets.UTF_8));
+
+            HttpDocument document = eventParser.parseHttpEvent((TokenBuffer) payloadDecoder.decode(record).value(), record.key());
+
+            assertEquals("abc".repeat(1000), document.getRequestBody(), encoding.name());
+            assertEquals(200, document.getStatusCode());
+            assertEquals(compressed.length, meterRegistry.get(AuditMetrics.PAYLOAD_COMPRESSED_BYTES)
+                    .tag("topic", "audit.requests").tag("encoding", encoding.getHeaderValue()).counter().count());
+            assertEquals(message.length, meterRegistry.get(AuditMetrics.PAYLOAD_DECOMPRESSED_BYTES)
+                    .tag("topic", "audit.requests").tag("encoding", encoding.getHeaderValue()).counter().count());
+            assertEquals((double) message.length / compressed.length, meterRegistry.get(AuditMetrics.PAYLOAD_COMPRESSION_RATIO)
+                    .tag("topic", "audit.requests").tag("encoding", encoding.getHeaderValue()).summary().mean(), 1e-9);
+        }
+    }
+
+    @Test
+    void decode_CompressedAvro_ParseMethodDocument() throws IOException {
+
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.methods", 0, 0L, "correlation-1",
+                compress(ContentEncoding.GZIP, methodEvent()));
+        record.headers().add("content-encoding", "gzip".getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < 3; i++) {
+            MethodDocument document = eventParser.parseMethodEvent((TokenBuffer) payloadDecoder.decode(record).value());
+            assertEquals("[arg1, arg2]", document.getArgs());
+        }
+    }
+
+    @Test
+    void decode_InvalidCompressedPayload_ThrowParsingError() throws IOException {
+
+        byte[] message = "{\"uri\":\"/api/test\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] corrupt = compress(ContentEncoding.GZIP, message);
+        corrupt[corrupt.length - 5]++;
+
+        assertCompressedParsingError("gzip", corrupt, "Invalid gzip payload: Corrupt GZIP trailer");
+        assertCompressedParsingError("gzip", message, "Invalid gzip payload: Not in GZIP format");
+        assertCompressedParsingError("br", message, "Unsupported content encoding: br");
+
+        config.getKafka().setMaxDecompressedBytes(10);
+        assertCompressedParsingError("lz4", compress(ContentEncoding.LZ4, message),
+                "Invalid lz4 payload: Decompressed payload exceeds 10 bytes");
+        assertCompressedParsingError("zstd", compress(ContentEncoding.ZSTD, "{\"uri\":".getBytes(StandardCharsets.UTF_8)),
+                "Unexpected end-of-input");
+    }
+
+    private void assertCompressedParsingError(String encoding, byte[] value, String message) {
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.requests", 0, 0L, null, value);
+        record.headers().add("content-encoding", encoding.getBytes(StandardCharsets.UTF_8));
+
+        EventProcessingException exception = assertThrows(EventProcessingException.class, () -> payloadDecoder.decode(record));
+
+        assertEquals(ErrorType.PARSING_ERROR, exception.getErrorType());
+        assertTrue(exception.getMessage().startsWith(message), exception.getMessage());
+    }
+
+    private static byte[] compress(ContentEncoding encoding, byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressed = switch (encoding) {
+            case GZIP -> new GZIPOutputStream(out);
+            case ZSTD -> new ZstdOutputStream(out);
+            case LZ4 -> new LZ4FrameOutputStream(out);
+        }) {
+            compressed.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private void assertParsingError(String message, Object value) {
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("audit.methods", 0, 0L, null, value);
+
+        EventProcessingException exception = assertThrows(EventProcessingException.class, () -> payloadDecoder.decode(record));
+
+        assertEquals(ErrorType.PARSING_ERROR, exception.getErrorType());
+        assertTrue(exception.getMessage().contains(message), exception.getMessage());
+    }
+
+    private static byte[] methodEvent() {
+        return new AvroWriter(METHOD_SCHEMA_ID)
+                .string("correlation-1")
+                .number(1700000000123L)
+                .number(1)
+                .string("INFO")
+                .string("TestService.testMethod")
+                .number(2).string("arg1").string("arg2").number(0)
+                .number(1).string("done")
+                .number(0)
+                .toByteArray();
+    }
+
+    private static byte[] httpEvent() {
+        return new AvroWriter(HTTP_SCHEMA_ID)
+                .string("2024-01-15T10:30:00Z")
+                .string("INCOMING")
+                .string("POST")
+                .number(1).string("/api/test")
+                .number(201)
+                .number(1).string("{\"id\":1}")
+                .number(-1).number(11).string("Accept").string("*/*").number(0)
+                .toByteArray();
+    }
+
+    /**
+     * Avro binary в формате Confluent: байт 0, идентификатор схемы, значения полей по порядку схемы
+     */
+    private static final class AvroWriter {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private AvroWriter(int schemaId) {
+            out.write(0);
+            out.writeBytes(new byte[]{(byte) (schemaId >>> 24), (byte) (schemaId >>> 16), (byte) (schemaId >>> 8), (byte) schemaId});
+        }
+
+        private AvroWriter number(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                out.write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            out.write((int) zigzag);
+            return this;
+        }
+
+        private AvroWriter string(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            number(bytes.length);
+            out.writeBytes(bytes);
+            return this;
+        }
+
+        private byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+    }
+
+}
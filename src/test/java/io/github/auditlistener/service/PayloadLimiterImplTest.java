@@ -0,0 +1,87 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.enums.PayloadField;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadLimiterImplTest {
+
+    @TempDir
+    private Path directory;
+
+    private ListenerConfig config;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        config = new ListenerConfig();
+        config.getPayload().setRequestBodyMaxChars(10);
+        config.getPayload().getStore().setDirectory(directory.toString());
+
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void limit_ValueOverLimit_TruncateWithMarker() {
+
+        PayloadLimiterImpl payloadLimiter = payloadLimiter();
+
+        assertEquals("short", payloadLimiter.limit(PayloadField.REQUEST_BODY, "short"));
+        assertEquals("0123456789...[truncated 12 chars]", payloadLimiter.limit(PayloadField.REQUEST_BODY, "0123456789ab"));
+        assertEquals("012345678...[truncated 11 chars]", payloadLimiter.limit(PayloadField.REQUEST_BODY, "012345678😀"));
+        assertNull(payloadLimiter.limit(PayloadField.REQUEST_BODY, null));
+
+        assertEquals(3, meterRegistry.get(AuditMetrics.PAYLOAD_SIZE).tag("field", "requestBody").summary().count());
+        assertEquals(2, meterRegistry.get(AuditMetrics.PAYLOAD_TRUNCATED).tag("field", "requestBody").counter().count());
+    }
+
+    @Test
+    void limit_StoreEnabled_RestoreFullValue() throws IOException {
+
+        config.getPayload().getStore().setEnabled(true);
+        PayloadLimiterImpl payloadLimiter = payloadLimiter();
+        String value = "{\"requestBody\":\"" + "x".repeat(100) + "\"}";
+
+        String truncated = payloadLimiter.limit(PayloadField.REQUEST_BODY, value);
+        assertEquals(truncated, payloadLimiter.limit(PayloadField.REQUEST_BODY, value));
+
+        assertTrue(truncated.contains(", stored as sha256:"));
+        assertEquals(value, payloadLimiter.restore(truncated));
+        assertEquals("not truncated]", payloadLimiter.restore("not truncated]"));
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+        assertEquals(2, meterRegistry.get(AuditMetrics.PAYLOAD_STORED).tag("field", "requestBody").counter().count());
+    }
+
+    @Test
+    void limit_Disabled_KeepValue() {
+
+        config.getPayload().setEnabled(false);
+        PayloadLimiterImpl payloadLimiter = payloadLimiter();
+
+        assertEquals("0123456789ab", payloadLimiter.limit(PayloadField.REQUEST_BODY, "0123456789ab"));
+        assertEquals(0, payloadLimiter.maxChars(PayloadField.REQUEST_BODY));
+        assertEquals(1, meterRegistry.get(AuditMetrics.PAYLOAD_SIZE).tag("field", "requestBody").summary().count());
+    }
+
+    private PayloadLimiterImpl payloadLimiter() {
+        AuditMetrics metrics = new AuditMetrics(meterRegistry);
+        return new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics);
+    }
+
+}
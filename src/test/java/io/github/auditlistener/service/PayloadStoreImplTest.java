@@ -0,0 +1,103 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadStoreImplTest {
+
+    @TempDir
+    private Path directory;
+
+    private ListenerConfig config;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PayloadStoreImpl payloadStore;
+
+    @BeforeEach
+    void setUp() {
+        config = new ListenerConfig();
+        config.getPayload().getStore().setEnabled(true);
+        config.getPayload().getStore().setDirectory(directory.toString());
+        meterRegistry = new SimpleMeterRegistry();
+
+        payloadStore = new PayloadStoreImpl(config, new AuditMetrics(meterRegistry));
+    }
+
+    @Test
+    void cleanup_FileOlderThanRetention_Remove() throws IOException {
+
+        String expired = payloadStore.store("expired value");
+        String recent = payloadStore.store("recent value");
+        age(expired, Duration.ofDays(31));
+
+        payloadStore.cleanup();
+
+        assertThrows(NoSuchFileException.class, () -> payloadStore.load(expired));
+        assertEquals("recent value", payloadStore.load(recent));
+        assertEquals(1, meterRegistry.get(AuditMetrics.PAYLOAD_STORE_EVICTED).counter().count());
+        assertEquals(storeSize(), meterRegistry.get(AuditMetrics.PAYLOAD_STORE_BYTES).gauge().value());
+    }
+
+    @Test
+    void storeSameValueAgain_KeepFileOnCleanup() throws IOException {
+
+        String reference = payloadStore.store("repeated value");
+        age(reference, Duration.ofDays(31));
+
+        assertEquals(reference, payloadStore.store("repeated value"));
+        payloadStore.cleanup();
+
+        assertEquals("repeated value", payloadStore.load(reference));
+    }
+
+    @Test
+    void cleanup_StoreOverMaxSize_RemoveOldestFiles() throws IOException {
+
+        String oldest = payloadStore.store("x".repeat(1000));
+        String middle = payloadStore.store("y".repeat(1000));
+        String newest = payloadStore.store("z".repeat(1000));
+        age(oldest, Duration.ofHours(2));
+        age(middle, Duration.ofHours(1));
+        config.getPayload().getStore().setMaxSizeBytes(storeSize() - 1);
+
+        payloadStore.cleanup();
+
+        assertThrows(NoSuchFileException.class, () -> payloadStore.load(oldest));
+        assertEquals("y".repeat(1000), payloadStore.load(middle));
+        assertEquals("z".repeat(1000), payloadStore.load(newest));
+        assertTrue(meterRegistry.get(AuditMetrics.PAYLOAD_STORE_BYTES).gauge().value() <= storeSize());
+    }
+
+    private void age(String reference, Duration age) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            Path file = files.filter(path -> path.getFileName().toString().startsWith(reference.substring("sha256:".length())))
+                    .findFirst()
+                    .orElseThrow();
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+        }
+    }
+
+    private long storeSize() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package io.github.auditlistener.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.service.impl.ArgsRendererImpl;
+import io.github.auditlistener.service.impl.ElasticSearchServiceImpl;
+import io.github.auditlistener.service.impl.EventDocumentParserImpl;
+import io.github.auditlistener.service.impl.KafkaServiceImpl;
+import io.github.auditlistener.service.impl.PayloadLimiterImpl;
+import io.github.auditlistener.service.impl.PayloadStoreImpl;
+import io.github.auditlistener.service.impl.SchemaValidatorImpl;
+import io.github.auditlistener.service.impl.RetryServiceImpl;
+import io.github.auditlistener.service.impl.SpillLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.ConnectException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RetryServiceImplTest {
+
+    private static final String METHOD_MESSAGE = """
+            {"correlationId":"correlation-1","timestamp":"2025-01-01T10:00:00","eventType":"START",\
+            "logLevel":"INFO","methodName":"TestService.testMethod"}""";
+
+    @Mock
+    private ElasticSearchServiceImpl elasticsearchService;
+
+    @Mock
+    private KafkaServiceImpl kafkaService;
+
+    @TempDir
+    private Path spillDirectory;
+
+    private ListenerConfig config;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RetryServiceImpl retryService;
+
+    @BeforeEach
+    void setUp() {
+        config = new ListenerConfig();
+        config.getRetry().setInitialBackoffMs(1);
+        config.getRetry().setMaxBackoffMs(5);
+        config.getRetry().setReplayIntervalMs(10);
+        config.getRetry().setSpillDirectory(spillDirectory.toString());
+        config.getRetry().setSpillSegmentBytes(64 * 1024);
+        meterRegistry = new SimpleMeterRegistry();
+
+        AuditMetrics metrics = new AuditMetrics(meterRegistry);
+        retryService = new RetryServiceImpl(config,
+                new EventDocumentParserImpl(new ObjectMapper(), new PayloadLimiterImpl(config, new PayloadStoreImpl(config, metrics), metrics),
+                        new ArgsRendererImpl(config), new SchemaValidatorImpl(config)),
+                elasticsearchService, kafkaService, metrics);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        retryService.stop();
+    }
+
+    @Test
+    void transientError_RetryUntilIndexed() {
+
+        retryService.start();
+        doThrow(transientError()).doThrow(transientError()).doNothing()
+                .when(elasticsearchService).indexMethodDocument(any());
+
+        assertTrue(retryService.retry("audit.methods", "correlation-1", METHOD_MESSAGE, transientError()));
+
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                assertEquals(1, meterRegistry.get(AuditMetrics.RETRY_SUCCEEDED).counter().count()));
+        verify(elasticsearchService, times(3)).indexMethodDocument(any());
+        verify(kafkaService, never()).sendErrorMessage(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void permanentError_NotAccepted() {
+
+        retryService.start();
+
+        assertFalse(retryService.retry("audit.methods", "correlation-1", METHOD_MESSAGE,
+                new RuntimeException("mapper_parsing_exception")));
+        assertFalse(retryService.retry("audit.methods", "correlation-1", METHOD_MESSAGE, 400));
+        assertTrue(retryService.retry("audit.methods", "correlation-1", METHOD_MESSAGE, 503));
+    }
+
+    @Test
+    void queueOverflow_SpillAndReplayWhenElasticsearchRecovers() {
+
+        config.getRetry().setQueueCapacity(0);
+        retryService.start();
+        doThrow(transientError()).doThrow(transientError()).doNothing()
+                .when(elasticsearchService).indexMethodDocument(any());
+
+        assertTrue(retryService.retry("audit.methods", "correlation-1", METHOD_MESSAGE, transientError()));
+        assertEquals(1, meterRegistry.get(AuditMetrics.RETRY_SPILLED).counter().count());
+
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                assertEquals(1, meterRegistry.get(AuditMetrics.RETRY_SPILL_REPLAYED).counter().count()));
+        assertEquals(0, meterRegistry.get(AuditMetrics.RETRY_SPILL_BYTES).gauge().value());
+        verify(elasticsearchService, times(3)).indexMethodDocument(any());
+        verify(kafkaService, never()).sendErrorMessage(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void acceptedRetry_WrittenToQueueLogBeforeReturn() throws Exception {
+
+        // задержка первой попытки больше времени теста: запись остаётся в очереди, пока журнал читается
+        config.getRetry().setInitialBackoffMs(60_000);
+        config.getRetry().setMaxBackoffMs(60_000);
+        retryService.start();
+
+        assertTrue(retryService.retry("audit.methods", "correlation-1", METHOD_MESSAGE, transientError()));
+
+        // журнал очереди читается отдельным отображением, как после аварийного завершения процесса
+        List<SpillLog.Pending> pending = new ArrayList<>();
+        try (SpillLog queueLog = new SpillLog(spillDirectory.resolve("queue"), config.getRetry().getSpillSegmentBytes(),
+                config.getRetry().getSpillMaxSegments())) {
+            queueLog.forEachPending(pending::add);
+        }
+        assertEquals(1, pending.size());
+        assertEquals(new SpillLog.Entry("audit.methods", "correlation-1", METHOD_MESSAGE), pending.getFirst().entry());
+    }
+
+    @Test
+    void queueLogLeftAfterCrash_RestoreAndIndexOnStart() throws Exception {
+
+        try (SpillLog queueLog = new SpillLog(spillDirectory.resolve("queue"), config.getRetry().getSpillSegmentBytes(),
+                config.getRetry().getSpillMaxSegments())) {
+            queueLog.append(new SpillLog.Entry("audit.methods", "correlation-1", METHOD_MESSAGE));
+        }
+
+        retryService.start();
+
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                assertEquals(1, meterRegistry.get(AuditMetrics.RETRY_SUCCEEDED).counter().count()));
+        verify(elasticsearchService).indexMethodDocument(any());
+        retryService.stop();
+
+        try (SpillLog queueLog = new SpillLog(spillDirectory.resolve("queue"), config.getRetry().getSpillSegmentBytes(),
+                config.getRetry().getSpillMaxSegments())) {
+            assertTrue(queueLog.isEmpty());
+        }
+    }
+
+    private static RuntimeException transientError() {
+        return new RuntimeException("Failed to index method document", new ConnectException("Connection refused"));
+    }
+
+}
@@ -0,0 +1,93 @@
+package io.github.auditlistener.service;
+
+import io.github.auditlistener.service.impl.SpillLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillLogTest {
+
+    private static final int SEGMENT_BYTES = 256;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void reopen_ContinueFromFirstNotCommittedEntry() throws IOException {
+
+        try (SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 4)) {
+            assertNotEquals(SpillLog.FULL, spillLog.append(new SpillLog.Entry("audit.methods", "correlation-1", "{\"n\":1}")));
+            assertNotEquals(SpillLog.FULL, spillLog.append(new SpillLog.Entry("audit.requests", null, "{\"n\":2}")));
+            spillLog.commit();
+        }
+
+        try (SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 4)) {
+            assertEquals(new SpillLog.Entry("audit.requests", null, "{\"n\":2}"), spillLog.peek());
+            spillLog.commit();
+            assertTrue(spillLog.isEmpty());
+            assertEquals(0, spillLog.pendingBytes());
+        }
+    }
+
+    @Test
+    void fullSegments_RollAndDeleteReplayedSegments() throws IOException {
+
+        String message = "x".repeat(50);
+        try (SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 2)) {
+            assertNotEquals(SpillLog.FULL, spillLog.append(new SpillLog.Entry("audit.methods", "correlation-1", message)));
+            assertNotEquals(SpillLog.FULL, spillLog.append(new SpillLog.Entry("audit.methods", "correlation-2", message)));
+            assertNotEquals(SpillLog.FULL, spillLog.append(new SpillLog.Entry("audit.methods", "correlation-3", message)));
+            assertNotEquals(SpillLog.FULL, spillLog.append(new SpillLog.Entry("audit.methods", "correlation-4", message)));
+            assertEquals(SpillLog.FULL, spillLog.append(new SpillLog.Entry("audit.methods", "correlation-5", message)));
+            assertEquals(2, segments());
+
+            spillLog.commit();
+            spillLog.commit();
+            assertEquals("correlation-3", spillLog.peek().key());
+            assertEquals(1, segments());
+            assertNotEquals(SpillLog.FULL, spillLog.append(new SpillLog.Entry("audit.methods", "correlation-5", message)));
+        }
+    }
+
+    @Test
+    void commitByPosition_KeepEarlierEntriesAfterReopen() throws IOException {
+
+        try (SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 4)) {
+            long first = spillLog.append(new SpillLog.Entry("audit.methods", "correlation-1", "{\"n\":1}"));
+            long second = spillLog.append(new SpillLog.Entry("audit.methods", "correlation-2", "{\"n\":2}"));
+            spillLog.commit(second);
+            spillLog.commit(second);
+            assertEquals("correlation-1", spillLog.peek().key());
+
+            spillLog.commit(first);
+            assertTrue(spillLog.isEmpty());
+            spillLog.append(new SpillLog.Entry("audit.methods", "correlation-3", "{\"n\":3}"));
+        }
+
+        try (SpillLog spillLog = new SpillLog(directory, SEGMENT_BYTES, 4)) {
+            List<SpillLog.Pending> pending = new ArrayList<>();
+            spillLog.forEachPending(pending::add);
+            assertEquals(1, pending.size());
+            assertEquals("correlation-3", pending.getFirst().entry().key());
+
+            spillLog.commit(pending.getFirst().position());
+            assertTrue(spillLog.isEmpty());
+            assertEquals(0, spillLog.pendingBytes());
+        }
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package io.github.auditlistener.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.HitsMetadata;
+import io.github.auditlistener.config.ListenerConfig;
+import io.github.auditlistener.metrics.AuditMetrics;
+import io.github.auditlistener.model.elastic.HttpDocument;
+import io.github.auditlistener.model.elastic.MethodDocument;
+import io.github.auditlistener.model.entity.Event;
+import io.github.auditlistener.model.enums.EventSource;
+import io.github.auditlistener.model.enums.EventType;
+import io.github.auditlistener.model.enums.TraceSource;
+import io.github.auditlistener.repository.EventRepository;
+import io.github.auditlistener.service.impl.TraceServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TraceServiceImplTest {
+
+    private static final String CORRELATION_ID = "correlation-1";
+
+    @Mock
+    private ElasticsearchAsyncClient elasticsearchAsyncClient;
+
+    @Mock
+    private EventRepository eventRepository;
+
+    @Mock
+    private ObjectProvider<EventRepository> eventRepositoryProvider;
+
+    private ListenerConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new ListenerConfig();
+    }
+
+    @Test
+    void findTrace_MergeIndicesByTimestampAndCache() {
+
+        MethodDocument start = MethodDocument.builder()
+                .correlationId(CORRELATION_ID).eventType("START").method("TestService.testMethod")
+                .timestamp(Instant.parse("2024-01-01T10:00:01Z")).build();
+        MethodDocument end = MethodDocument.builder()
+                .correlationId(CORRELATION_ID).eventType("END").method("TestService.testMethod")
+                .timestamp(Instant.parse("2024-01-01T10:00:02Z")).build();
+        HttpDocument request = HttpDocument.builder()
+                .correlationId(CORRELATION_ID).method("GET").uri("/api/test").direction("INCOMING")
+                .timestamp(Instant.parse("2024-01-01T10:00:00Z")).build();
+        mockSearch(MethodDocument.class, List.of(end, start));
+        mockSearch(HttpDocument.class, List.of(request));
+
+        TraceServiceImpl traceService = createService();
+
+        List<Event> trace = traceService.findTrace(CORRELATION_ID);
+
+        assertEquals(3, trace.size());
+        assertEquals(EventSource.HTTP, trace.get(0).getEventSource());
+        assertEquals(EventType.START, trace.get(1).getEventType());
+        assertEquals(EventType.END, trace.get(2).getEventType());
+
+        assertSame(trace, traceService.findTrace(CORRELATION_ID));
+        verify(elasticsearchAsyncClient, times(2)).search(any(Function.class), any(Class.class));
+
+        traceService.invalidate(CORRELATION_ID);
+        traceService.findTrace(CORRELATION_ID);
+        verify(elasticsearchAsyncClient, times(4)).search(any(Function.class), any(Class.class));
+    }
+
+    @Test
+    void findTraceNotIndexedYet_DoNotCacheEmptyResult() {
+
+        mockSearch(MethodDocument.class, List.of());
+        mockSearch(HttpDocument.class, List.of());
+
+        TraceServiceImpl traceService = createService();
+
+        assertTrue(traceService.findTrace(CORRELATION_ID).isEmpty());
+        assertTrue(traceService.findTrace(CORRELATION_ID).isEmpty());
+        verify(elasticsearchAsyncClient, times(4)).search(any(Function.class), any(Class.class));
+    }
+
+    @Test
+    void findTrace_PostgresSource_QueryRepository() {
+
+        config.getTrace().setSource(TraceSource.POSTGRES);
+        Event event = Event.builder().correlationId(CORRELATION_ID).eventSource(EventSource.METHOD).build();
+        when(eventRepositoryProvider.getIfAvailable()).thenReturn(eventRepository);
+        when(eventRepository.findByCorrelationIdOrderByTimestamp(CORRELATION_ID)).thenReturn(List.of(event));
+
+        TraceServiceImpl traceService = createService();
+
+        assertEquals(List.of(event), traceService.findTrace(CORRELATION_ID));
+        verifyNoInteractions(elasticsearchAsyncClient);
+    }
+
+    private TraceServiceImpl createService() {
+        return new TraceServiceImpl(elasticsearchAsyncClient, eventRepositoryProvider, config,
+                new AuditMetrics(new SimpleMeterRegistry()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void mockSearch(Class<T> documentClass, List<T> documents) {
+        List<Hit<T>> hits = documents.stream()
+                .map(document -> Hit.<T>of(h -> h.index("index").id("id").source(document)))
+                .toList();
+        SearchResponse<T> response = mock(SearchResponse.class);
+        when(response.hits()).thenReturn(HitsMetadata.of(h -> h.hits(hits)));
+        when(elasticsearchAsyncClient.search(any(Function.class), eq(documentClass)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+    }
+
+}